@@ -0,0 +1,329 @@
+/*****************************************************************************
+ * Copyright by The HDF Group.                                               *
+ * Copyright by the Board of Trustees of the University of Illinois.         *
+ * All rights reserved.                                                      *
+ *                                                                           *
+ * This file is part of the HDF Java Products distribution.                  *
+ * The full copyright notice, including terms governing use, modification,   *
+ * and redistribution, is contained in the COPYING file, which can be found  *
+ * at the root of the source code distribution tree,                         *
+ * or in https://www.hdfgroup.org/licenses.                                  *
+ * If you do not have access to either file, you may request a copy from     *
+ * help@hdfgroup.org.                                                        *
+ ****************************************************************************/
+
+package hdf.view;
+
+import java.lang.reflect.Array;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import hdf.object.Dataset;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reads the frames around the current frame of a dataset on a background thread, so that paging to the
+ * next or previous frame is served from memory.
+ *
+ * After every navigation the view calls {@link #prefetch(long)} with the new frame. The prefetcher then
+ * reads up to {@link #getDepth()} frames on each side of it, nearest first, through its own duplicate of
+ * the dataset object. Before reading a frame itself, the view asks {@link #take(long)} for it. A change of
+ * the selection other than the frame index drops the cached frames and the pending reads.
+ *
+ * The frames hold the raw values returned by {@link Dataset#read()} and are handed to the dataset with
+ * {@link Dataset#setPrefetchedData(Object)}.
+ */
+public class FramePrefetcher {
+    private static final Logger log = LoggerFactory.getLogger(FramePrefetcher.class);
+
+    /** The default number of frames read ahead on each side of the current frame. */
+    public static final int DEFAULT_DEPTH = 2;
+
+    /** The default limit, in bytes, of the memory held by prefetched frames. */
+    public static final long DEFAULT_MAX_BYTES = 256L * 1024 * 1024;
+
+    private final Dataset dataset;
+
+    private final int depth;
+
+    private final long maxBytes;
+
+    /** the prefetched frames by frame index, least recently used first */
+    private final LinkedHashMap<Long, Object> frames = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final ExecutorService executor;
+
+    /** the duplicate of the dataset used by the background thread */
+    private Dataset reader;
+
+    /** the selection the cached frames were read with, apart from the frame index */
+    private String selectionKey;
+
+    /** incremented on every request to cancel the reads that have not started yet */
+    private long generation;
+
+    /** incremented whenever the cached frames become invalid, so that reads in progress are discarded */
+    private long epoch;
+
+    /** the frame being read by the background thread, or -1 */
+    private long loadingFrame = -1;
+
+    /** the approximate size of one frame in bytes, 0 until the first frame has been read */
+    private long frameBytes;
+
+    /** true once the prefetcher has been disposed, or the dataset can not be duplicated */
+    private boolean isDisabled;
+
+    /**
+     * Creates a prefetcher with the default depth and memory limit.
+     *
+     * @param dataset
+     *            the displayed dataset; it must have 3 or more dimensions.
+     */
+    public FramePrefetcher(Dataset dataset) { this(dataset, DEFAULT_DEPTH, DEFAULT_MAX_BYTES); }
+
+    /**
+     * Creates a prefetcher.
+     *
+     * @param dataset
+     *            the displayed dataset; it must have 3 or more dimensions.
+     * @param depth
+     *            the number of frames read ahead on each side of the current frame.
+     * @param maxBytes
+     *            the limit, in bytes, of the memory held by prefetched frames.
+     */
+    public FramePrefetcher(Dataset dataset, int depth, long maxBytes)
+    {
+        this.dataset  = dataset;
+        this.depth    = Math.max(1, depth);
+        this.maxBytes = maxBytes;
+        this.executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r)
+            {
+                Thread t = new Thread(r, "FramePrefetcher-" + dataset.getName());
+                t.setDaemon(true);
+                t.setPriority(Thread.MIN_PRIORITY);
+                return t;
+            }
+        });
+    }
+
+    /**
+     * Returns the number of frames read ahead on each side of the current frame.
+     *
+     * @return the prefetch depth.
+     */
+    public int getDepth() { return depth; }
+
+    /**
+     * Removes a frame from the cache and returns its data. If the background thread is reading the frame,
+     * waits for the read to finish; all other pending reads are cancelled.
+     *
+     * The current selection of the dataset, with the frame index set to the given frame, must be the
+     * selection of the frame.
+     *
+     * @param frame
+     *            the index of the frame along the frame dimension.
+     *
+     * @return the raw data of the frame, or null if it has not been prefetched.
+     */
+    public synchronized Object take(long frame)
+    {
+        if (isDisabled || !getSelectionKey().equals(selectionKey)) {
+            generation++;
+            return null;
+        }
+
+        while (loadingFrame == frame) {
+            try {
+                wait();
+            }
+            catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+        }
+
+        generation++;
+        Object frameData = frames.remove(frame);
+        log.trace("take(): frame {} {}", frame, (frameData == null) ? "not cached" : "from cache");
+
+        return frameData;
+    }
+
+    /**
+     * Starts reading the frames around the given frame in the background, replacing any pending reads.
+     *
+     * @param frame
+     *            the index of the current frame along the frame dimension.
+     */
+    public synchronized void prefetch(long frame)
+    {
+        if (isDisabled || (dataset.getRank() < 3))
+            return;
+
+        if (reader == null) {
+            try {
+                reader = dataset.duplicate();
+            }
+            catch (Exception ex) {
+                log.debug("prefetch(): {} can not be duplicated: ", dataset.getName(), ex);
+                reader = null;
+            }
+            if (reader == null) {
+                log.trace("prefetch(): prefetch disabled for {}", dataset.getName());
+                isDisabled = true;
+                return;
+            }
+        }
+
+        String key = getSelectionKey();
+        if (!key.equals(selectionKey)) {
+            frames.clear();
+            selectionKey = key;
+            epoch++;
+        }
+
+        final long[] start    = dataset.getStartDims().clone();
+        final long[] selected = dataset.getSelectedDims().clone();
+        final long[] stride   = (dataset.getStride() == null) ? null : dataset.getStride().clone();
+        final int[] index     = dataset.getSelectedIndex().clone();
+        final long nframes    = dataset.getDims()[index[2]];
+        final long myGen      = ++generation;
+        final long myEpoch    = epoch;
+
+        // drop the frames that are too far away to be requested next
+        Iterator<Long> it = frames.keySet().iterator();
+        while (it.hasNext()) {
+            if (Math.abs(it.next() - frame) > depth)
+                it.remove();
+        }
+
+        for (int d = 1; d <= depth; d++) {
+            for (long next : new long[] {frame + d, frame - d}) {
+                if ((next < 0) || (next >= nframes) || frames.containsKey(next))
+                    continue;
+
+                final long target = next;
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run()
+                    {
+                        load(myGen, myEpoch, target, start, selected, stride, index);
+                    }
+                });
+            }
+        }
+    }
+
+    /**
+     * Returns true if a frame has been prefetched and not taken yet.
+     *
+     * @param frame
+     *            the index of the frame along the frame dimension.
+     *
+     * @return true if the frame is cached.
+     */
+    public synchronized boolean isCached(long frame) { return frames.containsKey(frame); }
+
+    /**
+     * Drops all cached frames, e.g. after the data of the dataset has been changed.
+     */
+    public synchronized void clear()
+    {
+        generation++;
+        epoch++;
+        frames.clear();
+    }
+
+    /**
+     * Cancels the pending reads and stops the background thread.
+     */
+    public synchronized void dispose()
+    {
+        isDisabled = true;
+        generation++;
+        frames.clear();
+        executor.shutdownNow();
+    }
+
+    private void load(long myGen, long myEpoch, long frame, long[] start, long[] selected, long[] stride,
+                      int[] index)
+    {
+        Dataset theReader;
+        synchronized (this) {
+            if ((myGen != generation) || isDisabled)
+                return;
+            if ((frameBytes > 0) && ((frames.size() + 1) * frameBytes > maxBytes))
+                return;
+
+            loadingFrame = frame;
+            theReader    = reader;
+        }
+
+        // the reader is only used by this thread once it has been created
+        Object frameData = null;
+        try {
+            System.arraycopy(start, 0, theReader.getStartDims(), 0, start.length);
+            System.arraycopy(selected, 0, theReader.getSelectedDims(), 0, selected.length);
+            if ((stride != null) && (theReader.getStride() != null))
+                System.arraycopy(stride, 0, theReader.getStride(), 0, stride.length);
+            System.arraycopy(index, 0, theReader.getSelectedIndex(), 0, index.length);
+            theReader.getStartDims()[index[2]] = frame;
+
+            frameData = theReader.read();
+        }
+        catch (Throwable err) {
+            log.debug("load(): frame {} failed: ", frame, err);
+            frameData = null;
+        }
+        finally {
+            synchronized (this) {
+                loadingFrame = -1;
+                if ((frameData != null) && (myEpoch == epoch) && !isDisabled) {
+                    frames.put(frame, frameData);
+                    if (frameBytes == 0)
+                        frameBytes = estimateBytes(frameData);
+                }
+                notifyAll();
+            }
+        }
+    }
+
+    private String getSelectionKey()
+    {
+        int[] index     = dataset.getSelectedIndex();
+        long[] start    = dataset.getStartDims().clone();
+        start[index[2]] = -1;
+
+        return Arrays.toString(start) + Arrays.toString(dataset.getSelectedDims()) +
+            Arrays.toString(dataset.getStride()) + Arrays.toString(index);
+    }
+
+    private static long estimateBytes(Object frameData)
+    {
+        if (!frameData.getClass().isArray())
+            return 1;
+
+        long n             = Array.getLength(frameData);
+        Class<?> component = frameData.getClass().getComponentType();
+        if ((component == byte.class) || (component == boolean.class))
+            return n;
+        if ((component == short.class) || (component == char.class))
+            return n * 2;
+        if ((component == int.class) || (component == float.class))
+            return n * 4;
+        if (component.isPrimitive())
+            return n * 8;
+
+        // references to strings or other objects
+        return n * 16;
+    }
+}
@@ -25,6 +25,7 @@ import java.awt.Toolkit;
 import java.awt.image.BufferedImage;
 import java.awt.image.ColorModel;
 import java.awt.image.ComponentColorModel;
+import java.awt.image.DataBufferByte;
 import java.awt.image.DataBufferInt;
 import java.awt.image.DirectColorModel;
 import java.awt.image.FilteredImageSource;
@@ -33,7 +34,10 @@ import java.awt.image.ImageObserver;
 import java.awt.image.ImageProducer;
 import java.awt.image.IndexColorModel;
 import java.awt.image.PixelGrabber;
+import java.awt.image.PixelInterleavedSampleModel;
 import java.awt.image.RGBImageFilter;
+import java.awt.image.SampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
 import java.awt.image.WritableRaster;
 import java.io.BufferedWriter;
 import java.io.File;
@@ -43,28 +47,37 @@ import java.io.RandomAccessFile;
 import java.lang.reflect.Array;
 import java.text.DecimalFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.BitSet;
 import java.util.HashMap;
 import java.util.Hashtable;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Vector;
 
+import hdf.object.Dataset;
+import hdf.object.DatasetStatistics;
+import hdf.object.Datatype;
 import hdf.object.Group;
 import hdf.object.HObject;
+import hdf.object.OverviewPyramid;
 import hdf.object.ScalarDS;
 import hdf.view.Chart;
 import hdf.view.DataView.DataViewFactory;
 import hdf.view.DataView.DataViewFactoryProducer;
 import hdf.view.DataView.DataViewManager;
 import hdf.view.DefaultFileFilter;
+import hdf.view.FramePrefetcher;
 import hdf.view.PaletteView.PaletteView;
+import hdf.view.StatisticsCache;
 import hdf.view.Tools;
 import hdf.view.TreeView.TreeView;
 import hdf.view.ViewProperties;
 import hdf.view.ViewProperties.BITMASK_OP;
 import hdf.view.ViewProperties.DataViewType;
 import hdf.view.dialog.NewDatasetDialog;
+import hdf.view.dialog.TaskProgressDialog;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -183,10 +196,17 @@ public class DefaultImageView implements ImageView {
     private Label imageOriginLabel;
 
     /**
-     * The image contained in the ImageView.
+     * The image contained in the ImageView. While the image is drawn from {@link #swtImageData}, it is only
+     * created when it is requested, e.g. to flip or filter the image.
      */
     private Image image;
 
+    /**
+     * The SWT image data built straight from the image byte data, or null once a flip, rotation or filter
+     * has been applied and the AWT image is drawn instead.
+     */
+    private ImageData swtImageData;
+
     /**
      * The zooming factor of this image.
      */
@@ -216,6 +236,30 @@ public class DefaultImageView implements ImageView {
     /** Flag to indicate if the image is a 3D */
     private boolean is3D;
 
+    /** Reads the frames next to the displayed one in the background */
+    private FramePrefetcher framePrefetcher = null;
+
+    /** The width and height, in image pixels, of the tiles the image is drawn in */
+    private static final int TILE_SIZE = 512;
+
+    /** The memory budget, in bytes, of the tiles kept for repainting the image */
+    private static final long TILE_CACHE_BYTES = 64L * 1024 * 1024;
+
+    /** The overview of a large image, or null if the image is read at full resolution; released on close */
+    private OverviewPyramid overview = null;
+
+    /** The displayed overview level, or -1 if a region of the image is displayed */
+    private int overviewLevel = -1;
+
+    /** The stride of the displayed region in full resolution pixels */
+    private long regionScale = 1;
+
+    /** The upper left corner of the displayed region in full resolution pixels: row, column */
+    private long[] regionStart = {0, 0};
+
+    /** The selection of the dataset before a region replaced it: start, selected, stride */
+    private long[][] fullSelection = null;
+
     /** Flag to indicate whether to show pixel values in ImageComponent */
     private boolean showValues = false;
 
@@ -326,8 +370,18 @@ public class DefaultImageView implements ImageView {
                 if (curFont != null)
                     curFont.dispose();
 
+                if (framePrefetcher != null)
+                    framePrefetcher.dispose();
+
+                if ((fullSelection != null) && (dataset != null)) {
+                    dataset.clearData();
+                    restoreSelection();
+                }
+                overview = null;
+
                 data           = null;
                 image          = null;
+                swtImageData   = null;
                 imageByteData  = null;
                 imageComponent = null;
                 autoGainData   = null;
@@ -413,7 +467,12 @@ public class DefaultImageView implements ImageView {
             return;
         }
 
-        dataset   = (ScalarDS)hobject;
+        dataset = (ScalarDS)hobject;
+
+        // keep the chunks of one frame in the chunk cache while paging through the frames
+        if (dataset.getChunkCachePolicy() == Dataset.CHUNK_CACHE_DEFAULT)
+            dataset.setChunkCachePolicy(Dataset.CHUNK_CACHE_AUTO);
+
         dataRange = dataset.getImageDataRange();
         if (dataRange == null) {
             dataRange    = new double[2];
@@ -427,16 +486,21 @@ public class DefaultImageView implements ImageView {
                 convertByteData = true;
         }
 
-        if (image == null) {
-            image = getImage();
-        }
+        initOverview();
 
-        if (image == null) {
+        if (!loadImage()) {
             viewer.showError("Loading image failed - " + dataset.getName());
+            if (fullSelection != null)
+                restoreSelection();
             dataset = null;
             return;
         }
 
+        if (is3D) {
+            framePrefetcher = new FramePrefetcher(dataset);
+            framePrefetcher.prefetch(dataset.getStartDims()[dataset.getSelectedIndex()[2]]);
+        }
+
         originalRange[0] = dataRange[0];
         originalRange[1] = dataRange[1];
 
@@ -451,7 +515,7 @@ public class DefaultImageView implements ImageView {
             .append("]");
 
         frameTitle = sb.toString();
-        shell.setText(sb.toString());
+        updateTitle();
 
         // setup subset information
         int rank            = dataset.getRank();
@@ -531,8 +595,9 @@ public class DefaultImageView implements ImageView {
         imageScroller.setLayoutData(new GridData(SWT.FILL, SWT.FILL, true, true));
         imageScroller.setFont(curFont);
 
-        imageComponent = new ImageComponent(imageScroller, SWT.DOUBLE_BUFFERED, image);
+        imageComponent = new ImageComponent(imageScroller, SWT.DOUBLE_BUFFERED);
         imageScroller.setContent(imageComponent);
+        showImage();
 
         if (imageOrigin == Origin.LOWER_LEFT)
             flip(FLIP_VERTICAL);
@@ -821,10 +886,8 @@ public class DefaultImageView implements ImageView {
                     return;
 
                 // Call only once
-                if (dataDist == null) {
-                    dataDist = new int[256];
-                    Tools.findDataDist(data, dataDist, originalRange);
-                }
+                if (dataDist == null)
+                    dataDist = getDataDist();
 
                 DataRangeDialog drd =
                     new DataRangeDialog(shell, SWT.NONE, dataRange, originalRange, dataDist);
@@ -954,7 +1017,7 @@ public class DefaultImageView implements ImageView {
             public void widgetSelected(SelectionEvent e)
             {
                 if (contrastSlider == null)
-                    contrastSlider = new ContrastSlider(shell, SWT.NONE, image.getSource());
+                    contrastSlider = new ContrastSlider(shell, SWT.NONE, getImage().getSource());
                 contrastSlider.open();
             }
         });
@@ -1043,6 +1106,22 @@ public class DefaultImageView implements ImageView {
                     Object theData = null;
                     theData        = getSelectedData();
 
+                    Datatype dtype = dataset.getDatatype();
+                    if ((theData == null) && (dtype.isInteger() || dtype.isFloat()) &&
+                        (dtype.getDatatypeSize() <= 8)) {
+                        // nothing selected: stream the whole dataset rather than the displayed frame
+                        DatasetStatistics stats = TaskProgressDialog.computeStatistics(shell, dataset);
+                        if (stats != null) {
+                            String statistics = "Min                      = " + stats.getMin() +
+                                                "\nMax                      = " + stats.getMax() +
+                                                "\nMean                     = " + stats.getMean() +
+                                                "\nStandard deviation = " + stats.getStandardDeviation();
+
+                            Tools.showInformation(shell, "Statistics", statistics);
+                        }
+                        return;
+                    }
+
                     if (theData == null)
                         theData = data;
 
@@ -1137,7 +1216,7 @@ public class DefaultImageView implements ImageView {
             public void widgetSelected(SelectionEvent e)
             {
                 if (contrastSlider == null)
-                    contrastSlider = new ContrastSlider(shell, SWT.NONE, image.getSource());
+                    contrastSlider = new ContrastSlider(shell, SWT.NONE, getImage().getSource());
                 contrastSlider.open();
             }
         });
@@ -1404,13 +1483,36 @@ public class DefaultImageView implements ImageView {
         gotoPage(dims[selectedIndex[2]] - 1);
     }
 
+    /**
+     * Returns the image. An image drawn from the image byte data has no AWT image until one is requested
+     * here; it is then created from the same byte data.
+     */
     @Override
     public Image getImage()
     {
-        if (image != null) {
-            return image;
+        if ((image == null) && loadImage() && (swtImageData != null)) {
+            int w = swtImageData.width;
+            int h = swtImageData.height;
+            if (isTrueColor)
+                image = createTrueColorImage(imageByteData, isPlaneInterlace, w, h);
+            else
+                image = createIndexedImage(imageByteData, imagePalette, w, h);
         }
 
+        return image;
+    }
+
+    /**
+     * Reads the image data if the image has not been loaded yet. The unflipped, unrotated and unfiltered
+     * image is built straight from the image byte data into SWT image data, without an AWT image.
+     *
+     * @return true if the image is loaded
+     */
+    private boolean loadImage()
+    {
+        if ((image != null) || (swtImageData != null))
+            return true;
+
         if (!dataset.isInited())
             dataset.init();
 
@@ -1426,7 +1528,7 @@ public class DefaultImageView implements ImageView {
         catch (Exception ex) {
             shell.getDisplay().beep();
             Tools.showError(shell, "Select", "ImageView: " + shell.getText());
-            return null;
+            return false;
         }
 
         // set number type, ...
@@ -1435,7 +1537,7 @@ public class DefaultImageView implements ImageView {
             NT           = cname.charAt(cname.lastIndexOf('[') + 1);
         }
 
-        return image;
+        return (image != null) || (swtImageData != null);
     }
 
     /**
@@ -1462,12 +1564,18 @@ public class DefaultImageView implements ImageView {
         if (dataset.getRank() > 2)
             dataset.getSelectedDims()[dataset.getSelectedIndex()[2]] = 1;
 
-        data = dataset.getData();
+        if (overviewLevel >= 0)
+            data = overview.getData(overviewLevel);
+        else
+            data = dataset.getData();
         if ((bitmask != null) && Tools.applyBitmask(data, bitmask, bitmaskOP))
             doAutoGainContrast = false;
 
         if (dataset.getDatatype().isInteger() || dataset.getDatatype().isChar()) {
-            data                = dataset.convertFromUnsignedC();
+            if (overviewLevel < 0)
+                data = dataset.convertFromUnsignedC();
+            else if (dataset.getDatatype().isUnsigned())
+                data = Dataset.convertFromUnsignedC(data, null);
             isUnsignedConverted = true;
             doAutoGainContrast =
                 doAutoGainContrast || (ViewProperties.isAutoContrast() && noPalette && isLocalFile);
@@ -1480,8 +1588,20 @@ public class DefaultImageView implements ImageView {
             isAutoContrastFailed = (!computeAutoGainImageData(gainBias, null));
         }
 
-        long w = dataset.getWidth();
-        long h = dataset.getHeight();
+        long w = getImageWidth();
+        long h = getImageHeight();
+
+        // the value range is computed from the data when it is not known; look it up in the cache first
+        boolean isRangeComputed = false;
+        if ((dataRange != null) && (dataRange[0] == dataRange[1]) && (bitmask == null)) {
+            double[] cachedRange = StatisticsCache.get(dataset, StatisticsCache.MIN_MAX);
+            if ((cachedRange != null) && (cachedRange.length == 2) && (cachedRange[0] < cachedRange[1])) {
+                dataRange[0] = cachedRange[0];
+                dataRange[1] = cachedRange[1];
+            }
+            else
+                isRangeComputed = true;
+        }
 
         if (isAutoContrastFailed) {
             doAutoGainContrast = false;
@@ -1493,7 +1613,11 @@ public class DefaultImageView implements ImageView {
             Tools.findMinMax(data, dataRange, null);
         }
 
-        image = createIndexedImage(imageByteData, imagePalette, w, h);
+        // the range of the means of an overview is not the range of the data
+        if (isRangeComputed && (dataRange[0] < dataRange[1]) && (overviewLevel < 0))
+            StatisticsCache.put(dataset, StatisticsCache.MIN_MAX, dataRange);
+
+        setIndexedImageData(w, h);
     }
 
     /**
@@ -1526,7 +1650,39 @@ public class DefaultImageView implements ImageView {
         imageByteData =
             Tools.getBytes(data, dataRange, w, h, false, dataset.getFilteredImageValues(), imageByteData);
 
-        image = createTrueColorImage(imageByteData, isPlaneInterlace, (int)w, (int)h);
+        image        = null;
+        swtImageData = Tools.createTrueColorImageData(imageByteData, isPlaneInterlace, (int)w, (int)h,
+                                                      invalidValueIndex);
+    }
+
+    /**
+     * Returns the distribution of the values of the image data over the original value range, from the
+     * statistics cache if it holds the distribution for the same range.
+     *
+     * @return the count of values in each of 256 bins
+     */
+    private int[] getDataDist()
+    {
+        int[] dist      = new int[256];
+        double[] cached = (bitmask == null) ? StatisticsCache.get(dataset, StatisticsCache.HISTOGRAM) : null;
+        if ((cached != null) && (cached.length == dist.length + 2) && (cached[0] == originalRange[0]) &&
+            (cached[1] == originalRange[1])) {
+            for (int i = 0; i < dist.length; i++)
+                dist[i] = (int)cached[i + 2];
+            return dist;
+        }
+
+        if ((Tools.findDataDist(data, dist, originalRange, false, dataset.getFillValue()) >= 0) &&
+            (bitmask == null) && (overviewLevel < 0)) {
+            double[] values = new double[dist.length + 2];
+            values[0]       = originalRange[0];
+            values[1]       = originalRange[1];
+            for (int i = 0; i < dist.length; i++)
+                values[i + 2] = dist[i];
+            StatisticsCache.put(dataset, StatisticsCache.HISTOGRAM, values);
+        }
+
+        return dist;
     }
 
     /**
@@ -1545,8 +1701,16 @@ public class DefaultImageView implements ImageView {
         // image algorithm
 
         if (gainBias == null) { // calculate auto_gain only once
-            gainBias = new double[2];
-            Tools.autoContrastCompute(data, gainBias, dataset.getDatatype().isUnsigned());
+            // the gain and bias of an overview level are computed from its mean values and are not
+            // stored under the full resolution selection
+            boolean isCached = (bitmask == null) && (overviewLevel < 0);
+            gainBias         = isCached ? StatisticsCache.get(dataset, StatisticsCache.GAIN_BIAS) : null;
+            if ((gainBias == null) || (gainBias.length != 2)) {
+                gainBias = new double[2];
+                if ((Tools.autoContrastCompute(data, gainBias, dataset.getDatatype().isUnsigned()) >= 0) &&
+                    isCached)
+                    StatisticsCache.put(dataset, StatisticsCache.GAIN_BIAS, gainBias);
+            }
         }
 
         if (gb == null)
@@ -1602,6 +1766,20 @@ public class DefaultImageView implements ImageView {
         if (zoomFactor == zf)
             return; // no change in zooming
 
+        // switch to the overview level or region that matches the new zoom factor
+        Point origin = null;
+        if (overview != null) {
+            long oldScale   = regionScale;
+            Point oldOrigin = imageScroller.getOrigin();
+            double col      = regionStart[1] + (double)oldOrigin.x / zoomFactor * oldScale;
+            double row      = regionStart[0] + (double)oldOrigin.y / zoomFactor * oldScale;
+            if (changeOverviewLevel(zf)) {
+                zf     = Math.max(0.125f, Math.min(8, zf * regionScale / oldScale));
+                origin = new Point((int)((col - regionStart[1]) / regionScale * zf),
+                                   (int)((row - regionStart[0]) / regionScale * zf));
+            }
+        }
+
         zoomFactor = zf;
 
         Dimension imageSize = new Dimension((int)(imageComponent.originalSize.width * zoomFactor),
@@ -1609,11 +1787,28 @@ public class DefaultImageView implements ImageView {
 
         imageComponent.setImageSize(imageSize);
         imageComponent.redraw();
+        if (origin != null)
+            imageScroller.setOrigin(Math.max(0, origin.x), Math.max(0, origin.y));
+
+        updateTitle();
+    }
+
+    /**
+     * Shows the zoom factor and, when the image is not read at full resolution, the scale of the displayed
+     * overview level or region in the title.
+     */
+    private void updateTitle()
+    {
+        String title = frameTitle;
+        if (overviewLevel >= 0)
+            title += " - overview 1:" + regionScale + " (mean values)";
+        else if (regionScale > 1)
+            title += " - every " + regionScale + " pixels";
 
         if ((zoomFactor > 0.99) && (zoomFactor < 1.01))
-            shell.setText(frameTitle);
+            shell.setText(title);
         else
-            shell.setText(frameTitle + " - " + 100 * zoomFactor + "%");
+            shell.setText(title + " - " + 100 * zoomFactor + "%");
     }
 
     // implementing ImageObserver
@@ -1676,27 +1871,22 @@ public class DefaultImageView implements ImageView {
             return;
         }
 
-        double[][] chartData = new double[1][256];
-        for (int i = 0; i < 256; i++) {
-            chartData[0][i] = 0.0;
-        }
-
         // Java only allows ints for array indices, may cause an issue with a dataset of width
         // larger than an int
-        int w          = (int)dataset.getWidth();
-        int x0         = (int)(rec.x / zoomFactor);
-        int y0         = (int)(rec.y / zoomFactor);
-        int x          = x0 + (int)(rec.width / zoomFactor);
-        int y          = y0 + (int)(rec.height / zoomFactor);
-        int arrayIndex = 0;
-        for (int i = y0; i < y; i++) {
-            for (int j = x0; j < x; j++) {
-                arrayIndex = imageByteData[i * w + j];
-                if (arrayIndex < 0)
-                    arrayIndex += 256;
-                chartData[0][arrayIndex] += 1.0;
-            }
-        }
+        int w  = (int)getImageWidth();
+        int x0 = (int)(rec.x / zoomFactor);
+        int y0 = (int)(rec.y / zoomFactor);
+        int x  = x0 + (int)(rec.width / zoomFactor);
+        int y  = y0 + (int)(rec.height / zoomFactor);
+
+        // count the pixel indices of the selected area
+        int[] dist = new int[256];
+        Tools.findDataDist(imageByteData, w, new Rectangle(x0, y0, x - x0, y - y0), dist,
+                           new double[] {0, dist.length - 1}, true, null);
+
+        double[][] chartData = new double[1][dist.length];
+        for (int i = 0; i < dist.length; i++)
+            chartData[0][i] = dist[i];
 
         // Use original data range
         double[] xRange = originalRange;
@@ -1765,10 +1955,8 @@ public class DefaultImageView implements ImageView {
     private void applyAutoGain(double[] gb, double[] range)
     {
         if (computeAutoGainImageData(gb, range)) {
-            long w = dataset.getWidth();
-            long h = dataset.getHeight();
-            image  = createIndexedImage(imageByteData, imagePalette, w, h);
-            imageComponent.setImage(image);
+            setIndexedImageData(getImageWidth(), getImageHeight());
+            showImage();
             zoomTo(zoomFactor);
         }
     }
@@ -1825,7 +2013,7 @@ public class DefaultImageView implements ImageView {
      */
     private void saveImageAs(String type) throws Exception
     {
-        if (image == null) {
+        if (getImage() == null) {
             return;
         }
 
@@ -1937,6 +2125,23 @@ public class DefaultImageView implements ImageView {
             return null; // no data is selected
         }
 
+        // an overview level holds means: export the values in the file under the selected pixels
+        if (overviewLevel >= 0) {
+            try {
+                long[] sel    = getOverviewSelection();
+                Object values = overview.readRegion(sel[0], sel[1], sel[2], sel[3]);
+                if (dataset.getDatatype().isUnsigned())
+                    values = Dataset.convertFromUnsignedC(values, null);
+
+                return values;
+            }
+            catch (Exception | OutOfMemoryError ex) {
+                log.debug("getSelectedData(): failed to read the selected values: ", ex);
+                Tools.showError(shell, "Select", "Failed to read the selected values: " + ex.getMessage());
+                return null;
+            }
+        }
+
         int size = cols * rows;
         if (isTrueColor) {
             size *= 3;
@@ -2020,7 +2225,14 @@ public class DefaultImageView implements ImageView {
     @Override
     public Rectangle getSelectedArea()
     {
-        return imageComponent.originalSelectedArea;
+        Rectangle area = imageComponent.originalSelectedArea;
+        if ((overviewLevel < 0) || (area.width <= 0) || (area.height <= 0))
+            return area;
+
+        // the selected values are read at full resolution while an overview level is displayed
+        long[] selection = getOverviewSelection();
+
+        return new Rectangle((int)selection[1], (int)selection[0], (int)selection[3], (int)selection[2]);
     }
 
     /** @return true if the image is a truecolor image. */
@@ -2040,7 +2252,8 @@ public class DefaultImageView implements ImageView {
     @Override
     public void setImage(Image img)
     {
-        image = img;
+        image        = img;
+        swtImageData = null;
         imageComponent.setImage(img);
 
         setImageDirection();
@@ -2121,11 +2334,27 @@ public class DefaultImageView implements ImageView {
         start[selectedIndex[2]] = idx;
         curFrame                = idx + indexBase;
         dataset.clearData();
-        image    = null;
-        gainBias = null;
-        imageComponent.setImage(getImage());
+        if (framePrefetcher != null)
+            dataset.setPrefetchedData(framePrefetcher.take(idx));
+        reloadImage();
         frameField.setText(String.valueOf(curFrame));
 
+        if (framePrefetcher != null)
+            framePrefetcher.prefetch(idx);
+    }
+
+    /**
+     * Creates the image again from the current selection of the dataset and restores the orientation given
+     * by the image origin.
+     */
+    private void reloadImage()
+    {
+        image        = null;
+        swtImageData = null;
+        gainBias     = null;
+        loadImage();
+        showImage();
+
         isHorizontalFlipped = false;
         isVerticalFlipped   = false;
         rotateCount         = 0;
@@ -2140,6 +2369,194 @@ public class DefaultImageView implements ImageView {
         }
     }
 
+    /**
+     * Shows a large 2D image through an overview pyramid instead of reading it at full resolution. The
+     * pyramid is built by streaming the image once in a progress dialog, which lets the user cancel the build
+     * and read the image at full resolution instead. The pyramid belongs to this view, so its memory is
+     * released when the view is closed, at the latest when the file is closed.
+     */
+    private void initOverview()
+    {
+        if (!dataset.isInited())
+            dataset.init();
+
+        if ((bitmask != null) || (dataset.getRank() != 2) || !OverviewPyramid.isSupported(dataset))
+            return;
+
+        long[] dims     = dataset.getDims();
+        long[] start    = dataset.getStartDims();
+        long[] selected = dataset.getSelectedDims();
+        long[] stride   = dataset.getStride();
+        for (int i = 0; i < dims.length; i++) {
+            if ((start[i] != 0) || (selected[i] != dims[i]) || (stride[i] != 1))
+                return;
+        }
+        if (dims[0] * dims[1] <= OverviewPyramid.DEFAULT_MAX_PIXELS)
+            return;
+
+        // a cancelled build leaves the image to be read at full resolution
+        OverviewPyramid pyramid = null;
+        try {
+            pyramid = TaskProgressDialog.buildOverview(shell, dataset, OverviewPyramid.DEFAULT_MAX_PIXELS);
+        }
+        catch (Exception ex) {
+            log.debug("initOverview(): {} is read at full resolution: ", dataset.getName(), ex);
+        }
+        if (pyramid == null)
+            return;
+
+        log.trace("initOverview(): {} with {} levels", dataset.getName(), pyramid.getLevelCount());
+        fullSelection = new long[][] {start.clone(), selected.clone(), stride.clone()};
+        overview      = pyramid;
+        showOverviewLevel(0);
+    }
+
+    /**
+     * Switches to a coarser overview level when the image is zoomed out, and to a finer level or a region
+     * read at a finer stride when it is zoomed in, so that one image pixel stays close to one screen pixel.
+     *
+     * @param zf
+     *            the new zoom factor of the displayed image.
+     *
+     * @return true if the displayed image has been replaced.
+     */
+    private boolean changeOverviewLevel(float zf)
+    {
+        if (zf <= 0.5f) {
+            if (overviewLevel < 0)
+                showOverviewLevel(0);
+            else if (overviewLevel + 1 < overview.getLevelCount())
+                showOverviewLevel(overviewLevel + 1);
+            else
+                return false;
+        }
+        else if (zf >= 2) {
+            // a region can only be located in the image as it is read
+            boolean isUnchanged = (imageOrigin == Origin.UPPER_LEFT) && !isHorizontalFlipped &&
+                                  !isVerticalFlipped && (rotateCount == 0);
+            if (overviewLevel > 0)
+                showOverviewLevel(overviewLevel - 1);
+            else if ((regionScale > 1) && isUnchanged)
+                showRegion(regionScale / 2);
+            else
+                return false;
+        }
+        else {
+            return false;
+        }
+
+        reloadImage();
+        return true;
+    }
+
+    /**
+     * Displays an overview level in place of the full resolution image. The level is kept in the image
+     * buffer of the view; the dataset keeps its full selection and holds no data meanwhile.
+     */
+    private void showOverviewLevel(int level)
+    {
+        if (overviewLevel < 0) {
+            restoreSelection();
+            dataset.clearData();
+        }
+
+        overviewLevel  = level;
+        regionScale    = overview.getScale(level);
+        regionStart[0] = 0;
+        regionStart[1] = 0;
+    }
+
+    /**
+     * Selects the visible region of the image, read from the file with a finer stride.
+     */
+    private void showRegion(long scale)
+    {
+        int rowDim  = dataset.getSelectedIndex()[0];
+        int colDim  = dataset.getSelectedIndex()[1];
+        long[] dims = dataset.getDims();
+
+        Point origin                            = imageScroller.getOrigin();
+        org.eclipse.swt.graphics.Rectangle area = imageScroller.getClientArea();
+
+        long row0 = regionStart[0] + (long)(origin.y / zoomFactor * regionScale);
+        long col0 = regionStart[1] + (long)(origin.x / zoomFactor * regionScale);
+        row0      = Math.max(0, Math.min(row0, dims[rowDim] - 1));
+        col0      = Math.max(0, Math.min(col0, dims[colDim] - 1));
+        long rows = Math.min((long)Math.ceil(area.height / zoomFactor * regionScale), dims[rowDim] - row0);
+        long cols = Math.min((long)Math.ceil(area.width / zoomFactor * regionScale), dims[colDim] - col0);
+
+        restoreSelection();
+        long[] start    = dataset.getStartDims();
+        long[] selected = dataset.getSelectedDims();
+        long[] stride   = dataset.getStride();
+
+        start[rowDim]    = row0;
+        start[colDim]    = col0;
+        selected[rowDim] = Math.max(1, (rows + scale - 1) / scale);
+        selected[colDim] = Math.max(1, (cols + scale - 1) / scale);
+        stride[rowDim]   = scale;
+        stride[colDim]   = scale;
+        dataset.clearData();
+
+        log.trace("showRegion(): rows {}-{} columns {}-{} stride {}", row0, row0 + rows, col0, col0 + cols,
+                  scale);
+        overviewLevel  = -1;
+        regionScale    = scale;
+        regionStart[0] = row0;
+        regionStart[1] = col0;
+    }
+
+    /**
+     * Returns the width of the displayed image: the width of the overview level, or of the selection of the
+     * dataset.
+     */
+    private long getImageWidth()
+    {
+        return (overviewLevel >= 0) ? overview.getWidth(overviewLevel) : dataset.getWidth();
+    }
+
+    /**
+     * Returns the height of the displayed image: the height of the overview level, or of the selection of
+     * the dataset.
+     */
+    private long getImageHeight()
+    {
+        return (overviewLevel >= 0) ? overview.getHeight(overviewLevel) : dataset.getHeight();
+    }
+
+    /**
+     * Returns the part of the full resolution image under the selected pixels of the displayed overview
+     * level.
+     *
+     * @return the first row, the first column, the number of rows and the number of columns.
+     */
+    private long[] getOverviewSelection()
+    {
+        Rectangle area = imageComponent.originalSelectedArea;
+        int w          = imageComponent.originalSize.width;
+        int h          = imageComponent.originalSize.height;
+        long c0        = isHorizontalFlipped ? Math.max(0, w - area.x - area.width) : area.x;
+        long r0        = isVerticalFlipped ? Math.max(0, h - area.y - area.height) : area.y;
+
+        long[] dims = dataset.getDims();
+        long row    = r0 * regionScale;
+        long col    = c0 * regionScale;
+        long rows   = Math.min(area.height * regionScale, dims[dataset.getSelectedIndex()[0]] - row);
+        long cols   = Math.min(area.width * regionScale, dims[dataset.getSelectedIndex()[1]] - col);
+
+        return new long[] {row, col, rows, cols};
+    }
+
+    /**
+     * Restores the selection the dataset had before a region replaced it.
+     */
+    private void restoreSelection()
+    {
+        System.arraycopy(fullSelection[0], 0, dataset.getStartDims(), 0, fullSelection[0].length);
+        System.arraycopy(fullSelection[1], 0, dataset.getSelectedDims(), 0, fullSelection[1].length);
+        System.arraycopy(fullSelection[2], 0, dataset.getStride(), 0, fullSelection[2].length);
+    }
+
     /**
      * Converts a given BufferedImage to ImageData for a SWT-readable Image
      *
@@ -2149,6 +2566,10 @@ public class DefaultImageView implements ImageView {
      */
     private org.eclipse.swt.graphics.Image convertBufferedImageToSWTImage(BufferedImage image)
     {
+        ImageData converted = copyToImageData(image);
+        if (converted != null)
+            return new org.eclipse.swt.graphics.Image(display, converted);
+
         if (image.getColorModel() instanceof DirectColorModel) {
             DirectColorModel colorModel = (DirectColorModel)image.getColorModel();
             PaletteData palette =
@@ -2220,6 +2641,156 @@ public class DefaultImageView implements ImageView {
         return null;
     }
 
+    /**
+     * Copies the pixels of the image layouts created by the image view, i.e. 32-bit RGB with or without
+     * alpha, 8-bit indexed and 3-byte BGR, straight from the data buffer of the image into the data buffer of
+     * an SWT ImageData, in bands of rows converted in parallel.
+     *
+     * @param image The BufferedImage to be converted
+     *
+     * @return the image data, or null if the layout of the image is not one of the above
+     */
+    private static ImageData copyToImageData(BufferedImage image)
+    {
+        final WritableRaster raster = image.getRaster();
+        final ColorModel cm         = image.getColorModel();
+        final int w                 = image.getWidth();
+        final int h                 = image.getHeight();
+        SampleModel sm              = raster.getSampleModel();
+        int tx                      = raster.getSampleModelTranslateX();
+        int ty                      = raster.getSampleModelTranslateY();
+
+        if ((cm instanceof DirectColorModel) && (raster.getDataBuffer() instanceof DataBufferInt) &&
+            (sm instanceof SinglePixelPackedSampleModel)) {
+            DirectColorModel dcm            = (DirectColorModel)cm;
+            SinglePixelPackedSampleModel sp = (SinglePixelPackedSampleModel)sm;
+            if ((dcm.getRedMask() != 0xFF0000) || (dcm.getGreenMask() != 0xFF00) ||
+                (dcm.getBlueMask() != 0xFF))
+                return null;
+
+            final ImageData imgData  = new ImageData(w, h, 32, new PaletteData(0xFF0000, 0xFF00, 0xFF));
+            final int[] src          = ((DataBufferInt)raster.getDataBuffer()).getData();
+            final int srcStride      = sp.getScanlineStride();
+            final int srcBase        = raster.getDataBuffer().getOffset() + sp.getOffset(-tx, -ty);
+            final boolean hasAlpha   = dcm.hasAlpha();
+            final byte[] alpha       = hasAlpha ? new byte[w * h] : null;
+            final boolean[] isOpaque = {true};
+            Tools.forEachRowBand(h, w, new Tools.RowBandTask() {
+                @Override
+                public void run(int row0, int row1)
+                {
+                    byte[] dst     = imgData.data;
+                    boolean opaque = true;
+                    for (int y = row0; y < row1; y++) {
+                        int s = srcBase + y * srcStride;
+                        int d = y * imgData.bytesPerLine;
+                        int a = y * w;
+                        for (int x = 0; x < w; x++, s++, d += 4) {
+                            int argb   = src[s];
+                            dst[d + 1] = (byte)(argb >> 16);
+                            dst[d + 2] = (byte)(argb >> 8);
+                            dst[d + 3] = (byte)argb;
+                            if (hasAlpha) {
+                                alpha[a + x] = (byte)(argb >>> 24);
+                                opaque &= ((argb >>> 24) == 0xFF);
+                            }
+                        }
+                    }
+                    if (!opaque)
+                        isOpaque[0] = false;
+                }
+            });
+            if (hasAlpha && !isOpaque[0])
+                imgData.alphaData = alpha;
+
+            return imgData;
+        }
+
+        if (!(raster.getDataBuffer() instanceof DataBufferByte) ||
+            !(sm instanceof PixelInterleavedSampleModel))
+            return null;
+
+        // in both layouts the first byte of a pixel is its last band
+        PixelInterleavedSampleModel pism = (PixelInterleavedSampleModel)sm;
+        int nbands                       = pism.getNumBands();
+        ImageData imgData                = null;
+        int pixelBytes                   = 0;
+        if ((cm instanceof IndexColorModel) && (nbands == 1) && (pism.getPixelStride() == 1) &&
+            (cm.getPixelSize() == 8)) {
+            IndexColorModel icm = (IndexColorModel)cm;
+            RGB[] rgbs          = new RGB[icm.getMapSize()];
+            for (int i = 0; i < rgbs.length; i++)
+                rgbs[i] = new RGB(icm.getRed(i), icm.getGreen(i), icm.getBlue(i));
+
+            imgData                  = new ImageData(w, h, 8, new PaletteData(rgbs));
+            imgData.transparentPixel = icm.getTransparentPixel();
+            pixelBytes               = 1;
+        }
+        else if ((cm instanceof ComponentColorModel) && (nbands == 3) && (pism.getPixelStride() == 3) &&
+                 Arrays.equals(pism.getBandOffsets(), new int[] {2, 1, 0})) {
+            // the bytes of a BGR pixel are the bytes of the SWT pixel R | G << 8 | B << 16, most significant
+            // byte first
+            imgData                  = new ImageData(w, h, 24, new PaletteData(0x0000FF, 0x00FF00, 0xFF0000));
+            imgData.transparentPixel = -1;
+            pixelBytes               = 3;
+        }
+        else {
+            return null;
+        }
+
+        final ImageData dstData = imgData;
+        final byte[] src        = ((DataBufferByte)raster.getDataBuffer()).getData();
+        final int srcStride     = pism.getScanlineStride();
+        final int srcBase       = raster.getDataBuffer().getOffset() + pism.getOffset(-tx, -ty, nbands - 1);
+        final int rowBytes      = w * pixelBytes;
+        Tools.forEachRowBand(h, w, new Tools.RowBandTask() {
+            @Override
+            public void run(int row0, int row1)
+            {
+                for (int y = row0; y < row1; y++)
+                    System.arraycopy(src, srcBase + y * srcStride, dstData.data, y * dstData.bytesPerLine,
+                                     rowBytes);
+            }
+        });
+
+        return dstData;
+    }
+
+    /**
+     * Copies a region of image data, with its transparency, into new image data.
+     *
+     * @param src
+     *            the image data.
+     * @param x
+     *            the left column of the region.
+     * @param y
+     *            the top row of the region.
+     * @param w
+     *            the width of the region.
+     * @param h
+     *            the height of the region.
+     *
+     * @return the image data of the region
+     */
+    private static ImageData copyRegion(ImageData src, int x, int y, int w, int h)
+    {
+        ImageData dst        = new ImageData(w, h, src.depth, src.palette);
+        dst.transparentPixel = src.transparentPixel;
+
+        int pixelBytes = src.depth / 8;
+        for (int row = 0; row < h; row++)
+            System.arraycopy(src.data, (y + row) * src.bytesPerLine + x * pixelBytes, dst.data,
+                             row * dst.bytesPerLine, w * pixelBytes);
+
+        if (src.alphaData != null) {
+            dst.alphaData = new byte[w * h];
+            for (int row = 0; row < h; row++)
+                System.arraycopy(src.alphaData, (y + row) * src.width + x, dst.alphaData, row * w, w);
+        }
+
+        return dst;
+    }
+
     /**
      * Creates a RGB indexed image of 256 colors.
      *
@@ -2242,6 +2813,34 @@ public class DefaultImageView implements ImageView {
         return bufferedImage;
     }
 
+    /**
+     * Replaces the image by the image data of the indexed image in the image byte data. The AWT image is
+     * created again from the byte data when it is requested.
+     *
+     * @param w
+     *            the width of the image.
+     * @param h
+     *            the height of the image.
+     */
+    private void setIndexedImageData(long w, long h)
+    {
+        image        = null;
+        swtImageData =
+            Tools.createIndexedImageData(imageByteData, imagePalette, (int)w, (int)h, invalidValueIndex);
+    }
+
+    /**
+     * Draws the current image: the image data built from the image byte data, or the AWT image once it has
+     * been flipped, rotated or filtered.
+     */
+    private void showImage()
+    {
+        if (swtImageData != null)
+            imageComponent.setImageData(swtImageData);
+        else
+            imageComponent.setImage(image);
+    }
+
     /**
      * Creates a true color image.
      *
@@ -2274,30 +2873,36 @@ public class DefaultImageView implements ImageView {
      *
      * @return the image.
      */
-    private Image createTrueColorImage(byte[] imageData, boolean planeInterlace, int w, int h)
+    private Image createTrueColorImage(final byte[] imageData, final boolean planeInterlace, final int w,
+                                       int h)
     {
-        if (bufferedImage == null)
+        if ((bufferedImage == null) || (bufferedImage.getWidth() != w) || (bufferedImage.getHeight() != h))
             bufferedImage = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
 
         final int[] pixels = ((DataBufferInt)bufferedImage.getRaster().getDataBuffer()).getData();
-        int len            = pixels.length;
+        final int len      = pixels.length;
 
-        int idx = 0, r = 0, g = 0, b = 0;
-        for (int i = 0; i < h; i++) {
-            for (int j = 0; j < w; j++) {
-                if (planeInterlace) {
-                    r = (imageData[idx] & 0xff) << 16;
-                    g = (imageData[len + idx] & 0xff) << 8;
-                    b = (imageData[len * 2 + idx] & 0xff);
-                }
-                else {
-                    r = (imageData[idx * 3] & 0xff) << 16;
-                    g = (imageData[idx * 3 + 1] & 0xff) << 8;
-                    b = (imageData[idx * 3 + 2] & 0xff);
+        Tools.forEachRowBand(h, w, new Tools.RowBandTask() {
+            @Override
+            public void run(int row0, int row1)
+            {
+                int end = row1 * w;
+                int r   = 0, g = 0, b = 0;
+                for (int idx = row0 * w; idx < end; idx++) {
+                    if (planeInterlace) {
+                        r = (imageData[idx] & 0xff) << 16;
+                        g = (imageData[len + idx] & 0xff) << 8;
+                        b = (imageData[len * 2 + idx] & 0xff);
+                    }
+                    else {
+                        r = (imageData[idx * 3] & 0xff) << 16;
+                        g = (imageData[idx * 3 + 1] & 0xff) << 8;
+                        b = (imageData[idx * 3 + 2] & 0xff);
+                    }
+                    pixels[idx] = 0xff000000 | r | g | b;
                 }
-                pixels[idx++] = 0xff000000 | r | g | b;
             }
-        }
+        });
 
         adjustAlpha(bufferedImage, 0, invalidValueIndex);
 
@@ -2307,11 +2912,12 @@ public class DefaultImageView implements ImageView {
     private boolean applyImageFilter(ImageFilter filter)
     {
         boolean status              = true;
-        ImageProducer imageProducer = image.getSource();
+        ImageProducer imageProducer = getImage().getSource();
 
         try {
             image =
                 Tools.toBufferedImage(toolkit.createImage(new FilteredImageSource(imageProducer, filter)));
+            swtImageData = null;
             imageComponent.setImage(image);
             zoomTo(zoomFactor);
         }
@@ -2330,8 +2936,8 @@ public class DefaultImageView implements ImageView {
             applyAutoGain(gainBiasCurrent, newRange);
         }
         else {
-            long w = dataset.getWidth();
-            long h = dataset.getHeight();
+            long w = getImageWidth();
+            long h = getImageHeight();
 
             invalidValueIndex.clear(); // data range changed. need to reset
 
@@ -2339,9 +2945,9 @@ public class DefaultImageView implements ImageView {
             imageByteData = Tools.getBytes(data, newRange, w, h, !dataset.isDefaultImageOrder(),
                                            dataset.getFilteredImageValues(), true, null, invalidValueIndex);
 
-            image = createIndexedImage(imageByteData, imagePalette, w, h);
-            setImage(image);
-            zoomTo(zoomFactor);
+            setIndexedImageData(w, h);
+            showImage();
+            setImageDirection();
             paletteComponent.updateRange(newRange);
         }
 
@@ -2538,8 +3144,8 @@ public class DefaultImageView implements ImageView {
 
     /** ImageComponent draws the image. */
     private class ImageComponent extends Canvas implements ImageObserver {
-        /* The BufferedImage is converted to an SWT Image for dislay */
-        private org.eclipse.swt.graphics.Image convertedImage;
+        /* The image is converted to SWT Images for display, one tile at a time */
+        private final ImageTileCache tiles = new ImageTileCache(TILE_CACHE_BYTES);
 
         private Dimension originalSize;
         private Dimension imageSize;
@@ -2553,14 +3159,11 @@ public class DefaultImageView implements ImageView {
         private ScrollBar hbar     = null;
         private ScrollBar vbar     = null;
 
-        public ImageComponent(Composite parent, int style, Image img)
+        public ImageComponent(Composite parent, int style)
         {
             super(parent, style);
 
-            convertedImage = convertBufferedImageToSWTImage((BufferedImage)img);
-            if (convertedImage != null)
-                imageSize =
-                    new Dimension(convertedImage.getBounds().width, convertedImage.getBounds().height);
+            imageSize = new Dimension(tiles.getWidth(), tiles.getHeight());
 
             originalSize         = imageSize;
             selectedArea         = new Rectangle();
@@ -2572,8 +3175,7 @@ public class DefaultImageView implements ImageView {
                 @Override
                 public void widgetDisposed(DisposeEvent arg0)
                 {
-                    if (convertedImage != null && !convertedImage.isDisposed())
-                        convertedImage.dispose();
+                    tiles.clear();
                 }
             });
 
@@ -2695,10 +3297,7 @@ public class DefaultImageView implements ImageView {
                 {
                     GC gc = e.gc;
 
-                    org.eclipse.swt.graphics.Rectangle sourceBounds = convertedImage.getBounds();
-
-                    gc.drawImage(convertedImage, 0, 0, sourceBounds.width, sourceBounds.height, 0, 0,
-                                 imageSize.width, imageSize.height);
+                    tiles.paint(gc, e.x, e.y, e.width, e.height, imageSize.width, imageSize.height);
 
                     if ((selectedArea.width > 0) && (selectedArea.height > 0)) {
                         gc.setForeground(Display.getCurrent().getSystemColor(SWT.COLOR_RED));
@@ -2805,13 +3404,34 @@ public class DefaultImageView implements ImageView {
                 y = h - 1 - y;
             }
 
+            // the location in the full resolution image when an overview level or a region is displayed
+            long col = regionStart[1] + x * regionScale;
+            long row = regionStart[0] + y * regionScale;
+
             strBuff.setLength(0); // reset the string buffer
             strBuff.append("x=")
-                .append(x + indexBase)
+                .append(col + indexBase)
                 .append(",   y=")
-                .append(y + indexBase)
+                .append(row + indexBase)
                 .append(",   value=");
 
+            // an overview level holds means: show the value in the file under the pixel
+            if (overviewLevel >= 0) {
+                try {
+                    Object value = overview.readRegion(row, col, 1, 1);
+                    if (dataset.getDatatype().isUnsigned())
+                        value = Dataset.convertFromUnsignedC(value, null);
+                    strBuff.append(Array.get(value, 0));
+                }
+                catch (Exception ex) {
+                    log.debug("showPixelValue(): failed to read the value at {},{}: ", row, col, ex);
+                    strBuff.append("?");
+                }
+
+                valueField.setText(strBuff.toString());
+                return;
+            }
+
             if (isTrueColor) {
                 int i0, i1, i2;
                 String r, g, b;
@@ -2923,14 +3543,20 @@ public class DefaultImageView implements ImageView {
 
         private void setImage(Image img)
         {
-            /* Make sure to dispose the old image first so resources aren't leaked */
-            if (convertedImage != null && !convertedImage.isDisposed())
-                convertedImage.dispose();
-
-            convertedImage = convertBufferedImageToSWTImage((BufferedImage)img);
-            if (convertedImage != null)
-                imageSize =
-                    new Dimension(convertedImage.getBounds().width, convertedImage.getBounds().height);
+            /* the tiles of the old image are disposed so resources aren't leaked */
+            tiles.setSource((BufferedImage)img);
+            updateImageSize();
+        }
+
+        private void setImageData(ImageData imgData)
+        {
+            tiles.setSource(imgData);
+            updateImageSize();
+        }
+
+        private void updateImageSize()
+        {
+            imageSize           = new Dimension(tiles.getWidth(), tiles.getHeight());
             originalSize        = imageSize;
             selectedArea.width  = 0;
             selectedArea.height = 0;
@@ -2943,6 +3569,146 @@ public class DefaultImageView implements ImageView {
         }
     }
 
+    /**
+     * ImageTileCache draws an image in tiles, converting to SWT images only the tiles that are painted.
+     *
+     * The image is split into square tiles of {@link #TILE_SIZE} pixels. A paint request converts the tiles
+     * that intersect the damaged area at the current zoom and draws each one scaled into place. Converted
+     * tiles are kept for the next paint, e.g. while scrolling, and the least recently painted tiles are
+     * disposed once the tiles hold more than the memory budget.
+     */
+    private class ImageTileCache {
+        /** the converted tiles by tile row and column, least recently painted first */
+        private final LinkedHashMap<Long, org.eclipse.swt.graphics.Image> cachedTiles =
+            new LinkedHashMap<>(64, 0.75f, true);
+
+        private final long maxBytes;
+
+        private BufferedImage source;
+
+        /** the image data drawn instead of the source image, or null */
+        private ImageData sourceData;
+
+        private long cachedBytes;
+
+        private ImageTileCache(long maxBytes) { this.maxBytes = maxBytes; }
+
+        /** Replaces the image and disposes the tiles of the previous one. */
+        private void setSource(BufferedImage img)
+        {
+            clear();
+            source     = img;
+            sourceData = null;
+        }
+
+        /** Replaces the image by image data and disposes the tiles of the previous image. */
+        private void setSource(ImageData imgData)
+        {
+            clear();
+            source     = null;
+            sourceData = imgData;
+        }
+
+        private int getWidth()
+        {
+            if (sourceData != null)
+                return sourceData.width;
+
+            return (source == null) ? 0 : source.getWidth();
+        }
+
+        private int getHeight()
+        {
+            if (sourceData != null)
+                return sourceData.height;
+
+            return (source == null) ? 0 : source.getHeight();
+        }
+
+        /** Disposes all converted tiles. */
+        private void clear()
+        {
+            for (org.eclipse.swt.graphics.Image tile : cachedTiles.values()) {
+                if (!tile.isDisposed())
+                    tile.dispose();
+            }
+            cachedTiles.clear();
+            cachedBytes = 0;
+        }
+
+        /**
+         * Draws the tiles that intersect an area of the canvas, with the image scaled to the given size.
+         */
+        private void paint(GC gc, int x, int y, int width, int height, int scaledWidth, int scaledHeight)
+        {
+            int w = getWidth();
+            int h = getHeight();
+            if ((w <= 0) || (h <= 0) || (scaledWidth <= 0) || (scaledHeight <= 0))
+                return;
+
+            double sx = (double)scaledWidth / w;
+            double sy = (double)scaledHeight / h;
+
+            // the tiles covering the damaged area
+            int col0 = Math.max(0, (int)(x / sx) / TILE_SIZE);
+            int row0 = Math.max(0, (int)(y / sy) / TILE_SIZE);
+            int col1 = Math.min((w - 1) / TILE_SIZE, (int)Math.ceil((x + width) / sx) / TILE_SIZE);
+            int row1 = Math.min((h - 1) / TILE_SIZE, (int)Math.ceil((y + height) / sy) / TILE_SIZE);
+
+            for (int row = row0; row <= row1; row++) {
+                int ty = row * TILE_SIZE;
+                int th = Math.min(TILE_SIZE, h - ty);
+                int dy = (int)(ty * sy);
+                int dh = (int)((ty + th) * sy) - dy;
+
+                for (int col = col0; col <= col1; col++) {
+                    int tx = col * TILE_SIZE;
+                    int tw = Math.min(TILE_SIZE, w - tx);
+                    int dx = (int)(tx * sx);
+                    int dw = (int)((tx + tw) * sx) - dx;
+                    if ((dw <= 0) || (dh <= 0))
+                        continue;
+
+                    org.eclipse.swt.graphics.Image tile = getTile(row, col, tx, ty, tw, th);
+                    if (tile != null)
+                        gc.drawImage(tile, 0, 0, tw, th, dx, dy, dw, dh);
+                }
+            }
+        }
+
+        private org.eclipse.swt.graphics.Image getTile(int row, int col, int tx, int ty, int tw, int th)
+        {
+            Long key                            = ((long)row << 32) | col;
+            org.eclipse.swt.graphics.Image tile = cachedTiles.get(key);
+            if (tile != null)
+                return tile;
+
+            if (sourceData != null)
+                tile = new org.eclipse.swt.graphics.Image(display, copyRegion(sourceData, tx, ty, tw, th));
+            else
+                tile = convertBufferedImageToSWTImage(source.getSubimage(tx, ty, tw, th));
+            if (tile == null)
+                return null;
+
+            cachedTiles.put(key, tile);
+            cachedBytes += 4L * tw * th;
+
+            Iterator<org.eclipse.swt.graphics.Image> it = cachedTiles.values().iterator();
+            while ((cachedBytes > maxBytes) && (cachedTiles.size() > 1) && it.hasNext()) {
+                org.eclipse.swt.graphics.Image eldest = it.next();
+                if (eldest == tile)
+                    break;
+
+                org.eclipse.swt.graphics.Rectangle bounds = eldest.getBounds();
+                cachedBytes -= 4L * bounds.width * bounds.height;
+                eldest.dispose();
+                it.remove();
+            }
+
+            return tile;
+        }
+    }
+
     /**
      * FlipFilter creates image filter to flip image horizontally or vertically.
      */
@@ -4300,6 +5066,7 @@ public class DefaultImageView implements ImageView {
                 ImageFilter filter = new BrightnessFilter(blevel, clevel);
                 image              = Tools.toBufferedImage(
                                  toolkit.createImage(new FilteredImageSource(imageProducer, filter)));
+                swtImageData       = null;
                 imageComponent.setImage(image);
                 zoomTo(zoomFactor);
             }
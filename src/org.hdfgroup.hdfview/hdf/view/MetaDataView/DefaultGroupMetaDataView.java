@@ -21,6 +21,7 @@ import hdf.object.Datatype;
 import hdf.object.Group;
 import hdf.object.HObject;
 import hdf.object.h5.H5Link;
+import hdf.object.h5.H5UnresolvedDS;
 import hdf.object.nc2.NC2Group;
 import hdf.view.DataView.DataViewManager;
 import hdf.view.ViewProperties;
@@ -242,7 +243,7 @@ public class DefaultGroupMetaDataView extends DefaultLinkMetaDataView implements
                 if (theObj instanceof Group) {
                     rowData[i][1] = "Group";
                 }
-                else if (theObj instanceof Dataset) {
+                else if ((theObj instanceof Dataset) || (theObj instanceof H5UnresolvedDS)) {
                     rowData[i][1] = "Dataset";
                 }
                 else if (theObj instanceof Datatype) {
@@ -0,0 +1,410 @@
+/*****************************************************************************
+ * Copyright by The HDF Group.                                               *
+ * Copyright by the Board of Trustees of the University of Illinois.         *
+ * All rights reserved.                                                      *
+ *                                                                           *
+ * This file is part of the HDF Java Products distribution.                  *
+ * The full copyright notice, including terms governing use, modification,   *
+ * and redistribution, is contained in the COPYING file, which can be found  *
+ * at the root of the source code distribution tree,                         *
+ * or in https://www.hdfgroup.org/licenses.                                  *
+ * If you do not have access to either file, you may request a copy from     *
+ * help@hdfgroup.org.                                                        *
+ ****************************************************************************/
+
+package hdf.view;
+
+import java.lang.reflect.Array;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import hdf.object.Dataset;
+import hdf.object.Datatype;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reads the rows of a large one- or two-dimensional selection on demand, in pages of consecutive rows, so
+ * that a table can show a selection that does not fit in memory.
+ *
+ * A page is read as one hyperslab of the selection through a duplicate of the dataset object. The most
+ * recently used pages are kept up to a memory limit. Whenever {@link #getPage(long)} moves to another page,
+ * the next pages in the direction of the move are read on a background thread with a second duplicate, so
+ * scrolling through the table is mostly served from memory.
+ *
+ * The selection of the dataset must not change while the cache is in use; the rows are along the first
+ * selected dimension and, for two-dimensional selections, the columns along the second one. Unsigned
+ * integers of less than 8 bytes are converted to the next larger Java type when a page is read.
+ */
+public class RowPageCache {
+    private static final Logger log = LoggerFactory.getLogger(RowPageCache.class);
+
+    /** The size, in bytes, of the selections that should be shown through a page cache. */
+    public static final long PAGING_THRESHOLD_BYTES = 256L * 1024 * 1024;
+
+    /** The default size of a page in bytes. */
+    public static final long DEFAULT_PAGE_BYTES = 1024L * 1024;
+
+    /** The default limit, in bytes, of the memory held by cached pages. */
+    public static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+
+    /** The default number of pages read ahead in the direction of scrolling. */
+    public static final int DEFAULT_READ_AHEAD = 2;
+
+    private final long[] startDims;
+
+    private final long[] selectedDims;
+
+    private final long[] stride;
+
+    /** the dimension of the dataset along the rows of the selection */
+    private final int rowDim;
+
+    private final long rowCount;
+
+    private final long columnCount;
+
+    private final int rowsPerPage;
+
+    private final long pageCount;
+
+    private final int maxPages;
+
+    /** the number of pages read ahead, 0 if the background thread can not read */
+    private int readAhead;
+
+    private final boolean isUnsigned;
+
+    /** the cached pages by page index, least recently used first */
+    private final LinkedHashMap<Long, Object> pages = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final ExecutorService executor;
+
+    /** the duplicate of the dataset used by the callers of getPage() */
+    private final Dataset reader;
+
+    /** the duplicate of the dataset used by the background thread */
+    private Dataset prefetchReader;
+
+    /** incremented on every move to another page to cancel the reads that have not started yet */
+    private long generation;
+
+    /** incremented whenever the cached pages become invalid, so that reads in progress are discarded */
+    private long epoch;
+
+    /** the page being read by the background thread, or -1 */
+    private long loadingPage = -1;
+
+    /** the page returned last by getPage(), or -1 */
+    private long lastPage = -1;
+
+    /** true once the cache has been disposed */
+    private boolean isDisabled;
+
+    /**
+     * Creates a page cache with the default page size, memory limit and read-ahead.
+     *
+     * @param dataset
+     *            the displayed dataset, with a selection of one or two dimensions.
+     *
+     * @throws Exception
+     *             if the dataset can not be duplicated for reading
+     */
+    public RowPageCache(Dataset dataset) throws Exception
+    {
+        this(dataset, DEFAULT_PAGE_BYTES, DEFAULT_MAX_BYTES, DEFAULT_READ_AHEAD);
+    }
+
+    /**
+     * Creates a page cache.
+     *
+     * @param dataset
+     *            the displayed dataset, with a selection of one or two dimensions.
+     * @param pageBytes
+     *            the approximate size of a page in bytes; a page holds at least one row.
+     * @param maxBytes
+     *            the limit, in bytes, of the memory held by cached pages.
+     * @param readAhead
+     *            the number of pages read ahead in the direction of scrolling.
+     *
+     * @throws Exception
+     *             if the dataset can not be duplicated for reading
+     */
+    public RowPageCache(final Dataset dataset, long pageBytes, long maxBytes, int readAhead) throws Exception
+    {
+        if (dataset.getRank() > 2)
+            throw new IllegalArgumentException("only selections of one or two dimensions can be paged");
+
+        reader = dataset.duplicate();
+        if (reader == null)
+            throw new UnsupportedOperationException(dataset.getName() + " can not be duplicated");
+
+        startDims    = dataset.getStartDims().clone();
+        selectedDims = dataset.getSelectedDims().clone();
+        stride       = (dataset.getStride() == null) ? null : dataset.getStride().clone();
+        rowDim       = dataset.getSelectedIndex()[0];
+        rowCount     = selectedDims[rowDim];
+        columnCount  = (dataset.getRank() > 1) ? selectedDims[dataset.getSelectedIndex()[1]] : 1;
+
+        Datatype dtype = dataset.getDatatype();
+        long typeSize  = dtype.getDatatypeSize();
+        isUnsigned     = dtype.isUnsigned() && (typeSize < 8);
+        if (isUnsigned)
+            typeSize *= 2;
+
+        long rowBytes  = Math.max(1, columnCount * typeSize);
+        long maxRows   = Math.min(rowCount, Integer.MAX_VALUE / Math.max(1, columnCount));
+        rowsPerPage    = (int)Math.max(1, Math.min(pageBytes / rowBytes, maxRows));
+        pageCount      = (rowCount + rowsPerPage - 1) / rowsPerPage;
+        maxPages       = (int)Math.min(Integer.MAX_VALUE,
+                                       Math.max(2 * readAhead + 2, maxBytes / (rowsPerPage * rowBytes)));
+        this.readAhead = Math.max(0, readAhead);
+
+        this.executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r)
+            {
+                Thread t = new Thread(r, "RowPageCache-" + dataset.getName());
+                t.setDaemon(true);
+                t.setPriority(Thread.MIN_PRIORITY);
+                return t;
+            }
+        });
+
+        log.trace("RowPageCache(): {} rows of {} columns in {} pages of {} rows", rowCount, columnCount,
+                  pageCount, rowsPerPage);
+    }
+
+    /**
+     * Returns the number of rows of the selection.
+     *
+     * @return the number of rows.
+     */
+    public long getRowCount() { return rowCount; }
+
+    /**
+     * Returns the number of columns of the selection, 1 for a one-dimensional selection.
+     *
+     * @return the number of columns.
+     */
+    public long getColumnCount() { return columnCount; }
+
+    /**
+     * Returns the number of rows in a page; only the last page may hold fewer rows.
+     *
+     * @return the number of rows in a page.
+     */
+    public int getRowsPerPage() { return rowsPerPage; }
+
+    /**
+     * Returns the values of one row block of the selection, reading it if it is not cached.
+     *
+     * The values of row r and column c of the selection are at index
+     * <code>(r - page * getRowsPerPage()) * getColumnCount() + c</code> of the page.
+     *
+     * @param page
+     *            the index of the page.
+     *
+     * @return the data values of the page, as a Java array.
+     *
+     * @throws Exception
+     *             if the page can not be read
+     */
+    public Object getPage(long page) throws Exception
+    {
+        if ((page < 0) || (page >= pageCount))
+            throw new IndexOutOfBoundsException("page " + page + " of " + pageCount);
+
+        Object pageData;
+        long myEpoch;
+        synchronized (this) {
+            if (isDisabled)
+                throw new IllegalStateException("the page cache has been disposed");
+
+            while (loadingPage == page)
+                wait();
+
+            pageData = pages.get(page);
+            myEpoch  = epoch;
+        }
+
+        if (pageData == null) {
+            synchronized (reader) {
+                pageData = readPage(reader, page);
+            }
+        }
+
+        synchronized (this) {
+            if ((myEpoch == epoch) && !isDisabled)
+                store(page, pageData);
+
+            if (page != lastPage) {
+                readAhead(page, page > lastPage);
+                lastPage = page;
+            }
+        }
+
+        return pageData;
+    }
+
+    /**
+     * Returns one value of the selection.
+     *
+     * @param row
+     *            the row of the value in the selection.
+     * @param column
+     *            the column of the value in the selection.
+     *
+     * @return the data value.
+     *
+     * @throws Exception
+     *             if the page of the value can not be read
+     */
+    public Object getValue(long row, long column) throws Exception
+    {
+        Object pageData = getPage(row / rowsPerPage);
+
+        return Array.get(pageData, (int)((row % rowsPerPage) * columnCount + column));
+    }
+
+    /**
+     * Returns true if a page is cached, so that {@link #getPage(long)} returns it without reading it.
+     *
+     * @param page
+     *            the index of the page.
+     *
+     * @return true if the page is cached.
+     */
+    public synchronized boolean isCached(long page) { return pages.containsKey(page); }
+
+    /**
+     * Drops all cached pages, e.g. after the file has been changed.
+     */
+    public synchronized void clear()
+    {
+        generation++;
+        epoch++;
+        pages.clear();
+        lastPage = -1;
+    }
+
+    /**
+     * Cancels the pending reads and stops the background thread.
+     */
+    public synchronized void dispose()
+    {
+        isDisabled = true;
+        generation++;
+        pages.clear();
+        executor.shutdownNow();
+        notifyAll();
+    }
+
+    /**
+     * Queues the reads of the pages after, or before, the given page, replacing any pending reads.
+     */
+    private void readAhead(long page, boolean isForward)
+    {
+        final long myGen   = ++generation;
+        final long myEpoch = epoch;
+
+        for (int d = 1; d <= readAhead; d++) {
+            final long next = isForward ? page + d : page - d;
+            if ((next < 0) || (next >= pageCount) || pages.containsKey(next))
+                continue;
+
+            executor.execute(new Runnable() {
+                @Override
+                public void run()
+                {
+                    load(myGen, myEpoch, next);
+                }
+            });
+        }
+    }
+
+    private void load(long myGen, long myEpoch, long page)
+    {
+        Dataset theReader;
+        synchronized (this) {
+            if ((myGen != generation) || isDisabled || pages.containsKey(page))
+                return;
+
+            if (prefetchReader == null) {
+                try {
+                    prefetchReader = reader.duplicate();
+                }
+                catch (Exception ex) {
+                    log.debug("load(): the dataset can not be duplicated: ", ex);
+                }
+                if (prefetchReader == null) {
+                    readAhead = 0;
+                    return;
+                }
+            }
+
+            loadingPage = page;
+            theReader   = prefetchReader;
+        }
+
+        // the prefetch reader is only used by this thread
+        Object pageData = null;
+        try {
+            pageData = readPage(theReader, page);
+        }
+        catch (Throwable err) {
+            log.debug("load(): page {} failed: ", page, err);
+            pageData = null;
+        }
+        finally {
+            synchronized (this) {
+                loadingPage = -1;
+                if ((pageData != null) && (myEpoch == epoch) && !isDisabled)
+                    store(page, pageData);
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Reads the rows of a page with the given duplicate of the dataset.
+     */
+    private Object readPage(Dataset theReader, long page) throws Exception
+    {
+        long row0 = page * rowsPerPage;
+        long step = (stride == null) ? 1 : stride[rowDim];
+
+        System.arraycopy(startDims, 0, theReader.getStartDims(), 0, startDims.length);
+        System.arraycopy(selectedDims, 0, theReader.getSelectedDims(), 0, selectedDims.length);
+        if ((stride != null) && (theReader.getStride() != null))
+            System.arraycopy(stride, 0, theReader.getStride(), 0, stride.length);
+        theReader.getStartDims()[rowDim]    = startDims[rowDim] + row0 * step;
+        theReader.getSelectedDims()[rowDim] = Math.min(rowsPerPage, rowCount - row0);
+
+        Object pageData = theReader.read();
+        if (isUnsigned)
+            pageData = Dataset.convertFromUnsignedC(pageData, null);
+
+        log.trace("readPage(): page {} from row {}", page, row0);
+
+        return pageData;
+    }
+
+    /**
+     * Adds a page to the cache and drops the least recently used pages beyond the memory limit.
+     */
+    private void store(long page, Object pageData)
+    {
+        pages.put(page, pageData);
+
+        Iterator<Long> it = pages.keySet().iterator();
+        while ((pages.size() > maxPages) && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+}
@@ -0,0 +1,298 @@
+/*****************************************************************************
+ * Copyright by The HDF Group.                                               *
+ * Copyright by the Board of Trustees of the University of Illinois.         *
+ * All rights reserved.                                                      *
+ *                                                                           *
+ * This file is part of the HDF Java Products distribution.                  *
+ * The full copyright notice, including terms governing use, modification,   *
+ * and redistribution, is contained in the COPYING file, which can be found  *
+ * at the root of the source code distribution tree,                         *
+ * or in https://www.hdfgroup.org/licenses.                                  *
+ * If you do not have access to either file, you may request a copy from     *
+ * help@hdfgroup.org.                                                        *
+ ****************************************************************************/
+
+package hdf.view;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Properties;
+
+import hdf.object.Dataset;
+import hdf.object.FileFormat;
+import hdf.object.HObject;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A local on-disk cache of summary results computed from the data of a dataset, such as the value range,
+ * the auto-contrast gain and bias and the value histogram of an image, so that reopening a large image
+ * does not need another pass over its data.
+ *
+ * Every dataset has one small properties file in the cache directory, named after a hash of the file path
+ * and the object identifier (OID) of the dataset. The file records the path, modification time and size
+ * of the HDF file; if any of them has changed when the entry is read, the entry is stale and is deleted,
+ * and the caller recomputes and stores the results again. Since the views compute their results over the
+ * selected data, results are stored per selection. Only datasets in local files are cached, and the least
+ * recently written entries are deleted once the cache holds more than {@link #MAX_ENTRIES} datasets.
+ */
+public final class StatisticsCache {
+    private static final Logger log = LoggerFactory.getLogger(StatisticsCache.class);
+
+    /** The name of the value range of the data: min, max. */
+    public static final String MIN_MAX = "minmax";
+
+    /** The name of the auto-contrast parameters of the data: gain, bias. */
+    public static final String GAIN_BIAS = "gainbias";
+
+    /** The name of the value histogram of the data: min, max, followed by the count of each bin. */
+    public static final String HISTOGRAM = "histogram";
+
+    /** The maximum number of datasets kept in the cache. */
+    public static final int MAX_ENTRIES = 1024;
+
+    private static final String CACHE_DIR_NAME = ".hdfview-statistics";
+
+    private static final String KEY_FILE  = "file";
+    private static final String KEY_MTIME = "mtime";
+    private static final String KEY_SIZE  = "size";
+
+    /** the cache directory, null until first used */
+    private static File cacheDir = null;
+
+    /** true if the cache directory can not be created */
+    private static boolean isDisabled = false;
+
+    private StatisticsCache() {}
+
+    /**
+     * Returns a cached result for the current selection of a dataset.
+     *
+     * @param dset
+     *            the dataset.
+     * @param name
+     *            the name of the result, e.g. {@link #MIN_MAX}.
+     *
+     * @return the cached values, or null if there is no valid entry.
+     */
+    public static synchronized double[] get(Dataset dset, String name)
+    {
+        File hdfFile = getLocalFile(dset);
+        File entry   = getEntryFile(dset, hdfFile);
+        if ((entry == null) || !entry.isFile())
+            return null;
+
+        Properties props = load(entry, hdfFile);
+        if (props == null)
+            return null;
+
+        String value = props.getProperty(getKey(dset, name));
+        if (value == null)
+            return null;
+
+        try {
+            String[] tokens = value.split(",");
+            double[] values = new double[tokens.length];
+            for (int i = 0; i < tokens.length; i++)
+                values[i] = Double.parseDouble(tokens[i]);
+
+            log.trace("get(): {} {} from cache", dset.getFullName(), name);
+            return values;
+        }
+        catch (NumberFormatException ex) {
+            log.debug("get(): invalid entry {} in {}: ", name, entry, ex);
+            return null;
+        }
+    }
+
+    /**
+     * Stores a result for the current selection of a dataset.
+     *
+     * @param dset
+     *            the dataset.
+     * @param name
+     *            the name of the result, e.g. {@link #MIN_MAX}.
+     * @param values
+     *            the values of the result.
+     */
+    public static synchronized void put(Dataset dset, String name, double[] values)
+    {
+        if (values == null)
+            return;
+
+        File hdfFile = getLocalFile(dset);
+        File entry   = getEntryFile(dset, hdfFile);
+        if (entry == null)
+            return;
+
+        Properties props = entry.isFile() ? load(entry, hdfFile) : null;
+        if (props == null) {
+            props = new Properties();
+            props.setProperty(KEY_FILE, hdfFile.getAbsolutePath());
+            props.setProperty(KEY_MTIME, String.valueOf(hdfFile.lastModified()));
+            props.setProperty(KEY_SIZE, String.valueOf(hdfFile.length()));
+        }
+
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0)
+                sb.append(',');
+            sb.append(values[i]);
+        }
+        props.setProperty(getKey(dset, name), sb.toString());
+
+        try (OutputStream out = new FileOutputStream(entry)) {
+            props.store(out, dset.getFullName());
+        }
+        catch (Exception ex) {
+            log.debug("put(): failed to write {}: ", entry, ex);
+            entry.delete();
+            return;
+        }
+
+        prune();
+    }
+
+    /**
+     * Removes the cached results of an object, e.g. after its data has been changed.
+     *
+     * @param obj
+     *            the data object.
+     */
+    public static synchronized void invalidate(HObject obj)
+    {
+        if (!(obj instanceof Dataset))
+            return;
+
+        File entry = getEntryFile((Dataset)obj, getLocalFile((Dataset)obj));
+        if ((entry != null) && entry.isFile() && !entry.delete())
+            log.debug("invalidate(): failed to delete {}", entry);
+    }
+
+    /**
+     * Reads an entry and checks it against the HDF file; a stale entry is deleted.
+     */
+    private static Properties load(File entry, File hdfFile)
+    {
+        Properties props = new Properties();
+        try (InputStream in = new FileInputStream(entry)) {
+            props.load(in);
+        }
+        catch (Exception ex) {
+            log.debug("load(): failed to read {}: ", entry, ex);
+            entry.delete();
+            return null;
+        }
+
+        if (!hdfFile.getAbsolutePath().equals(props.getProperty(KEY_FILE)) ||
+            !String.valueOf(hdfFile.lastModified()).equals(props.getProperty(KEY_MTIME)) ||
+            !String.valueOf(hdfFile.length()).equals(props.getProperty(KEY_SIZE))) {
+            log.trace("load(): stale entry {} for {}", entry, hdfFile);
+            entry.delete();
+            return null;
+        }
+
+        return props;
+    }
+
+    /**
+     * Returns the file of a dataset if it is a local file, or null.
+     */
+    private static File getLocalFile(Dataset dset)
+    {
+        FileFormat fileFormat = (dset == null) ? null : dset.getFileFormat();
+        if ((fileFormat == null) || (fileFormat.getFilePath() == null))
+            return null;
+
+        File hdfFile = new File(fileFormat.getFilePath());
+        return hdfFile.isFile() ? hdfFile : null;
+    }
+
+    /**
+     * Returns the cache entry of a dataset, or null if the dataset can not be cached.
+     */
+    private static File getEntryFile(Dataset dset, File hdfFile)
+    {
+        if ((hdfFile == null) || (getCacheDir() == null))
+            return null;
+
+        String id =
+            hdfFile.getAbsolutePath() + "#" + Arrays.toString(dset.getOID()) + "#" + dset.getFullName();
+        try {
+            byte[] digest    = MessageDigest.getInstance("SHA-1").digest(id.getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder();
+            for (byte b : digest)
+                sb.append(String.format("%02x", b & 0xFF));
+
+            return new File(cacheDir, sb.append(".properties").toString());
+        }
+        catch (Exception ex) {
+            log.debug("getEntryFile(): ", ex);
+            return null;
+        }
+    }
+
+    /**
+     * Returns the key of a result for the current selection of a dataset.
+     */
+    private static String getKey(Dataset dset, String name)
+    {
+        return name + "@" + Arrays.toString(dset.getStartDims()) + Arrays.toString(dset.getSelectedDims()) +
+            Arrays.toString(dset.getStride()) + Arrays.toString(dset.getSelectedIndex());
+    }
+
+    /**
+     * Returns the cache directory, next to the user property file, creating it if needed.
+     */
+    private static File getCacheDir()
+    {
+        if (isDisabled || (cacheDir != null))
+            return cacheDir;
+
+        String propertyFile = ViewProperties.getPropertyFile();
+        File parent         = null;
+        if (propertyFile != null)
+            parent = new File(propertyFile).getAbsoluteFile().getParentFile();
+        if (parent == null)
+            parent = new File(System.getProperty("user.home"));
+
+        File dir = new File(parent, CACHE_DIR_NAME);
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            log.debug("getCacheDir(): can not create {}; statistics are not cached", dir);
+            isDisabled = true;
+            return null;
+        }
+
+        cacheDir = dir;
+        return cacheDir;
+    }
+
+    /**
+     * Deletes the least recently written entries when the cache holds too many datasets.
+     */
+    private static void prune()
+    {
+        File[] entries = cacheDir.listFiles();
+        if ((entries == null) || (entries.length <= MAX_ENTRIES))
+            return;
+
+        Arrays.sort(entries, new Comparator<File>() {
+            @Override
+            public int compare(File f1, File f2)
+            {
+                return Long.compare(f1.lastModified(), f2.lastModified());
+            }
+        });
+
+        for (int i = 0; i < entries.length - MAX_ENTRIES; i++)
+            entries[i].delete();
+    }
+}
@@ -747,19 +747,31 @@ public class DataDisplayConverterFactory {
             try {
                 if (showAsHex) {
                     if (isUINT64)
-                        buffer.append(Tools.toHexString((BigInteger)value, 8));
+                        Tools.appendHexString(buffer, ((BigInteger)value).longValue(), 8);
                     else
-                        buffer.append(Tools.toHexString(Long.valueOf(value.toString()), (int)typeSize));
+                        Tools.appendHexString(buffer, toLong(value), (int)typeSize);
                 }
                 else if (showAsBin) {
                     if (isUINT64)
-                        buffer.append(Tools.toBinaryString((BigInteger)value, 8));
+                        Tools.appendBinaryString(buffer, ((BigInteger)value).longValue(), 8);
                     else
-                        buffer.append(Tools.toBinaryString(Long.valueOf(value.toString()), (int)typeSize));
+                        Tools.appendBinaryString(buffer, toLong(value), (int)typeSize);
                 }
                 else if (numberFormat != null) {
                     buffer.append(numberFormat.format(value));
                 }
+                else if (value instanceof Integer) {
+                    buffer.append(((Integer)value).intValue());
+                }
+                else if (value instanceof Long) {
+                    buffer.append(((Long)value).longValue());
+                }
+                else if (value instanceof Short) {
+                    buffer.append(((Short)value).shortValue());
+                }
+                else if (value instanceof Byte) {
+                    buffer.append(((Byte)value).byteValue());
+                }
                 else {
                     buffer.append(value.toString());
                 }
@@ -772,6 +784,19 @@ public class DataDisplayConverterFactory {
 
             return buffer;
         }
+
+        /**
+         * Returns the value of an integer without formatting and parsing it; other values are parsed
+         * from their string representation as before, so e.g. floating-point values are rejected.
+         */
+        private static long toLong(Object value)
+        {
+            if ((value instanceof Integer) || (value instanceof Long) || (value instanceof Short) ||
+                (value instanceof Byte))
+                return ((Number)value).longValue();
+
+            return Long.parseLong(value.toString());
+        }
     }
 
     private static class EnumDataDisplayConverter extends HDFDisplayConverter {
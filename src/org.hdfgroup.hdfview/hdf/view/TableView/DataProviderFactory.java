@@ -26,13 +26,16 @@ import java.util.StringTokenizer;
 import java.util.Vector;
 
 import hdf.object.CompoundDataFormat;
+import hdf.object.DataBuffer;
 import hdf.object.DataFormat;
 import hdf.object.Datatype;
+import hdf.object.DirtyRegions;
 import hdf.object.FileFormat;
 import hdf.object.HObject;
 import hdf.object.Utils;
 import hdf.object.h5.H5Datatype;
 import hdf.object.h5.H5ReferenceType;
+import hdf.view.RowPageCache;
 import hdf.view.Tools;
 
 import hdf.hdf5lib.H5;
@@ -90,6 +93,32 @@ public class DataProviderFactory {
         return dataProvider;
     }
 
+    /**
+     * Get a Data Display Provider that reads the rows of a numeric data object on demand from a page cache,
+     * rather than from a buffer that holds the whole selection. The data is read-only.
+     *
+     * @param dataObject
+     *        the data object
+     * @param pageCache
+     *        the page cache for the current selection of the data object
+     *
+     * @return the provider instance
+     *
+     * @throws Exception if a failure occurred
+     */
+    public static HDFDataProvider getDataProvider(final DataFormat dataObject, final RowPageCache pageCache)
+        throws Exception
+    {
+        if ((dataObject == null) || (pageCache == null)) {
+            log.debug("getDataProvider(RowPageCache): data object or page cache is null");
+            return null;
+        }
+
+        dataFormatReference = dataObject;
+
+        return new PagedDataProvider(dataObject.getDatatype(), pageCache);
+    }
+
     private static final HDFDataProvider getDataProvider(final Datatype dtype, final Object dataBuf,
                                                          final boolean dataTransposed) throws Exception
     {
@@ -155,6 +184,9 @@ public class DataProviderFactory {
         /** if the data value has changed */
         protected boolean isValueChanged;
 
+        /** the changed data points, by their index in the data buffer */
+        protected final DirtyRegions dirtyRegions = new DirtyRegions();
+
         /** the type of the parent */
         protected final boolean isContainerType;
 
@@ -207,7 +239,7 @@ public class DataProviderFactory {
                 colCount = dataFormatReference.getWidth();
             }
             else {
-                rowCount = (int)dataFormatReference.getSelectedDims()[0];
+                rowCount = dataFormatReference.getSelectedDims()[0];
                 colCount = 1;
             }
             log.trace("constructor:class={} rowCount={} colCount={}", runtimeTypeClass, rowCount, colCount);
@@ -231,35 +263,48 @@ public class DataProviderFactory {
          * @return physical location in 1D notation
          */
         public int physicalLocationToBufIndex(int rowIndex, int columnIndex)
+        {
+            return (int)physicalLocationToBufPosition(rowIndex, columnIndex);
+        }
+
+        /**
+         * A utility method used to translate a set of physical table coordinates to a
+         * long index into a data buffer, for buffers that hold more data points than
+         * an int can address.
+         *
+         * @param rowIndex
+         *        the row
+         * @param columnIndex
+         *        the column
+         *
+         * @return physical location in 1D notation
+         */
+        public long physicalLocationToBufPosition(int rowIndex, int columnIndex)
         {
             long index = rowIndex * colCount + columnIndex;
 
-            if (rank > 1) {
-                log.trace(
-                    "physicalLocationToBufIndex({}, {}): rank > 1; adjusting for multi-dimensional dataset",
-                    rowIndex, columnIndex);
-
-                if (isDataTransposed && isNaturalOrder)
-                    index = columnIndex * rowCount + rowIndex;
-                else if (!isDataTransposed && !isNaturalOrder)
-                    // Reshape Data
-                    index = rowIndex * colCount + columnIndex;
-                else if (isDataTransposed && !isNaturalOrder)
-                    // Transpose Data
-                    index = columnIndex * rowCount + rowIndex;
-                else
-                    index = rowIndex * colCount + columnIndex;
-            }
+            // Transpose Data; otherwise the data is in order or reshaped
+            if ((rank > 1) && isDataTransposed)
+                index = columnIndex * rowCount + rowIndex;
 
-            log.trace("physicalLocationToBufIndex({}, {}, {}): finish", rowIndex, columnIndex, index);
+            // called for every visible cell, so avoid boxing the arguments when not tracing
+            if (log.isTraceEnabled())
+                log.trace("physicalLocationToBufPosition({}, {}, {}): finish", rowIndex, columnIndex, index);
 
-            return (int)index;
+            return index;
         }
 
         @Override
         public Object getDataValue(int columnIndex, int rowIndex)
         {
             try {
+                if (dataBuf instanceof DataBuffer) {
+                    long bufPosition = physicalLocationToBufPosition(rowIndex, columnIndex);
+                    theValue         = ((DataBuffer)dataBuf).get(bufPosition);
+                    log.trace("getDataValue({}, {})=({}): finish", rowIndex, columnIndex, theValue);
+                    return theValue;
+                }
+
                 int bufIndex = physicalLocationToBufIndex(rowIndex, columnIndex);
                 if (dataBuf instanceof ArrayList)
                     theValue = ((ArrayList)dataBuf).get(bufIndex);
@@ -271,7 +316,8 @@ public class DataProviderFactory {
                 theValue = DataFactoryUtils.errStr;
             }
 
-            log.trace("getDataValue({}, {})=({}): finish", rowIndex, columnIndex, theValue);
+            if (log.isTraceEnabled())
+                log.trace("getDataValue({}, {})=({}): finish", rowIndex, columnIndex, theValue);
 
             return theValue;
         }
@@ -359,7 +405,8 @@ public class DataProviderFactory {
             try {
                 int bufIndex = physicalLocationToBufIndex(rowIndex, columnIndex);
 
-                updateAtomicValue(dataBuf, newValue, bufIndex);
+                if (updateAtomicValue(dataBuf, newValue, bufIndex))
+                    dirtyRegions.add(bufIndex);
             }
             catch (Exception ex) {
                 log.debug("setDataValue({}, {})=({}): cell value update failure: ", rowIndex, columnIndex,
@@ -434,11 +481,11 @@ public class DataProviderFactory {
             log.trace("setDataValue({}, {})=({}): finish", index, bufObject, newValue);
         }
 
-        private void updateAtomicValue(Object bufObject, Object newValue, int bufIndex)
+        private boolean updateAtomicValue(Object bufObject, Object newValue, int bufIndex)
         {
             if ((newValue == null) || ((newValue = ((String)newValue).trim()) == null)) {
                 log.debug("updateAtomicValue(): cell value not updated; new value is null");
-                return;
+                return false;
             }
 
             // No need to update if values are the same
@@ -448,7 +495,7 @@ public class DataProviderFactory {
                 Object oldVal = this.getDataValue(bufObject, bufIndex);
                 if ((oldVal != null) && newValue.equals(oldVal.toString())) {
                     log.debug("updateAtomicValue(): cell value not updated; new value same as old value");
-                    return;
+                    return false;
                 }
             }
 
@@ -542,27 +589,70 @@ public class DataProviderFactory {
             }
 
             isValueChanged = true;
+
+            return true;
         }
 
+        /**
+         * Returns the number of columns of the table; a selection with more columns than a table can show
+         * is cut off at Integer.MAX_VALUE.
+         */
         @Override
         public int getColumnCount()
         {
-            return (int)colCount;
+            return (int)Math.min(colCount, Integer.MAX_VALUE);
         }
 
+        /**
+         * Returns the number of rows of the table; a selection with more rows than a table can show is cut
+         * off at Integer.MAX_VALUE.
+         */
         @Override
         public int getRowCount()
         {
-            return (int)rowCount;
+            return (int)Math.min(rowCount, Integer.MAX_VALUE);
         }
 
         /**
          * set if the data value has changed
          *
+         * Setting the data value as changed marks the whole data buffer as changed, while clearing it forgets
+         * the changed data points, e.g. after they have been written to file.
+         *
          * @param isChanged
          *        if the data value is changed
          */
-        public final void setIsValueChanged(boolean isChanged) { isValueChanged = isChanged; }
+        public final void setIsValueChanged(boolean isChanged)
+        {
+            isValueChanged = isChanged;
+            if (isChanged)
+                dirtyRegions.addAll();
+            else
+                dirtyRegions.clear();
+        }
+
+        /**
+         * Marks a range of the data buffer as changed, e.g. after the values have been converted in place.
+         *
+         * @param fromIndex
+         *        the index of the first changed data point in the data buffer
+         * @param toIndex
+         *        the index after the last changed data point
+         */
+        public final void setIsValueChanged(int fromIndex, int toIndex)
+        {
+            isValueChanged = true;
+            dirtyRegions.add(fromIndex, toIndex);
+        }
+
+        /**
+         * Returns the data points changed since the data value was last marked as unchanged. The regions are
+         * empty if the changes are not tracked by data point, in which case the whole data buffer has to be
+         * written.
+         *
+         * @return the changed data points, by their index in the data buffer
+         */
+        public final DirtyRegions getDirtyRegions() { return dirtyRegions; }
 
         /**
          * Check if the datavalue has changed
@@ -588,7 +678,7 @@ public class DataProviderFactory {
                 colCount = dataFormatReference.getWidth();
             }
             else {
-                rowCount = (int)dataFormatReference.getSelectedDims()[0];
+                rowCount = dataFormatReference.getSelectedDims()[0];
                 colCount = 1;
             }
             log.trace("updateDataBuffer: rowCount={} colCount={}", rowCount, colCount);
@@ -855,6 +945,7 @@ public class DataProviderFactory {
                     base.setDataValue(rowIdx, colValue, newValue);
 
                 isValueChanged = true;
+                dirtyRegions.add(rowIdx);
             }
             catch (Exception ex) {
                 log.debug("setDataValue({}, {})=({}): cell value update failure: ", rowIndex, columnIndex,
@@ -1074,6 +1165,8 @@ public class DataProviderFactory {
             try {
                 int bufIndex = physicalLocationToBufIndex(rowIndex, columnIndex);
 
+                dirtyRegions.add(bufIndex);
+
                 bufIndex *= arraySize;
 
                 updateArrayElements(dataBuf, newValue, columnIndex, bufIndex);
@@ -1545,6 +1638,7 @@ public class DataProviderFactory {
                 int bufIndex = physicalLocationToBufIndex(rowIndex, columnIndex);
 
                 updateStringBytes(dataBuf, newValue, bufIndex);
+                dirtyRegions.add(bufIndex);
             }
             catch (Exception ex) {
                 log.debug("setDataValue({}, {}, {}): cell value update failure: ", rowIndex, columnIndex,
@@ -1619,6 +1713,12 @@ public class DataProviderFactory {
         }
     }
 
+    /*
+     * A DataProvider for integer and floating-point data. The values are read from
+     * the primitive array of the data buffer by its element type, without
+     * reflection, and unsigned 64-bit integers are converted to BigIntegers
+     * without going through strings.
+     */
     private static class NumericalDataProvider extends HDFDataProvider {
         private static final Logger log = LoggerFactory.getLogger(NumericalDataProvider.class);
 
@@ -1626,6 +1726,12 @@ public class DataProviderFactory {
 
         private final long typeSize;
 
+        /** the data buffer that isPrimitiveBuf was determined for */
+        private Object typedBuf;
+
+        /** true if typedBuf is an array of a primitive type */
+        private boolean isPrimitiveBuf;
+
         NumericalDataProvider(final Datatype dtype, final Object dataBuf, final boolean dataTransposed)
             throws Exception
         {
@@ -1638,18 +1744,29 @@ public class DataProviderFactory {
         @Override
         public Object getDataValue(int columnIndex, int rowIndex)
         {
-            super.getDataValue(columnIndex, rowIndex);
+            Object buf = dataBuf;
+            if (buf != typedBuf) {
+                // the buffer changes with the frame of a 3D dataset, or when the data is reloaded
+                typedBuf       = buf;
+                isPrimitiveBuf = isPrimitiveArray(buf);
+            }
 
             try {
-                if (isUINT64)
-                    theValue = Tools.convertUINT64toBigInt(Long.valueOf((long)theValue));
+                if (isPrimitiveBuf)
+                    theValue = getTypedValue(buf, (int)physicalLocationToBufPosition(rowIndex, columnIndex));
+                else {
+                    super.getDataValue(columnIndex, rowIndex);
+                    if (isUINT64 && (theValue instanceof Long))
+                        theValue = Tools.convertUINT64toBigInt(((Long)theValue).longValue());
+                }
             }
             catch (Exception ex) {
                 log.debug("getDataValue({}, {}): failure: ", rowIndex, columnIndex, ex);
                 theValue = DataFactoryUtils.errStr;
             }
 
-            log.trace("getDataValue({}, {})=({}): finish", rowIndex, columnIndex, theValue);
+            if (log.isTraceEnabled())
+                log.trace("getDataValue({}, {})=({}): finish", rowIndex, columnIndex, theValue);
 
             return theValue;
         }
@@ -1657,21 +1774,104 @@ public class DataProviderFactory {
         @Override
         public Object getDataValue(Object obj, int index)
         {
-            super.getDataValue(obj, index);
-
             try {
-                if (isUINT64)
-                    theValue = Tools.convertUINT64toBigInt(Long.valueOf((long)theValue));
+                if (isPrimitiveArray(obj))
+                    theValue = getTypedValue(obj, index);
+                else {
+                    super.getDataValue(obj, index);
+                    if (isUINT64 && (theValue instanceof Long))
+                        theValue = Tools.convertUINT64toBigInt(((Long)theValue).longValue());
+                }
             }
             catch (Exception ex) {
                 log.debug("getDataValue({}): failure: ", index, ex);
                 theValue = DataFactoryUtils.errStr;
             }
 
-            log.trace("getDataValue({})=({}): finish", index, theValue);
+            if (log.isTraceEnabled())
+                log.trace("getDataValue({})=({}): finish", index, theValue);
+
+            return theValue;
+        }
+
+        private static boolean isPrimitiveArray(Object buf)
+        {
+            if ((buf == null) || !buf.getClass().isArray())
+                return false;
+
+            return buf.getClass().getComponentType().isPrimitive();
+        }
+
+        /**
+         * Returns one value of a primitive array; only the returned value is boxed.
+         */
+        final Object getTypedValue(Object buf, int index)
+        {
+            if (buf instanceof long[]) {
+                long value = ((long[])buf)[index];
+                return isUINT64 ? Tools.convertUINT64toBigInt(value) : Long.valueOf(value);
+            }
+            if (buf instanceof int[])
+                return Integer.valueOf(((int[])buf)[index]);
+            if (buf instanceof short[])
+                return Short.valueOf(((short[])buf)[index]);
+            if (buf instanceof byte[])
+                return Byte.valueOf(((byte[])buf)[index]);
+            if (buf instanceof float[])
+                return Float.valueOf(((float[])buf)[index]);
+            if (buf instanceof double[])
+                return Double.valueOf(((double[])buf)[index]);
+
+            return Array.get(buf, index);
+        }
+    }
+
+    /*
+     * A DataProvider for numerical data that is too large to be held in memory. The
+     * values are taken from the pages of rows of a RowPageCache, so only the rows
+     * that the table shows are read. The data buffer holds the first page, for the
+     * type of the values.
+     */
+    private static class PagedDataProvider extends NumericalDataProvider {
+        private static final Logger log = LoggerFactory.getLogger(PagedDataProvider.class);
+
+        private final RowPageCache pageCache;
+
+        private final long rowsPerPage;
+
+        PagedDataProvider(final Datatype dtype, final RowPageCache pageCache) throws Exception
+        {
+            super(dtype, pageCache.getPage(0), false);
+
+            this.pageCache   = pageCache;
+            this.rowsPerPage = pageCache.getRowsPerPage();
+        }
+
+        @Override
+        public Object getDataValue(int columnIndex, int rowIndex)
+        {
+            try {
+                Object page = pageCache.getPage(rowIndex / rowsPerPage);
+                int index   = (int)((rowIndex % rowsPerPage) * colCount + columnIndex);
+
+                theValue = getTypedValue(page, index);
+            }
+            catch (Exception ex) {
+                log.debug("getDataValue({}, {}): failure: ", rowIndex, columnIndex, ex);
+                theValue = DataFactoryUtils.errStr;
+            }
+
+            if (log.isTraceEnabled())
+                log.trace("getDataValue({}, {})=({}): finish", rowIndex, columnIndex, theValue);
 
             return theValue;
         }
+
+        @Override
+        public void setDataValue(int columnIndex, int rowIndex, Object newValue)
+        {
+            log.debug("setDataValue({}, {}): paged data is read-only", rowIndex, columnIndex);
+        }
     }
 
     private static class EnumDataProvider extends HDFDataProvider {
@@ -42,9 +42,12 @@ import java.util.Set;
 import java.util.StringTokenizer;
 
 import hdf.object.CompoundDS;
+import hdf.object.DataBuffer;
 import hdf.object.DataFormat;
 import hdf.object.Dataset;
+import hdf.object.DatasetStatistics;
 import hdf.object.Datatype;
+import hdf.object.DirtyRegions;
 import hdf.object.FileFormat;
 import hdf.object.Group;
 import hdf.object.HObject;
@@ -54,9 +57,14 @@ import hdf.object.h5.H5ReferenceType;
 import hdf.view.Chart;
 import hdf.view.DataView.DataViewManager;
 import hdf.view.DefaultFileFilter;
+import hdf.view.FramePrefetcher;
 import hdf.view.HDFView;
+import hdf.view.RowPageCache;
+import hdf.view.StatisticsCache;
 import hdf.view.TableView.DataDisplayConverterFactory.HDFDisplayConverter;
 import hdf.view.TableView.DataProviderFactory.HDFDataProvider;
+import hdf.view.TextExporter;
+import hdf.view.TextImporter;
 import hdf.view.Tools;
 import hdf.view.TreeView.TreeView;
 import hdf.view.ViewProperties;
@@ -64,6 +72,7 @@ import hdf.view.ViewProperties.BITMASK_OP;
 import hdf.view.dialog.InputDialog;
 import hdf.view.dialog.MathConversionDialog;
 import hdf.view.dialog.NewDatasetDialog;
+import hdf.view.dialog.TaskProgressDialog;
 
 import hdf.hdf5lib.HDF5Constants;
 
@@ -212,6 +221,12 @@ public abstract class DefaultBaseTableView implements TableView {
     private long curDataFrame = 0;
     private long maxDataFrame = 1;
 
+    /** Reads the frames next to the displayed one in the background */
+    private FramePrefetcher framePrefetcher = null;
+
+    /** Reads the rows of a selection that is too large to load on demand, or null if it is loaded */
+    protected RowPageCache rowPages = null;
+
     /** The index base used for display row and column numbers of data */
     protected int indexBase = 0;
 
@@ -327,6 +342,12 @@ public abstract class DefaultBaseTableView implements TableView {
                     }
                 }
 
+                if (framePrefetcher != null)
+                    framePrefetcher.dispose();
+
+                if (rowPages != null)
+                    rowPages.dispose();
+
                 dataValue = null;
                 dataTable = null;
 
@@ -397,6 +418,11 @@ public abstract class DefaultBaseTableView implements TableView {
 
         isReadOnly = ((HObject)dataObject).getFileFormat().isReadOnly();
 
+        // keep the chunks of one page in the chunk cache while paging through the frames
+        if ((dataObject instanceof Dataset) &&
+            (((Dataset)dataObject).getChunkCachePolicy() == Dataset.CHUNK_CACHE_DEFAULT))
+            ((Dataset)dataObject).setChunkCachePolicy(Dataset.CHUNK_CACHE_AUTO);
+
         if (((HObject)dataObject)
                 .getFileFormat()
                 .isThisType(FileFormat.getFileFormat(FileFormat.FILE_TYPE_HDF4)) &&
@@ -537,6 +563,11 @@ public abstract class DefaultBaseTableView implements TableView {
                         .setRefSize((int)dataObject.getWidth() * (int)dataObject.getWidth());
                 ((H5ReferenceType)dtype).setData(dataValue);
             }
+            else if ((dataObject instanceof ScalarDS) && (dataObject.getRank() > 2) &&
+                     !(dataValue instanceof DataBuffer)) {
+                framePrefetcher = new FramePrefetcher((Dataset)dataObject);
+                framePrefetcher.prefetch(dataObject.getStartDims()[dataObject.getSelectedIndex()[2]]);
+            }
         }
         catch (Exception ex) {
             log.debug("loadData(): data not loaded: ", ex);
@@ -657,6 +688,14 @@ public abstract class DefaultBaseTableView implements TableView {
 
         viewer.showStatus(sb.toString());
 
+        // a table has at most Integer.MAX_VALUE rows and columns
+        long nrows = (dataObject.getRank() > 1) ? dataObject.getHeight() : count[0];
+        long ncols = (dataObject.getRank() > 1) ? dataObject.getWidth() : 1;
+        if ((nrows > Integer.MAX_VALUE) || (ncols > Integer.MAX_VALUE))
+            viewer.showStatus("The selection has " + nrows + " rows and " + ncols +
+                              " columns; only the first " + Integer.MAX_VALUE +
+                              " rows and columns are shown.");
+
         indexBaseGroup.pack();
 
         content.setWeights(new int[] {1, 12});
@@ -948,6 +987,19 @@ public abstract class DefaultBaseTableView implements TableView {
                             return;
                         }
                     }
+                    else if ((theData == null) && isNumericScalar()) {
+                        // nothing selected: stream the whole dataset rather than the loaded page
+                        DatasetStatistics stats =
+                            TaskProgressDialog.computeStatistics(theShell, (Dataset)dataObject);
+                        if (stats != null) {
+                            String statistics = "Min                      = " + stats.getMin() +
+                                                "\nMax                      = " + stats.getMax() +
+                                                "\nMean                     = " + stats.getMean() +
+                                                "\nStandard deviation = " + stats.getStandardDeviation();
+                            Tools.showInformation(theShell, "Statistics", statistics);
+                        }
+                        return;
+                    }
                     else if (theData == null) {
                         theData = dataValue;
                     }
@@ -1062,6 +1114,29 @@ public abstract class DefaultBaseTableView implements TableView {
             }
         });
 
+        item = new MenuItem(exportMenu, SWT.PUSH);
+        item.setText("Text File (Whole Dataset)");
+        item.setEnabled(isNumericScalar());
+        item.addSelectionListener(new SelectionAdapter() {
+            @Override
+            public void widgetSelected(SelectionEvent e)
+            {
+                if (!isNumericScalar()) {
+                    Tools.showError(theShell, "Save",
+                                    "Please save the changes before exporting the whole dataset.");
+                    return;
+                }
+
+                try {
+                    saveAsText(true);
+                }
+                catch (Exception ex) {
+                    theShell.getDisplay().beep();
+                    Tools.showError(theShell, "Save", ex.getMessage());
+                }
+            }
+        });
+
         item = new MenuItem(importExportMenu, SWT.CASCADE);
         item.setText("Import Data from");
 
@@ -1075,46 +1150,163 @@ public abstract class DefaultBaseTableView implements TableView {
             @Override
             public void widgetSelected(SelectionEvent e)
             {
-                String currentDir = ((HObject)dataObject).getFileFormat().getParent();
-
-                String filename = null;
-                if (((HDFView)viewer).getTestState()) {
-                    filename = currentDir + File.separator +
-                               new InputDialog(theShell, "Enter a file name", "").open();
-                }
-                else {
-                    FileDialog fChooser = new FileDialog(theShell, SWT.OPEN);
-                    fChooser.setFilterPath(currentDir);
-
-                    DefaultFileFilter filter = DefaultFileFilter.getFileFilterText();
-                    fChooser.setFilterExtensions(new String[] {"*", filter.getExtensions()});
-                    fChooser.setFilterNames(new String[] {"All Files", filter.getDescription()});
-                    fChooser.setFilterIndex(1);
-
-                    filename = fChooser.open();
-                }
+                File chosenFile = chooseTextFile(theShell);
+                if (chosenFile == null)
+                    return;
 
-                if (filename == null)
+                if (!Tools.showConfirm(theShell, "Import Data From Text File",
+                                       "Do you want to paste selected data?"))
                     return;
 
-                File chosenFile = new File(filename);
-                if (!chosenFile.exists()) {
+                importTextData(chosenFile.getAbsolutePath());
+            }
+        });
+
+        item = new MenuItem(importMenu, SWT.PUSH);
+        item.setText("Text File (Whole Dataset)");
+        item.setEnabled(!isReadOnly && isNumericScalar());
+        item.addSelectionListener(new SelectionAdapter() {
+            @Override
+            public void widgetSelected(SelectionEvent e)
+            {
+                if (!isNumericScalar()) {
                     Tools.showError(theShell, "Import Data From Text File",
-                                    "Data import error: " + filename + " does not exist.");
+                                    "Please save the changes before importing the whole dataset.");
                     return;
                 }
 
+                File chosenFile = chooseTextFile(theShell);
+                if (chosenFile == null)
+                    return;
+
                 if (!Tools.showConfirm(theShell, "Import Data From Text File",
-                                       "Do you want to paste selected data?"))
+                                       "Do you want to replace the values of " +
+                                           ((HObject)dataObject).getName() + " with the values in " +
+                                           chosenFile.getName() + "?"))
                     return;
 
-                importTextData(chosenFile.getAbsolutePath());
+                try {
+                    importTextDataset(chosenFile);
+                }
+                catch (Exception ex) {
+                    theShell.getDisplay().beep();
+                    Tools.showError(theShell, "Import Data From Text File", ex.getMessage());
+                }
             }
         });
 
         return menuBar;
     }
 
+    /**
+     * Asks for an existing text file to import data from.
+     *
+     * @return the chosen file, or null if no file was chosen.
+     */
+    private File chooseTextFile(Shell theShell)
+    {
+        String currentDir = ((HObject)dataObject).getFileFormat().getParent();
+
+        String filename = null;
+        if (((HDFView)viewer).getTestState()) {
+            filename =
+                currentDir + File.separator + new InputDialog(theShell, "Enter a file name", "").open();
+        }
+        else {
+            FileDialog fChooser = new FileDialog(theShell, SWT.OPEN);
+            fChooser.setFilterPath(currentDir);
+
+            DefaultFileFilter filter = DefaultFileFilter.getFileFilterText();
+            fChooser.setFilterExtensions(new String[] {"*", filter.getExtensions()});
+            fChooser.setFilterNames(new String[] {"All Files", filter.getDescription()});
+            fChooser.setFilterIndex(1);
+
+            filename = fChooser.open();
+        }
+
+        if (filename == null)
+            return null;
+
+        File chosenFile = new File(filename);
+        if (!chosenFile.exists()) {
+            Tools.showError(theShell, "Import Data From Text File",
+                            "Data import error: " + filename + " does not exist.");
+            return null;
+        }
+
+        return chosenFile;
+    }
+
+    /**
+     * Returns true if the current selection of an object has more data points than a Java array can hold
+     * and can be read into an off-heap {@link DataBuffer} instead.
+     *
+     * @param dataObject
+     *        the object that has the buffer for the data.
+     *
+     * @return true if the data must be loaded with {@link Dataset#readBuffer()}.
+     */
+    protected boolean isBufferRequired(DataFormat dataObject)
+    {
+        if (!(dataObject instanceof Dataset) || !((Dataset)dataObject).isBufferReadable())
+            return false;
+
+        long[] selected = dataObject.getSelectedDims();
+        long points     = 1;
+        for (int i = 0; i < selected.length; i++)
+            points *= selected[i];
+
+        return (points > Integer.MAX_VALUE);
+    }
+
+    /**
+     * Returns true if the current selection of an object is too large to be loaded as a whole and its rows
+     * should be read on demand through a {@link RowPageCache}, i.e. the object is a scalar dataset of
+     * integer or floating-point numbers with a selection of one or two dimensions in their natural order,
+     * which is shown without a bitmask, as characters or transposed.
+     *
+     * @param dataObject
+     *        the object that has the buffer for the data.
+     *
+     * @return true if the data must be read through a {@link RowPageCache}.
+     */
+    protected boolean isPagingRequired(DataFormat dataObject)
+    {
+        if (!(dataObject instanceof ScalarDS) || (dataObject.getRank() > 2) || (bitmask != null) ||
+            isDisplayTypeChar || isDataTransposed)
+            return false;
+
+        int[] selectedIndex = dataObject.getSelectedIndex();
+        if ((dataObject.getRank() == 2) && (selectedIndex[0] > selectedIndex[1]))
+            return false;
+
+        Datatype dtype = dataObject.getDatatype();
+        if ((dtype == null) || !(dtype.isInteger() || dtype.isFloat()) || (dtype.getDatatypeSize() > 8))
+            return false;
+
+        long[] selected = dataObject.getSelectedDims();
+        long bytes      = dtype.getDatatypeSize();
+        for (int i = 0; i < selected.length; i++)
+            bytes *= selected[i];
+
+        return (bytes > RowPageCache.PAGING_THRESHOLD_BYTES);
+    }
+
+    /**
+     * Returns true if the statistics of the whole dataset can be streamed from the file, i.e. the object is
+     * a scalar dataset of integer or floating-point numbers without unsaved changes.
+     *
+     * @return true if the statistics can be computed with {@link DatasetStatistics}.
+     */
+    protected boolean isNumericScalar()
+    {
+        if (!(dataObject instanceof ScalarDS) || ((dataProvider != null) && dataProvider.getIsValueChanged()))
+            return false;
+
+        Datatype dtype = ((ScalarDS)dataObject).getDatatype();
+        return (dtype != null) && (dtype.isInteger() || dtype.isFloat()) && (dtype.getDatatypeSize() <= 8);
+    }
+
     /**
      * Loads the data buffer of an object.
      *
@@ -1148,7 +1340,33 @@ public abstract class DefaultBaseTableView implements TableView {
             dataObject.getSelectedDims()[dataObject.getSelectedIndex()[2]] = 1;
 
         dataValue = null;
+        if (isPagingRequired(dataObject)) {
+            try {
+                rowPages = new RowPageCache((Dataset)dataObject);
+
+                // the first page stands in for the data buffer, e.g. for the type of the values
+                log.trace("loadData(): read rows on demand");
+                dataValue  = rowPages.getPage(0);
+                isReadOnly = true;
+                return;
+            }
+            catch (Exception ex) {
+                log.debug("loadData(): rows can not be read on demand; loading the whole selection: ", ex);
+                if (rowPages != null)
+                    rowPages.dispose();
+                rowPages = null;
+            }
+        }
+
         try {
+            if (isBufferRequired(dataObject)) {
+                // the selection does not fit in a Java array; keep it off-heap and read-only
+                log.trace("loadData(): call readBuffer()");
+                dataValue  = ((Dataset)dataObject).readBuffer();
+                isReadOnly = true;
+                return;
+            }
+
             log.trace("loadData(): call getData()");
             dataValue = dataObject.getData();
         }
@@ -1220,6 +1438,8 @@ public abstract class DefaultBaseTableView implements TableView {
 
     /**
      * Update dataset's value in file. The changes will go to the file.
+     *
+     * When the data provider knows which data points have changed, only those points are written.
      */
     @Override
     public void updateValueInFile()
@@ -1232,7 +1452,11 @@ public abstract class DefaultBaseTableView implements TableView {
         }
 
         try {
-            dataObject.write();
+            DirtyRegions changed = dataProvider.getDirtyRegions();
+            if ((dataObject instanceof Dataset) && !changed.isEmpty())
+                ((Dataset)dataObject).write(changed);
+            else
+                dataObject.write();
         }
         catch (Exception ex) {
             shell.getDisplay().beep();
@@ -1242,6 +1466,7 @@ public abstract class DefaultBaseTableView implements TableView {
         }
 
         dataProvider.setIsValueChanged(false);
+        StatisticsCache.invalidate((HObject)dataObject);
     }
 
     @Override
@@ -1290,8 +1515,30 @@ public abstract class DefaultBaseTableView implements TableView {
     {
         log.trace("refreshDataTable()");
 
+        // the file may have changed, so the prefetched frames can not be trusted
+        if (framePrefetcher != null)
+            framePrefetcher.clear();
+
         shell.setCursor(display.getSystemCursor(SWT.CURSOR_WAIT));
-        dataValue = dataObject.refreshData();
+        if (rowPages != null) {
+            rowPages.clear();
+            try {
+                dataValue = rowPages.getPage(0);
+            }
+            catch (Exception ex) {
+                log.debug("refreshDataTable(): getPage failure: ", ex);
+            }
+        }
+        else if (isBufferRequired(dataObject)) {
+            try {
+                dataValue = ((Dataset)dataObject).readBuffer();
+            }
+            catch (Exception ex) {
+                log.debug("refreshDataTable(): readBuffer failure: ", ex);
+            }
+        }
+        else
+            dataValue = dataObject.refreshData();
         shell.setCursor(null);
 
         long[] dims = dataObject.getDims();
@@ -1385,8 +1632,11 @@ public abstract class DefaultBaseTableView implements TableView {
             return;
 
         // Make sure to save any changes to this frame of data before changing frames
-        if (dataProvider.getIsValueChanged())
+        if (dataProvider.getIsValueChanged()) {
             updateValueInFile();
+            if (framePrefetcher != null)
+                framePrefetcher.clear();
+        }
 
         long[] start        = dataObject.getStartDims();
         int[] selectedIndex = dataObject.getSelectedIndex();
@@ -1410,16 +1660,24 @@ public abstract class DefaultBaseTableView implements TableView {
         shell.setCursor(display.getSystemCursor(SWT.CURSOR_WAIT));
 
         try {
-            dataValue = dataObject.getData();
+            if (isBufferRequired(dataObject)) {
+                dataValue = ((Dataset)dataObject).readBuffer();
+            }
+            else {
+                if (framePrefetcher != null)
+                    ((Dataset)dataObject).setPrefetchedData(framePrefetcher.take(idx));
 
-            /*
-             * TODO: Converting data from unsigned C integers to Java integers
-             *       is currently unsupported for Compound Datasets.
-             */
-            if (!(dataObject instanceof CompoundDS))
-                dataObject.convertFromUnsignedC();
+                dataValue = dataObject.getData();
 
-            dataValue = dataObject.getData();
+                /*
+                 * TODO: Converting data from unsigned C integers to Java integers
+                 *       is currently unsupported for Compound Datasets.
+                 */
+                if (!(dataObject instanceof CompoundDS))
+                    dataObject.convertFromUnsignedC();
+
+                dataValue = dataObject.getData();
+            }
         }
         catch (Exception ex) {
             shell.getDisplay().beep();
@@ -1431,6 +1689,9 @@ public abstract class DefaultBaseTableView implements TableView {
             shell.setCursor(null);
         }
 
+        if ((framePrefetcher != null) && (dataValue != null))
+            framePrefetcher.prefetch(idx);
+
         dataProvider.updateDataBuffer(dataValue);
 
         dataTable.doCommand(new VisualRefreshCommand());
@@ -1555,6 +1816,29 @@ public abstract class DefaultBaseTableView implements TableView {
         }
     }
 
+    /**
+     * Returns the data delimiter selected in the user options.
+     *
+     * @return the delimiter, or an empty string if the option is not set.
+     */
+    private static String getDataDelimiter()
+    {
+        String delName = ViewProperties.getDataDelimiter();
+
+        if (delName.equalsIgnoreCase(ViewProperties.DELIMITER_TAB))
+            return "\t";
+        else if (delName.equalsIgnoreCase(ViewProperties.DELIMITER_SPACE))
+            return " ";
+        else if (delName.equalsIgnoreCase(ViewProperties.DELIMITER_COMMA))
+            return ",";
+        else if (delName.equalsIgnoreCase(ViewProperties.DELIMITER_COLON))
+            return ":";
+        else if (delName.equalsIgnoreCase(ViewProperties.DELIMITER_SEMI_COLON))
+            return ";";
+
+        return "";
+    }
+
     /**
      * Save data as text.
      *
@@ -1562,6 +1846,25 @@ public abstract class DefaultBaseTableView implements TableView {
      *             if a failure occurred
      */
     protected void saveAsText() throws Exception
+    {
+        saveAsText(false);
+    }
+
+    /**
+     * Save data as text.
+     *
+     * The values of numeric scalar datasets are read from file in blocks and formatted in parallel by a
+     * {@link TextExporter}, so that selections larger than the loaded page, and whole datasets, can be
+     * saved. Other data is saved from the table.
+     *
+     * @param isWholeDataset
+     *            true to save the whole dataset rather than the current selection; only supported for
+     *            numeric scalar datasets.
+     *
+     * @throws Exception
+     *             if a failure occurred
+     */
+    protected void saveAsText(boolean isWholeDataset) throws Exception
     {
         String currentDir = ((HObject)dataObject).getFileFormat().getParent();
 
@@ -1577,7 +1880,10 @@ public abstract class DefaultBaseTableView implements TableView {
             fChooser.setFilterExtensions(new String[] {"*", filter.getExtensions()});
             fChooser.setFilterNames(new String[] {"All Files", filter.getDescription()});
             fChooser.setFilterIndex(1);
-            fChooser.setText("Save Current Data To Text File --- " + ((HObject)dataObject).getName());
+            if (isWholeDataset)
+                fChooser.setText("Save Dataset To Text File --- " + ((HObject)dataObject).getName());
+            else
+                fChooser.setText("Save Current Data To Text File --- " + ((HObject)dataObject).getName());
 
             filename = fChooser.open();
         }
@@ -1611,26 +1917,19 @@ public abstract class DefaultBaseTableView implements TableView {
                 return;
         }
 
-        PrintWriter out = new PrintWriter(new BufferedWriter(new FileWriter(chosenFile)));
-
-        String delName   = ViewProperties.getDataDelimiter();
-        String delimiter = "";
+        String delimiter = getDataDelimiter();
 
         // delimiter must include a tab to be consistent with copy/paste for
         // compound fields
-        if (dataObject instanceof CompoundDS)
-            delimiter = "\t";
+        if ((dataObject instanceof CompoundDS) && !delimiter.equals("\t"))
+            delimiter = delimiter + "\t";
 
-        if (delName.equalsIgnoreCase(ViewProperties.DELIMITER_TAB))
-            delimiter = "\t";
-        else if (delName.equalsIgnoreCase(ViewProperties.DELIMITER_SPACE))
-            delimiter = " " + delimiter;
-        else if (delName.equalsIgnoreCase(ViewProperties.DELIMITER_COMMA))
-            delimiter = "," + delimiter;
-        else if (delName.equalsIgnoreCase(ViewProperties.DELIMITER_COLON))
-            delimiter = ":" + delimiter;
-        else if (delName.equalsIgnoreCase(ViewProperties.DELIMITER_SEMI_COLON))
-            delimiter = ";" + delimiter;
+        if (isWholeDataset || isTextExportStreamable()) {
+            exportText(chosenFile, delimiter, isWholeDataset);
+            return;
+        }
+
+        PrintWriter out = new PrintWriter(new BufferedWriter(new FileWriter(chosenFile)));
 
         int cols = selectionLayer.getPreferredColumnCount();
         int rows = selectionLayer.getPreferredRowCount();
@@ -1650,6 +1949,61 @@ public abstract class DefaultBaseTableView implements TableView {
         viewer.showStatus("Data saved to: " + fname);
     }
 
+    /**
+     * Returns true if the current selection can be saved as text by a {@link TextExporter}, i.e. the object
+     * is a numeric scalar dataset without unsaved changes that is shown in the order of its data buffer.
+     */
+    private boolean isTextExportStreamable()
+    {
+        if (!isNumericScalar() || (bitmask != null) || isDisplayTypeChar || isDataTransposed)
+            return false;
+
+        int[] selectedIndex = dataObject.getSelectedIndex();
+        return (dataObject.getRank() == 1) || (selectedIndex[0] < selectedIndex[1]);
+    }
+
+    /**
+     * Saves the current selection, or the whole dataset, to a text file with a {@link TextExporter}, showing
+     * the progress of the export.
+     */
+    private void exportText(final File chosenFile, String delimiter, boolean isWholeDataset) throws Exception
+    {
+        final TextExporter exporter = new TextExporter((Dataset)dataObject, delimiter);
+        if (!isWholeDataset) {
+            long cols = (dataObject.getRank() > 1) ? dataObject.getWidth() : 1;
+            exporter.setSelection(dataObject.getStartDims(), dataObject.getSelectedDims(),
+                                  dataObject.getStride(), cols);
+        }
+        exporter.setShowAsHex(showAsHex);
+        exporter.setShowAsBin(showAsBin);
+        exporter.setNumberFormat(numberFormat);
+
+        String message = "Saving " + ((HObject)dataObject).getName() + " to " + chosenFile.getName() + " ...";
+        boolean isSaved =
+            new TaskProgressDialog(shell, "Save", message, new TaskProgressDialog.Task() {
+                @Override
+                public boolean run() throws Exception
+                {
+                    return exporter.export(chosenFile);
+                }
+
+                @Override
+                public void cancel()
+                {
+                    exporter.cancel();
+                }
+
+                @Override
+                public double getProgress()
+                {
+                    return exporter.getProgress();
+                }
+            }).open();
+
+        if (isSaved)
+            viewer.showStatus("Data saved to: " + chosenFile.getAbsolutePath());
+    }
+
     /** Save data as text (from TextView). */
     // private void saveAsTextTextView() throws Exception {
     // FileDialog fChooser = new FileDialog(shell, SWT.SAVE);
@@ -1879,19 +2233,7 @@ public abstract class DefaultBaseTableView implements TableView {
                 return;
             }
 
-            String delName   = ViewProperties.getDataDelimiter();
-            String delimiter = "";
-
-            if (delName.equalsIgnoreCase(ViewProperties.DELIMITER_TAB))
-                delimiter = "\t";
-            else if (delName.equalsIgnoreCase(ViewProperties.DELIMITER_SPACE))
-                delimiter = " " + delimiter;
-            else if (delName.equalsIgnoreCase(ViewProperties.DELIMITER_COMMA))
-                delimiter = ",";
-            else if (delName.equalsIgnoreCase(ViewProperties.DELIMITER_COLON))
-                delimiter = ":";
-            else if (delName.equalsIgnoreCase(ViewProperties.DELIMITER_SEMI_COLON))
-                delimiter = ";";
+            String delimiter = getDataDelimiter();
             String token = null;
             int r        = r0;
             int c        = c0;
@@ -1955,6 +2297,57 @@ public abstract class DefaultBaseTableView implements TableView {
         }
     }
 
+    /**
+     * Import the values of the whole dataset from a text file.
+     *
+     * The file is parsed in parallel and written to the dataset in blocks by a {@link TextImporter}, so
+     * the file may be far larger than memory. The table is reloaded from file afterwards.
+     *
+     * @param chosenFile
+     *            the text file to import.
+     *
+     * @throws Exception
+     *             if the file can not be imported
+     */
+    protected void importTextDataset(final File chosenFile) throws Exception
+    {
+        final TextImporter importer = new TextImporter((Dataset)dataObject, getDataDelimiter());
+
+        String message = "Importing " + chosenFile.getName() + " into " + ((HObject)dataObject).getName() +
+                         " ...";
+        try {
+            new TaskProgressDialog(shell, "Import", message, new TaskProgressDialog.Task() {
+                @Override
+                public boolean run() throws Exception
+                {
+                    return importer.importText(chosenFile);
+                }
+
+                @Override
+                public void cancel()
+                {
+                    importer.cancel();
+                }
+
+                @Override
+                public double getProgress()
+                {
+                    return importer.getProgress();
+                }
+            }).open();
+        }
+        finally {
+            // the values imported before a failure or cancel are in the file as well
+            if (importer.getValueCount() > 0) {
+                StatisticsCache.invalidate((HObject)dataObject);
+                refreshDataTable();
+            }
+        }
+
+        viewer.showStatus(importer.getValueCount() +
+                          " values imported from: " + chosenFile.getAbsolutePath());
+    }
+
     /**
      * Import data values from binary file.
      */
@@ -2059,6 +2452,8 @@ public abstract class DefaultBaseTableView implements TableView {
                     int size = Array.getLength(theData);
                     System.arraycopy(theData, 0, colData, 0, size);
                 }
+
+                dataProvider.setIsValueChanged(true);
             }
             else {
                 int rows = selectionLayer.getSelectedRowCount();
@@ -2082,13 +2477,12 @@ public abstract class DefaultBaseTableView implements TableView {
                 for (int i = 0; i < rows; i++) {
                     idxDst = (r0 + i) * w + c0;
                     System.arraycopy(theData, idxSrc, dataValue, idxDst, cols);
+                    dataProvider.setIsValueChanged(idxDst, idxDst + cols);
                     idxSrc += cols;
                 }
             }
 
             System.gc();
-
-            dataProvider.setIsValueChanged(true);
         }
     }
 
@@ -2582,9 +2976,9 @@ public abstract class DefaultBaseTableView implements TableView {
             this.selectedIndex = theDataObject.getSelectedIndex();
 
             if (rank > 1)
-                this.nrows = (int)theDataObject.getHeight();
+                this.nrows = (int)Math.min(theDataObject.getHeight(), Integer.MAX_VALUE);
             else
-                this.nrows = (int)dims[0];
+                this.nrows = (int)Math.min(dims[0], Integer.MAX_VALUE);
 
             start  = (int)startArray[selectedIndex[0]];
             stride = (int)strideArray[selectedIndex[0]];
@@ -2604,9 +2998,9 @@ public abstract class DefaultBaseTableView implements TableView {
             this.selectedIndex = theDataObject.getSelectedIndex();
 
             if (rank > 1)
-                this.nrows = (int)theDataObject.getHeight();
+                this.nrows = (int)Math.min(theDataObject.getHeight(), Integer.MAX_VALUE);
             else
-                this.nrows = (int)dims[0];
+                this.nrows = (int)Math.min(dims[0], Integer.MAX_VALUE);
         }
 
         @Override
@@ -26,6 +26,7 @@ import java.util.Set;
 import java.util.StringTokenizer;
 
 import hdf.object.Attribute;
+import hdf.object.DataBuffer;
 import hdf.object.DataFormat;
 import hdf.object.Dataset;
 import hdf.object.Datatype;
@@ -150,6 +151,11 @@ public class DefaultScalarDSTableView extends DefaultBaseTableView implements Ta
     {
         super.loadData(dataObject);
 
+        // off-heap buffers are shown as read, without bitmask or unsigned conversion;
+        // paged rows are converted as each page is read
+        if ((dataValue instanceof DataBuffer) || (rowPages != null))
+            return;
+
         try {
             if (Tools.applyBitmask(dataValue, bitmask, bitmaskOP)) {
                 isReadOnly    = true;
@@ -675,7 +681,10 @@ public class DefaultScalarDSTableView extends DefaultBaseTableView implements Ta
     {
         // Create body layer
         try {
-            dataProvider = DataProviderFactory.getDataProvider(dataObject, dataValue, isDataTransposed);
+            if (rowPages != null)
+                dataProvider = DataProviderFactory.getDataProvider(dataObject, rowPages);
+            else
+                dataProvider = DataProviderFactory.getDataProvider(dataObject, dataValue, isDataTransposed);
 
             log.trace("createTable(): rows={} : cols={}", dataProvider.getRowCount(),
                       dataProvider.getColumnCount());
@@ -759,7 +768,7 @@ public class DefaultScalarDSTableView extends DefaultBaseTableView implements Ta
         log.trace("getSelectedData() data size: {}", size);
 
         // the whole table is selected
-        if ((dataTable.getPreferredColumnCount() - 1 == selectedCols.length) &&
+        if ((rowPages == null) && (dataTable.getPreferredColumnCount() - 1 == selectedCols.length) &&
             (dataTable.getPreferredRowCount() - 1 == selectedRows.length))
             return dataValue;
 
@@ -811,7 +820,18 @@ public class DefaultScalarDSTableView extends DefaultBaseTableView implements Ta
             for (int j = 0; j < selectedCols.length; j++) {
                 idxSrc                = selectedRows[i] * w + selectedCols[j];
                 Object dataArrayValue = null;
-                if (dataValue instanceof ArrayList) {
+                if (rowPages != null) {
+                    try {
+                        dataArrayValue = rowPages.getValue(selectedRows[i], selectedCols[j]);
+                    }
+                    catch (Exception ex) {
+                        log.debug("getSelectedData(): failed to read row {}: ", selectedRows[i], ex);
+                        Tools.showError(shell, "Select", "Unable to read the selected data:\n\n" + ex);
+                        return null;
+                    }
+                    Array.set(selectedData, idxDst, dataArrayValue);
+                }
+                else if (dataValue instanceof ArrayList) {
                     dataArrayValue = ((ArrayList)dataValue).get(idxSrc);
                     System.arraycopy(dataArrayValue, 0, selectedData, idxDst,
                                      (int)dataObject.getDatatype().getDatatypeSize());
@@ -0,0 +1,427 @@
+/*****************************************************************************
+ * Copyright by The HDF Group.                                               *
+ * Copyright by the Board of Trustees of the University of Illinois.         *
+ * All rights reserved.                                                      *
+ *                                                                           *
+ * This file is part of the HDF Java Products distribution.                  *
+ * The full copyright notice, including terms governing use, modification,   *
+ * and redistribution, is contained in the COPYING file, which can be found  *
+ * at the root of the source code distribution tree,                         *
+ * or in https://www.hdfgroup.org/licenses.                                  *
+ * If you do not have access to either file, you may request a copy from     *
+ * help@hdfgroup.org.                                                        *
+ ****************************************************************************/
+
+package hdf.view;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.lang.reflect.Array;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.text.NumberFormat;
+import java.util.concurrent.Callable;
+
+import hdf.object.BoundedTaskQueue;
+import hdf.object.Dataset;
+import hdf.object.Datatype;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Writes the values of a numeric dataset to a delimited text file without loading the dataset into memory.
+ *
+ * The hyperslab to export is read in blocks of whole text lines through a duplicate of the dataset object.
+ * The blocks are formatted in the common fork-join pool, and their text is appended to the file in block
+ * order.
+ *
+ * Every line holds a fixed number of consecutive values of the hyperslab, in row-major order, separated by
+ * the delimiter. By default the whole dataset is exported with one line for every row along its last
+ * dimension. Values are formatted as in the table view: in decimal, with an optional number format, or as
+ * hexadecimal or binary integers. Unsigned integers are written as unsigned values.
+ *
+ * An export can be cancelled from another thread with {@link #cancel()}, and its progress can be polled with
+ * {@link #getProgress()}.
+ */
+public class TextExporter {
+    private static final Logger log = LoggerFactory.getLogger(TextExporter.class);
+
+    /** The approximate size, in bytes, of the data values of a block formatted by one task. */
+    public static final long BLOCK_SIZE_BYTES = 4L * 1024 * 1024;
+
+    private static final String NEW_LINE = System.lineSeparator();
+
+    private final Dataset dataset;
+
+    private final String delimiter;
+
+    /** the start of the hyperslab, or null for the whole dataset */
+    private long[] selStart;
+
+    /** the size of the hyperslab, or null for the whole dataset */
+    private long[] selCount;
+
+    /** the stride of the hyperslab, or null for a stride of 1 */
+    private long[] selStride;
+
+    /** the number of values on a line, or 0 for a row along the last dimension */
+    private long valuesPerLine;
+
+    private boolean showAsHex;
+
+    private boolean showAsBin;
+
+    private NumberFormat numberFormat;
+
+    private volatile boolean isCancelled;
+
+    private volatile long pointsDone;
+
+    private volatile long totalPoints;
+
+    /**
+     * Creates an export of the whole of a numeric scalar dataset.
+     *
+     * @param dataset
+     *            the dataset of integer or floating-point numbers of at most 8 bytes.
+     * @param delimiter
+     *            the text between two values on a line.
+     */
+    public TextExporter(Dataset dataset, String delimiter)
+    {
+        this.dataset   = dataset;
+        this.delimiter = delimiter;
+    }
+
+    /**
+     * Restricts the export to a hyperslab of the dataset.
+     *
+     * The number of values on a line must be the number of points of the hyperslab in its last few
+     * dimensions, e.g. the size of the hyperslab in its last dimension, so that a block of lines is a
+     * hyperslab as well.
+     *
+     * @param start
+     *            the start of the hyperslab, or null for the whole dataset.
+     * @param count
+     *            the size of the hyperslab in each dimension, or null for the whole dataset.
+     * @param stride
+     *            the stride of the hyperslab, or null for a stride of 1.
+     * @param valuesPerLine
+     *            the number of values on a line.
+     */
+    public void setSelection(long[] start, long[] count, long[] stride, long valuesPerLine)
+    {
+        this.selStart      = (start == null) ? null : start.clone();
+        this.selCount      = (count == null) ? null : count.clone();
+        this.selStride     = (stride == null) ? null : stride.clone();
+        this.valuesPerLine = valuesPerLine;
+    }
+
+    /**
+     * Sets whether integers are written as hexadecimal numbers.
+     *
+     * @param showAsHex
+     *            true to write hexadecimal integers.
+     */
+    public void setShowAsHex(boolean showAsHex) { this.showAsHex = showAsHex; }
+
+    /**
+     * Sets whether integers are written as binary numbers.
+     *
+     * @param showAsBin
+     *            true to write binary integers.
+     */
+    public void setShowAsBin(boolean showAsBin) { this.showAsBin = showAsBin; }
+
+    /**
+     * Sets the format of decimal numbers.
+     *
+     * @param numberFormat
+     *            the number format, or null for the default Java representation of the values.
+     */
+    public void setNumberFormat(NumberFormat numberFormat) { this.numberFormat = numberFormat; }
+
+    /**
+     * Asks a running export to stop; {@link #export(File)} then deletes the partial file and returns false.
+     */
+    public void cancel() { isCancelled = true; }
+
+    /**
+     * Returns true if the last export was cancelled.
+     *
+     * @return true if the export was cancelled.
+     */
+    public boolean isCancelled() { return isCancelled; }
+
+    /**
+     * Returns the fraction of the data points written so far by the running export.
+     *
+     * @return the progress between 0 and 1.
+     */
+    public double getProgress()
+    {
+        long total = totalPoints;
+        return (total <= 0) ? 0 : Math.min(1.0, (double)pointsDone / total);
+    }
+
+    /**
+     * Writes the values to a text file, replacing the file if it exists.
+     *
+     * @param file
+     *            the text file.
+     *
+     * @return true if the export has completed, false if it was cancelled.
+     *
+     * @throws Exception
+     *             if the data can not be read or the file can not be written
+     */
+    public boolean export(File file) throws Exception
+    {
+        pointsDone = 0;
+
+        if (!dataset.isInited())
+            dataset.init();
+
+        Datatype dtype = dataset.getDatatype();
+        if (!(dtype.isInteger() || dtype.isFloat()) || (dtype.getDatatypeSize() > 8))
+            throw new UnsupportedOperationException(
+                "only datasets of integers or floating-point numbers of at most 8 bytes can be exported");
+
+        Dataset reader = dataset.duplicate();
+        if (reader == null)
+            throw new UnsupportedOperationException(dataset.getName() + " can not be duplicated");
+
+        int rank      = dataset.getRank();
+        long[] start  = (selStart == null) ? new long[rank] : selStart;
+        long[] count  = (selCount == null) ? dataset.getDims().clone() : selCount;
+        long lineSize = valuesPerLine;
+        if (lineSize <= 0)
+            lineSize = (rank > 1) ? count[rank - 1] : 1;
+
+        long points = 1;
+        for (int i = 0; i < rank; i++)
+            points *= count[i];
+        totalPoints = points;
+
+        // the dimensions below lineDim make up the lines and are read whole
+        int lineDim    = rank;
+        long linePoint = 1;
+        while ((linePoint < lineSize) && (lineDim > 0))
+            linePoint *= count[--lineDim];
+        if ((linePoint != lineSize) || (lineSize > Integer.MAX_VALUE))
+            throw new IllegalArgumentException("a line of " + lineSize + " values is not a hyperslab");
+
+        long[] blockDims = count.clone();
+        long maxPoints   = Math.max(1, BLOCK_SIZE_BYTES / dtype.getDatatypeSize());
+        long blockPoints = lineSize;
+        for (int i = lineDim - 1; i >= 0; i--) {
+            blockDims[i] = Math.max(1, Math.min(count[i], maxPoints / blockPoints));
+            blockPoints *= blockDims[i];
+            if (blockDims[i] < count[i]) {
+                for (int j = i - 1; j >= 0; j--)
+                    blockDims[j] = 1;
+                break;
+            }
+        }
+
+        log.trace("export(): {} points, {} per line, blocks of {}", points, lineSize, blockDims);
+
+        final int typeSize     = (int)dtype.getDatatypeSize();
+        final boolean unsigned = dtype.isUnsigned();
+        final int lineLength   = (int)lineSize;
+
+        long[] position = new long[rank];
+        boolean hasMore = (points > 0);
+        int maxPending  = BoundedTaskQueue.getDefaultMaxPending();
+
+        try (FileOutputStream out = new FileOutputStream(file); FileChannel channel = out.getChannel()) {
+            BoundedTaskQueue<Block> pending = new BoundedTaskQueue<Block>(maxPending) {
+                @Override
+                protected void completed(Block block) throws Exception
+                {
+                    writeBlock(block, channel);
+                }
+            };
+
+            try {
+                while (hasMore && !isCancelled) {
+                    long[] readerStart    = reader.getStartDims();
+                    long[] readerSelected = reader.getSelectedDims();
+                    long[] readerStride   = reader.getStride();
+                    for (int i = 0; i < rank; i++) {
+                        long step         = (selStride == null) ? 1 : selStride[i];
+                        readerStart[i]    = start[i] + position[i] * step;
+                        readerSelected[i] = Math.min(blockDims[i], count[i] - position[i]);
+                        if (readerStride != null)
+                            readerStride[i] = step;
+                    }
+
+                    final Object data = reader.read();
+                    pending.submit(new Callable<Block>() {
+                        @Override
+                        public Block call()
+                        {
+                            int n = Array.getLength(data);
+                            if (isCancelled)
+                                return new Block(new byte[0], n);
+                            return new Block(format(data, lineLength, typeSize, unsigned), n);
+                        }
+                    });
+
+                    // advance to the next block, fastest changing dimension first
+                    hasMore = false;
+                    for (int i = rank - 1; i >= 0; i--) {
+                        position[i] += blockDims[i];
+                        if (position[i] < count[i]) {
+                            hasMore = true;
+                            break;
+                        }
+                        position[i] = 0;
+                    }
+                }
+
+                while (!pending.isEmpty() && !isCancelled)
+                    pending.completeNext();
+            }
+            finally {
+                pending.cancelAll();
+            }
+        }
+
+        if (isCancelled) {
+            log.trace("export(): cancelled; deleting {}", file);
+            file.delete();
+            return false;
+        }
+
+        return true;
+    }
+
+    private void writeBlock(Block block, FileChannel channel) throws Exception
+    {
+        ByteBuffer buf = ByteBuffer.wrap(block.text);
+        while (buf.hasRemaining())
+            channel.write(buf);
+
+        pointsDone += block.points;
+    }
+
+    /**
+     * A block of formatted lines.
+     */
+    private static final class Block {
+        final byte[] text;
+
+        final long points;
+
+        Block(byte[] text, long points)
+        {
+            this.text   = text;
+            this.points = points;
+        }
+    }
+
+    /**
+     * Formats a block of whole lines.
+     */
+    private byte[] format(Object data, int lineLength, int typeSize, boolean unsigned)
+    {
+        int n = Array.getLength(data);
+
+        NumberFormat fmt = (numberFormat == null) ? null : (NumberFormat)numberFormat.clone();
+        StringBuilder sb = new StringBuilder(n * 8);
+        int col          = 0;
+
+        if (data instanceof byte[]) {
+            byte[] values = (byte[])data;
+            for (int i = 0; i < n; i++) {
+                appendInteger(sb, unsigned ? (values[i] & 0xFFL) : values[i], typeSize, fmt);
+                col = separate(sb, col, lineLength);
+            }
+        }
+        else if (data instanceof short[]) {
+            short[] values = (short[])data;
+            for (int i = 0; i < n; i++) {
+                appendInteger(sb, unsigned ? (values[i] & 0xFFFFL) : values[i], typeSize, fmt);
+                col = separate(sb, col, lineLength);
+            }
+        }
+        else if (data instanceof int[]) {
+            int[] values = (int[])data;
+            for (int i = 0; i < n; i++) {
+                appendInteger(sb, unsigned ? (values[i] & 0xFFFFFFFFL) : values[i], typeSize, fmt);
+                col = separate(sb, col, lineLength);
+            }
+        }
+        else if (data instanceof long[]) {
+            long[] values    = (long[])data;
+            boolean isUINT64 = unsigned && !showAsHex && !showAsBin;
+            for (int i = 0; i < n; i++) {
+                if (!isUINT64)
+                    appendInteger(sb, values[i], typeSize, fmt);
+                else if (fmt != null)
+                    sb.append(fmt.format(Tools.convertUINT64toBigInt(values[i])));
+                else
+                    sb.append(Long.toUnsignedString(values[i]));
+                col = separate(sb, col, lineLength);
+            }
+        }
+        else if (data instanceof float[]) {
+            float[] values = (float[])data;
+            for (int i = 0; i < n; i++) {
+                if (fmt != null)
+                    sb.append(fmt.format(values[i]));
+                else
+                    sb.append(values[i]);
+                col = separate(sb, col, lineLength);
+            }
+        }
+        else if (data instanceof double[]) {
+            double[] values = (double[])data;
+            for (int i = 0; i < n; i++) {
+                if (fmt != null)
+                    sb.append(fmt.format(values[i]));
+                else
+                    sb.append(values[i]);
+                col = separate(sb, col, lineLength);
+            }
+        }
+        else {
+            for (int i = 0; i < n; i++) {
+                sb.append(Array.get(data, i));
+                col = separate(sb, col, lineLength);
+            }
+        }
+
+        return sb.toString().getBytes();
+    }
+
+    private void appendInteger(StringBuilder sb, long value, int typeSize, NumberFormat fmt)
+    {
+        if (showAsHex)
+            Tools.appendHexString(sb, value, typeSize);
+        else if (showAsBin)
+            Tools.appendBinaryString(sb, value, typeSize);
+        else if (fmt != null)
+            sb.append(fmt.format(value));
+        else
+            sb.append(value);
+    }
+
+    /**
+     * Appends the delimiter after a value, or the line separator after the last value of a line.
+     *
+     * @return the column of the next value.
+     */
+    private int separate(StringBuilder sb, int col, int lineLength)
+    {
+        if (++col < lineLength) {
+            sb.append(delimiter);
+            return col;
+        }
+
+        sb.append(NEW_LINE);
+        return 0;
+    }
+}
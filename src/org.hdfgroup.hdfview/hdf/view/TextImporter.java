@@ -0,0 +1,434 @@
+/*****************************************************************************
+ * Copyright by The HDF Group.                                               *
+ * Copyright by the Board of Trustees of the University of Illinois.         *
+ * All rights reserved.                                                      *
+ *                                                                           *
+ * This file is part of the HDF Java Products distribution.                  *
+ * The full copyright notice, including terms governing use, modification,   *
+ * and redistribution, is contained in the COPYING file, which can be found  *
+ * at the root of the source code distribution tree,                         *
+ * or in https://www.hdfgroup.org/licenses.                                  *
+ * If you do not have access to either file, you may request a copy from     *
+ * help@hdfgroup.org.                                                        *
+ ****************************************************************************/
+
+package hdf.view;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.lang.reflect.Array;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import hdf.object.BoundedTaskQueue;
+import hdf.object.Dataset;
+import hdf.object.Datatype;
+import hdf.object.DirtyRegions;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reads the values of a numeric dataset from a delimited text file without loading the file into memory.
+ *
+ * The text file is read in segments that end at a line break, and the segments are parsed in the common
+ * fork-join pool straight into Java arrays of the dataset type. The values are written to the dataset in
+ * file order, each segment as a few hyperslabs of whole rows.
+ *
+ * The values are separated by the delimiter or by white space, and fill the dataset in row-major order; the
+ * line breaks only separate values as well. Values after the end of the dataset are ignored, and the data
+ * points after the last value of a short file are left unchanged. Unsigned integers are read as unsigned
+ * values, and values out of the range of the datatype are an error.
+ *
+ * An import can be cancelled from another thread with {@link #cancel()}, and its progress can be polled with
+ * {@link #getProgress()}. The values written before the import was cancelled, or failed, stay in the file.
+ */
+public class TextImporter {
+    private static final Logger log = LoggerFactory.getLogger(TextImporter.class);
+
+    /** The approximate size, in bytes, of the text of a segment parsed by one task. */
+    public static final int SEGMENT_SIZE_BYTES = 8 * 1024 * 1024;
+
+    private final Dataset dataset;
+
+    /** true for the bytes that separate two values */
+    private final boolean[] isSeparator = new boolean[256];
+
+    private volatile boolean isCancelled;
+
+    private volatile long bytesDone;
+
+    private volatile long totalBytes;
+
+    private volatile long valueCount;
+
+    /**
+     * Creates an import into the whole of a numeric scalar dataset.
+     *
+     * @param dataset
+     *            the dataset of integers of at most 8 bytes or of 4 or 8 byte floating-point numbers.
+     * @param delimiter
+     *            the text between two values on a line; white space always separates values.
+     */
+    public TextImporter(Dataset dataset, String delimiter)
+    {
+        this.dataset = dataset;
+
+        isSeparator[' ']  = true;
+        isSeparator['\t'] = true;
+        isSeparator['\r'] = true;
+        isSeparator['\n'] = true;
+        isSeparator['\f'] = true;
+        for (int i = 0; i < delimiter.length(); i++) {
+            char c = delimiter.charAt(i);
+            if (c < isSeparator.length)
+                isSeparator[c] = true;
+        }
+    }
+
+    /**
+     * Asks a running import to stop; {@link #importText(File)} then returns false.
+     */
+    public void cancel() { isCancelled = true; }
+
+    /**
+     * Returns true if the last import was cancelled.
+     *
+     * @return true if the import was cancelled.
+     */
+    public boolean isCancelled() { return isCancelled; }
+
+    /**
+     * Returns the fraction of the text file imported so far by the running import.
+     *
+     * @return the progress between 0 and 1.
+     */
+    public double getProgress()
+    {
+        long total = totalBytes;
+        return (total <= 0) ? 0 : Math.min(1.0, (double)bytesDone / total);
+    }
+
+    /**
+     * Returns the number of values written to the dataset by the last import.
+     *
+     * @return the number of values written.
+     */
+    public long getValueCount() { return valueCount; }
+
+    /**
+     * Reads the values of a text file into the dataset.
+     *
+     * @param file
+     *            the text file.
+     *
+     * @return true if the import has completed, false if it was cancelled.
+     *
+     * @throws Exception
+     *             if the file can not be read or parsed, or the data can not be written
+     */
+    public boolean importText(File file) throws Exception
+    {
+        bytesDone  = 0;
+        valueCount = 0;
+
+        if (!dataset.isInited())
+            dataset.init();
+
+        if (dataset.getFileFormat().isReadOnly())
+            throw new UnsupportedOperationException("cannot write to a file opened as read-only");
+
+        final Datatype dtype = dataset.getDatatype();
+        final int typeSize   = (int)dtype.getDatatypeSize();
+        boolean isNumeric    = (dtype.isInteger() && (typeSize <= 8)) ||
+                            (dtype.isFloat() && ((typeSize == 4) || (typeSize == 8)));
+        if (!isNumeric)
+            throw new UnsupportedOperationException(
+                "only datasets of integers or 4 or 8 byte floating-point numbers can be imported");
+
+        final Dataset writer = dataset.duplicate();
+        if (writer == null)
+            throw new UnsupportedOperationException(dataset.getName() + " can not be duplicated");
+
+        final long[] dims = dataset.getDims();
+        long nPoints      = 1;
+        for (int i = 0; i < dims.length; i++)
+            nPoints *= dims[i];
+        final long points = nPoints;
+        int maxPending    = BoundedTaskQueue.getDefaultMaxPending();
+
+        BoundedTaskQueue<Segment> pending = new BoundedTaskQueue<Segment>(maxPending) {
+            @Override
+            protected void completed(Segment segment) throws Exception
+            {
+                writeSegment(segment, writer, dims, points);
+            }
+        };
+
+        try (FileInputStream in = new FileInputStream(file); FileChannel channel = in.getChannel()) {
+            long size  = channel.size();
+            totalBytes = size;
+
+            log.trace("importText(): {} bytes into {} points of {}", size, points, dataset.getName());
+
+            long position = 0;
+            while ((position < size) && (valueCount < points) && !isCancelled) {
+                final long offset = position;
+                final byte[] text = readSegment(channel, position, size);
+                position += text.length;
+
+                // the segment ends at a separator, so a value is never split between two segments
+                final int length = segmentLength(text, position >= size);
+                position -= text.length - length;
+
+                pending.submit(new Callable<Segment>() {
+                    @Override
+                    public Segment call() throws Exception
+                    {
+                        return new Segment(isCancelled ? null : parse(text, length, offset, dtype), length);
+                    }
+                });
+            }
+
+            while (!pending.isEmpty() && (valueCount < points) && !isCancelled)
+                pending.completeNext();
+        }
+        finally {
+            pending.cancelAll();
+        }
+
+        log.trace("importText(): {} values imported, cancelled={}", valueCount, isCancelled);
+
+        return !isCancelled;
+    }
+
+    /**
+     * Reads up to SEGMENT_SIZE_BYTES bytes of the file from a position.
+     */
+    private static byte[] readSegment(FileChannel channel, long position, long size) throws Exception
+    {
+        byte[] text    = new byte[(int)Math.min(SEGMENT_SIZE_BYTES, size - position)];
+        ByteBuffer buf = ByteBuffer.wrap(text);
+        while (buf.hasRemaining()) {
+            if (channel.read(buf, position + buf.position()) < 0)
+                throw new EOFException("unexpected end of file at " + (position + buf.position()));
+        }
+
+        return text;
+    }
+
+    /**
+     * Returns the length of a segment cut after its last line break, or after its last separator if it holds
+     * a single line.
+     */
+    private int segmentLength(byte[] text, boolean isLast)
+    {
+        if (isLast)
+            return text.length;
+
+        for (int i = text.length - 1; i >= 0; i--) {
+            if (text[i] == '\n')
+                return i + 1;
+        }
+
+        for (int i = text.length - 1; i >= 0; i--) {
+            if (isSeparator[text[i] & 0xFF])
+                return i + 1;
+        }
+
+        throw new NumberFormatException("a value of more than " + text.length + " characters");
+    }
+
+    private void writeSegment(Segment segment, Dataset writer, long[] dims, long points) throws Exception
+    {
+        if (segment.values != null) {
+            long first = valueCount;
+            int n      = (int)Math.min(Array.getLength(segment.values), points - first);
+            write(writer, dims, first, segment.values, n);
+            valueCount = first + n;
+        }
+
+        bytesDone += segment.length;
+    }
+
+    /**
+     * Writes the first n values of an array to the data points from index first, in row-major order, as the
+     * hyperslabs that cover the range.
+     */
+    private static void write(Dataset writer, long[] dims, long first, Object values, int n) throws Exception
+    {
+        if (n <= 0)
+            return;
+
+        DirtyRegions range = new DirtyRegions();
+        range.add(first, first + n);
+        List<long[][]> slabs = range.getHyperslabs(dims, Integer.MAX_VALUE);
+
+        long[] start    = writer.getStartDims();
+        long[] selected = writer.getSelectedDims();
+        long[] stride   = writer.getStride();
+        int offset      = 0;
+        for (long[][] slab : slabs) {
+            int count = 1;
+            for (int i = 0; i < dims.length; i++) {
+                start[i]    = slab[0][i];
+                selected[i] = slab[1][i];
+                count *= (int)slab[1][i];
+                if (stride != null)
+                    stride[i] = 1;
+            }
+
+            Object buf = values;
+            if ((offset > 0) || (count < Array.getLength(values))) {
+                buf = Array.newInstance(values.getClass().getComponentType(), count);
+                System.arraycopy(values, offset, buf, 0, count);
+            }
+
+            writer.write(buf);
+            offset += count;
+        }
+    }
+
+    /**
+     * Parses the values of a segment into an array of the Java type of the dataset.
+     */
+    private Object parse(byte[] text, int length, long offset, Datatype dtype)
+    {
+        int n = 0;
+        for (int i = 0; i < length;) {
+            while ((i < length) && isSeparator[text[i] & 0xFF])
+                i++;
+            if (i < length)
+                n++;
+            while ((i < length) && !isSeparator[text[i] & 0xFF])
+                i++;
+        }
+
+        int typeSize     = (int)dtype.getDatatypeSize();
+        boolean unsigned = dtype.isUnsigned();
+        boolean isFloat  = dtype.isFloat();
+
+        Object values;
+        if (isFloat)
+            values = (typeSize == 4) ? new float[n] : new double[n];
+        else if (typeSize == 1)
+            values = new byte[n];
+        else if (typeSize == 2)
+            values = new short[n];
+        else if (typeSize <= 4)
+            values = new int[n];
+        else
+            values = new long[n];
+
+        int k = 0;
+        for (int i = 0; i < length;) {
+            while ((i < length) && isSeparator[text[i] & 0xFF])
+                i++;
+            if (i >= length)
+                break;
+
+            int from = i;
+            while ((i < length) && !isSeparator[text[i] & 0xFF])
+                i++;
+
+            try {
+                if (values instanceof double[])
+                    ((double[])values)[k] = Double.parseDouble(token(text, from, i));
+                else if (values instanceof float[])
+                    ((float[])values)[k] = Float.parseFloat(token(text, from, i));
+                else {
+                    long value = parseInteger(text, from, i, typeSize, unsigned);
+                    if (values instanceof byte[])
+                        ((byte[])values)[k] = (byte)value;
+                    else if (values instanceof short[])
+                        ((short[])values)[k] = (short)value;
+                    else if (values instanceof int[])
+                        ((int[])values)[k] = (int)value;
+                    else
+                        ((long[])values)[k] = value;
+                }
+            }
+            catch (NumberFormatException ex) {
+                throw new NumberFormatException("invalid value \"" + token(text, from, i) + "\" at offset " +
+                                                (offset + from) + ": " + ex.getMessage());
+            }
+            k++;
+        }
+
+        return values;
+    }
+
+    private static String token(byte[] text, int from, int to)
+    {
+        return new String(text, from, to - from, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Parses a decimal integer and checks that it fits in the datatype; unsigned values are returned with the
+     * bits of their C type, e.g. 255 for the unsigned byte 0xFF.
+     */
+    private static long parseInteger(byte[] text, int from, int to, int typeSize, boolean unsigned)
+    {
+        int i         = from;
+        boolean isNeg = false;
+        if ((i < to) && ((text[i] == '-') || (text[i] == '+')))
+            isNeg = (text[i++] == '-');
+
+        // up to 18 digits can not overflow a long
+        if ((i == to) || (to - i > 18)) {
+            String s = token(text, from, to);
+            if (typeSize < 8)
+                return checkRange(Long.parseLong(s), typeSize, unsigned);
+            return unsigned ? Long.parseUnsignedLong(s) : Long.parseLong(s);
+        }
+
+        long value = 0;
+        for (; i < to; i++) {
+            int digit = text[i] - '0';
+            if ((digit < 0) || (digit > 9))
+                throw new NumberFormatException("not an integer");
+            value = value * 10 + digit;
+        }
+        if (isNeg)
+            value = -value;
+
+        return checkRange(value, typeSize, unsigned);
+    }
+
+    private static long checkRange(long value, int typeSize, boolean unsigned)
+    {
+        if (unsigned) {
+            if ((value < 0) || ((typeSize < 8) && (value >>> (8 * typeSize) != 0)))
+                throw new NumberFormatException("out of range of an unsigned " + (8 * typeSize) +
+                                                "-bit integer");
+        }
+        else if (typeSize < 8) {
+            long max = (1L << (8 * typeSize - 1)) - 1;
+            if ((value > max) || (value < -max - 1))
+                throw new NumberFormatException("out of range of a signed " + (8 * typeSize) +
+                                                "-bit integer");
+        }
+
+        return value;
+    }
+
+    /**
+     * A parsed segment of the text file.
+     */
+    private static final class Segment {
+        /** the parsed values, or null if the import was cancelled */
+        final Object values;
+
+        final int length;
+
+        Segment(Object values, int length)
+        {
+            this.values = values;
+            this.length = length;
+        }
+    }
+}
@@ -16,6 +16,7 @@ package hdf.view;
 
 import java.awt.Graphics;
 import java.awt.Image;
+import java.awt.Rectangle;
 import java.awt.Toolkit;
 import java.awt.image.BufferedImage;
 import java.awt.image.ColorModel;
@@ -45,12 +46,18 @@ import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
 import java.nio.LongBuffer;
 import java.nio.ShortBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.BitSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.StringTokenizer;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ForkJoinPool;
 import javax.imageio.ImageIO;
 
+import hdf.object.BoundedTaskQueue;
 import hdf.object.Datatype;
 import hdf.object.FileFormat;
 import hdf.object.Group;
@@ -61,6 +68,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import org.eclipse.jface.dialogs.MessageDialog;
+import org.eclipse.swt.graphics.ImageData;
+import org.eclipse.swt.graphics.PaletteData;
+import org.eclipse.swt.graphics.RGB;
 import org.eclipse.swt.widgets.Composite;
 import org.eclipse.swt.widgets.Display;
 import org.eclipse.swt.widgets.Shell;
@@ -101,6 +111,12 @@ public final class Tools {
     private static final int DOUBLE_BUFFER_SIZE = 262144;
     private static final int BYTE_BUFFER_SIZE   = 2097152;
 
+    /** The number of pixels below which image conversions run on the calling thread. */
+    public static final long PARALLEL_MIN_PIXELS = 1L << 20;
+
+    /** The number of values in a band row when a distribution of a whole data array is computed. */
+    private static final int DIST_ROW_LENGTH = 1 << 16;
+
     /** Key for JPEG image file type. */
     public static final String FILE_TYPE_JPEG = "JPEG";
 
@@ -119,6 +135,10 @@ public final class Tools {
     /** Key for all image file type. */
     public static final String FILE_TYPE_IMAGE = "IMG";
 
+    /** The digits of hexadecimal numbers */
+    private static final char[] HEX_DIGITS = {'0', '1', '2', '3', '4', '5', '6', '7',
+                                              '8', '9', 'A', 'B', 'C', 'D', 'E', 'F'};
+
     /**
      * Converts unsigned 64-bit integer data to a BigInteger since Java does not
      * have unsigned types.
@@ -128,17 +148,22 @@ public final class Tools {
      *
      * @return A BigInteger representing the unsigned value of the given long.
      */
-    public static BigInteger convertUINT64toBigInt(Long l)
+    public static BigInteger convertUINT64toBigInt(Long l) { return convertUINT64toBigInt(l.longValue()); }
+
+    /**
+     * Converts an unsigned 64-bit integer to a BigInteger since Java does not
+     * have unsigned types, without boxing the value or formatting it as a string.
+     *
+     * @param l
+     *        The long value to convert to a BigInteger
+     *
+     * @return A BigInteger representing the unsigned value of the given long.
+     */
+    public static BigInteger convertUINT64toBigInt(long l)
     {
-        if (l < 0) {
-            l               = (l << 1) >>> 1;
-            BigInteger big1 = new BigInteger("9223372036854775808"); // 2^65
-            BigInteger big2 = new BigInteger(l.toString());
-            return big1.add(big2);
-        }
-        else {
-            return new BigInteger(l.toString());
-        }
+        BigInteger big = BigInteger.valueOf(l & Long.MAX_VALUE);
+
+        return (l < 0) ? big.setBit(63) : big;
     }
 
     /**
@@ -633,11 +658,84 @@ public final class Tools {
         return cm.hasAlpha();
     }
 
+    /**
+     * A conversion applied to a band of image rows; bands never overlap, so tasks may run in parallel.
+     */
+    public interface RowBandTask {
+        /**
+         * Converts the rows of a band.
+         *
+         * @param row0
+         *            the first row of the band.
+         * @param row1
+         *            the row after the last row of the band.
+         */
+        void run(int row0, int row1);
+    }
+
+    /**
+     * Runs a conversion over bands of rows in the common fork-join pool. Images of fewer than
+     * {@link #PARALLEL_MIN_PIXELS} pixels are converted on the calling thread in one band.
+     *
+     * @param rows
+     *            the number of rows of the image.
+     * @param rowPixels
+     *            the number of pixels in a row.
+     * @param task
+     *            the conversion.
+     */
+    public static void forEachRowBand(int rows, long rowPixels, final RowBandTask task)
+    {
+        int nbands = Math.min(rows, ForkJoinPool.commonPool().getParallelism() * 4);
+        if ((rows * rowPixels < PARALLEL_MIN_PIXELS) || (nbands < 2)) {
+            task.run(0, rows);
+            return;
+        }
+
+        BoundedTaskQueue<Object> bands = new BoundedTaskQueue<Object>(nbands + 1) {
+            @Override
+            protected void completed(Object result)
+            {
+                // the band has been converted in place by the task
+            }
+        };
+
+        try {
+            for (int i = 0; i < nbands; i++) {
+                final int row0 = (int)((long)rows * i / nbands);
+                final int row1 = (int)((long)rows * (i + 1) / nbands);
+                bands.submit(new Callable<Object>() {
+                    @Override
+                    public Object call()
+                    {
+                        task.run(row0, row1);
+                        return null;
+                    }
+                });
+            }
+
+            bands.completeAll();
+        }
+        catch (RuntimeException ex) {
+            throw ex;
+        }
+        catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("image conversion interrupted", ex);
+        }
+        catch (Exception ex) {
+            throw new IllegalStateException(ex);
+        }
+        finally {
+            bands.cancelAll();
+        }
+    }
+
     /**
      * Creates a RGB indexed image of 256 colors.
      *
      * @param bufferedImage
-     *            the target image.
+     *            the target image, or null; a new image is created if it is null or of another size.
      * @param imageData
      *            the byte array of the image data.
      * @param palette
@@ -658,21 +756,32 @@ public final class Tools {
         if (palette == null)
             palette = Tools.createGrayPalette();
 
-        if (bufferedImage == null)
+        if ((bufferedImage == null) || (bufferedImage.getWidth() != w) || (bufferedImage.getHeight() != h) ||
+            (bufferedImage.getType() != BufferedImage.TYPE_INT_ARGB))
             bufferedImage = new BufferedImage((int)w, (int)h, BufferedImage.TYPE_INT_ARGB);
 
-        final int[] pixels = ((DataBufferInt)bufferedImage.getRaster().getDataBuffer()).getData();
-        int len            = pixels.length;
-
-        for (int i = 0; i < len; i++) {
-            int idx = imageData[i] & 0xff;
-            int r   = (palette[0][idx] & 0xff) << 16;
-            int g   = (palette[1][idx] & 0xff) << 8;
-            int b   = palette[2][idx] & 0xff;
-
-            pixels[i] = 0xff000000 | r | g | b;
+        // the ARGB value of every palette index
+        final int[] argb = new int[256];
+        int ncolors      = Math.min(argb.length, palette[0].length);
+        for (int i = 0; i < ncolors; i++) {
+            int r   = (palette[0][i] & 0xff) << 16;
+            int g   = (palette[1][i] & 0xff) << 8;
+            int b   = palette[2][i] & 0xff;
+            argb[i] = 0xff000000 | r | g | b;
         }
 
+        final int[] pixels = ((DataBufferInt)bufferedImage.getRaster().getDataBuffer()).getData();
+        final int width    = (int)w;
+        forEachRowBand((int)h, w, new RowBandTask() {
+            @Override
+            public void run(int row0, int row1)
+            {
+                int end = row1 * width;
+                for (int i = row0 * width; i < end; i++)
+                    pixels[i] = argb[imageData[i] & 0xff];
+            }
+        });
+
         return bufferedImage;
     }
 
@@ -763,6 +872,122 @@ public final class Tools {
         return theImage;
     }
 
+    /**
+     * Creates the SWT image data of an indexed image of 256 colors, for drawing the image without an AWT
+     * image. The image data uses the byte array as its pixel buffer instead of copying it, so the array
+     * must not be changed while the image data is in use.
+     *
+     * @param imageData
+     *            the byte array of the image data, one palette index per pixel.
+     * @param palette
+     *            the color lookup table.
+     * @param w
+     *            the width of the image.
+     * @param h
+     *            the height of the image.
+     * @param invalidIndex
+     *            the indices of the pixels to make transparent, or null.
+     *
+     * @return the image data, or null if there is no image data.
+     */
+    public static ImageData createIndexedImageData(byte[] imageData, byte[][] palette, int w, int h,
+                                                   List<Integer> invalidIndex)
+    {
+        if ((imageData == null) || (w <= 0) || (h <= 0) || (imageData.length < (long)w * h))
+            return null;
+
+        if (palette == null)
+            palette = Tools.createGrayPalette();
+
+        RGB[] rgbs  = new RGB[256];
+        int ncolors = Math.min(rgbs.length, palette[0].length);
+        for (int i = 0; i < rgbs.length; i++) {
+            if (i < ncolors)
+                rgbs[i] = new RGB(palette[0][i] & 0xff, palette[1][i] & 0xff, palette[2][i] & 0xff);
+            else
+                rgbs[i] = new RGB(0, 0, 0);
+        }
+
+        ImageData imgData = new ImageData(w, h, 8, new PaletteData(rgbs), 1, imageData);
+        setTransparentPixels(imgData, invalidIndex);
+
+        return imgData;
+    }
+
+    /**
+     * Creates the SWT image data of a true color image, for drawing the image without an AWT image. The
+     * components of a pixel interlaced image are already in the order of 24-bit SWT pixels, so the image
+     * data uses the byte array as its pixel buffer instead of copying it; the array must not be changed
+     * while the image data is in use. The planes of a plane interlaced image are interleaved in bands of
+     * rows converted in parallel.
+     *
+     * @param imageData
+     *            the byte array of the image data, three components per pixel.
+     * @param planeInterlace
+     *            flag if the image is plane interlace.
+     * @param w
+     *            the width of the image.
+     * @param h
+     *            the height of the image.
+     * @param invalidIndex
+     *            the indices of the pixels to make transparent, or null.
+     *
+     * @return the image data, or null if there is no image data.
+     */
+    public static ImageData createTrueColorImageData(final byte[] imageData, boolean planeInterlace,
+                                                     final int w, int h, List<Integer> invalidIndex)
+    {
+        if ((imageData == null) || (w <= 0) || (h <= 0) || (imageData.length < 3L * w * h))
+            return null;
+
+        PaletteData palette = new PaletteData(0xFF0000, 0xFF00, 0xFF);
+        ImageData imgData   = null;
+        if (!planeInterlace) {
+            imgData = new ImageData(w, h, 24, palette, 1, imageData);
+        }
+        else {
+            imgData = new ImageData(w, h, 24, palette);
+
+            final byte[] dst       = imgData.data;
+            final int bytesPerLine = imgData.bytesPerLine;
+            final int len          = w * h;
+            forEachRowBand(h, w, new RowBandTask() {
+                @Override
+                public void run(int row0, int row1)
+                {
+                    for (int i = row0; i < row1; i++) {
+                        int d = i * bytesPerLine;
+                        for (int idx = i * w, end = idx + w; idx < end; idx++) {
+                            dst[d++] = imageData[idx];
+                            dst[d++] = imageData[len + idx];
+                            dst[d++] = imageData[len * 2 + idx];
+                        }
+                    }
+                }
+            });
+        }
+        setTransparentPixels(imgData, invalidIndex);
+
+        return imgData;
+    }
+
+    /**
+     * Makes the pixels at the given indices of an image data transparent.
+     */
+    private static void setTransparentPixels(ImageData imgData, List<Integer> idx)
+    {
+        if ((idx == null) || idx.isEmpty())
+            return;
+
+        byte[] alpha = new byte[imgData.width * imgData.height];
+        Arrays.fill(alpha, (byte)0xff);
+        for (Integer i : idx) {
+            if (i < alpha.length)
+                alpha[i] = 0;
+        }
+        imgData.alphaData = alpha;
+    }
+
     /**
      * This method returns a buffered image with the contents of an image.
      *
@@ -944,110 +1169,216 @@ public final class Tools {
                 fillValue[i] = invalidValues.get(i).doubleValue();
             }
         }
-        double ratio = (min == max) ? 1.00d : (double)(255.00 / (max - min));
-        long idxSrc  = 0;
-        long idxDst  = 0;
-        switch (dname) {
-        case 'S':
-            short[] s = (short[])rawData;
-            for (long i = 0; i < h; i++) {
-                for (long j = 0; j < w; j++) {
-                    idxSrc = idxDst = j * h + i;
-                    if (isTransposed)
-                        idxDst = i * w + j;
-                    byteData[(int)idxDst] =
-                        toByte(s[(int)idxSrc], ratio, min, max, fillValue, (int)idxSrc, list);
-                }
-            }
-            break;
+        if ("SIJFD".indexOf(dname) < 0)
+            return null;
 
-        case 'I':
-            int[] ia = (int[])rawData;
-            for (long i = 0; i < h; i++) {
-                for (long j = 0; j < w; j++) {
-                    idxSrc = idxDst = (j * h + i);
-                    if (isTransposed)
-                        idxDst = i * w + j;
-                    byteData[(int)idxDst] =
-                        toByte(ia[(int)idxSrc], ratio, min, max, fillValue, (int)idxSrc, list);
-                }
-            }
-            break;
+        scaleToBytes(rawData, byteData, (int)w, (int)h, isTransposed, min, max, fillValue, list);
 
-        case 'J':
-            long[] l = (long[])rawData;
-            for (long i = 0; i < h; i++) {
-                for (long j = 0; j < w; j++) {
-                    idxSrc = idxDst = j * h + i;
-                    if (isTransposed)
-                        idxDst = i * w + j;
-                    byteData[(int)idxDst] =
-                        toByte(l[(int)idxSrc], ratio, min, max, fillValue, (int)idxSrc, list);
-                }
+        return byteData;
+    }
+
+    /**
+     * Scales raw values to bytes in bands of image rows converted in parallel. Pixel (i, j) of the image,
+     * row i and column j, is the element j * h + i of the raw data; it is stored at the same index, or at
+     * i * w + j if the data is transposed. Values out of the range [min, max], fill values, NaN and infinite
+     * values become 0 and their indices are added to the list, in row order.
+     */
+    private static void scaleToBytes(final Object rawData, final byte[] byteData, final int w, final int h,
+                                     final boolean isTransposed, final double min, final double max,
+                                     double[] fillValue, final List<Integer> list)
+    {
+        final double ratio = (min == max) ? 1.00d : (double)(255.00 / (max - min));
+
+        // only the fill values in the range need to be checked, as the others are out of range anyway
+        int nfill = 0;
+        if (fillValue != null) {
+            double[] inRange = new double[fillValue.length];
+            for (double fv : fillValue) {
+                if ((fv >= min) && (fv <= max))
+                    inRange[nfill++] = fv;
+            }
+            fillValue = Arrays.copyOf(inRange, nfill);
+        }
+        final double[] fill = (nfill > 0) ? fillValue : null;
+
+        // without transposing or a list, the position of a value does not matter
+        final boolean isFlat = !isTransposed && (list == null);
+
+        final ConcurrentSkipListMap<Integer, List<Integer>> invalid =
+            (list == null) ? null : new ConcurrentSkipListMap<Integer, List<Integer>>();
+
+        forEachRowBand(h, w, new RowBandTask() {
+            @Override
+            public void run(int row0, int row1)
+            {
+                List<Integer> bandList = (invalid == null) ? null : new ArrayList<Integer>();
+                if (rawData instanceof byte[])
+                    scaleRows((byte[])rawData, byteData, w, h, row0, row1, isFlat, isTransposed, min, max,
+                              ratio, fill, bandList);
+                else if (rawData instanceof short[])
+                    scaleRows((short[])rawData, byteData, w, h, row0, row1, isFlat, isTransposed, min, max,
+                              ratio, fill, bandList);
+                else if (rawData instanceof int[])
+                    scaleRows((int[])rawData, byteData, w, h, row0, row1, isFlat, isTransposed, min, max,
+                              ratio, fill, bandList);
+                else if (rawData instanceof long[])
+                    scaleRows((long[])rawData, byteData, w, h, row0, row1, isFlat, isTransposed, min, max,
+                              ratio, fill, bandList);
+                else if (rawData instanceof float[])
+                    scaleRows((float[])rawData, byteData, w, h, row0, row1, isFlat, isTransposed, min, max,
+                              ratio, fill, bandList);
+                else
+                    scaleRows((double[])rawData, byteData, w, h, row0, row1, isFlat, isTransposed, min, max,
+                              ratio, fill, bandList);
+
+                if ((bandList != null) && !bandList.isEmpty())
+                    invalid.put(row0, bandList);
             }
-            break;
+        });
 
-        case 'F':
-            float[] f = (float[])rawData;
-            for (long i = 0; i < h; i++) {
-                for (long j = 0; j < w; j++) {
-                    idxSrc = idxDst = j * h + i;
-                    if (isTransposed)
-                        idxDst = i * w + j;
-                    byteData[(int)idxDst] =
-                        toByte(f[(int)idxSrc], ratio, min, max, fillValue, (int)idxSrc, list);
-                }
+        if (invalid != null) {
+            for (List<Integer> bandList : invalid.values())
+                list.addAll(bandList);
+        }
+    }
+
+    /**
+     * Returns the byte value of a raw value, or -1 if the value is out of range, a fill value, NaN or
+     * infinite. NaN fails the range check.
+     */
+    private static int toPixel(double in, double min, double max, double ratio, double[] fill)
+    {
+        if (!((in >= min) && (in <= max)) || Double.isInfinite(in))
+            return -1;
+
+        if (fill != null) {
+            for (int i = 0; i < fill.length; i++) {
+                if (fill[i] == in)
+                    return -1;
             }
-            break;
+        }
 
-        case 'D':
-            double[] d = (double[])rawData;
-            for (long i = 0; i < h; i++) {
-                for (long j = 0; j < w; j++) {
-                    idxSrc = idxDst = j * h + i;
-                    if (isTransposed)
-                        idxDst = i * w + j;
-                    byteData[(int)idxDst] =
-                        toByte(d[(int)idxSrc], ratio, min, max, fillValue, (int)idxSrc, list);
-                }
+        return (int)((in - min) * ratio);
+    }
+
+    private static void scaleRows(byte[] src, byte[] dst, int w, int h, int row0, int row1, boolean isFlat,
+                                  boolean isTransposed, double min, double max, double ratio, double[] fill,
+                                  List<Integer> list)
+    {
+        if (isFlat) {
+            for (int k = row0 * w, end = row1 * w; k < end; k++)
+                dst[k] = (byte)Math.max(0, toPixel(src[k], min, max, ratio, fill));
+            return;
+        }
+
+        for (int i = row0; i < row1; i++) {
+            for (int j = 0, idxSrc = i; j < w; j++, idxSrc += h) {
+                int out = toPixel(src[idxSrc], min, max, ratio, fill);
+                if ((out < 0) && (list != null))
+                    list.add(idxSrc);
+                dst[isTransposed ? (i * w + j) : idxSrc] = (byte)Math.max(0, out);
             }
-            break;
+        }
+    }
 
-        default:
-            byteData = null;
-            break;
-        } // (dname)
+    private static void scaleRows(short[] src, byte[] dst, int w, int h, int row0, int row1, boolean isFlat,
+                                  boolean isTransposed, double min, double max, double ratio, double[] fill,
+                                  List<Integer> list)
+    {
+        if (isFlat) {
+            for (int k = row0 * w, end = row1 * w; k < end; k++)
+                dst[k] = (byte)Math.max(0, toPixel(src[k], min, max, ratio, fill));
+            return;
+        }
 
-        return byteData;
+        for (int i = row0; i < row1; i++) {
+            for (int j = 0, idxSrc = i; j < w; j++, idxSrc += h) {
+                int out = toPixel(src[idxSrc], min, max, ratio, fill);
+                if ((out < 0) && (list != null))
+                    list.add(idxSrc);
+                dst[isTransposed ? (i * w + j) : idxSrc] = (byte)Math.max(0, out);
+            }
+        }
     }
 
-    private static byte toByte(double in, double ratio, double min, double max, double[] fill, int idx,
-                               List<Integer> list)
+    private static void scaleRows(int[] src, byte[] dst, int w, int h, int row0, int row1, boolean isFlat,
+                                  boolean isTransposed, double min, double max, double ratio, double[] fill,
+                                  List<Integer> list)
     {
-        byte out = 0;
+        if (isFlat) {
+            for (int k = row0 * w, end = row1 * w; k < end; k++)
+                dst[k] = (byte)Math.max(0, toPixel(src[k], min, max, ratio, fill));
+            return;
+        }
 
-        if (in < min || in > max || isFillValue(in, fill) || isNaNINF(in)) {
-            out = 0;
-            if (list != null)
-                list.add(idx);
+        for (int i = row0; i < row1; i++) {
+            for (int j = 0, idxSrc = i; j < w; j++, idxSrc += h) {
+                int out = toPixel(src[idxSrc], min, max, ratio, fill);
+                if ((out < 0) && (list != null))
+                    list.add(idxSrc);
+                dst[isTransposed ? (i * w + j) : idxSrc] = (byte)Math.max(0, out);
+            }
         }
-        else
-            out = (byte)((in - min) * ratio);
+    }
 
-        return out;
+    private static void scaleRows(long[] src, byte[] dst, int w, int h, int row0, int row1, boolean isFlat,
+                                  boolean isTransposed, double min, double max, double ratio, double[] fill,
+                                  List<Integer> list)
+    {
+        if (isFlat) {
+            for (int k = row0 * w, end = row1 * w; k < end; k++)
+                dst[k] = (byte)Math.max(0, toPixel(src[k], min, max, ratio, fill));
+            return;
+        }
+
+        for (int i = row0; i < row1; i++) {
+            for (int j = 0, idxSrc = i; j < w; j++, idxSrc += h) {
+                int out = toPixel(src[idxSrc], min, max, ratio, fill);
+                if ((out < 0) && (list != null))
+                    list.add(idxSrc);
+                dst[isTransposed ? (i * w + j) : idxSrc] = (byte)Math.max(0, out);
+            }
+        }
     }
 
-    private static boolean isFillValue(double in, double[] fill)
+    private static void scaleRows(float[] src, byte[] dst, int w, int h, int row0, int row1, boolean isFlat,
+                                  boolean isTransposed, double min, double max, double ratio, double[] fill,
+                                  List<Integer> list)
     {
-        if (fill == null)
-            return false;
+        if (isFlat) {
+            for (int k = row0 * w, end = row1 * w; k < end; k++)
+                dst[k] = (byte)Math.max(0, toPixel(src[k], min, max, ratio, fill));
+            return;
+        }
+
+        for (int i = row0; i < row1; i++) {
+            for (int j = 0, idxSrc = i; j < w; j++, idxSrc += h) {
+                int out = toPixel(src[idxSrc], min, max, ratio, fill);
+                if ((out < 0) && (list != null))
+                    list.add(idxSrc);
+                dst[isTransposed ? (i * w + j) : idxSrc] = (byte)Math.max(0, out);
+            }
+        }
+    }
 
-        for (int i = 0; i < fill.length; i++) {
-            if (fill[i] == in)
-                return true;
+    private static void scaleRows(double[] src, byte[] dst, int w, int h, int row0, int row1, boolean isFlat,
+                                  boolean isTransposed, double min, double max, double ratio, double[] fill,
+                                  List<Integer> list)
+    {
+        if (isFlat) {
+            for (int k = row0 * w, end = row1 * w; k < end; k++)
+                dst[k] = (byte)Math.max(0, toPixel(src[k], min, max, ratio, fill));
+            return;
         }
 
-        return false;
+        for (int i = row0; i < row1; i++) {
+            for (int j = 0, idxSrc = i; j < w; j++, idxSrc += h) {
+                int out = toPixel(src[idxSrc], min, max, ratio, fill);
+                if ((out < 0) && (list != null))
+                    list.add(idxSrc);
+                dst[isTransposed ? (i * w + j) : idxSrc] = (byte)Math.max(0, out);
+            }
+        }
     }
 
     private static byte[] convertByteData(byte[] rawData, double[] minmax, long w, long h,
@@ -1084,35 +1415,26 @@ public final class Tools {
             minmax[0] = 0;
             minmax[1] = 255;
             if (isTransposed) {
-                for (long i = 0; i < h; i++) {
-                    for (long j = 0; j < w; j++)
-                        byteData[(int)(i * w + j)] = rawData[(int)(j * h + i)];
-                }
+                final byte[] src = rawData;
+                final byte[] dst = byteData;
+                final int width  = (int)w;
+                final int height = (int)h;
+                forEachRowBand(height, width, new RowBandTask() {
+                    @Override
+                    public void run(int row0, int row1)
+                    {
+                        for (int i = row0; i < row1; i++) {
+                            for (int j = 0; j < width; j++)
+                                dst[i * width + j] = src[j * height + i];
+                        }
+                    }
+                });
             }
             return byteData;
         }
 
         // special data range used, must convert the data
-        double min   = minmax[0];
-        double max   = minmax[1];
-        double ratio = (min == max) ? 1.00d : (double)(255.00 / (max - min));
-        long idxSrc  = 0;
-        long idxDst  = 0;
-        for (long i = 0; i < h; i++) {
-            for (long j = 0; j < w; j++) {
-                idxSrc = idxDst = j * h + i;
-                if (isTransposed)
-                    idxDst = i * w + j;
-
-                if (rawData[(int)idxSrc] > max || rawData[(int)idxSrc] < min) {
-                    byteData[(int)idxDst] = (byte)0;
-                    if (list != null)
-                        list.add((int)idxSrc);
-                }
-                else
-                    byteData[(int)idxDst] = (byte)((rawData[(int)idxSrc] - min) * ratio);
-            }
-        }
+        scaleToBytes(rawData, byteData, (int)w, (int)h, isTransposed, minmax[0], minmax[1], null, list);
 
         return byteData;
     }
@@ -1666,31 +1988,216 @@ public final class Tools {
      */
     public static int findDataDist(Object data, int[] dataDist, double[] minmax)
     {
-        int retval  = 0;
-        double delt = 1;
+        return findDataDist(data, dataDist, minmax, false, null);
+    }
+
+    /**
+     * Finds the distribution of data values over as many bins as the length of the distribution array. Values
+     * out of the range, NaN and the fill value are not counted.
+     *
+     * @param data
+     *            the raw data array
+     * @param dataDist
+     *            the data distirbution, one count per bin.
+     * @param minmax
+     *            the data range
+     * @param isUnsigned
+     *            the flag to indicate if the integers of the data array are unsigned.
+     * @param fillValue
+     *            the missing value or fill value, or null. Exclude this value from the distribution
+     *
+     * @return non-negative if successful; otherwise, returns negative
+     */
+    public static int findDataDist(Object data, int[] dataDist, double[] minmax, boolean isUnsigned,
+                                   Object fillValue)
+    {
+        if ((data == null) || !data.getClass().isArray())
+            return -1;
+
+        int n    = Array.getLength(data);
+        int rows = (n + DIST_ROW_LENGTH - 1) / DIST_ROW_LENGTH;
+
+        return findDataDist(data, DIST_ROW_LENGTH, new Rectangle(0, 0, DIST_ROW_LENGTH, rows), dataDist,
+                            minmax, isUnsigned, fillValue);
+    }
 
-        if ((data == null) || (minmax == null) || dataDist == null)
+    /**
+     * Finds the distribution of data values in a rectangular region of an image, over as many bins as the
+     * length of the distribution array. Values out of the range, NaN and the fill value are not counted.
+     *
+     * The region is converted in bands of rows in parallel; each band counts into its own distribution, and
+     * the distributions are added up at the end.
+     *
+     * @param data
+     *            the raw data array, in row order
+     * @param width
+     *            the number of values in a row of the image
+     * @param region
+     *            the columns and rows of the region; the part of the region past the end of the data is
+     *            ignored
+     * @param dataDist
+     *            the data distirbution, one count per bin.
+     * @param minmax
+     *            the data range
+     * @param isUnsigned
+     *            the flag to indicate if the integers of the data array are unsigned.
+     * @param fillValue
+     *            the missing value or fill value, or null. Exclude this value from the distribution
+     *
+     * @return non-negative if successful; otherwise, returns negative
+     */
+    public static int findDataDist(final Object data, final int width, final Rectangle region,
+                                   final int[] dataDist, double[] minmax, final boolean isUnsigned,
+                                   Object fillValue)
+    {
+        if ((data == null) || !data.getClass().isArray() || (minmax == null) || (dataDist == null) ||
+            (dataDist.length == 0) || (region == null))
+            return -1;
+
+        final String cname = data.getClass().getName();
+        char dname         = cname.charAt(cname.lastIndexOf('[') + 1);
+        if ("BSIJFD".indexOf(dname) < 0)
             return -1;
 
-        int n = Array.getLength(data);
+        Arrays.fill(dataDist, 0);
+        if ((region.width <= 0) || (region.height <= 0))
+            return 0;
+
+        final int n        = Array.getLength(data);
+        final double min   = minmax[0];
+        final double max   = minmax[1];
+        final double delt  = (max != min) ? (dataDist.length - 1) / (max - min) : 1;
+        final Number fill  = getFirstNumber(fillValue);
+        final int rowStart = region.y;
+
+        forEachRowBand(region.height, region.width, new RowBandTask() {
+            @Override
+            public void run(int row0, int row1)
+            {
+                int[] partial = new int[dataDist.length];
+                for (int row = rowStart + row0; row < rowStart + row1; row++) {
+                    int k0 = (int)Math.min(n, (long)row * width + region.x);
+                    int k1 = (int)Math.min(n, (long)row * width + region.x + region.width);
+                    if (data instanceof byte[])
+                        addToDist((byte[])data, k0, k1, min, max, delt, isUnsigned, fill, partial);
+                    else if (data instanceof short[])
+                        addToDist((short[])data, k0, k1, min, max, delt, isUnsigned, fill, partial);
+                    else if (data instanceof int[])
+                        addToDist((int[])data, k0, k1, min, max, delt, isUnsigned, fill, partial);
+                    else if (data instanceof long[])
+                        addToDist((long[])data, k0, k1, min, max, delt, isUnsigned, fill, partial);
+                    else if (data instanceof float[])
+                        addToDist((float[])data, k0, k1, min, max, delt, fill, partial);
+                    else
+                        addToDist((double[])data, k0, k1, min, max, delt, fill, partial);
+                }
 
-        if (minmax[1] != minmax[0])
-            delt = (dataDist.length - 1) / (minmax[1] - minmax[0]);
+                synchronized (dataDist) {
+                    for (int i = 0; i < partial.length; i++)
+                        dataDist[i] += partial[i];
+                }
+            }
+        });
 
-        for (int i = 0; i < dataDist.length; i++)
-            dataDist[i] = 0;
+        return 0;
+    }
 
-        int idx;
-        double val;
-        for (int i = 0; i < n; i++) {
-            val = ((Number)Array.get(data, i)).doubleValue();
-            if (val >= minmax[0] && val <= minmax[1]) {
-                idx = (int)((val - minmax[0]) * delt);
-                dataDist[idx]++;
-            } // don't count invalid values
+    /**
+     * Returns the first element of a fill value array, or null.
+     */
+    private static Number getFirstNumber(Object fillValue)
+    {
+        if ((fillValue == null) || !fillValue.getClass().isArray() || (Array.getLength(fillValue) == 0))
+            return null;
+
+        Object first = Array.get(fillValue, 0);
+        return (first instanceof Number) ? (Number)first : null;
+    }
+
+    private static void addToDist(byte[] b, int k0, int k1, double min, double max, double delt,
+                                  boolean isUnsigned, Number fill, int[] dist)
+    {
+        boolean hasFill = (fill != null);
+        byte rawFill    = hasFill ? fill.byteValue() : 0;
+        for (int i = k0; i < k1; i++) {
+            if (hasFill && (b[i] == rawFill))
+                continue;
+            double val = isUnsigned ? (b[i] & 0xFF) : b[i];
+            if ((val >= min) && (val <= max))
+                dist[(int)((val - min) * delt)]++;
         }
+    }
 
-        return retval;
+    private static void addToDist(short[] s, int k0, int k1, double min, double max, double delt,
+                                  boolean isUnsigned, Number fill, int[] dist)
+    {
+        boolean hasFill = (fill != null);
+        short rawFill   = hasFill ? fill.shortValue() : 0;
+        for (int i = k0; i < k1; i++) {
+            if (hasFill && (s[i] == rawFill))
+                continue;
+            double val = isUnsigned ? (s[i] & 0xFFFF) : s[i];
+            if ((val >= min) && (val <= max))
+                dist[(int)((val - min) * delt)]++;
+        }
+    }
+
+    private static void addToDist(int[] ia, int k0, int k1, double min, double max, double delt,
+                                  boolean isUnsigned, Number fill, int[] dist)
+    {
+        boolean hasFill = (fill != null);
+        int rawFill     = hasFill ? fill.intValue() : 0;
+        for (int i = k0; i < k1; i++) {
+            if (hasFill && (ia[i] == rawFill))
+                continue;
+            double val = isUnsigned ? (ia[i] & 0xFFFFFFFFL) : ia[i];
+            if ((val >= min) && (val <= max))
+                dist[(int)((val - min) * delt)]++;
+        }
+    }
+
+    private static void addToDist(long[] l, int k0, int k1, double min, double max, double delt,
+                                  boolean isUnsigned, Number fill, int[] dist)
+    {
+        boolean hasFill = (fill != null);
+        long rawFill    = hasFill ? fill.longValue() : 0;
+        for (int i = k0; i < k1; i++) {
+            if (hasFill && (l[i] == rawFill))
+                continue;
+            double val = l[i];
+            if (isUnsigned && (l[i] < 0))
+                val = (double)(l[i] >>> 1) * 2.0 + (l[i] & 1);
+            if ((val >= min) && (val <= max))
+                dist[(int)((val - min) * delt)]++;
+        }
+    }
+
+    private static void addToDist(float[] f, int k0, int k1, double min, double max, double delt,
+                                  Number fill, int[] dist)
+    {
+        boolean hasFill = (fill != null);
+        float rawFill   = hasFill ? fill.floatValue() : 0;
+        for (int i = k0; i < k1; i++) {
+            if (hasFill && (f[i] == rawFill))
+                continue;
+            double val = f[i];
+            if ((val >= min) && (val <= max))
+                dist[(int)((val - min) * delt)]++;
+        }
+    }
+
+    private static void addToDist(double[] d, int k0, int k1, double min, double max, double delt,
+                                  Number fill, int[] dist)
+    {
+        boolean hasFill = (fill != null);
+        double rawFill  = hasFill ? fill.doubleValue() : 0;
+        for (int i = k0; i < k1; i++) {
+            if (hasFill && (d[i] == rawFill))
+                continue;
+            double val = d[i];
+            if ((val >= min) && (val <= max))
+                dist[(int)((val - min) * delt)]++;
+        }
     }
 
     /**
@@ -1706,165 +2213,150 @@ public final class Tools {
      *
      * @return non-negative if successful; otherwise, returns negative
      */
-    public static int computeStatistics(Object data, double[] avgstd, Object fillValue)
+    public static int computeStatistics(final Object data, double[] avgstd, Object fillValue)
     {
-        int retval  = 1;
-        double sum  = 0;
-        double avg  = 0.0;
-        double var  = 0.0;
-        double diff = 0.0;
-        double fill = 0.0;
-
         if ((data == null) || (avgstd == null) || (Array.getLength(data) <= 0) ||
             (Array.getLength(avgstd) < 2)) {
             return -1;
         }
 
-        int n                = Array.getLength(data);
-        boolean hasFillValue = (fillValue != null && fillValue.getClass().isArray());
-
         String cname = data.getClass().getName();
         char dname   = cname.charAt(cname.lastIndexOf('[') + 1);
         log.trace("computeStatistics() cname={} : dname={}", cname, dname);
 
-        int npoints = 0;
-        switch (dname) {
-        case 'B':
+        if ("BSIJFD".indexOf(dname) < 0) {
+            avgstd[0] = 0;
+            avgstd[1] = 0;
+            return -1;
+        }
+
+        final Number fillNumber = getFirstNumber(fillValue);
+        final boolean hasFill   = (fillNumber != null);
+        final double fill       = hasFill ? fillNumber.doubleValue() : 0;
+
+        // the sum, then the sum of squared deviations from the mean, in parallel partial sums that are added
+        // in order so that the result does not depend on the scheduling
+        double[] sums = sumInBands(data, hasFill, fill, false, 0);
+        long npoints  = (long)sums[0];
+        double avg    = 0.0;
+        double var    = 0.0;
+        if (npoints > 0) {
+            avg = sums[1] / npoints;
+            var = sumInBands(data, hasFill, fill, true, avg)[1];
+        }
+
+        if (npoints <= 1) {
+            if (npoints < 1)
+                avgstd[0] = fill;
+            avgstd[1] = 0;
+        }
+        else {
+            avgstd[0] = avg;
+            avgstd[1] = Math.sqrt(var / (npoints - 1));
+        }
+
+        return 1;
+    }
+
+    /**
+     * Returns the number of values that are not the fill value and their sum, or the sum of their squared
+     * deviations from the mean, computed over bands of the array in parallel.
+     */
+    private static double[] sumInBands(final Object data, final boolean hasFill, final double fill,
+                                       final boolean isDeviation, final double avg)
+    {
+        final int n    = Array.getLength(data);
+        final int rows = (n + DIST_ROW_LENGTH - 1) / DIST_ROW_LENGTH;
+
+        final ConcurrentSkipListMap<Integer, double[]> partials = new ConcurrentSkipListMap<>();
+        forEachRowBand(rows, DIST_ROW_LENGTH, new RowBandTask() {
+            @Override
+            public void run(int row0, int row1)
+            {
+                int k0 = (int)Math.min(n, (long)row0 * DIST_ROW_LENGTH);
+                int k1 = (int)Math.min(n, (long)row1 * DIST_ROW_LENGTH);
+                partials.put(row0, sumRange(data, k0, k1, hasFill, fill, isDeviation, avg));
+            }
+        });
+
+        double[] total = new double[2];
+        for (double[] partial : partials.values()) {
+            total[0] += partial[0];
+            total[1] += partial[1];
+        }
+
+        return total;
+    }
+
+    private static double[] sumRange(Object data, int k0, int k1, boolean hasFill, double fill,
+                                     boolean isDeviation, double avg)
+    {
+        long count = 0;
+        double sum = 0;
+        double v   = 0;
+
+        if (data instanceof byte[]) {
             byte[] b = (byte[])data;
-            if (hasFillValue)
-                fill = ((byte[])fillValue)[0];
-            for (int i = 0; i < n; i++) {
-                if (hasFillValue && b[i] == fill)
+            for (int i = k0; i < k1; i++) {
+                if (hasFill && b[i] == fill)
                     continue;
-                sum += b[i];
-                npoints++;
-            }
-            if (npoints > 0) {
-                avg = sum / npoints;
-                for (int i = 0; i < n; i++) {
-                    if (hasFillValue && b[i] == fill)
-                        continue;
-                    diff = b[i] - avg;
-                    var += diff * diff;
-                }
+                v = isDeviation ? b[i] - avg : b[i];
+                sum += isDeviation ? v * v : v;
+                count++;
             }
-            break;
-        case 'S':
+        }
+        else if (data instanceof short[]) {
             short[] s = (short[])data;
-            if (hasFillValue)
-                fill = ((short[])fillValue)[0];
-            for (int i = 0; i < n; i++) {
-                if (hasFillValue && s[i] == fill)
+            for (int i = k0; i < k1; i++) {
+                if (hasFill && s[i] == fill)
                     continue;
-                sum += s[i];
-                npoints++;
-            }
-            if (npoints > 0) {
-                avg = sum / npoints;
-                for (int i = 0; i < n; i++) {
-                    if (hasFillValue && s[i] == fill)
-                        continue;
-                    diff = s[i] - avg;
-                    var += diff * diff;
-                }
+                v = isDeviation ? s[i] - avg : s[i];
+                sum += isDeviation ? v * v : v;
+                count++;
             }
-            break;
-        case 'I':
+        }
+        else if (data instanceof int[]) {
             int[] ia = (int[])data;
-            if (hasFillValue)
-                fill = ((int[])fillValue)[0];
-            for (int i = 0; i < n; i++) {
-                if (hasFillValue && ia[i] == fill)
+            for (int i = k0; i < k1; i++) {
+                if (hasFill && ia[i] == fill)
                     continue;
-                sum += ia[i];
-                npoints++;
-            }
-            if (npoints > 0) {
-                avg = sum / npoints;
-                for (int i = 0; i < n; i++) {
-                    if (hasFillValue && ia[i] == fill)
-                        continue;
-                    diff = ia[i] - avg;
-                    var += diff * diff;
-                }
+                v = isDeviation ? ia[i] - avg : ia[i];
+                sum += isDeviation ? v * v : v;
+                count++;
             }
-            break;
-        case 'J':
+        }
+        else if (data instanceof long[]) {
             long[] l = (long[])data;
-            if (hasFillValue)
-                fill = ((long[])fillValue)[0];
-            for (int i = 0; i < n; i++) {
-                if (hasFillValue && l[i] == fill)
+            for (int i = k0; i < k1; i++) {
+                if (hasFill && l[i] == fill)
                     continue;
-                sum += l[i];
-                npoints++;
-            }
-            if (npoints > 0) {
-                avg = sum / npoints;
-                for (int i = 0; i < n; i++) {
-                    if (hasFillValue && l[i] == fill)
-                        continue;
-                    diff = l[i] - avg;
-                    var += diff * diff;
-                }
+                v = isDeviation ? l[i] - avg : l[i];
+                sum += isDeviation ? v * v : v;
+                count++;
             }
-            break;
-        case 'F':
+        }
+        else if (data instanceof float[]) {
             float[] f = (float[])data;
-            if (hasFillValue)
-                fill = ((float[])fillValue)[0];
-            for (int i = 0; i < n; i++) {
-                if (hasFillValue && f[i] == fill)
+            for (int i = k0; i < k1; i++) {
+                if (hasFill && f[i] == fill)
                     continue;
-                sum += f[i];
-                npoints++;
-            }
-            if (npoints > 0) {
-                avg = sum / npoints;
-                for (int i = 0; i < n; i++) {
-                    if (hasFillValue && f[i] == fill)
-                        continue;
-                    diff = f[i] - avg;
-                    var += diff * diff;
-                }
+                v = isDeviation ? f[i] - avg : f[i];
+                sum += isDeviation ? v * v : v;
+                count++;
             }
-            break;
-        case 'D':
+        }
+        else {
             double[] d = (double[])data;
-            if (hasFillValue)
-                fill = ((double[])fillValue)[0];
-            for (int i = 0; i < n; i++) {
-                if (hasFillValue && d[i] == fill)
+            for (int i = k0; i < k1; i++) {
+                if (hasFill && d[i] == fill)
                     continue;
-                sum += d[i];
-                npoints++;
-            }
-            if (npoints > 0) {
-                avg = sum / npoints;
-                for (int i = 0; i < n; i++) {
-                    if (hasFillValue && d[i] == fill)
-                        continue;
-                    diff = d[i] - avg;
-                    var += diff * diff;
-                }
+                v = isDeviation ? d[i] - avg : d[i];
+                sum += isDeviation ? v * v : v;
+                count++;
             }
-            break;
-        default:
-            retval = -1;
-            break;
-        } // (dname)
-
-        if (npoints <= 1) {
-            if (npoints < 1)
-                avgstd[0] = fill;
-            avgstd[1] = 0;
-        }
-        else {
-            avgstd[0] = avg;
-            avgstd[1] = Math.sqrt(var / (npoints - 1));
         }
 
-        return retval;
+        return new double[] {count, sum};
     }
 
     /**
@@ -2282,74 +2774,37 @@ public final class Tools {
         if (nbytes <= 0)
             return null;
 
-        int nhex    = nbytes * 2;
-        short[] hex = new short[nhex];
-
-        for (int i = 0; i < nhex; i++)
-            hex[i] = (short)(0x0F & (v >> (i * 4)));
+        return appendBinaryString(new StringBuilder(9 * nbytes), v, nbytes).toString();
+    }
 
-        StringBuilder sb = new StringBuilder();
-        boolean isEven   = true;
+    /**
+     * Appends the string representation of the long argument as an unsigned integer in base 2, as
+     * returned by {@link #toBinaryString(long, int)}, to a StringBuilder without creating any
+     * intermediate objects.
+     *
+     * @param sb
+     *            the StringBuilder to append to
+     * @param v
+     *            the long value
+     * @param nbytes
+     *            number of bytes in the integer
+     *
+     * @return the StringBuilder
+     */
+    public static final StringBuilder appendBinaryString(StringBuilder sb, long v, int nbytes)
+    {
+        int nhex = nbytes * 2;
         for (int i = nhex - 1; i >= 0; i--) {
-            if (isEven && i < nhex - 1)
-                sb.append(" ");
-            isEven = !isEven; // toggle
-
-            switch (hex[i]) {
-            case 0:
-                sb.append("0000");
-                break;
-            case 1:
-                sb.append("0001");
-                break;
-            case 2:
-                sb.append("0010");
-                break;
-            case 3:
-                sb.append("0011");
-                break;
-            case 4:
-                sb.append("0100");
-                break;
-            case 5:
-                sb.append("0101");
-                break;
-            case 6:
-                sb.append("0110");
-                break;
-            case 7:
-                sb.append("0111");
-                break;
-            case 8:
-                sb.append("1000");
-                break;
-            case 9:
-                sb.append("1001");
-                break;
-            case 10:
-                sb.append("1010");
-                break;
-            case 11:
-                sb.append("1011");
-                break;
-            case 12:
-                sb.append("1100");
-                break;
-            case 13:
-                sb.append("1101");
-                break;
-            case 14:
-                sb.append("1110");
-                break;
-            case 15:
-                sb.append("1111");
-                break;
-            default:
-                break;
-            }
+            // a space between the bytes
+            if ((i < nhex - 1) && ((i & 1) == 1))
+                sb.append(' ');
+
+            int nibble = (int)(0x0F & (v >> (i * 4)));
+            for (int bit = 3; bit >= 0; bit--)
+                sb.append((char)('0' + ((nibble >> bit) & 1)));
         }
 
-        return sb.toString();
+        return sb;
     }
 
     /**
@@ -2420,22 +2875,32 @@ public final class Tools {
      */
     public static final String toHexString(long v, int nbytes)
     {
-        char[] HEXCHARS = {'0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'A', 'B', 'C', 'D', 'E', 'F'};
-
         if (nbytes <= 0)
             return null;
 
-        int nhex    = nbytes * 2;
-        short[] hex = new short[nhex];
-
-        for (int i = 0; i < nhex; i++)
-            hex[i] = (short)(0x0F & (v >> (i * 4)));
+        return appendHexString(new StringBuilder(2 * nbytes), v, nbytes).toString();
+    }
 
-        StringBuilder sb = new StringBuilder();
-        for (int i = nhex - 1; i >= 0; i--)
-            sb.append(HEXCHARS[hex[i]]);
+    /**
+     * Appends the string representation of the long argument as an unsigned integer in base 16, as
+     * returned by {@link #toHexString(long, int)}, to a StringBuilder without creating any intermediate
+     * objects.
+     *
+     * @param sb
+     *            the StringBuilder to append to
+     * @param v
+     *            the long value
+     * @param nbytes
+     *            number of bytes in the integer
+     *
+     * @return the StringBuilder
+     */
+    public static final StringBuilder appendHexString(StringBuilder sb, long v, int nbytes)
+    {
+        for (int i = nbytes * 2 - 1; i >= 0; i--)
+            sb.append(HEX_DIGITS[(int)(0x0F & (v >> (i * 4)))]);
 
-        return sb.toString();
+        return sb;
     }
 
     /**
@@ -41,6 +41,8 @@ import hdf.object.Group;
 import hdf.object.HObject;
 import hdf.object.MetaDataContainer;
 import hdf.object.ScalarDS;
+import hdf.object.h5.H5Group;
+import hdf.object.h5.H5UnresolvedDS;
 import hdf.view.DataView.DataView;
 import hdf.view.DataView.DataViewFactory;
 import hdf.view.DataView.DataViewFactoryProducer;
@@ -265,7 +267,7 @@ public class DefaultTreeView implements TreeView {
                         return;
 
                     selectedItem       = theItem;
-                    selectedObject     = ((HObject)(selectedItem.getData()));
+                    selectedObject     = getItemObject(selectedItem);
                     FileFormat theFile = selectedObject.getFileFormat();
                     if ((theFile != null) && !theFile.equals(selectedFile)) {
                         // A different file is selected, handle only one file at a time
@@ -421,7 +423,7 @@ public class DefaultTreeView implements TreeView {
                 selectedItem = theItem;
 
                 try {
-                    selectedObject = (HObject)selectedItem.getData();
+                    selectedObject = getItemObject(selectedItem);
                 }
                 catch (NullPointerException ex) {
                     viewer.showError("Object " + selectedItem.getText() + " had no associated data.");
@@ -480,7 +482,7 @@ public class DefaultTreeView implements TreeView {
 
                 log.trace("tree.addMenuDetectListener(): selectedItem={}", selectedItem.getText());
                 try {
-                    selectedObject = (HObject)selectedItem.getData();
+                    selectedObject = getItemObject(selectedItem);
                 }
                 catch (NullPointerException ex) {
                     viewer.showError("Object " + selectedItem.getText() + " had no associated data.");
@@ -531,6 +533,15 @@ public class DefaultTreeView implements TreeView {
                 // tree from redrawing until all the items are created
                 tree.setRedraw(false);
 
+                // The members of a group loaded on demand are read when it is
+                // expanded; the datasets among them are not opened until their
+                // items are selected
+                FileFormat theFile = theGroup.getFileFormat();
+                if ((theFile != null) && theFile.isLoadOnDemand()) {
+                    int nMembers = theGroup.getMemberList().size();
+                    item.setItemCount(Math.min(getGroupItemCount(theGroup), nMembers));
+                }
+
                 if (item.getItemCount() > 0)
                     item.setImage(theGroup.hasAttribute() ? folderOpenIconA : folderOpenIcon);
 
@@ -570,8 +581,16 @@ public class DefaultTreeView implements TreeView {
                 TreeItem item       = (TreeItem)event.item;
                 TreeItem parentItem = item.getParentItem();
 
-                int position = parentItem.indexOf(item);
-                HObject obj  = ((Group)parentItem.getData()).getMember(position);
+                // A dataset loaded on demand is shown by its name and is not
+                // classified until its item is selected
+                int position          = parentItem.indexOf(item);
+                List<HObject> members = ((Group)parentItem.getData()).getMemberList();
+                if ((position < 0) || (position >= members.size()))
+                    return;
+
+                HObject obj = members.get(position);
+                if (obj == null)
+                    return;
 
                 item.setData(obj);
                 item.setFont(curFont);
@@ -579,7 +598,7 @@ public class DefaultTreeView implements TreeView {
                 item.setImage(getObjectTypeImage(obj));
 
                 if (obj instanceof Group)
-                    item.setItemCount(((Group)obj).getMemberList().size());
+                    item.setItemCount(getGroupItemCount((Group)obj));
             }
         });
 
@@ -1796,19 +1815,21 @@ public class DefaultTreeView implements TreeView {
         try {
             rootItem = insertObject(theFile.getRootObject(), null);
             if (rootItem != null) {
-                Iterator<HObject> it = ((Group)rootItem.getData()).getMemberList().iterator();
-                while (it.hasNext()) {
+                // datasets loaded on demand are inserted without being classified
+                Group rootGroup       = (Group)rootItem.getData();
+                List<HObject> members = rootGroup.getMemberList();
+                int nMembers          = members.size();
+                for (int i = 0; i < nMembers; i++) {
                     TreeItem newItem = null;
-                    HObject obj      = it.next();
+                    HObject obj      = members.get(i);
 
                     newItem = insertObject(obj, rootItem);
 
                     // Tell SWT how many members this group has so they can
                     // be populated when the group is expanded
                     if (obj instanceof Group) {
-                        newItem.setItemCount(((Group)obj).getMemberList().size());
-                        log.debug("populateTree(): group members size {}:",
-                                  ((Group)obj).getMemberList().size());
+                        newItem.setItemCount(getGroupItemCount((Group)obj));
+                        log.debug("populateTree(): group members size {}:", newItem.getItemCount());
                     }
                 }
             }
@@ -1827,6 +1848,55 @@ public class DefaultTreeView implements TreeView {
         return rootItem;
     }
 
+    /**
+     * Returns the number of TreeItems to create for the members of the
+     * specified group. If the group's members are loaded on demand, they are
+     * not read until the group is expanded, so the number of members in the
+     * file is used in the meantime to show the group as expandable.
+     *
+     * @param g
+     *            the group
+     *
+     * @return the number of child TreeItems for the group
+     */
+    private int getGroupItemCount(Group g)
+    {
+        FileFormat theFile = g.getFileFormat();
+
+        if ((theFile != null) && theFile.isLoadOnDemand())
+            return Math.max(0, Math.min(g.getNumberOfMembersInFile(), theFile.getMaxMembers()));
+
+        return g.getMemberList().size();
+    }
+
+    /**
+     * Returns the object of the specified TreeItem. A dataset that was loaded
+     * on demand is classified the first time its item is selected, and the
+     * item is updated to show the compound or scalar dataset.
+     *
+     * @param item
+     *            the tree item
+     *
+     * @return the object of the tree item
+     */
+    private HObject getItemObject(TreeItem item)
+    {
+        HObject obj = (HObject)item.getData();
+
+        if (obj instanceof H5UnresolvedDS) {
+            TreeItem parentItem = item.getParentItem();
+            if ((parentItem != null) && (parentItem.getData() instanceof H5Group))
+                obj = ((H5Group)parentItem.getData()).resolveMember((H5UnresolvedDS)obj);
+            else
+                obj = ((H5UnresolvedDS)obj).resolve();
+
+            item.setData(obj);
+            item.setImage(getObjectTypeImage(obj));
+        }
+
+        return obj;
+    }
+
     /**
      * Recursively expand/collapse a given selected TreeItem.
      *
@@ -1875,6 +1945,11 @@ public class DefaultTreeView implements TreeView {
         if (obj == null)
             return null;
 
+        // The type and attributes of a dataset loaded on demand are not
+        // known until it is selected
+        if (obj instanceof H5UnresolvedDS)
+            return datasetIcon;
+
         // Should be safe to cast to a MetaDataContainer here because the
         // TreeView should never be able to select an object that does
         // not implement the MetaDataContainer interface
@@ -2639,6 +2714,7 @@ public class DefaultTreeView implements TreeView {
         try {
             fileFormat.setMaxMembers(ViewProperties.getMaxMembers());
             fileFormat.setStartMembers(ViewProperties.getStartMembers());
+            fileFormat.setLoadOnDemand(ViewProperties.isLoadOnDemand());
 
             fileFormat.open();
 
@@ -270,6 +270,12 @@ public class ViewProperties extends PreferenceStore {
      */
     private static int startMembers = 0;
 
+    /**
+     * flag to indicate if the members of a group are loaded only when the group
+     * is expanded, instead of loading the whole file structure at open time.
+     */
+    private static boolean loadOnDemand = false;
+
     private static Image hdfviewIcon, h4Icon, h4IconR, h5Icon, h5IconR, ncIcon, ncIconR, blankIcon, helpIcon,
         fileopenIcon, filesaveIcon, filenewIcon, filecloseIcon, foldercloseIcon, folderopenIcon,
         foldercloseIconA, folderopenIconA, datasetIcon, imageIcon, tableIcon, textIcon, datasetIconA,
@@ -345,6 +351,7 @@ public class ViewProperties extends PreferenceStore {
         setDefault("font.size", 12);
         setDefault("font.type", "Serif");
         setDefault("max.members", Integer.MAX_VALUE);
+        setDefault("load.ondemand", false);
         setDefault("recent.file", "");
         setDefault("palette.file", "");
         setDefault("data.delimiter", DELIMITER_TAB);
@@ -1583,6 +1590,8 @@ public class ViewProperties extends PreferenceStore {
 
         setMaxMembers(getInt("max.members"));
 
+        setLoadOnDemand(getBoolean("load.ondemand"));
+
         // load the most recent file list from the property file
         log.trace("load user properties: most recent file list with {}", getWorkDir());
         String theFile = null;
@@ -1693,6 +1702,8 @@ public class ViewProperties extends PreferenceStore {
 
         setValue("max.members", maxMembers);
 
+        setValue("load.ondemand", loadOnDemand);
+
         if (isAutoContrast)
             setValue("image.contrast", "auto");
         else
@@ -2233,6 +2244,24 @@ public class ViewProperties extends PreferenceStore {
      */
     public static int getStartMembers() { return startMembers; }
 
+    /**
+     * Returns true if the members of a group are loaded only when the group is
+     * expanded.
+     *
+     * @return true if group members are loaded on demand; otherwise, returns
+     *         false.
+     */
+    public static boolean isLoadOnDemand() { return loadOnDemand; }
+
+    /**
+     * Set the flag to indicate if the members of a group are loaded only when
+     * the group is expanded.
+     *
+     * @param b
+     *            the flag to indicate if group members are loaded on demand.
+     */
+    public static void setLoadOnDemand(boolean b) { loadOnDemand = b; }
+
     /**
      * Returns true if auto contrast is used in image processing.
      *
@@ -0,0 +1,314 @@
+/*****************************************************************************
+ * Copyright by The HDF Group.                                               *
+ * Copyright by the Board of Trustees of the University of Illinois.         *
+ * All rights reserved.                                                      *
+ *                                                                           *
+ * This file is part of the HDF Java Products distribution.                  *
+ * The full copyright notice, including terms governing use, modification,   *
+ * and redistribution, is contained in the COPYING file, which can be found  *
+ * at the root of the source code distribution tree,                         *
+ * or in https://www.hdfgroup.org/licenses.                                  *
+ * If you do not have access to either file, you may request a copy from     *
+ * help@hdfgroup.org.                                                        *
+ ****************************************************************************/
+
+package hdf.view.dialog;
+
+import hdf.object.Dataset;
+import hdf.object.DatasetStatistics;
+import hdf.object.OverviewPyramid;
+import hdf.object.ScalarDS;
+import hdf.view.ViewProperties;
+
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.events.DisposeEvent;
+import org.eclipse.swt.events.DisposeListener;
+import org.eclipse.swt.events.SelectionAdapter;
+import org.eclipse.swt.events.SelectionEvent;
+import org.eclipse.swt.graphics.Font;
+import org.eclipse.swt.graphics.Point;
+import org.eclipse.swt.graphics.Rectangle;
+import org.eclipse.swt.layout.GridData;
+import org.eclipse.swt.layout.GridLayout;
+import org.eclipse.swt.widgets.Button;
+import org.eclipse.swt.widgets.Dialog;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.Event;
+import org.eclipse.swt.widgets.Label;
+import org.eclipse.swt.widgets.Listener;
+import org.eclipse.swt.widgets.ProgressBar;
+import org.eclipse.swt.widgets.Shell;
+
+/**
+ * Modal SWT dialog that runs a long task, such as the statistics of a whole dataset, the overview of a large
+ * image or a text export or import, on a background thread, showing the progress and allowing the user to
+ * cancel.
+ */
+public class TaskProgressDialog extends Dialog {
+    /**
+     * A task that can report its progress and be cancelled from another thread.
+     */
+    public interface Task {
+        /**
+         * Runs the task on the background thread.
+         *
+         * @return true if the task has completed, false if it was cancelled.
+         *
+         * @throws Exception
+         *         if the task failed
+         */
+        boolean run() throws Exception;
+
+        /**
+         * Asks the running task to stop; called on the user interface thread.
+         */
+        void cancel();
+
+        /**
+         * Returns the fraction of the task done so far; called on the user interface thread.
+         *
+         * @return the progress between 0 and 1.
+         */
+        double getProgress();
+    }
+
+    /** the interval, in milliseconds, between two updates of the progress bar */
+    private static final int UPDATE_INTERVAL = 200;
+
+    private final Task task;
+
+    private final String title;
+
+    private final String message;
+
+    private Font curFont;
+
+    private Exception error;
+
+    private boolean isCompleted;
+
+    private boolean isDone;
+
+    /**
+     * Creates the dialog for a task.
+     *
+     * @param parent
+     *        the dialog parent shell
+     * @param title
+     *        the title of the dialog
+     * @param message
+     *        the text shown above the progress bar
+     * @param task
+     *        the task to run
+     */
+    public TaskProgressDialog(Shell parent, String title, String message, Task task)
+    {
+        super(parent, SWT.NONE);
+        this.task    = task;
+        this.title   = title;
+        this.message = message;
+
+        try {
+            curFont = new Font(Display.getCurrent(), ViewProperties.getFontType(),
+                               ViewProperties.getFontSize(), SWT.NORMAL);
+        }
+        catch (Exception ex) {
+            curFont = null;
+        }
+    }
+
+    /**
+     * Computes the statistics of a whole dataset in the dialog.
+     *
+     * @param parent
+     *        the dialog parent shell
+     * @param dataset
+     *        the numeric dataset
+     *
+     * @return the statistics, or null if the user cancelled the computation
+     *
+     * @throws Exception
+     *         if the statistics can not be computed
+     */
+    public static DatasetStatistics computeStatistics(Shell parent, Dataset dataset) throws Exception
+    {
+        final DatasetStatistics statistics = new DatasetStatistics(dataset);
+        String message                     = "Computing the statistics of " + dataset.getName() + " ...";
+
+        boolean isComputed = new TaskProgressDialog(parent, "Statistics", message, new Task() {
+            @Override
+            public boolean run() throws Exception
+            {
+                return statistics.compute();
+            }
+
+            @Override
+            public void cancel()
+            {
+                statistics.cancel();
+            }
+
+            @Override
+            public double getProgress()
+            {
+                return statistics.getProgress();
+            }
+        }).open();
+
+        return isComputed ? statistics : null;
+    }
+
+    /**
+     * Builds the overview pyramid of a large image in the dialog.
+     *
+     * @param parent
+     *        the dialog parent shell
+     * @param dataset
+     *        the numeric image, with the plane to show selected
+     * @param maxPixels
+     *        the maximum number of pixels of level 0 of the pyramid
+     *
+     * @return the overview, or null if the user cancelled the build
+     *
+     * @throws Exception
+     *         if the overview can not be built
+     */
+    public static OverviewPyramid buildOverview(Shell parent, ScalarDS dataset, long maxPixels)
+        throws Exception
+    {
+        final OverviewPyramid pyramid = new OverviewPyramid(dataset, maxPixels);
+        String message                = "Building the overview of " + dataset.getName() + " ...";
+
+        boolean isBuilt = new TaskProgressDialog(parent, "Overview", message, new Task() {
+            @Override
+            public boolean run() throws Exception
+            {
+                return pyramid.build();
+            }
+
+            @Override
+            public void cancel()
+            {
+                pyramid.cancel();
+            }
+
+            @Override
+            public double getProgress()
+            {
+                return pyramid.getProgress();
+            }
+        }).open();
+
+        return isBuilt ? pyramid : null;
+    }
+
+    /**
+     * Opens the dialog, runs the task and closes the dialog when the task is done.
+     *
+     * @return true if the task has completed, false if the user cancelled it
+     *
+     * @throws Exception
+     *         if the task failed
+     */
+    public boolean open() throws Exception
+    {
+        Shell parent          = getParent();
+        final Shell shell     = new Shell(parent, SWT.TITLE | SWT.BORDER | SWT.APPLICATION_MODAL);
+        final Display display = parent.getDisplay();
+        shell.setFont(curFont);
+        shell.setText(title);
+        shell.setLayout(new GridLayout(1, true));
+
+        Label label = new Label(shell, SWT.NULL);
+        label.setFont(curFont);
+        label.setText(message);
+
+        final ProgressBar progressBar = new ProgressBar(shell, SWT.HORIZONTAL | SWT.SMOOTH);
+        progressBar.setMinimum(0);
+        progressBar.setMaximum(100);
+        GridData barData     = new GridData(SWT.FILL, SWT.FILL, true, false);
+        barData.minimumWidth = 300;
+        progressBar.setLayoutData(barData);
+
+        Button cancelButton = new Button(shell, SWT.PUSH);
+        cancelButton.setFont(curFont);
+        cancelButton.setText(" &Cancel ");
+        cancelButton.setLayoutData(new GridData(SWT.CENTER, SWT.FILL, true, false));
+        cancelButton.addSelectionListener(new SelectionAdapter() {
+            public void widgetSelected(SelectionEvent e) { task.cancel(); }
+        });
+
+        shell.addListener(SWT.Traverse, new Listener() {
+            public void handleEvent(Event event)
+            {
+                if (event.detail == SWT.TRAVERSE_ESCAPE) {
+                    event.doit = false;
+                    task.cancel();
+                }
+            }
+        });
+
+        shell.addDisposeListener(new DisposeListener() {
+            public void widgetDisposed(DisposeEvent e)
+            {
+                if (curFont != null)
+                    curFont.dispose();
+            }
+        });
+
+        display.timerExec(UPDATE_INTERVAL, new Runnable() {
+            public void run()
+            {
+                if (progressBar.isDisposed())
+                    return;
+
+                progressBar.setSelection((int)(100 * task.getProgress()));
+                display.timerExec(UPDATE_INTERVAL, this);
+            }
+        });
+
+        Thread worker = new Thread(new Runnable() {
+            public void run()
+            {
+                try {
+                    isCompleted = task.run();
+                }
+                catch (Exception ex) {
+                    error = ex;
+                }
+                finally {
+                    display.asyncExec(new Runnable() {
+                        public void run()
+                        {
+                            isDone = true;
+                            if (!shell.isDisposed())
+                                shell.dispose();
+                        }
+                    });
+                }
+            }
+        }, "Task-" + title);
+        worker.setDaemon(true);
+
+        shell.pack();
+        shell.setMinimumSize(shell.computeSize(SWT.DEFAULT, SWT.DEFAULT));
+
+        Rectangle parentBounds = parent.getBounds();
+        Point shellSize        = shell.getSize();
+        shell.setLocation((parentBounds.x + (parentBounds.width / 2)) - (shellSize.x / 2),
+                          (parentBounds.y + (parentBounds.height / 2)) - (shellSize.y / 2));
+
+        shell.open();
+        worker.start();
+
+        while (!isDone) {
+            if (!display.readAndDispatch())
+                display.sleep();
+        }
+
+        if (error != null)
+            throw error;
+
+        return isCompleted;
+    }
+}
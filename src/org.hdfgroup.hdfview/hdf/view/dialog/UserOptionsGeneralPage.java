@@ -51,7 +51,7 @@ public class UserOptionsGeneralPage extends UserOptionsDefaultPage {
 
     private Button checkCurrentUserDir, checkUserHomeDir, checkAutoContrast, checkShowValues;
     private Button currentDirButton, userHomeButton, rwButton, helpButton;
-    private Button checkReadOnly, checkReadAll;
+    private Button checkReadOnly, checkReadAll, checkLoadOnDemand;
 
     private boolean isFontChanged;
     private boolean isUserGuideChanged;
@@ -183,6 +183,9 @@ public class UserOptionsGeneralPage extends UserOptionsDefaultPage {
             }
         }
 
+        if (checkLoadOnDemand != null)
+            ViewProperties.setLoadOnDemand(checkLoadOnDemand.getSelection());
+
         if (checkAutoContrast != null)
             ViewProperties.setAutoContrast(checkAutoContrast.getSelection());
         if (checkShowValues != null)
@@ -336,6 +339,8 @@ public class UserOptionsGeneralPage extends UserOptionsDefaultPage {
         startMemberField.setText(String.valueOf(ViewProperties.getStartMembers()));
 
         maxMemberField.setText(String.valueOf(ViewProperties.getMaxMembers()));
+
+        checkLoadOnDemand.setSelection(ViewProperties.isLoadOnDemand());
     }
 
     /**
@@ -645,6 +650,11 @@ public class UserOptionsGeneralPage extends UserOptionsDefaultPage {
         startMemberField.setEnabled(!checkReadAll.getSelection());
         maxMemberField.setEnabled(!checkReadAll.getSelection());
 
+        checkLoadOnDemand = new Button(objectsGroup, SWT.CHECK);
+        checkLoadOnDemand.setFont(curFont);
+        checkLoadOnDemand.setText("Load Group Members When Expanded");
+        checkLoadOnDemand.setLayoutData(new GridData(SWT.FILL, SWT.FILL, false, false, 5, 1));
+
         load();
         // return scroller;
         return composite;
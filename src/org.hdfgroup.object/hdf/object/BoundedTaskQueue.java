@@ -0,0 +1,180 @@
+/*****************************************************************************
+ * Copyright by The HDF Group.                                               *
+ * Copyright by the Board of Trustees of the University of Illinois.         *
+ * All rights reserved.                                                      *
+ *                                                                           *
+ * This file is part of the HDF Java Products distribution.                  *
+ * The full copyright notice, including terms governing use, modification,   *
+ * and redistribution, is contained in the COPYING file, which can be found  *
+ * at the root of the source code distribution tree,                         *
+ * or in https://www.hdfgroup.org/licenses.                                  *
+ * If you do not have access to either file, you may request a copy from     *
+ * help@hdfgroup.org.                                                        *
+ ****************************************************************************/
+
+package hdf.object;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Runs tasks in the common fork-join pool while the calling thread produces their input and consumes their
+ * results in submission order.
+ *
+ * The calling thread typically reads a block of data, submits a task that works on it, and goes on to the
+ * next block. At most a given number of tasks are pending at once; when the limit is reached,
+ * {@link #submit(Callable)} waits for the oldest task and hands its result to {@link #completed(Object)}
+ * before it returns. This bounds the memory held by blocks that wait to be processed, and keeps work that
+ * must stay on the calling thread, such as calls into the HDF5 library, out of the pool.
+ *
+ * An exception thrown by a task is rethrown as is, without the ExecutionException around it. A typical use
+ * is:
+ *
+ * <pre>
+ * BoundedTaskQueue&lt;Result&gt; tasks = new BoundedTaskQueue&lt;Result&gt;(maxPending) {
+ *     protected void completed(Result result) throws Exception
+ *     {
+ *         // consume the result on the calling thread
+ *     }
+ * };
+ * try {
+ *     while (hasMoreInput)
+ *         tasks.submit(createTask(readInput()));
+ *     tasks.completeAll();
+ * }
+ * finally {
+ *     tasks.cancelAll();
+ * }
+ * </pre>
+ *
+ * @param <T>
+ *            the type of the task results.
+ */
+public abstract class BoundedTaskQueue<T> {
+    private final ForkJoinPool pool = ForkJoinPool.commonPool();
+
+    /** the tasks that have been submitted but not completed yet, oldest first */
+    private final ArrayDeque<Future<T>> pending = new ArrayDeque<>();
+
+    /** the largest number of pending tasks */
+    private final int maxPending;
+
+    /**
+     * Creates a queue that holds up to maxPending tasks at once.
+     *
+     * @param maxPending
+     *            the largest number of tasks that may be pending at once; at least 1.
+     */
+    protected BoundedTaskQueue(int maxPending) { this.maxPending = Math.max(1, maxPending); }
+
+    /**
+     * Returns the number of pending tasks that keeps every worker of the common pool busy while the calling
+     * thread prepares the next task: one task per worker, plus one.
+     *
+     * @return the default largest number of pending tasks.
+     */
+    public static int getDefaultMaxPending() { return ForkJoinPool.commonPool().getParallelism() + 1; }
+
+    /**
+     * Consumes the result of a task on the calling thread. Results are consumed in the order the tasks were
+     * submitted.
+     *
+     * @param result
+     *            the result of the task.
+     *
+     * @throws Exception
+     *             if the result can not be consumed
+     */
+    protected abstract void completed(T result) throws Exception;
+
+    /**
+     * Submits a task to the common pool. If the queue is full, waits for the oldest pending tasks and
+     * consumes their results first.
+     *
+     * @param task
+     *            the task.
+     *
+     * @throws Exception
+     *             if a task that completed threw an exception, or its result can not be consumed
+     */
+    public void submit(Callable<T> task) throws Exception
+    {
+        pending.add(pool.submit(task));
+        while (pending.size() >= maxPending)
+            completeNext();
+    }
+
+    /**
+     * Waits for the oldest pending task and consumes its result.
+     *
+     * @throws Exception
+     *             if the task threw an exception, or its result can not be consumed
+     */
+    public void completeNext() throws Exception
+    {
+        Future<T> future = pending.poll();
+        if (future != null)
+            completed(getResult(future));
+    }
+
+    /**
+     * Waits for all pending tasks and consumes their results.
+     *
+     * @throws Exception
+     *             if a task threw an exception, or its result can not be consumed
+     */
+    public void completeAll() throws Exception
+    {
+        while (!pending.isEmpty())
+            completeNext();
+    }
+
+    /**
+     * Cancels the pending tasks and drops their results. Called when the work stops early, e.g. in a finally
+     * block after an exception or a cancellation.
+     */
+    public void cancelAll()
+    {
+        while (!pending.isEmpty())
+            pending.poll().cancel(true);
+    }
+
+    /**
+     * Returns true if no task is pending.
+     *
+     * @return true if no task is pending.
+     */
+    public boolean isEmpty() { return pending.isEmpty(); }
+
+    /**
+     * Waits for a task and returns its result, rethrowing an exception thrown by the task without the
+     * ExecutionException around it.
+     *
+     * @param <T>
+     *            the type of the task result.
+     * @param future
+     *            the task.
+     *
+     * @return the result of the task.
+     *
+     * @throws Exception
+     *             if the task threw an exception or was interrupted
+     */
+    public static <T> T getResult(Future<T> future) throws Exception
+    {
+        try {
+            return future.get();
+        }
+        catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof Exception)
+                throw (Exception)cause;
+            if (cause instanceof Error)
+                throw (Error)cause;
+            throw ex;
+        }
+    }
+}
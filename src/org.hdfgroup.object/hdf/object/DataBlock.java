@@ -0,0 +1,96 @@
+/*****************************************************************************
+ * Copyright by The HDF Group.                                               *
+ * Copyright by the Board of Trustees of the University of Illinois.         *
+ * All rights reserved.                                                      *
+ *                                                                           *
+ * This file is part of the HDF Java Products distribution.                  *
+ * The full copyright notice, including terms governing use, modification,   *
+ * and redistribution, is contained in the COPYING file, which can be found  *
+ * at the root of the source code distribution tree,                         *
+ * or in https://www.hdfgroup.org/licenses.                                  *
+ * If you do not have access to either file, you may request a copy from     *
+ * help@hdfgroup.org.                                                        *
+ ****************************************************************************/
+
+package hdf.object;
+
+/**
+ * A DataBlock holds the values of one hyperslab block of a dataset, as returned by
+ * {@link Dataset#blockIterator(long[])}.
+ *
+ * The block is described by its start position and its size in every dimension of the dataset. The data
+ * values are stored in the same form as {@link Dataset#read()} returns them for a selection of the same
+ * shape, e.g. an int[] for a 32-bit integer dataset.
+ *
+ * To keep the memory used by a block iteration bounded, the iterator may reuse the same DataBlock object
+ * and the same data buffer for successive blocks. Applications that need to keep the values of a block must
+ * copy them before asking for the next block.
+ *
+ * @see Dataset#blockIterator()
+ */
+public class DataBlock {
+    /** the start position of the block in the dataset */
+    private final long[] start;
+
+    /** the size of the block in each dimension */
+    private final long[] count;
+
+    /** the data values of the block */
+    private Object data;
+
+    /**
+     * Constructs an empty block for a dataset of the given rank.
+     *
+     * @param rank
+     *            the number of dimensions of the dataset.
+     */
+    DataBlock(int rank)
+    {
+        start = new long[rank];
+        count = new long[rank];
+        data  = null;
+    }
+
+    /**
+     * Returns the start position of the block in each dimension of the dataset.
+     *
+     * @return the start position of the block.
+     */
+    public final long[] getStart() { return start; }
+
+    /**
+     * Returns the size of the block in each dimension of the dataset.
+     *
+     * @return the size of the block.
+     */
+    public final long[] getCount() { return count; }
+
+    /**
+     * Returns the total number of data points in the block.
+     *
+     * @return the number of data points in the block.
+     */
+    public final long getPointCount()
+    {
+        long points = 1;
+        for (int i = 0; i < count.length; i++)
+            points *= count[i];
+
+        return points;
+    }
+
+    /**
+     * Returns the data values of the block.
+     *
+     * @return the data buffer of the block.
+     */
+    public final Object getData() { return data; }
+
+    /**
+     * Sets the data values of the block.
+     *
+     * @param d
+     *            the data buffer of the block.
+     */
+    final void setData(Object d) { data = d; }
+}
@@ -0,0 +1,537 @@
+/*****************************************************************************
+ * Copyright by The HDF Group.                                               *
+ * Copyright by the Board of Trustees of the University of Illinois.         *
+ * All rights reserved.                                                      *
+ *                                                                           *
+ * This file is part of the HDF Java Products distribution.                  *
+ * The full copyright notice, including terms governing use, modification,   *
+ * and redistribution, is contained in the COPYING file, which can be found  *
+ * at the root of the source code distribution tree,                         *
+ * or in https://www.hdfgroup.org/licenses.                                  *
+ * If you do not have access to either file, you may request a copy from     *
+ * help@hdfgroup.org.                                                        *
+ ****************************************************************************/
+
+package hdf.object;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A DataBuffer holds the values of a numeric dataset selection outside of the Java heap.
+ *
+ * Java arrays are indexed by int, which limits {@link Dataset#read()} to selections of at most
+ * Integer.MAX_VALUE data points. A DataBuffer stores the values in a series of direct ByteBuffers and
+ * addresses them by a long index, so a selection is limited only by the memory of the machine. A buffer
+ * allocated by the DataBuffer constructor uses the native byte order. A DataBuffer can also be a read-only
+ * view of a file region, see {@link #map(FileChannel, long, long, char, boolean, ByteOrder)}; its values
+ * keep the byte order of the file. Values are read and written through typed accessors, e.g.
+ * {@link #getInt(long)}, or as boxed values through {@link #get(long)}.
+ *
+ * The type of the values is given by the same type characters that
+ * {@link Utils#getJavaObjectRuntimeClass(Object)} returns for Java arrays: 'B' (byte), 'S' (short), 'I'
+ * (int), 'J' (long), 'F' (float) and 'D' (double).
+ *
+ * @see Dataset#readBuffer()
+ */
+public class DataBuffer {
+    private static final Logger log = LoggerFactory.getLogger(DataBuffer.class);
+
+    /** The size of each segment is 2^SEGMENT_SHIFT bytes; every element size divides it. */
+    private static final int SEGMENT_SHIFT = 30;
+
+    private static final long SEGMENT_MASK = (1L << SEGMENT_SHIFT) - 1;
+
+    /** the off-heap memory, in segments of 2^SEGMENT_SHIFT bytes */
+    private final ByteBuffer[] segments;
+
+    /** the number of data points in the buffer */
+    private final long pointCount;
+
+    /** the size of one data point in bytes */
+    private final int elementSize;
+
+    /** the type character of the data points */
+    private final char classType;
+
+    /** true if the values are unsigned integers */
+    private final boolean isUnsigned;
+
+    /**
+     * Allocates an off-heap buffer for the given number of data points.
+     *
+     * @param pointCount
+     *            the number of data points.
+     * @param classType
+     *            the type of the data points: 'B', 'S', 'I', 'J', 'F' or 'D'.
+     * @param isUnsigned
+     *            true if the values are unsigned integers.
+     *
+     * @throws OutOfMemoryError
+     *             if the off-heap memory can not be allocated
+     */
+    public DataBuffer(long pointCount, char classType, boolean isUnsigned)
+    {
+        if (pointCount < 0)
+            throw new IllegalArgumentException("negative number of data points: " + pointCount);
+
+        this.elementSize = getElementSize(classType);
+        this.pointCount  = pointCount;
+        this.classType   = classType;
+        this.isUnsigned  = isUnsigned && (classType != 'F') && (classType != 'D');
+
+        long byteCount = pointCount * elementSize;
+        int nSegments  = (int)((byteCount + SEGMENT_MASK) >>> SEGMENT_SHIFT);
+        segments       = new ByteBuffer[nSegments];
+        for (int i = 0; i < nSegments; i++) {
+            long size   = Math.min(SEGMENT_MASK + 1, byteCount - ((long)i << SEGMENT_SHIFT));
+            segments[i] = ByteBuffer.allocateDirect((int)size).order(ByteOrder.nativeOrder());
+        }
+
+        log.trace("DataBuffer(): pointCount={} classType={} segments={}", pointCount, classType, nSegments);
+    }
+
+    private DataBuffer(ByteBuffer[] segments, long pointCount, char classType, boolean isUnsigned)
+    {
+        this.elementSize = getElementSize(classType);
+        this.pointCount  = pointCount;
+        this.classType   = classType;
+        this.isUnsigned  = isUnsigned && (classType != 'F') && (classType != 'D');
+        this.segments    = segments;
+    }
+
+    /**
+     * Maps a region of a file as a read-only buffer. The file is paged in by the operating system as the
+     * values are accessed; nothing is copied into the Java heap.
+     *
+     * @param channel
+     *            the channel of the file.
+     * @param offset
+     *            the position of the first value in the file, in bytes.
+     * @param pointCount
+     *            the number of data points.
+     * @param classType
+     *            the type of the data points: 'B', 'S', 'I', 'J', 'F' or 'D'.
+     * @param isUnsigned
+     *            true if the values are unsigned integers.
+     * @param order
+     *            the byte order of the values in the file.
+     *
+     * @return the mapped buffer.
+     *
+     * @throws IOException
+     *             if the file can not be mapped
+     */
+    public static DataBuffer map(FileChannel channel, long offset, long pointCount, char classType,
+                                 boolean isUnsigned, ByteOrder order) throws IOException
+    {
+        long byteCount      = pointCount * getElementSize(classType);
+        int nSegments       = (int)((byteCount + SEGMENT_MASK) >>> SEGMENT_SHIFT);
+        ByteBuffer[] mapped = new ByteBuffer[nSegments];
+        for (int i = 0; i < nSegments; i++) {
+            long start = (long)i << SEGMENT_SHIFT;
+            long size  = Math.min(SEGMENT_MASK + 1, byteCount - start);
+            mapped[i]  = channel.map(FileChannel.MapMode.READ_ONLY, offset + start, size).order(order);
+        }
+
+        log.trace("map(): offset={} pointCount={} classType={} order={}", offset, pointCount, classType, order);
+
+        return new DataBuffer(mapped, pointCount, classType, isUnsigned);
+    }
+
+    /**
+     * Returns the size in bytes of one data point of the given type.
+     *
+     * @param classType
+     *            the type of the data points: 'B', 'S', 'I', 'J', 'F' or 'D'.
+     *
+     * @return the size of one data point.
+     */
+    public static int getElementSize(char classType)
+    {
+        switch (classType) {
+        case 'B':
+            return 1;
+        case 'S':
+            return 2;
+        case 'I':
+        case 'F':
+            return 4;
+        case 'J':
+        case 'D':
+            return 8;
+        default:
+            throw new IllegalArgumentException("unsupported data buffer type: " + classType);
+        }
+    }
+
+    /**
+     * Returns the number of data points in the buffer.
+     *
+     * @return the number of data points.
+     */
+    public final long getPointCount() { return pointCount; }
+
+    /**
+     * Returns the size in bytes of one data point.
+     *
+     * @return the size of one data point.
+     */
+    public final int getElementSize() { return elementSize; }
+
+    /**
+     * Returns the total size of the buffer in bytes.
+     *
+     * @return the size of the buffer.
+     */
+    public final long getByteCount() { return pointCount * elementSize; }
+
+    /**
+     * Returns the type character of the data points: 'B', 'S', 'I', 'J', 'F' or 'D'.
+     *
+     * @return the type of the data points.
+     */
+    public final char getClassType() { return classType; }
+
+    /**
+     * Returns true if the values are unsigned integers.
+     *
+     * @return true if the values are unsigned integers.
+     */
+    public final boolean isUnsigned() { return isUnsigned; }
+
+    private ByteBuffer segment(long byteOffset) { return segments[(int)(byteOffset >>> SEGMENT_SHIFT)]; }
+
+    private static int offset(long byteOffset) { return (int)(byteOffset & SEGMENT_MASK); }
+
+    /**
+     * Copies raw bytes, in the byte order of the buffer, into the buffer. Mapped buffers are read-only.
+     *
+     * @param byteOffset
+     *            the position in the buffer, in bytes.
+     * @param src
+     *            the bytes to copy.
+     * @param srcOffset
+     *            the position of the first byte in src.
+     * @param length
+     *            the number of bytes to copy.
+     */
+    public void put(long byteOffset, byte[] src, int srcOffset, int length)
+    {
+        while (length > 0) {
+            ByteBuffer seg = segment(byteOffset).duplicate();
+            int pos        = offset(byteOffset);
+            int n          = Math.min(length, seg.capacity() - pos);
+            seg.position(pos);
+            seg.put(src, srcOffset, n);
+            byteOffset += n;
+            srcOffset += n;
+            length -= n;
+        }
+    }
+
+    /**
+     * Copies raw bytes, in the byte order of the buffer, out of the buffer.
+     *
+     * @param byteOffset
+     *            the position in the buffer, in bytes.
+     * @param dst
+     *            the array to copy the bytes to.
+     * @param dstOffset
+     *            the position of the first byte in dst.
+     * @param length
+     *            the number of bytes to copy.
+     */
+    public void get(long byteOffset, byte[] dst, int dstOffset, int length)
+    {
+        while (length > 0) {
+            ByteBuffer seg = segment(byteOffset).duplicate();
+            int pos        = offset(byteOffset);
+            int n          = Math.min(length, seg.capacity() - pos);
+            seg.position(pos);
+            seg.get(dst, dstOffset, n);
+            byteOffset += n;
+            dstOffset += n;
+            length -= n;
+        }
+    }
+
+    /**
+     * Copies consecutive values out of the buffer into a Java array of the buffer's type.
+     *
+     * @param index
+     *            the index of the first data point.
+     * @param dst
+     *            the array to copy the values to, e.g. an int[] for an 'I' buffer.
+     * @param dstOffset
+     *            the position of the first value in dst.
+     * @param length
+     *            the number of values to copy.
+     */
+    public void get(long index, Object dst, int dstOffset, int length)
+    {
+        long byteOffset = index * elementSize;
+        while (length > 0) {
+            ByteBuffer seg = segment(byteOffset).duplicate().order(segment(byteOffset).order());
+            int pos        = offset(byteOffset);
+            int n          = Math.min(length, (seg.capacity() - pos) / elementSize);
+            seg.position(pos);
+            switch (classType) {
+            case 'B':
+                seg.get((byte[])dst, dstOffset, n);
+                break;
+            case 'S':
+                seg.asShortBuffer().get((short[])dst, dstOffset, n);
+                break;
+            case 'I':
+                seg.asIntBuffer().get((int[])dst, dstOffset, n);
+                break;
+            case 'J':
+                seg.asLongBuffer().get((long[])dst, dstOffset, n);
+                break;
+            case 'F':
+                seg.asFloatBuffer().get((float[])dst, dstOffset, n);
+                break;
+            default:
+                seg.asDoubleBuffer().get((double[])dst, dstOffset, n);
+                break;
+            }
+            byteOffset += (long)n * elementSize;
+            dstOffset += n;
+            length -= n;
+        }
+    }
+
+    /**
+     * Returns the byte at the given index.
+     *
+     * @param index
+     *            the index of the data point.
+     *
+     * @return the value.
+     */
+    public final byte getByte(long index) { return segment(index).get(offset(index)); }
+
+    /**
+     * Returns the short at the given index.
+     *
+     * @param index
+     *            the index of the data point.
+     *
+     * @return the value.
+     */
+    public final short getShort(long index)
+    {
+        long pos = index << 1;
+        return segment(pos).getShort(offset(pos));
+    }
+
+    /**
+     * Returns the int at the given index.
+     *
+     * @param index
+     *            the index of the data point.
+     *
+     * @return the value.
+     */
+    public final int getInt(long index)
+    {
+        long pos = index << 2;
+        return segment(pos).getInt(offset(pos));
+    }
+
+    /**
+     * Returns the long at the given index.
+     *
+     * @param index
+     *            the index of the data point.
+     *
+     * @return the value.
+     */
+    public final long getLong(long index)
+    {
+        long pos = index << 3;
+        return segment(pos).getLong(offset(pos));
+    }
+
+    /**
+     * Returns the float at the given index.
+     *
+     * @param index
+     *            the index of the data point.
+     *
+     * @return the value.
+     */
+    public final float getFloat(long index)
+    {
+        long pos = index << 2;
+        return segment(pos).getFloat(offset(pos));
+    }
+
+    /**
+     * Returns the double at the given index.
+     *
+     * @param index
+     *            the index of the data point.
+     *
+     * @return the value.
+     */
+    public final double getDouble(long index)
+    {
+        long pos = index << 3;
+        return segment(pos).getDouble(offset(pos));
+    }
+
+    /**
+     * Sets the byte at the given index.
+     *
+     * @param index
+     *            the index of the data point.
+     * @param value
+     *            the new value.
+     */
+    public final void putByte(long index, byte value) { segment(index).put(offset(index), value); }
+
+    /**
+     * Sets the short at the given index.
+     *
+     * @param index
+     *            the index of the data point.
+     * @param value
+     *            the new value.
+     */
+    public final void putShort(long index, short value)
+    {
+        long pos = index << 1;
+        segment(pos).putShort(offset(pos), value);
+    }
+
+    /**
+     * Sets the int at the given index.
+     *
+     * @param index
+     *            the index of the data point.
+     * @param value
+     *            the new value.
+     */
+    public final void putInt(long index, int value)
+    {
+        long pos = index << 2;
+        segment(pos).putInt(offset(pos), value);
+    }
+
+    /**
+     * Sets the long at the given index.
+     *
+     * @param index
+     *            the index of the data point.
+     * @param value
+     *            the new value.
+     */
+    public final void putLong(long index, long value)
+    {
+        long pos = index << 3;
+        segment(pos).putLong(offset(pos), value);
+    }
+
+    /**
+     * Sets the float at the given index.
+     *
+     * @param index
+     *            the index of the data point.
+     * @param value
+     *            the new value.
+     */
+    public final void putFloat(long index, float value)
+    {
+        long pos = index << 2;
+        segment(pos).putFloat(offset(pos), value);
+    }
+
+    /**
+     * Sets the double at the given index.
+     *
+     * @param index
+     *            the index of the data point.
+     * @param value
+     *            the new value.
+     */
+    public final void putDouble(long index, double value)
+    {
+        long pos = index << 3;
+        segment(pos).putDouble(offset(pos), value);
+    }
+
+    /**
+     * Returns the value at the given index as a double, whatever the type of the buffer. Unsigned integers
+     * are converted to their unsigned value, except that unsigned 64-bit values above Long.MAX_VALUE lose
+     * precision.
+     *
+     * @param index
+     *            the index of the data point.
+     *
+     * @return the value.
+     */
+    public final double getAsDouble(long index)
+    {
+        switch (classType) {
+        case 'B':
+            return isUnsigned ? (getByte(index) & 0xff) : getByte(index);
+        case 'S':
+            return isUnsigned ? (getShort(index) & 0xffff) : getShort(index);
+        case 'I':
+            return isUnsigned ? (getInt(index) & 0xffffffffL) : getInt(index);
+        case 'J': {
+            long value = getLong(index);
+            if (isUnsigned && (value < 0))
+                return (value >>> 1) * 2.0 + (value & 1);
+            return value;
+        }
+        case 'F':
+            return getFloat(index);
+        default:
+            return getDouble(index);
+        }
+    }
+
+    /**
+     * Returns the value at the given index as a boxed Java value.
+     *
+     * Unsigned values are widened the same way as {@link Dataset#convertFromUnsignedC(Object)} widens Java
+     * arrays: an unsigned byte is returned as a Short, an unsigned short as an Integer and an unsigned int as
+     * a Long. Unsigned 64-bit values are returned as a Long holding the raw bits.
+     *
+     * @param index
+     *            the index of the data point.
+     *
+     * @return the value.
+     */
+    public final Object get(long index)
+    {
+        switch (classType) {
+        case 'B':
+            if (isUnsigned)
+                return Short.valueOf((short)(getByte(index) & 0xff));
+            return Byte.valueOf(getByte(index));
+        case 'S':
+            if (isUnsigned)
+                return Integer.valueOf(getShort(index) & 0xffff);
+            return Short.valueOf(getShort(index));
+        case 'I':
+            if (isUnsigned)
+                return Long.valueOf(getInt(index) & 0xffffffffL);
+            return Integer.valueOf(getInt(index));
+        case 'J':
+            return Long.valueOf(getLong(index));
+        case 'F':
+            return Float.valueOf(getFloat(index));
+        default:
+            return Double.valueOf(getDouble(index));
+        }
+    }
+}
@@ -25,6 +25,7 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Vector;
 
 import org.slf4j.Logger;
@@ -155,6 +156,45 @@ public abstract class Dataset extends HObject implements DataFormat {
     /** The compression information default prefix. */
     public static final String COMPRESSION_GZIP_TXT = "GZIP: level = ";
 
+    /** The approximate size, in bytes, of the default block read by {@link #blockIterator()}. */
+    public static final long BLOCK_SIZE_BYTES = 16L * 1024 * 1024;
+
+    /** The largest number of hyperslabs written by {@link #write(DirtyRegions)} instead of the selection. */
+    public static final int MAX_WRITE_REGIONS = 1024;
+
+    /** The chunk cache policy that leaves the raw data chunk cache at the library default. */
+    public static final int CHUNK_CACHE_DEFAULT = 0;
+
+    /** The chunk cache policy that uses the size given to {@link #setChunkCache(long, long, double)}. */
+    public static final int CHUNK_CACHE_EXPLICIT = 1;
+
+    /** The chunk cache policy that sizes the cache to hold the chunks of the current selection. */
+    public static final int CHUNK_CACHE_AUTO = 2;
+
+    /** The largest raw data chunk cache, in bytes, chosen by {@link #CHUNK_CACHE_AUTO}. */
+    public static final long MAX_AUTO_CHUNK_CACHE_BYTES = 256L * 1024 * 1024;
+
+    /** The size, in bytes, of the raw data chunk cache used by the library by default. */
+    public static final long DEFAULT_CHUNK_CACHE_BYTES = 1024L * 1024;
+
+    /** The default preemption policy of the raw data chunk cache. */
+    public static final double DEFAULT_CHUNK_CACHE_W0 = 0.75;
+
+    /** The policy for the raw data chunk cache used when the dataset is opened. */
+    protected int chunkCachePolicy = CHUNK_CACHE_DEFAULT;
+
+    /** The number of chunk slots in the raw data chunk cache for {@link #CHUNK_CACHE_EXPLICIT}. */
+    protected long chunkCacheSlots = -1;
+
+    /** The size, in bytes, of the raw data chunk cache for {@link #CHUNK_CACHE_EXPLICIT}. */
+    protected long chunkCacheBytes = -1;
+
+    /** The preemption policy of the raw data chunk cache, between 0 and 1. */
+    protected double chunkCacheW0 = DEFAULT_CHUNK_CACHE_W0;
+
+    /** The flag to indicate if the raw data may be read by mapping the file into memory. */
+    protected boolean isMappedIO = false;
+
     /** The filters information. */
     protected StringBuilder filters;
 
@@ -486,6 +526,34 @@ public abstract class Dataset extends HObject implements DataFormat {
      */
     public abstract byte[] readBytes() throws Exception;
 
+    /**
+     * Returns true if the current selection can be read with {@link #readBuffer()}.
+     *
+     * @return true if readBuffer() is supported for the datatype of this dataset.
+     */
+    public boolean isBufferReadable() { return false; }
+
+    /**
+     * Reads the current selection of the dataset into an off-heap buffer.
+     *
+     * Unlike {@link #read()}, readBuffer() is not limited to Integer.MAX_VALUE data points. The buffer is not
+     * cached by the dataset object; each call reads the selection from file again, unless the whole dataset
+     * is selected and served from a mapped file region, see {@link #setMappedIO(boolean)}.
+     *
+     * @return the buffer that holds the values of the selection.
+     *
+     * @throws Exception
+     *             if the data can not be read
+     * @throws UnsupportedOperationException
+     *             if the dataset does not support off-heap buffers
+     *
+     * @see #isBufferReadable()
+     */
+    public DataBuffer readBuffer() throws Exception
+    {
+        throw new UnsupportedOperationException("readBuffer: unsupported for " + getClass().getName());
+    }
+
     /**
      * Writes the memory buffer of this dataset to file.
      *
@@ -501,6 +569,114 @@ public abstract class Dataset extends HObject implements DataFormat {
         }
     }
 
+    /**
+     * Writes the changed data points of the memory buffer of this dataset to file.
+     *
+     * Only the changed part of the selection is written, as a union of hyperslabs in the file. When the whole
+     * selection has been marked as changed, when more than half of the points have changed, or when the
+     * changes make up more than {@link #MAX_WRITE_REGIONS} hyperslabs, the whole buffer is written with
+     * {@link #write()} instead. This default implementation always writes the whole buffer.
+     *
+     * @param regions
+     *            the changed data points, by their index in the memory buffer.
+     *
+     * @throws Exception if buffer can not be written
+     */
+    public void write(DirtyRegions regions) throws Exception
+    {
+        write();
+    }
+
+    /**
+     * Returns the hyperslabs of the selection to be written by {@link #write(DirtyRegions)}.
+     *
+     * @param regions
+     *            the changed data points, by their index in the memory buffer.
+     *
+     * @return the hyperslabs as {start, count} pairs relative to the selection, or null if the whole buffer
+     *         should be written.
+     */
+    protected List<long[][]> getWriteRegions(DirtyRegions regions)
+    {
+        if ((data == null) || (regions == null) || regions.isEmpty() || regions.isAll())
+            return null;
+
+        long nPoints = 1;
+        for (int i = 0; i < rank; i++)
+            nPoints *= selectedDims[i];
+
+        List<long[]> ranges = regions.getRanges();
+        if ((regions.getPointCount() * 2 > nPoints) || (ranges.get(ranges.size() - 1)[1] > nPoints))
+            return null;
+
+        List<long[][]> slabs = regions.getHyperslabs(selectedDims, MAX_WRITE_REGIONS);
+        log.trace("getWriteRegions(): {} changed points in {} hyperslabs", regions.getPointCount(),
+                  (slabs == null) ? "too many" : slabs.size());
+
+        return slabs;
+    }
+
+    /**
+     * Copies the changed data points of the memory buffer into a new, smaller buffer of the same type, in
+     * the order of the changed ranges.
+     *
+     * Each data point may take several array elements, e.g. for array datatypes or strings stored as bytes.
+     * The member arrays of a compound data buffer, which is a List, are copied the same way.
+     *
+     * @param regions
+     *            the changed data points, by their index in the memory buffer.
+     *
+     * @return the buffer of the changed data points, or null if the memory buffer does not fit the selection.
+     */
+    protected Object extractRegions(DirtyRegions regions)
+    {
+        long nPoints = 1;
+        for (int i = 0; i < rank; i++)
+            nPoints *= selectedDims[i];
+
+        return extractRegions(data, regions, nPoints);
+    }
+
+    private static Object extractRegions(Object buf, DirtyRegions regions, long nPoints)
+    {
+        if (buf == null)
+            return null;
+
+        if (buf instanceof List) {
+            List<Object> extracted = new ArrayList<>(((List<?>)buf).size());
+            for (Object member : (List<?>)buf) {
+                Object memberData = null;
+                if (member != null) {
+                    memberData = extractRegions(member, regions, nPoints);
+                    if (memberData == null)
+                        return null;
+                }
+                extracted.add(memberData);
+            }
+
+            return extracted;
+        }
+
+        if (!buf.getClass().isArray())
+            return null;
+
+        int length = Array.getLength(buf);
+        if ((nPoints <= 0) || (length % nPoints != 0))
+            return null;
+
+        int perPoint     = (int)(length / nPoints);
+        Object extracted = Array.newInstance(buf.getClass().getComponentType(),
+                                             (int)(regions.getPointCount() * perPoint));
+        int pos          = 0;
+        for (long[] range : regions.getRanges()) {
+            int n = (int)(range[1] - range[0]) * perPoint;
+            System.arraycopy(buf, (int)range[0] * perPoint, extracted, pos, n);
+            pos += n;
+        }
+
+        return extracted;
+    }
+
     /**
      * Creates a new dataset and writes the data buffer to the new dataset.
      *
@@ -710,6 +886,65 @@ public abstract class Dataset extends HObject implements DataFormat {
         isDataLoaded = true;
     }
 
+    /**
+     * Sets the data of the current selection that was read by another object for the same dataset, e.g.
+     * by a background prefetch from a {@link #duplicate()}, so that the next {@link #getData()} returns it
+     * without reading the file.
+     *
+     * @param selectionData
+     *            the data values of the current selection, as returned by {@link #read()}.
+     */
+    public void setPrefetchedData(Object selectionData)
+    {
+        if (selectionData == null)
+            return;
+
+        clearData();
+        data         = selectionData;
+        originalBuf  = data;
+        isDataLoaded = true;
+        nPoints      = 1;
+        for (int j = 0; j < selectedDims.length; j++)
+            nPoints *= selectedDims[j];
+        log.trace("setPrefetchedData(): {} points", nPoints);
+    }
+
+    /**
+     * Creates another object for the same dataset in the file with a copy of the current selection.
+     *
+     * The new object shares no selection or data buffers with this one, so it can read data on another
+     * thread, e.g. to prefetch the next frames, without disturbing this object.
+     *
+     * @return the new dataset object, or null if the file format does not support it.
+     *
+     * @throws Exception
+     *             if the dataset can not be opened
+     */
+    public Dataset duplicate() throws Exception { return null; }
+
+    /**
+     * Copies the selection and the reading options of this dataset to another object for the same
+     * dataset.
+     *
+     * @param dset
+     *            the dataset object that receives the selection.
+     */
+    protected void copySelectionTo(Dataset dset)
+    {
+        System.arraycopy(startDims, 0, dset.startDims, 0, rank);
+        System.arraycopy(selectedDims, 0, dset.selectedDims, 0, rank);
+        if ((selectedStride != null) && (dset.selectedStride != null))
+            System.arraycopy(selectedStride, 0, dset.selectedStride, 0, rank);
+        System.arraycopy(selectedIndex, 0, dset.selectedIndex, 0, selectedIndex.length);
+
+        dset.convertByteToString = convertByteToString;
+        dset.chunkCachePolicy    = chunkCachePolicy;
+        dset.chunkCacheSlots     = chunkCacheSlots;
+        dset.chunkCacheBytes     = chunkCacheBytes;
+        dset.chunkCacheW0        = chunkCacheW0;
+        dset.isMappedIO          = isMappedIO;
+    }
+
     /**
      * Clears the current data buffer in memory and forces the next read() to load
      * the data from file.
@@ -969,6 +1204,373 @@ public abstract class Dataset extends HObject implements DataFormat {
      */
     public final long[] getChunkSize() { return chunkSize; }
 
+    /**
+     * Sets the raw data chunk cache used when the dataset is opened, and selects the
+     * {@link #CHUNK_CACHE_EXPLICIT} policy.
+     *
+     * @param nslots
+     *            the number of chunk slots in the hash table of the cache; a prime number about 100 times
+     *            the number of chunks that fit in the cache works best.
+     * @param nbytes
+     *            the size of the cache in bytes.
+     * @param w0
+     *            the preemption policy, between 0 and 1; 1 evicts fully read chunks first.
+     *
+     * @throws IllegalArgumentException
+     *             if a value is out of range
+     */
+    public void setChunkCache(long nslots, long nbytes, double w0)
+    {
+        if ((nslots <= 0) || (nbytes < 0) || !(w0 >= 0 && w0 <= 1))
+            throw new IllegalArgumentException("invalid chunk cache: nslots=" + nslots + " nbytes=" + nbytes +
+                                               " w0=" + w0);
+
+        chunkCacheSlots  = nslots;
+        chunkCacheBytes  = nbytes;
+        chunkCacheW0     = w0;
+        chunkCachePolicy = CHUNK_CACHE_EXPLICIT;
+    }
+
+    /**
+     * Sets the policy for the raw data chunk cache used when the dataset is opened.
+     *
+     * With {@link #CHUNK_CACHE_AUTO}, the cache is sized from the chunk size and the current selection so
+     * that all the chunks touched by one frame stay in the cache, up to {@link #MAX_AUTO_CHUNK_CACHE_BYTES}.
+     * Paging through a dataset along a dimension that its chunks cut across then reads every chunk once
+     * instead of once per frame.
+     *
+     * @param policy
+     *            {@link #CHUNK_CACHE_DEFAULT}, {@link #CHUNK_CACHE_AUTO}, or {@link #CHUNK_CACHE_EXPLICIT} if
+     *            the cache size has been set before.
+     *
+     * @throws IllegalArgumentException
+     *             if the policy is unknown, or explicit without a cache size
+     */
+    public void setChunkCachePolicy(int policy)
+    {
+        if ((policy != CHUNK_CACHE_DEFAULT) && (policy != CHUNK_CACHE_AUTO) &&
+            ((policy != CHUNK_CACHE_EXPLICIT) || (chunkCacheSlots <= 0)))
+            throw new IllegalArgumentException("invalid chunk cache policy: " + policy);
+
+        chunkCachePolicy = policy;
+    }
+
+    /**
+     * Returns the policy for the raw data chunk cache used when the dataset is opened.
+     *
+     * @return {@link #CHUNK_CACHE_DEFAULT}, {@link #CHUNK_CACHE_EXPLICIT} or {@link #CHUNK_CACHE_AUTO}.
+     */
+    public int getChunkCachePolicy() { return chunkCachePolicy; }
+
+    /**
+     * Returns the preemption policy of the raw data chunk cache.
+     *
+     * @return the preemption policy, between 0 and 1.
+     */
+    public double getChunkCacheW0() { return chunkCacheW0; }
+
+    /**
+     * Sets whether the raw data may be read by mapping the file into memory. Mapping is off by default.
+     *
+     * Only a dataset of a file opened read-only, stored contiguously without filters and with a plain
+     * integer or floating-point datatype can be mapped; any other dataset is read through the library as
+     * usual. The file region is mapped on the first read and stays mapped until the dataset object and
+     * every {@link DataBuffer} returned by {@link #readBuffer()} are garbage collected; closing the file
+     * does not unmap it. Turning mapping off drops the dataset's reference to the mapped region.
+     *
+     * @param mappedIO
+     *            true to read the raw data through a mapped file region where possible.
+     */
+    public void setMappedIO(boolean mappedIO) { isMappedIO = mappedIO; }
+
+    /**
+     * Returns true if the raw data may be read by mapping the file into memory.
+     *
+     * @return true if mapped reads are enabled.
+     *
+     * @see #setMappedIO(boolean)
+     */
+    public boolean isMappedIO() { return isMappedIO; }
+
+    /**
+     * Returns the size of the raw data chunk cache for the current policy and selection.
+     *
+     * @return the number of chunk slots and the size in bytes of the cache, or null to use the library
+     *         default.
+     */
+    public long[] getChunkCacheSize()
+    {
+        if (chunkCachePolicy == CHUNK_CACHE_EXPLICIT)
+            return new long[] {chunkCacheSlots, chunkCacheBytes};
+        if ((chunkCachePolicy != CHUNK_CACHE_AUTO) || (chunkSize == null) || (chunkSize.length != rank) ||
+            (startDims == null) || (selectedDims == null))
+            return null;
+
+        long typeSize = 1;
+        if ((datatype != null) && (datatype.getDatatypeSize() > 0))
+            typeSize = datatype.getDatatypeSize();
+
+        // the chunks spanned by the current selection, i.e. by one frame
+        long chunkBytes = typeSize;
+        long nchunks    = 1;
+        for (int i = 0; i < rank; i++) {
+            if (chunkSize[i] <= 0)
+                return null;
+            long stride = (selectedStride == null) ? 1 : selectedStride[i];
+            long first  = startDims[i] / chunkSize[i];
+            long last   = (startDims[i] + (Math.max(1, selectedDims[i]) - 1) * stride) / chunkSize[i];
+            chunkBytes *= chunkSize[i];
+            nchunks *= (last - first + 1);
+        }
+
+        long nbytes = Math.min(nchunks * chunkBytes, MAX_AUTO_CHUNK_CACHE_BYTES);
+        if (nbytes <= DEFAULT_CHUNK_CACHE_BYTES)
+            return null;
+
+        // the library recommends about 100 hash slots per chunk held in the cache
+        long nslots = Math.max(521, Math.min(100 * (nbytes / chunkBytes), 1000000));
+        while (!isPrime(nslots))
+            nslots++;
+
+        log.trace("getChunkCacheSize(): nchunks={} nslots={} nbytes={}", nchunks, nslots, nbytes);
+
+        return new long[] {nslots, nbytes};
+    }
+
+    private static boolean isPrime(long n)
+    {
+        if (n % 2 == 0)
+            return n == 2;
+        for (long d = 3; d * d <= n; d += 2) {
+            if (n % d == 0)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns the default block size used by {@link #blockIterator()}.
+     *
+     * The blocks are built from the chunk size of the dataset, or from single data points if the dataset is
+     * not chunked, and grown from the fastest changing dimension to the slowest one until a block holds
+     * about {@link #BLOCK_SIZE_BYTES} bytes. A chunked dataset is therefore always read in whole chunks.
+     *
+     * @return the dimension sizes of the default block.
+     */
+    public long[] getBlockDims()
+    {
+        if (!inited)
+            init();
+
+        return alignBlockDims(chunkSize);
+    }
+
+    /**
+     * Grows the given unit block in multiples of itself until it holds about {@link #BLOCK_SIZE_BYTES} bytes
+     * or covers the whole dataset.
+     *
+     * @param unitDims
+     *            the dimension sizes of the smallest block, e.g. the chunk size, or null for a single data
+     *            point.
+     *
+     * @return the dimension sizes of the block.
+     */
+    protected long[] alignBlockDims(long[] unitDims)
+    {
+        long[] blockDims = new long[rank];
+
+        long typeSize = 1;
+        if ((getDatatype() != null) && (getDatatype().getDatatypeSize() > 0))
+            typeSize = getDatatype().getDatatypeSize();
+        long maxPoints = Math.max(1, BLOCK_SIZE_BYTES / typeSize);
+
+        long points = 1;
+        for (int i = rank - 1; i >= 0; i--) {
+            long unit = 1;
+            if ((unitDims != null) && (unitDims.length == rank) && (unitDims[i] > 0))
+                unit = Math.min(unitDims[i], dims[i]);
+            if (unit < 1)
+                unit = 1;
+
+            long factor = Math.max(1, maxPoints / (points * unit));
+            factor      = Math.min(factor, (dims[i] + unit - 1) / unit);
+
+            blockDims[i] = Math.max(1, Math.min(unit * factor, dims[i]));
+            points *= blockDims[i];
+        }
+
+        log.trace("alignBlockDims(): unitDims={} blockDims={}", unitDims, blockDims);
+
+        return blockDims;
+    }
+
+    /**
+     * Returns an iterator over the whole dataset in blocks of the default size.
+     *
+     * @see #blockIterator(long[])
+     * @see #getBlockDims()
+     *
+     * @return the block iterator.
+     *
+     * @throws Exception
+     *             if the dataset can not be initialized
+     */
+    public Iterator<DataBlock> blockIterator() throws Exception
+    {
+        return blockIterator(getBlockDims());
+    }
+
+    /**
+     * Returns an iterator that reads the whole dataset one hyperslab block at a time.
+     *
+     * Blocks are returned in row-major order. The blocks at the upper end of a dimension are trimmed to the
+     * dataset extent. Only one block is held in memory at a time, and the data buffer of a block may be
+     * reused for the next one, so datasets far larger than the Java heap or the 2 GB array limit can be
+     * processed with bounded memory.
+     *
+     * The iteration ignores the current selection of the dataset and leaves it unchanged. The iterator must
+     * not be used while other threads read or write the same dataset object. A failure to read a block is
+     * thrown from next() as an IllegalStateException with the original exception as its cause.
+     *
+     * @param blockDims
+     *            the dimension sizes of a block; the number of data points in a block must fit in an int.
+     *
+     * @return the block iterator.
+     *
+     * @throws Exception
+     *             if the dataset can not be initialized or the block size is invalid
+     */
+    public Iterator<DataBlock> blockIterator(long[] blockDims) throws Exception
+    {
+        if (!inited)
+            init();
+
+        if ((blockDims == null) || (blockDims.length != rank))
+            throw new IllegalArgumentException("block rank does not match the dataset rank");
+
+        long points = 1;
+        for (int i = 0; i < rank; i++) {
+            if (blockDims[i] <= 0)
+                throw new IllegalArgumentException("block size must be positive in every dimension");
+            points *= Math.min(blockDims[i], dims[i]);
+        }
+        if (points > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("block size exceeds the maximum Java array size");
+
+        return new BlockIterator(blockDims);
+    }
+
+    /**
+     * Reads one hyperslab block of the dataset.
+     *
+     * The default implementation temporarily replaces the current selection with the block and calls
+     * {@link #read()}. Subclasses can override it to read directly into the buffer of the previous block.
+     *
+     * @param start
+     *            the start position of the block.
+     * @param count
+     *            the size of the block in each dimension.
+     * @param buf
+     *            the data buffer of the previous block, which may be reused, or null.
+     *
+     * @return the data values of the block.
+     *
+     * @throws Exception
+     *             if the block can not be read
+     */
+    protected Object readBlock(long[] start, long[] count, Object buf) throws Exception
+    {
+        long[] oldStart    = startDims.clone();
+        long[] oldSelected = selectedDims.clone();
+        long[] oldStride   = (selectedStride == null) ? null : selectedStride.clone();
+        Object oldBuf      = originalBuf;
+
+        try {
+            System.arraycopy(start, 0, startDims, 0, rank);
+            System.arraycopy(count, 0, selectedDims, 0, rank);
+            if (selectedStride != null)
+                Arrays.fill(selectedStride, 1);
+
+            // do not let read() reuse the buffer of the loaded data
+            originalBuf = null;
+
+            return read();
+        }
+        finally {
+            System.arraycopy(oldStart, 0, startDims, 0, rank);
+            System.arraycopy(oldSelected, 0, selectedDims, 0, rank);
+            if (oldStride != null)
+                System.arraycopy(oldStride, 0, selectedStride, 0, rank);
+            originalBuf = oldBuf;
+        }
+    }
+
+    /**
+     * Walks the dataset in row-major order of blocks, reading each block on demand.
+     */
+    private class BlockIterator implements Iterator<DataBlock> {
+        private final long[] blockDims;
+
+        private final long[] position;
+
+        private final DataBlock block;
+
+        private boolean hasMore;
+
+        BlockIterator(long[] blockDims)
+        {
+            this.blockDims = blockDims.clone();
+            this.position  = new long[rank];
+            this.block     = new DataBlock(rank);
+            this.hasMore   = !isNULL && (dims != null);
+            for (int i = 0; hasMore && (i < rank); i++) {
+                if (dims[i] <= 0)
+                    hasMore = false;
+            }
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            return hasMore;
+        }
+
+        @Override
+        public DataBlock next()
+        {
+            if (!hasMore)
+                throw new NoSuchElementException();
+
+            long[] start = block.getStart();
+            long[] count = block.getCount();
+            for (int i = 0; i < rank; i++) {
+                start[i] = position[i];
+                count[i] = Math.min(blockDims[i], dims[i] - position[i]);
+            }
+
+            try {
+                block.setData(readBlock(start, count, block.getData()));
+            }
+            catch (Exception ex) {
+                log.debug("BlockIterator.next(): failed to read block at {}: ", start, ex);
+                throw new IllegalStateException("failed to read block: " + ex.getMessage(), ex);
+            }
+
+            // advance to the next block, fastest changing dimension first
+            hasMore = false;
+            for (int i = rank - 1; i >= 0; i--) {
+                position[i] += blockDims[i];
+                if (position[i] < dims[i]) {
+                    hasMore = true;
+                    break;
+                }
+                position[i] = 0;
+            }
+
+            return block;
+        }
+    }
+
     /**
      * Returns the datatype of the data object.
      *
@@ -0,0 +1,607 @@
+/*****************************************************************************
+ * Copyright by The HDF Group.                                               *
+ * Copyright by the Board of Trustees of the University of Illinois.         *
+ * All rights reserved.                                                      *
+ *                                                                           *
+ * This file is part of the HDF Java Products distribution.                  *
+ * The full copyright notice, including terms governing use, modification,   *
+ * and redistribution, is contained in the COPYING file, which can be found  *
+ * at the root of the source code distribution tree,                         *
+ * or in https://www.hdfgroup.org/licenses.                                  *
+ * If you do not have access to either file, you may request a copy from     *
+ * help@hdfgroup.org.                                                        *
+ ****************************************************************************/
+
+package hdf.object;
+
+import java.lang.reflect.Array;
+import java.util.concurrent.Callable;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Computes the minimum, maximum, mean, standard deviation and, optionally, the histogram of the values of
+ * a numeric dataset without loading the dataset into memory.
+ *
+ * The selection is read block by block in the chunk-aligned blocks of {@link Dataset#getBlockDims()} on
+ * the calling thread, while the blocks already read are accumulated in parallel. Every block produces a
+ * partial result holding its count, minimum, maximum, mean and sum of squared deviations from the mean,
+ * and partial results are merged with the pairwise update of Chan, Golub and LeVeque, so the result does
+ * not depend on the values being centered or small. At most a few blocks are held in memory at a time.
+ *
+ * As in the statistics of the data views, values equal to the fill value of the dataset are excluded, as
+ * are NaN and infinite floating-point values. Unsigned integers are accumulated as unsigned values.
+ *
+ * If a histogram is requested without a value range, the range is the minimum and maximum of the data and
+ * the selection is read twice. Values are binned in the same way as by the image view, i.e. bin
+ * <code>(int)((value - min) * (bins - 1) / (max - min))</code>.
+ *
+ * A computation can be cancelled from another thread with {@link #cancel()}; progress is reported to a
+ * {@link ProgressListener} on the computing thread and can be polled with {@link #getProgress()}.
+ *
+ * <pre>
+ * DatasetStatistics stats = new DatasetStatistics(dset);
+ * stats.setHistogram(256, null);
+ * if (stats.compute())
+ *     System.out.println(stats.getMin() + " " + stats.getMax() + " " + stats.getMean());
+ * </pre>
+ */
+public class DatasetStatistics {
+    private static final Logger log = LoggerFactory.getLogger(DatasetStatistics.class);
+
+    /**
+     * Receives the progress of a computation.
+     */
+    public interface ProgressListener {
+        /**
+         * Called on the computing thread after every block that has been accumulated.
+         *
+         * @param pointsDone
+         *            the number of data points processed so far.
+         * @param totalPoints
+         *            the number of data points to process; a histogram without a given range counts the
+         *            selection twice.
+         */
+        void progressChanged(long pointsDone, long totalPoints);
+    }
+
+    /** The default number of histogram bins. */
+    public static final int DEFAULT_BINS = 256;
+
+    /** the number of values converted to double before they are accumulated */
+    private static final int BATCH_SIZE = 4096;
+
+    private final Dataset dataset;
+
+    /** the start of the selection, or null for the whole dataset */
+    private long[] selStart;
+
+    /** the size of the selection, or null for the whole dataset */
+    private long[] selCount;
+
+    /** the number of histogram bins, 0 for no histogram */
+    private int nbins;
+
+    /** the value range of the histogram, or null for the data range */
+    private double[] histRange;
+
+    private ProgressListener listener;
+
+    private volatile boolean isCancelled;
+
+    private volatile long pointsDone;
+
+    private volatile long totalPoints;
+
+    /** the result of the last computation */
+    private Partial result;
+
+    /**
+     * Creates a statistics computation over the whole of a numeric scalar dataset.
+     *
+     * @param dataset
+     *            the dataset.
+     */
+    public DatasetStatistics(Dataset dataset)
+    {
+        this.dataset = dataset;
+        this.nbins   = 0;
+    }
+
+    /**
+     * Restricts the computation to a hyperslab of the dataset.
+     *
+     * @param start
+     *            the start of the hyperslab, or null for the whole dataset.
+     * @param count
+     *            the size of the hyperslab in each dimension, or null for the whole dataset.
+     */
+    public void setSelection(long[] start, long[] count)
+    {
+        if ((start == null) != (count == null))
+            throw new IllegalArgumentException("start and count must both be given");
+        if ((start != null) && (start.length != count.length))
+            throw new IllegalArgumentException("start and count have different ranks");
+
+        selStart = (start == null) ? null : start.clone();
+        selCount = (count == null) ? null : count.clone();
+    }
+
+    /**
+     * Requests a histogram of the values.
+     *
+     * @param bins
+     *            the number of bins, or 0 for no histogram.
+     * @param range
+     *            the lower and upper value of the histogram, or null to use the minimum and maximum of the
+     *            data. Values outside the range are not counted.
+     */
+    public void setHistogram(int bins, double[] range)
+    {
+        if (bins < 0)
+            throw new IllegalArgumentException("number of bins must not be negative");
+        if ((range != null) && ((range.length < 2) || !(range[0] <= range[1])))
+            throw new IllegalArgumentException("invalid histogram range");
+
+        nbins     = bins;
+        histRange = (range == null) ? null : new double[] {range[0], range[1]};
+    }
+
+    /**
+     * Sets the listener notified of the progress of the computation.
+     *
+     * @param listener
+     *            the listener, or null.
+     */
+    public void setProgressListener(ProgressListener listener) { this.listener = listener; }
+
+    /**
+     * Asks a running computation to stop. {@link #compute()} then returns false as soon as the blocks in
+     * progress are done. A cancelled computation can not be restarted.
+     */
+    public void cancel() { isCancelled = true; }
+
+    /**
+     * Returns true if the last computation was cancelled.
+     *
+     * @return true if cancelled.
+     */
+    public boolean isCancelled() { return isCancelled; }
+
+    /**
+     * Returns the fraction of the data processed by the running or last computation.
+     *
+     * @return the progress between 0 and 1.
+     */
+    public double getProgress()
+    {
+        long total = totalPoints;
+        return (total <= 0) ? 0 : Math.min(1.0, (double)pointsDone / total);
+    }
+
+    /**
+     * Reads the selection and computes the statistics.
+     *
+     * If the dataset can be duplicated, the blocks are read through the duplicate so that the selection
+     * and data of the dataset object itself are not touched, and the computation can run on a background
+     * thread while the dataset is displayed.
+     *
+     * @return true if the statistics have been computed, false if the computation was cancelled.
+     *
+     * @throws Exception
+     *             if the dataset is not numeric or a block can not be read.
+     */
+    public boolean compute() throws Exception
+    {
+        pointsDone = 0;
+        result     = null;
+
+        Dataset reader = dataset.duplicate();
+        if (reader == null) {
+            reader = dataset;
+            if (!reader.inited)
+                reader.init();
+        }
+
+        Datatype dtype = reader.getDatatype();
+        if (!(reader instanceof ScalarDS) || (dtype == null) || !(dtype.isInteger() || dtype.isFloat()) ||
+            (dtype.getDatatypeSize() > 8))
+            throw new UnsupportedOperationException("statistics are only available for numeric datasets");
+
+        int rank      = reader.getRank();
+        long[] dims   = reader.getDims();
+        long[] start  = (selStart == null) ? new long[rank] : selStart;
+        long[] count  = (selCount == null) ? dims.clone() : selCount;
+        long points   = 1;
+        if (start.length != rank)
+            throw new IllegalArgumentException("selection rank does not match the dataset rank");
+        for (int i = 0; i < rank; i++) {
+            if ((start[i] < 0) || (count[i] < 0) || (start[i] + count[i] > dims[i]))
+                throw new IllegalArgumentException("selection exceeds the dataset extent");
+            points *= count[i];
+        }
+
+        boolean twoPass = (nbins > 0) && (histRange == null);
+        totalPoints     = twoPass ? 2 * points : points;
+
+        Object fill     = ((ScalarDS)reader).getFillValue();
+        Accumulator acc = new Accumulator(dtype.isUnsigned(), fill);
+
+        Partial stats = null;
+        if (twoPass) {
+            stats = scan(reader, start, count, acc, 0, 0, 0);
+            if (stats == null)
+                return false;
+            if (stats.count == 0) {
+                stats.hist = new long[nbins];
+                result     = stats;
+                return true;
+            }
+        }
+
+        double lo = (histRange != null) ? histRange[0] : (stats != null) ? stats.min : 0;
+        double hi = (histRange != null) ? histRange[1] : (stats != null) ? stats.max : 0;
+        result    = scan(reader, start, count, acc, nbins, lo, hi);
+        log.trace("compute(): {} points={} count={} cancelled={}", dataset.getName(), points,
+                  (result == null) ? 0 : result.count, isCancelled);
+
+        return (result != null);
+    }
+
+    /**
+     * Returns the number of values included in the statistics, i.e. without fill values, NaN and
+     * infinite values.
+     *
+     * @return the number of values.
+     */
+    public long getCount() { return (result == null) ? 0 : result.count; }
+
+    /**
+     * Returns the minimum value.
+     *
+     * @return the minimum, or NaN if there are no values.
+     */
+    public double getMin() { return (getCount() == 0) ? Double.NaN : result.min; }
+
+    /**
+     * Returns the maximum value.
+     *
+     * @return the maximum, or NaN if there are no values.
+     */
+    public double getMax() { return (getCount() == 0) ? Double.NaN : result.max; }
+
+    /**
+     * Returns the mean value.
+     *
+     * @return the mean, or NaN if there are no values.
+     */
+    public double getMean() { return (getCount() == 0) ? Double.NaN : result.mean; }
+
+    /**
+     * Returns the sample standard deviation, as computed by the statistics of the data views.
+     *
+     * @return the standard deviation, 0 if there are less than two values.
+     */
+    public double getStandardDeviation()
+    {
+        long n = getCount();
+        return (n <= 1) ? 0 : Math.sqrt(result.m2 / (n - 1));
+    }
+
+    /**
+     * Returns the histogram of the values.
+     *
+     * @return the count of values in each bin, or null if no histogram was requested.
+     */
+    public long[] getHistogram()
+    {
+        return ((result == null) || (result.hist == null)) ? null : result.hist.clone();
+    }
+
+    /**
+     * Returns the value range of the histogram.
+     *
+     * @return the lower and upper value of the histogram, or null if no histogram was computed.
+     */
+    public double[] getHistogramRange()
+    {
+        if ((result == null) || (result.hist == null))
+            return null;
+
+        return new double[] {result.histMin, result.histMax};
+    }
+
+    /**
+     * Reads the hyperslab block by block and accumulates the blocks in parallel.
+     *
+     * @return the merged result, or null if the computation was cancelled.
+     */
+    private Partial scan(Dataset reader, long[] start, long[] count, final Accumulator acc, final int bins,
+                         final double lo, final double hi) throws Exception
+    {
+        final Partial total = new Partial(bins, lo, hi);
+        for (int i = 0; i < count.length; i++) {
+            if (count[i] == 0)
+                return total;
+        }
+
+        int rank         = count.length;
+        long[] blockDims = reader.getBlockDims();
+        long[] position  = new long[rank];
+        long[] end       = new long[rank];
+        boolean hasMore  = true;
+        int maxPending   = BoundedTaskQueue.getDefaultMaxPending();
+
+        BoundedTaskQueue<Partial> pending = new BoundedTaskQueue<Partial>(maxPending) {
+            @Override
+            protected void completed(Partial p)
+            {
+                total.merge(p);
+                pointsDone += p.visited;
+                if (listener != null)
+                    listener.progressChanged(pointsDone, totalPoints);
+            }
+        };
+
+        // walk the blocks of the chunk-aligned block grid that intersect the hyperslab
+        for (int i = 0; i < rank; i++) {
+            position[i] = (start[i] / blockDims[i]) * blockDims[i];
+            end[i]      = start[i] + count[i];
+        }
+
+        try {
+            while (hasMore && !isCancelled) {
+                long[] blockStart = new long[rank];
+                long[] blockCount = new long[rank];
+                for (int i = 0; i < rank; i++) {
+                    blockStart[i] = Math.max(position[i], start[i]);
+                    blockCount[i] = Math.min(position[i] + blockDims[i], end[i]) - blockStart[i];
+                }
+
+                final Object data = reader.readBlock(blockStart, blockCount, null);
+                pending.submit(new Callable<Partial>() {
+                    @Override
+                    public Partial call()
+                    {
+                        Partial p = new Partial(bins, lo, hi);
+                        if (!isCancelled)
+                            acc.accumulate(data, p);
+                        return p;
+                    }
+                });
+
+                // advance to the next block, fastest changing dimension first
+                hasMore = false;
+                for (int i = rank - 1; i >= 0; i--) {
+                    position[i] += blockDims[i];
+                    if (position[i] < end[i]) {
+                        hasMore = true;
+                        break;
+                    }
+                    position[i] = (start[i] / blockDims[i]) * blockDims[i];
+                }
+            }
+
+            pending.completeAll();
+        }
+        finally {
+            pending.cancelAll();
+        }
+
+        return isCancelled ? null : total;
+    }
+
+    /**
+     * The statistics of part of the data: count, extremes, mean and the sum of squared deviations from the
+     * mean, plus an optional histogram.
+     */
+    private static final class Partial {
+        long visited;
+        long count;
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        double mean;
+        double m2;
+        long[] hist;
+        final double histMin;
+        final double histMax;
+        final double histScale;
+
+        Partial(int bins, double lo, double hi)
+        {
+            hist      = (bins > 0) ? new long[bins] : null;
+            histMin   = lo;
+            histMax   = hi;
+            histScale = (hi != lo) ? (bins - 1) / (hi - lo) : 1;
+        }
+
+        /** adds the first n values of a batch, using two passes over the batch */
+        void add(double[] values, int n)
+        {
+            if (n <= 0)
+                return;
+
+            double bmin = values[0];
+            double bmax = values[0];
+            double sum  = 0;
+            for (int i = 0; i < n; i++) {
+                double v = values[i];
+                sum += v;
+                if (v < bmin)
+                    bmin = v;
+                if (v > bmax)
+                    bmax = v;
+            }
+
+            double bmean = sum / n;
+            double bm2   = 0;
+            for (int i = 0; i < n; i++) {
+                double diff = values[i] - bmean;
+                bm2 += diff * diff;
+            }
+
+            if (hist != null) {
+                for (int i = 0; i < n; i++) {
+                    double v = values[i];
+                    if (v >= histMin && v <= histMax)
+                        hist[(int)((v - histMin) * histScale)]++;
+                }
+            }
+
+            merge(n, bmin, bmax, bmean, bm2);
+        }
+
+        void merge(Partial other)
+        {
+            visited += other.visited;
+            merge(other.count, other.min, other.max, other.mean, other.m2);
+            if ((hist != null) && (other.hist != null)) {
+                for (int i = 0; i < hist.length; i++)
+                    hist[i] += other.hist[i];
+            }
+        }
+
+        private void merge(long n, double omin, double omax, double omean, double om2)
+        {
+            if (n == 0)
+                return;
+            if (count == 0) {
+                count = n;
+                min   = omin;
+                max   = omax;
+                mean  = omean;
+                m2    = om2;
+                return;
+            }
+
+            long total   = count + n;
+            double delta = omean - mean;
+            mean += delta * n / total;
+            m2 += om2 + delta * delta * ((double)count * n / total);
+            count = total;
+            if (omin < min)
+                min = omin;
+            if (omax > max)
+                max = omax;
+        }
+    }
+
+    /**
+     * Converts the values of a block to double, skipping fill values, NaN and infinite values, and feeds
+     * them to a partial result in batches.
+     */
+    private static final class Accumulator {
+        private final boolean isUnsigned;
+
+        private final boolean hasFillValue;
+
+        /** the fill value; the fill value of an unsigned dataset may already be converted to a wider type */
+        private final Number fill;
+
+        Accumulator(boolean isUnsigned, Object fillValue)
+        {
+            this.isUnsigned   = isUnsigned;
+            this.hasFillValue = (fillValue != null) && fillValue.getClass().isArray() &&
+                                (Array.getLength(fillValue) > 0) &&
+                                (Array.get(fillValue, 0) instanceof Number);
+            this.fill         = hasFillValue ? (Number)Array.get(fillValue, 0) : null;
+        }
+
+        void accumulate(Object data, Partial p)
+        {
+            double[] batch = new double[BATCH_SIZE];
+            int n          = 0;
+            int size       = Array.getLength(data);
+            p.visited      = size;
+
+            if (data instanceof byte[]) {
+                byte[] b     = (byte[])data;
+                byte rawFill = hasFillValue ? fill.byteValue() : 0;
+                for (int i = 0; i < size; i++) {
+                    if (hasFillValue && b[i] == rawFill)
+                        continue;
+                    batch[n++] = isUnsigned ? (b[i] & 0xFF) : b[i];
+                    if (n == BATCH_SIZE) {
+                        p.add(batch, n);
+                        n = 0;
+                    }
+                }
+            }
+            else if (data instanceof short[]) {
+                short[] s     = (short[])data;
+                short rawFill = hasFillValue ? fill.shortValue() : 0;
+                for (int i = 0; i < size; i++) {
+                    if (hasFillValue && s[i] == rawFill)
+                        continue;
+                    batch[n++] = isUnsigned ? (s[i] & 0xFFFF) : s[i];
+                    if (n == BATCH_SIZE) {
+                        p.add(batch, n);
+                        n = 0;
+                    }
+                }
+            }
+            else if (data instanceof int[]) {
+                int[] ia    = (int[])data;
+                int rawFill = hasFillValue ? fill.intValue() : 0;
+                for (int i = 0; i < size; i++) {
+                    if (hasFillValue && ia[i] == rawFill)
+                        continue;
+                    batch[n++] = isUnsigned ? (ia[i] & 0xFFFFFFFFL) : ia[i];
+                    if (n == BATCH_SIZE) {
+                        p.add(batch, n);
+                        n = 0;
+                    }
+                }
+            }
+            else if (data instanceof long[]) {
+                long[] l     = (long[])data;
+                long rawFill = hasFillValue ? fill.longValue() : 0;
+                for (int i = 0; i < size; i++) {
+                    if (hasFillValue && l[i] == rawFill)
+                        continue;
+                    if (isUnsigned && (l[i] < 0))
+                        batch[n++] = (double)(l[i] >>> 1) * 2.0 + (l[i] & 1);
+                    else
+                        batch[n++] = l[i];
+                    if (n == BATCH_SIZE) {
+                        p.add(batch, n);
+                        n = 0;
+                    }
+                }
+            }
+            else if (data instanceof float[]) {
+                float[] f     = (float[])data;
+                float rawFill = hasFillValue ? fill.floatValue() : 0;
+                for (int i = 0; i < size; i++) {
+                    if ((hasFillValue && f[i] == rawFill) || Float.isNaN(f[i]) || Float.isInfinite(f[i]))
+                        continue;
+                    batch[n++] = f[i];
+                    if (n == BATCH_SIZE) {
+                        p.add(batch, n);
+                        n = 0;
+                    }
+                }
+            }
+            else if (data instanceof double[]) {
+                double[] d     = (double[])data;
+                double rawFill = hasFillValue ? fill.doubleValue() : 0;
+                for (int i = 0; i < size; i++) {
+                    if ((hasFillValue && d[i] == rawFill) || Double.isNaN(d[i]) || Double.isInfinite(d[i]))
+                        continue;
+                    batch[n++] = d[i];
+                    if (n == BATCH_SIZE) {
+                        p.add(batch, n);
+                        n = 0;
+                    }
+                }
+            }
+            else {
+                throw new UnsupportedOperationException("unsupported data buffer " +
+                                                        data.getClass().getName());
+            }
+
+            p.add(batch, n);
+        }
+    }
+}
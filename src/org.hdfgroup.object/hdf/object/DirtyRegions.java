@@ -0,0 +1,271 @@
+/*****************************************************************************
+ * Copyright by The HDF Group.                                               *
+ * Copyright by the Board of Trustees of the University of Illinois.         *
+ * All rights reserved.                                                      *
+ *                                                                           *
+ * This file is part of the HDF Java Products distribution.                  *
+ * The full copyright notice, including terms governing use, modification,   *
+ * and redistribution, is contained in the COPYING file, which can be found  *
+ * at the root of the source code distribution tree,                         *
+ * or in https://www.hdfgroup.org/licenses.                                  *
+ * If you do not have access to either file, you may request a copy from     *
+ * help@hdfgroup.org.                                                        *
+ ****************************************************************************/
+
+package hdf.object;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The data points of a selection that have been changed in memory and must be written back to file.
+ *
+ * The points are identified by their index in the data buffer of the selection, that is, in row-major order
+ * of the selected dimensions. Changed points are kept as a sorted set of ranges, and overlapping or adjacent
+ * ranges are merged as they are added, so editing a block of cells row by row leaves a single range.
+ *
+ * {@link #getHyperslabs(long[], int)} splits the ranges into hyperslabs of the selection, which
+ * {@link Dataset#write(DirtyRegions)} uses to write only the changed part of the selection.
+ */
+public class DirtyRegions {
+    /** the changed ranges [from, to) of point indices, by their first index */
+    private final TreeMap<Long, Long> ranges = new TreeMap<>();
+
+    /** the number of points in the changed ranges */
+    private long pointCount;
+
+    /** true if the whole selection has changed */
+    private boolean isAll;
+
+    /**
+     * Marks one data point as changed.
+     *
+     * @param index
+     *            the index of the point in the data buffer.
+     */
+    public void add(long index) { add(index, index + 1); }
+
+    /**
+     * Marks a range of data points as changed.
+     *
+     * @param from
+     *            the index of the first point in the data buffer.
+     * @param to
+     *            the index after the last point.
+     */
+    public void add(long from, long to)
+    {
+        if (isAll || (from >= to))
+            return;
+
+        Map.Entry<Long, Long> prev = ranges.floorEntry(from);
+        if ((prev != null) && (prev.getValue() >= from)) {
+            if (prev.getValue() >= to)
+                return;
+
+            from = prev.getKey();
+            ranges.remove(from);
+            pointCount -= prev.getValue() - from;
+        }
+
+        Map.Entry<Long, Long> next = ranges.ceilingEntry(from);
+        while ((next != null) && (next.getKey() <= to)) {
+            to = Math.max(to, next.getValue());
+            ranges.remove(next.getKey());
+            pointCount -= next.getValue() - next.getKey();
+            next = ranges.ceilingEntry(from);
+        }
+
+        ranges.put(from, to);
+        pointCount += to - from;
+    }
+
+    /**
+     * Marks the whole selection as changed, e.g. after the data buffer has been replaced.
+     */
+    public void addAll()
+    {
+        ranges.clear();
+        pointCount = 0;
+        isAll      = true;
+    }
+
+    /**
+     * Returns true if the whole selection has been marked as changed with {@link #addAll()}.
+     *
+     * @return true if the whole selection has changed.
+     */
+    public boolean isAll() { return isAll; }
+
+    /**
+     * Returns true if no data point has been marked as changed.
+     *
+     * @return true if nothing has changed.
+     */
+    public boolean isEmpty() { return !isAll && ranges.isEmpty(); }
+
+    /**
+     * Forgets all changes, e.g. after the data has been written to file.
+     */
+    public void clear()
+    {
+        ranges.clear();
+        pointCount = 0;
+        isAll      = false;
+    }
+
+    /**
+     * Returns the number of changed points, not counting {@link #addAll()}.
+     *
+     * @return the number of changed points.
+     */
+    public long getPointCount() { return pointCount; }
+
+    /**
+     * Returns the changed ranges in increasing order, as {from, to} pairs of point indices.
+     *
+     * @return the changed ranges.
+     */
+    public List<long[]> getRanges()
+    {
+        List<long[]> list = new ArrayList<>(ranges.size());
+        for (Map.Entry<Long, Long> range : ranges.entrySet())
+            list.add(new long[] {range.getKey(), range.getValue()});
+
+        return list;
+    }
+
+    /**
+     * Splits the changed ranges into hyperslabs of a selection.
+     *
+     * Every range of consecutive points is split into at most 2 * rank - 1 blocks: the end of the first
+     * partial row, the full rows in between and the start of the last partial row, recursively for the
+     * lower dimensions. Consecutive blocks that line up along one dimension are merged, so a changed column
+     * or rectangle gives a single hyperslab.
+     *
+     * The hyperslabs are returned in row-major order of their points, which is the order of the points in
+     * the changed ranges.
+     *
+     * @param selectedDims
+     *            the dimension sizes of the selection.
+     * @param maxCount
+     *            the largest number of hyperslabs to return.
+     *
+     * @return the hyperslabs as {start, count} pairs relative to the selection, or null if there are more
+     *         than maxCount of them.
+     */
+    public List<long[][]> getHyperslabs(long[] selectedDims, int maxCount)
+    {
+        int rank = selectedDims.length;
+
+        long[] strides = new long[rank];
+        long size      = 1;
+        for (int i = rank - 1; i >= 0; i--) {
+            strides[i] = size;
+            size *= selectedDims[i];
+        }
+
+        List<long[][]> slabs = new ArrayList<>();
+        for (Map.Entry<Long, Long> range : ranges.entrySet()) {
+            long[] start = new long[rank];
+            split(range.getKey(), range.getValue(), 0, start, selectedDims, strides, slabs);
+            if (slabs.size() > maxCount)
+                return null;
+        }
+
+        return slabs;
+    }
+
+    /**
+     * Adds the blocks of the points [from, to) within one block of dimension dim, whose position in the
+     * higher dimensions is given by start.
+     */
+    private static void split(long from, long to, int dim, long[] start, long[] dims, long[] strides,
+                              List<long[][]> slabs)
+    {
+        if (from >= to)
+            return;
+
+        int rank = dims.length;
+        if (dim == rank - 1) {
+            long[] slabStart = start.clone();
+            long[] slabCount = new long[rank];
+            for (int i = 0; i < rank; i++)
+                slabCount[i] = 1;
+            slabStart[dim] = from;
+            slabCount[dim] = to - from;
+            append(slabs, slabStart, slabCount);
+            return;
+        }
+
+        long inner    = strides[dim];
+        long firstRow = from / inner;
+        long lastRow  = to / inner;
+        long firstOff = from % inner;
+        long lastOff  = to % inner;
+
+        if (firstRow == lastRow) {
+            start[dim] = firstRow;
+            split(firstOff, lastOff, dim + 1, start, dims, strides, slabs);
+            return;
+        }
+
+        if (firstOff > 0) {
+            start[dim] = firstRow;
+            split(firstOff, inner, dim + 1, start, dims, strides, slabs);
+            firstRow++;
+        }
+
+        if (lastRow > firstRow) {
+            long[] slabStart = start.clone();
+            long[] slabCount = new long[rank];
+            for (int i = 0; i < rank; i++) {
+                if (i > dim) {
+                    slabStart[i] = 0;
+                    slabCount[i] = dims[i];
+                }
+                else
+                    slabCount[i] = 1;
+            }
+            slabStart[dim] = firstRow;
+            slabCount[dim] = lastRow - firstRow;
+            append(slabs, slabStart, slabCount);
+        }
+
+        if (lastOff > 0) {
+            start[dim] = lastRow;
+            split(0, lastOff, dim + 1, start, dims, strides, slabs);
+        }
+    }
+
+    /**
+     * Appends a block, merging it into the previous block if the two only differ in one dimension, where
+     * the new block follows the previous one.
+     */
+    private static void append(List<long[][]> slabs, long[] start, long[] count)
+    {
+        if (!slabs.isEmpty()) {
+            long[][] last = slabs.get(slabs.size() - 1);
+            int mergeDim  = -1;
+            for (int i = 0; i < start.length; i++) {
+                if ((last[0][i] == start[i]) && (last[1][i] == count[i]))
+                    continue;
+
+                if ((mergeDim >= 0) || (last[0][i] + last[1][i] != start[i])) {
+                    mergeDim = -2;
+                    break;
+                }
+                mergeDim = i;
+            }
+
+            if (mergeDim >= 0) {
+                last[1][mergeDim] += count[mergeDim];
+                return;
+            }
+        }
+
+        slabs.add(new long[][] {start, count});
+    }
+}
@@ -16,10 +16,14 @@ package hdf.object;
 
 import java.io.File;
 import java.util.Enumeration;
+import java.util.HashMap;
 import java.util.Hashtable;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.SortedMap;
 import java.util.StringTokenizer;
+import java.util.TreeMap;
 import java.util.Vector;
 
 import org.slf4j.Logger;
@@ -192,6 +196,27 @@ public abstract class FileFormat extends File {
      */
     private int start_members = 0; // 0 by default
 
+    /**
+     * Flag indicating if the members of a group are loaded into memory only
+     * when the group is first accessed, instead of loading the full file
+     * hierarchy when the file is opened.
+     */
+    private boolean load_on_demand = false; // load the full hierarchy by default
+
+    /**
+     * The objects of the file structure tree in memory by full path and by
+     * object ID, so that findObject() does not have to search the whole tree.
+     * The paths are sorted, so the objects below a group are one range.
+     */
+    private final TreeMap<String, HObject> pathIndex = new TreeMap<>();
+    private final Map<String, HObject> oidIndex      = new HashMap<>();
+
+    /**
+     * The root object the object index was built for. The index is discarded
+     * when the root object changes, e.g. when the file is closed or reopened.
+     */
+    private HObject indexRoot = null;
+
     /**
      * File identifier. -1 indicates the file is not open.
      */
@@ -884,6 +909,39 @@ public abstract class FileFormat extends File {
      */
     public final int getStartMembers() { return start_members; }
 
+    /**
+     * Sets whether group members are loaded into memory on demand.
+     *
+     * By default, the whole file structure is loaded into memory when the file
+     * is opened. For files with a very large number of objects this can take a
+     * long time and use a lot of memory. When loading on demand, only the root
+     * object is created at open time and the members of each group are read
+     * the first time the group's member list is requested, for example when a
+     * group is expanded in a tree view.
+     *
+     * Methods that traverse the whole file, such as
+     * Group.breadthFirstMemberList(), still work but will load every group they
+     * visit. The implementing FileFormat class may ignore this flag if it has
+     * no support for loading the file structure incrementally.
+     *
+     * This flag must be set before the file is opened.
+     *
+     * @param onDemand
+     *            true to load group members on demand; false to load the full
+     *            file hierarchy when the file is opened.
+     * @see #isLoadOnDemand()
+     */
+    public final void setLoadOnDemand(boolean onDemand) { load_on_demand = onDemand; }
+
+    /**
+     * Returns true if group members are loaded into memory on demand.
+     *
+     * @return true if group members are loaded on demand; false if the full
+     *         file hierarchy is loaded when the file is opened.
+     * @see #setLoadOnDemand(boolean)
+     */
+    public final boolean isLoadOnDemand() { return load_on_demand; }
+
     /**
      * Returns the number of objects in memory.
      *
@@ -1781,24 +1839,205 @@ public abstract class FileFormat extends File {
             return null;
         }
 
-        HObject theObj = null;
-
         HObject theRoot = file.getRootObject();
         if (theRoot == null) {
             log.debug("findObject(): rootObject is null");
             return null;
         }
 
-        Iterator<HObject> member_it = ((Group)theRoot).breadthFirstMemberList().iterator();
-        while (member_it.hasNext()) {
-            theObj = member_it.next();
-            if (theObj.equalsOID(oid))
-                break;
+        HObject theObj = file.getIndexedObject(oid);
+        if (theObj == null) {
+            Iterator<HObject> member_it = ((Group)theRoot).breadthFirstMemberList().iterator();
+            while (member_it.hasNext()) {
+                HObject member = member_it.next();
+                if (member.equalsOID(oid)) {
+                    theObj = member;
+                    file.addToObjectIndex(theObj);
+                    break;
+                }
+            }
+        }
+
+        if (theObj == null)
+            return null;
+
+        return file.resolveObject(theObj);
+    }
+
+    /**
+     * Adds an object of the file structure tree to the index searched by
+     * findObject(). An object already indexed with the same full path or
+     * object ID is replaced.
+     *
+     * @param obj
+     *            the object to add to the index
+     */
+    final void addToObjectIndex(HObject obj)
+    {
+        if ((obj == null) || (obj.getFullName() == null))
+            return;
+
+        synchronized (pathIndex) {
+            checkObjectIndex();
+
+            pathIndex.put(obj.getFullName(), obj);
+
+            String oidKey = getOIDKey(obj.oid);
+            if (oidKey != null)
+                oidIndex.put(oidKey, obj);
+        }
+    }
+
+    /**
+     * Removes an object from the index searched by findObject(). When the
+     * object is a group, all the objects below the group are removed as well.
+     *
+     * @param obj
+     *            the object to remove from the index
+     */
+    final void removeFromObjectIndex(HObject obj)
+    {
+        if ((obj == null) || (obj.getFullName() == null))
+            return;
+
+        synchronized (pathIndex) {
+            checkObjectIndex();
+
+            pathIndex.remove(obj.getFullName(), obj);
+
+            String oidKey = getOIDKey(obj.oid);
+            if (oidKey != null)
+                oidIndex.remove(oidKey, obj);
+
+            if (obj instanceof Group) {
+                SortedMap<String, HObject> below = getIndexedMembers(obj.getFullName());
+                for (HObject member : below.values()) {
+                    String memberKey = getOIDKey(member.oid);
+                    if (memberKey != null)
+                        oidIndex.remove(memberKey, member);
+                }
+                below.clear();
+            }
+        }
+    }
+
+    /**
+     * Moves an object to its new full name in the index searched by
+     * findObject(), after it or a group above it has been renamed. The
+     * members of a renamed group are moved as their own paths are updated.
+     *
+     * @param obj
+     *            the renamed object
+     * @param oldFullName
+     *            the full name of the object before the rename
+     */
+    final void renameInObjectIndex(HObject obj, String oldFullName)
+    {
+        synchronized (pathIndex) {
+            checkObjectIndex();
+
+            if (pathIndex.remove(oldFullName, obj))
+                pathIndex.put(obj.getFullName(), obj);
+        }
+    }
+
+    /**
+     * Returns the range of the path index that holds the objects below a
+     * group, i.e. the paths that start with the group path and a separator.
+     */
+    private SortedMap<String, HObject> getIndexedMembers(String groupPath)
+    {
+        String prefix = groupPath;
+        if (!prefix.endsWith(HObject.SEPARATOR))
+            prefix += HObject.SEPARATOR;
+
+        // the first string after all the strings that start with the prefix
+        String end = prefix.substring(0, prefix.length() - 1) + (char)(HObject.SEPARATOR.charAt(0) + 1);
+
+        return pathIndex.subMap(prefix, end);
+    }
+
+    /**
+     * Returns the indexed object with the given full path, or null if the
+     * path is not in the index.
+     */
+    private HObject getIndexedObject(String fullName)
+    {
+        synchronized (pathIndex) {
+            checkObjectIndex();
+
+            HObject obj = pathIndex.get(fullName);
+            if ((obj != null) && !fullName.equals(obj.getFullName())) {
+                pathIndex.remove(fullName);
+                obj = null;
+            }
+
+            return obj;
+        }
+    }
+
+    /**
+     * Returns the indexed object with the given object ID, or null if the
+     * object ID is not in the index.
+     */
+    private HObject getIndexedObject(long[] oid)
+    {
+        String oidKey = getOIDKey(oid);
+        if (oidKey == null)
+            return null;
+
+        synchronized (pathIndex) {
+            checkObjectIndex();
+
+            HObject obj = oidIndex.get(oidKey);
+            if ((obj != null) && !obj.equalsOID(oid))
+                obj = null;
+
+            return obj;
         }
+    }
 
-        return theObj;
+    /**
+     * Discards the object index if it was built for another root object.
+     */
+    private void checkObjectIndex()
+    {
+        HObject theRoot = getRootObject();
+        if (indexRoot != theRoot) {
+            pathIndex.clear();
+            oidIndex.clear();
+            indexRoot = theRoot;
+        }
+    }
+
+    /**
+     * Returns the key of an object ID in the object index. Object IDs are
+     * compared by their common leading values, see
+     * {@link HObject#equalsOID(long[])}, so only the first two values are used.
+     */
+    private static String getOIDKey(long[] oid)
+    {
+        if ((oid == null) || (oid.length == 0))
+            return null;
+        else if (oid.length == 1)
+            return String.valueOf(oid[0]);
+        else
+            return oid[0] + ":" + oid[1];
     }
 
+    /**
+     * Returns the object to hand out for an object found in the file structure
+     * tree. File formats that keep placeholders in the tree, e.g. for objects
+     * that are loaded on demand, return the fully loaded object. The default
+     * implementation returns the given object.
+     *
+     * @param obj
+     *            the object found in the file structure tree
+     *
+     * @return the object to return from findObject()
+     */
+    protected HObject resolveObject(HObject obj) { return obj; }
+
     /**
      * Finds an object by the full path of the object (path+name)
      *
@@ -1832,8 +2071,36 @@ public abstract class FileFormat extends File {
             return theRoot;
         }
 
+        HObject theObj = file.getIndexedObject(path.substring(0, path.length() - 1));
+        if (theObj != null)
+            return file.resolveObject(theObj);
+
+        if (file.isLoadOnDemand()) {
+            // follow the path one group at a time so that only the groups
+            // along the path are loaded
+            theObj                = theRoot;
+            StringTokenizer names = new StringTokenizer(path, HObject.SEPARATOR);
+            while ((theObj != null) && names.hasMoreTokens()) {
+                if (!(theObj instanceof Group))
+                    return null;
+
+                String name           = names.nextToken();
+                Group theGroup        = (Group)theObj;
+                List<HObject> members = theGroup.getMemberList();
+                theObj                = null;
+                for (int i = 0; i < members.size(); i++) {
+                    if (name.equals(members.get(i).getName())) {
+                        // getMember() resolves members that are not fully loaded yet
+                        theObj = theGroup.getMember(i);
+                        break;
+                    }
+                }
+            }
+
+            return theObj;
+        }
+
         Iterator<HObject> member_it = ((Group)theRoot).breadthFirstMemberList().iterator();
-        HObject theObj              = null;
         while (member_it.hasNext()) {
             theObj          = member_it.next();
             String fullPath = theObj.getFullName() + "/";
@@ -1844,7 +2111,12 @@ public abstract class FileFormat extends File {
                 theObj = null;
         }
 
-        return theObj;
+        if (theObj == null)
+            return null;
+
+        file.addToObjectIndex(theObj);
+
+        return file.resolveObject(theObj);
     }
 
     // ////////////////////////////////////////////////////////////////////////////////////
@@ -14,10 +14,13 @@
 
 package hdf.object;
 
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Queue;
+import java.util.Set;
 import java.util.Stack;
 import java.util.Vector;
 
@@ -40,6 +43,12 @@ public abstract class Group extends HObject implements MetaDataContainer {
      */
     private List<HObject> memberList;
 
+    /**
+     * The members of this group in memory, for fast membership checks. Members
+     * are compared by identity, as in {@link HObject#equals(Object)}.
+     */
+    private transient Set<HObject> memberSet;
+
     /**
      * The parent group where this group is located. The parent of the root
      * group is null.
@@ -122,6 +131,7 @@ public abstract class Group extends HObject implements MetaDataContainer {
     {
         if (memberList != null)
             ((Vector<HObject>)memberList).setSize(0);
+        memberSet = null;
     }
 
     /**
@@ -137,8 +147,13 @@ public abstract class Group extends HObject implements MetaDataContainer {
             memberList = new Vector<>(size + 5);
         }
 
-        if ((object != null) && !memberList.contains(object))
+        if ((object != null) && getMemberSet().add(object)) {
             memberList.add(object);
+
+            FileFormat theFile = getFileFormat();
+            if ((theFile != null) && isInFileTree())
+                theFile.addToObjectIndex(object);
+        }
     }
 
     /**
@@ -150,8 +165,41 @@ public abstract class Group extends HObject implements MetaDataContainer {
      */
     public void removeFromMemberList(HObject object)
     {
-        if (memberList != null)
+        if ((memberList != null) && getMemberSet().remove(object)) {
             memberList.remove(object);
+
+            FileFormat theFile = getFileFormat();
+            if (theFile != null)
+                theFile.removeFromObjectIndex(object);
+        }
+    }
+
+    /**
+     * Returns the set of members of this group, creating it from the member
+     * list if the list has been changed without the set.
+     */
+    private Set<HObject> getMemberSet()
+    {
+        if ((memberSet == null) || (memberSet.size() != memberList.size())) {
+            memberSet = Collections.newSetFromMap(new IdentityHashMap<>(memberList.size()));
+            memberSet.addAll(memberList);
+        }
+
+        return memberSet;
+    }
+
+    /**
+     * Checks if this group is reachable from the root object of its file.
+     * Groups created outside of the structure tree, e.g. as temporary parents,
+     * are not.
+     */
+    private boolean isInFileTree()
+    {
+        Group g = this;
+        while (g.getParent() != null)
+            g = g.getParent();
+
+        return g == getFileFormat().getRootObject();
     }
 
     /**
@@ -180,8 +228,10 @@ public abstract class Group extends HObject implements MetaDataContainer {
                 }
             }
 
+            // searching the tree would load every group of a file that loads
+            // its members on demand
             HObject root = theFile.getRootObject();
-            if (root == null)
+            if ((root == null) || theFile.isLoadOnDemand())
                 return memberList;
 
             Iterator<HObject> it = ((Group)root).depthFirstMemberList().iterator();
@@ -196,6 +246,7 @@ public abstract class Group extends HObject implements MetaDataContainer {
                         if ((this.isRoot() && g.isRoot()) ||
                             (this.getPath().equals(g.getPath()) && g.getName().endsWith(this.getName()))) {
                             memberList = g.getMemberList();
+                            memberSet  = null;
                             break;
                         }
                     }
@@ -337,4 +388,27 @@ public abstract class Group extends HObject implements MetaDataContainer {
 
         return memberList.get(idx);
     }
+
+    /**
+     * Replaces the HObject at the specified index in this Group's member list.
+     *
+     * @param idx The index of the HObject to replace.
+     * @param object The HObject to store at the specified index.
+     */
+    protected void setMember(int idx, HObject object)
+    {
+        if ((memberList != null) && (idx >= 0) && (idx < memberList.size())) {
+            Set<HObject> members = getMemberSet();
+            HObject oldObject    = memberList.set(idx, object);
+            members.remove(oldObject);
+            members.add(object);
+
+            FileFormat theFile = getFileFormat();
+            if (theFile != null) {
+                theFile.removeFromObjectIndex(oldObject);
+                if (isInFileTree())
+                    theFile.addToObjectIndex(object);
+            }
+        }
+    }
 }
@@ -290,6 +290,7 @@ public abstract class HObject implements Serializable {
                                                HObject.SEPARATOR);
 
         name = newName;
+        updateFullName();
     }
 
     /**
@@ -311,6 +312,20 @@ public abstract class HObject implements Serializable {
             newPath = "/";
 
         path = newPath;
+        updateFullName();
+    }
+
+    /**
+     * Rebuilds the full name after the name or the path of the object has changed, and moves the object to
+     * its new full name in the object index of its file.
+     */
+    private void updateFullName()
+    {
+        String oldFullName = fullName;
+        fullName           = createFullname(path, name);
+
+        if ((fileFormat != null) && (oldFullName != null) && !oldFullName.equals(fullName))
+            fileFormat.renameInObjectIndex(this, oldFullName);
     }
 
     /**
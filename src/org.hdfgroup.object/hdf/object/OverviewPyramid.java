@@ -0,0 +1,595 @@
+/*****************************************************************************
+ * Copyright by The HDF Group.                                               *
+ * Copyright by the Board of Trustees of the University of Illinois.         *
+ * All rights reserved.                                                      *
+ *                                                                           *
+ * This file is part of the HDF Java Products distribution.                  *
+ * The full copyright notice, including terms governing use, modification,   *
+ * and redistribution, is contained in the COPYING file, which can be found  *
+ * at the root of the source code distribution tree,                         *
+ * or in https://www.hdfgroup.org/licenses.                                  *
+ * If you do not have access to either file, you may request a copy from     *
+ * help@hdfgroup.org.                                                        *
+ ****************************************************************************/
+
+package hdf.object;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A multi-resolution overview of one image plane of a numeric dataset.
+ *
+ * The plane is the one displayed for the current selection: its height and width are the dimensions given
+ * by selectedIndex[0] and selectedIndex[1], and all other dimensions are fixed at their start position.
+ * Level 0 of the pyramid is the plane downsampled by the smallest power of two that brings it under a given
+ * number of pixels, and every further level halves the previous one until it is no larger than
+ * {@link #MIN_LEVEL_SIZE} in both directions. A pixel of a level is the mean of the plane values it covers;
+ * fill values, NaN and infinite values are left out of the mean.
+ *
+ * The pyramid is built by streaming the plane once, in bands of rows read on the calling thread and reduced
+ * in parallel. The values of a level have the Java type and memory order that {@link Dataset#read()}
+ * returns for a selection of the plane with a stride of {@link #getScale(int)} in both directions; see
+ * {@link #getSelection(int, long[], long[], long[])}. The values are means, not values of the dataset, so
+ * a view shows them as an image only and reads the values it shows or exports with
+ * {@link #readRegion(long, long, long, long)}.
+ */
+public class OverviewPyramid {
+    private static final Logger log = LoggerFactory.getLogger(OverviewPyramid.class);
+
+    /** The size below which no further level is built. */
+    public static final int MIN_LEVEL_SIZE = 256;
+
+    /** The default maximum number of pixels of level 0. */
+    public static final long DEFAULT_MAX_PIXELS = 4096L * 4096;
+
+    private final ScalarDS dataset;
+
+    private final long maxPixels;
+
+    /** the dimension of the plane height and width, from the selected index */
+    private final int rowDim;
+    private final int colDim;
+
+    /** the start of the plane in the other dimensions */
+    private final long[] planeStart;
+
+    /** the downsampling factor of level 0 */
+    private long baseScale;
+
+    /** the values of each level, in the Java type of the dataset */
+    private final List<Object> levels = new ArrayList<>();
+
+    /** the width and height of each level */
+    private final List<int[]> levelSizes = new ArrayList<>();
+
+    /** the dataset object the plane is read through, a duplicate of the dataset if it can be duplicated */
+    private Dataset reader;
+
+    private DatasetStatistics.ProgressListener listener;
+
+    private volatile boolean isCancelled;
+
+    /** the number of rows of the plane reduced so far */
+    private volatile long rowsDone;
+
+    /** the number of rows of the plane */
+    private volatile long totalRows;
+
+    /**
+     * Creates the overview of the plane displayed for the current selection of a dataset.
+     *
+     * @param dataset
+     *            the numeric dataset.
+     * @param maxPixels
+     *            the maximum number of pixels of level 0.
+     */
+    public OverviewPyramid(ScalarDS dataset, long maxPixels)
+    {
+        this.dataset    = dataset;
+        this.maxPixels  = Math.max(MIN_LEVEL_SIZE * MIN_LEVEL_SIZE, maxPixels);
+        int[] index     = dataset.getSelectedIndex();
+        this.rowDim     = index[0];
+        this.colDim     = (dataset.getRank() > 1) ? index[1] : index[0];
+        this.planeStart = dataset.getStartDims().clone();
+    }
+
+    /**
+     * Returns true if an overview can be built for the current selection of a dataset, i.e. the dataset is
+     * a numeric image of two or more dimensions that is not a true color image.
+     *
+     * @param dataset
+     *            the dataset.
+     *
+     * @return true if the overview is supported.
+     */
+    public static boolean isSupported(ScalarDS dataset)
+    {
+        if ((dataset == null) || (dataset.getRank() < 2) || dataset.isTrueColor())
+            return false;
+
+        Datatype dtype = dataset.getDatatype();
+        return (dtype != null) && (dtype.isInteger() || dtype.isFloat()) && (dtype.getDatatypeSize() <= 8);
+    }
+
+    /**
+     * Sets the listener notified after every band of rows that has been reduced.
+     *
+     * @param listener
+     *            the listener, or null.
+     */
+    public void setProgressListener(DatasetStatistics.ProgressListener listener) { this.listener = listener; }
+
+    /**
+     * Asks a running build to stop; {@link #build()} then returns false.
+     */
+    public void cancel() { isCancelled = true; }
+
+    /**
+     * Returns the fraction of the plane reduced by the running or last build.
+     *
+     * @return the progress between 0 and 1.
+     */
+    public double getProgress()
+    {
+        long total = totalRows;
+        return (total <= 0) ? 0 : Math.min(1.0, (double)rowsDone / total);
+    }
+
+    /**
+     * Streams the plane once and builds all levels.
+     *
+     * @return true if the pyramid has been built, false if the build was cancelled.
+     *
+     * @throws Exception
+     *             if the dataset is not supported or the data can not be read.
+     */
+    public boolean build() throws Exception
+    {
+        if (!isSupported(dataset))
+            throw new UnsupportedOperationException("overview is only available for numeric images");
+
+        long[] dims   = dataset.getDims();
+        long height   = dims[rowDim];
+        long width    = dims[colDim];
+        boolean isRow = (rowDim < colDim);
+
+        baseScale = 1;
+        while (((height + baseScale - 1) / baseScale) * ((width + baseScale - 1) / baseScale) > maxPixels)
+            baseScale *= 2;
+
+        final int lw           = (int)((width + baseScale - 1) / baseScale);
+        final int lh           = (int)((height + baseScale - 1) / baseScale);
+        final double[] sum     = new double[lw * lh];
+        final int[] cellCount  = new int[lw * lh];
+        final long scale       = baseScale;
+        final boolean rowMajor = isRow;
+        final int cols         = (int)width;
+        final boolean unsigned = dataset.getDatatype().isUnsigned();
+        final Number fill      = getFill(dataset.getFillValue());
+
+        // read bands of whole rows, a multiple of the scale high and about BLOCK_SIZE_BYTES in size
+        long typeSize = Math.max(1, dataset.getDatatype().getDatatypeSize());
+        long bandRows = (Dataset.BLOCK_SIZE_BYTES / (width * typeSize)) / baseScale * baseScale;
+        bandRows      = Math.max(baseScale, bandRows);
+        if ((dataset.chunkSize != null) && (dataset.chunkSize[rowDim] > bandRows))
+            bandRows = ((dataset.chunkSize[rowDim] + baseScale - 1) / baseScale) * baseScale;
+        while ((bandRows > baseScale) && (bandRows * width > Integer.MAX_VALUE))
+            bandRows -= baseScale;
+        if (bandRows * width > Integer.MAX_VALUE)
+            throw new UnsupportedOperationException("image rows are too wide for an overview");
+
+        final long planeHeight = height;
+        Object sample          = null;
+        rowsDone               = 0;
+        totalRows              = height;
+
+        BoundedTaskQueue<Long> pending = new BoundedTaskQueue<Long>(BoundedTaskQueue.getDefaultMaxPending()) {
+            @Override
+            protected void completed(Long rows)
+            {
+                rowsDone += rows;
+                if (listener != null)
+                    listener.progressChanged(rowsDone, planeHeight);
+            }
+        };
+
+        try {
+            for (long row = 0; (row < height) && !isCancelled; row += bandRows) {
+                long[] start = planeStart.clone();
+                long[] count = new long[start.length];
+                Arrays.fill(count, 1);
+                start[rowDim] = row;
+                start[colDim] = 0;
+                count[rowDim] = Math.min(bandRows, height - row);
+                count[colDim] = width;
+
+                final Object band = getReader().readBlock(start, count, null);
+                final long row0   = row;
+                final int rows    = (int)count[rowDim];
+                if (sample == null)
+                    sample = band;
+
+                pending.submit(new Callable<Long>() {
+                    @Override
+                    public Long call()
+                    {
+                        if (!isCancelled)
+                            reduceBand(band, row0, rows, cols, rowMajor, scale, lw, lh, unsigned, fill, sum,
+                                       cellCount);
+                        return (long)rows;
+                    }
+                });
+            }
+
+            pending.completeAll();
+        }
+        finally {
+            pending.cancelAll();
+        }
+
+        if (isCancelled || (sample == null))
+            return false;
+
+        // level 0 and every coarser level, from the means and counts of the previous one
+        levels.clear();
+        levelSizes.clear();
+        double[] mean = new double[sum.length];
+        for (int i = 0; i < sum.length; i++)
+            mean[i] = (cellCount[i] > 0) ? sum[i] / cellCount[i] : Double.NaN;
+
+        int w     = lw;
+        int h     = lh;
+        int[] cnt = cellCount;
+        addLevel(sample, mean, w, h, fill);
+        while ((w > MIN_LEVEL_SIZE) || (h > MIN_LEVEL_SIZE)) {
+            int nw         = (w + 1) / 2;
+            int nh         = (h + 1) / 2;
+            double[] nmean = new double[nw * nh];
+            int[] ncnt     = new int[nw * nh];
+            for (int r = 0; r < h; r++) {
+                for (int c = 0; c < w; c++) {
+                    int src = isRow ? (r * w + c) : (c * h + r);
+                    if (cnt[src] == 0)
+                        continue;
+                    int dst = isRow ? ((r / 2) * nw + (c / 2)) : ((c / 2) * nh + (r / 2));
+                    nmean[dst] += mean[src] * cnt[src];
+                    ncnt[dst] += cnt[src];
+                }
+            }
+            for (int i = 0; i < nmean.length; i++)
+                nmean[i] = (ncnt[i] > 0) ? nmean[i] / ncnt[i] : Double.NaN;
+
+            w    = nw;
+            h    = nh;
+            mean = nmean;
+            cnt  = ncnt;
+            addLevel(sample, mean, w, h, fill);
+        }
+
+        log.trace("build(): {} {}x{} baseScale={} levels={}", dataset.getName(), width, height, baseScale,
+                  levels.size());
+
+        return true;
+    }
+
+    /**
+     * Returns the number of levels.
+     *
+     * @return the number of levels, 0 before the pyramid is built.
+     */
+    public int getLevelCount() { return levels.size(); }
+
+    /**
+     * Returns the downsampling factor of a level relative to the full resolution plane.
+     *
+     * @param level
+     *            the level.
+     *
+     * @return the scale of the level, a power of two.
+     */
+    public long getScale(int level) { return baseScale << level; }
+
+    /**
+     * Returns the width of a level.
+     *
+     * @param level
+     *            the level.
+     *
+     * @return the number of pixels in a row of the level.
+     */
+    public int getWidth(int level) { return levelSizes.get(level)[0]; }
+
+    /**
+     * Returns the height of a level.
+     *
+     * @param level
+     *            the level.
+     *
+     * @return the number of rows of the level.
+     */
+    public int getHeight(int level) { return levelSizes.get(level)[1]; }
+
+    /**
+     * Returns the values of a level.
+     *
+     * @param level
+     *            the level.
+     *
+     * @return the values, in the Java type of the dataset.
+     */
+    public Object getData(int level) { return levels.get(level); }
+
+    /**
+     * Reads a rectangle of the full resolution plane from the file, e.g. to show or export the actual values
+     * under the pixels of a level.
+     *
+     * @param row0
+     *            the first row of the rectangle.
+     * @param col0
+     *            the first column of the rectangle.
+     * @param rows
+     *            the number of rows.
+     * @param cols
+     *            the number of columns.
+     *
+     * @return the values, in the Java type and memory order that {@link Dataset#read()} returns for the
+     *         rectangle.
+     *
+     * @throws Exception
+     *             if the values can not be read.
+     */
+    public Object readRegion(long row0, long col0, long rows, long cols) throws Exception
+    {
+        if (rows * cols > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("region size exceeds the maximum Java array size");
+
+        long[] start = planeStart.clone();
+        long[] count = new long[start.length];
+        Arrays.fill(count, 1);
+        start[rowDim] = row0;
+        start[colDim] = col0;
+        count[rowDim] = rows;
+        count[colDim] = cols;
+
+        return getReader().readBlock(start, count, null);
+    }
+
+    /**
+     * Returns the coarsest level that still has at least one pixel per screen pixel when the full resolution
+     * plane is shown with a given zoom factor.
+     *
+     * @param zoom
+     *            the zoom factor relative to the full resolution plane.
+     *
+     * @return the level, or -1 if the zoom factor needs more detail than level 0 holds.
+     */
+    public int getLevelForZoom(double zoom)
+    {
+        if ((zoom <= 0) || levels.isEmpty())
+            return levels.isEmpty() ? -1 : 0;
+
+        int level = -1;
+        for (int i = 0; i < levels.size(); i++) {
+            if (getScale(i) * zoom <= 1.0)
+                level = i;
+        }
+
+        return level;
+    }
+
+    /**
+     * Fills in the selection of a dataset whose strided read covers the same pixels as a level.
+     *
+     * @param level
+     *            the level.
+     * @param start
+     *            the start of the selection, e.g. the array returned by {@link Dataset#getStartDims()}.
+     * @param selected
+     *            the size of the selection, e.g. the array returned by {@link Dataset#getSelectedDims()}.
+     * @param stride
+     *            the stride of the selection, e.g. the array returned by {@link Dataset#getStride()}.
+     */
+    public void getSelection(int level, long[] start, long[] selected, long[] stride)
+    {
+        System.arraycopy(planeStart, 0, start, 0, planeStart.length);
+        for (int i = 0; i < selected.length; i++) {
+            selected[i] = 1;
+            stride[i]   = 1;
+        }
+
+        start[rowDim]    = 0;
+        start[colDim]    = 0;
+        selected[rowDim] = getHeight(level);
+        selected[colDim] = getWidth(level);
+        stride[rowDim]   = getScale(level);
+        stride[colDim]   = getScale(level);
+    }
+
+    private Dataset getReader() throws Exception
+    {
+        if (reader == null) {
+            reader = dataset.duplicate();
+            if (reader == null)
+                reader = dataset;
+        }
+
+        return reader;
+    }
+
+    private static Number getFill(Object fillValue)
+    {
+        if ((fillValue == null) || !fillValue.getClass().isArray() || (Array.getLength(fillValue) == 0) ||
+            !(Array.get(fillValue, 0) instanceof Number))
+            return null;
+
+        return (Number)Array.get(fillValue, 0);
+    }
+
+    /**
+     * Adds the values of a band of rows to the sums and counts of level 0. Bands cover whole rows of level 0,
+     * so bands reduced in parallel never touch the same cell.
+     */
+    private static void reduceBand(Object band, long row0, int rows, int cols, boolean rowMajor, long scale,
+                                   int lw, int lh, boolean isUnsigned, Number fill, double[] sum, int[] count)
+    {
+        double[] values = new double[cols];
+        for (int r = 0; r < rows; r++) {
+            getRow(band, r, rows, cols, rowMajor, isUnsigned, fill, values);
+
+            int lr = (int)((row0 + r) / scale);
+            for (int c = 0; c < cols; c++) {
+                double v = values[c];
+                if (Double.isNaN(v))
+                    continue;
+
+                int lc   = (int)(c / scale);
+                int cell = rowMajor ? (lr * lw + lc) : (lc * lh + lr);
+                sum[cell] += v;
+                count[cell]++;
+            }
+        }
+    }
+
+    /**
+     * Converts one row of a band to double, with NaN for the values left out of the means.
+     */
+    private static void getRow(Object band, int r, int rows, int cols, boolean rowMajor, boolean isUnsigned,
+                               Number fill, double[] values)
+    {
+        boolean hasFill = (fill != null);
+        int idx         = rowMajor ? r * cols : r;
+        int step        = rowMajor ? 1 : rows;
+
+        if (band instanceof byte[]) {
+            byte[] b     = (byte[])band;
+            byte rawFill = hasFill ? fill.byteValue() : 0;
+            for (int c = 0; c < cols; c++, idx += step) {
+                if (hasFill && b[idx] == rawFill)
+                    values[c] = Double.NaN;
+                else
+                    values[c] = isUnsigned ? (b[idx] & 0xFF) : b[idx];
+            }
+        }
+        else if (band instanceof short[]) {
+            short[] s     = (short[])band;
+            short rawFill = hasFill ? fill.shortValue() : 0;
+            for (int c = 0; c < cols; c++, idx += step) {
+                if (hasFill && s[idx] == rawFill)
+                    values[c] = Double.NaN;
+                else
+                    values[c] = isUnsigned ? (s[idx] & 0xFFFF) : s[idx];
+            }
+        }
+        else if (band instanceof int[]) {
+            int[] ia    = (int[])band;
+            int rawFill = hasFill ? fill.intValue() : 0;
+            for (int c = 0; c < cols; c++, idx += step) {
+                if (hasFill && ia[idx] == rawFill)
+                    values[c] = Double.NaN;
+                else
+                    values[c] = isUnsigned ? (ia[idx] & 0xFFFFFFFFL) : ia[idx];
+            }
+        }
+        else if (band instanceof long[]) {
+            long[] l     = (long[])band;
+            long rawFill = hasFill ? fill.longValue() : 0;
+            for (int c = 0; c < cols; c++, idx += step) {
+                if (hasFill && l[idx] == rawFill)
+                    values[c] = Double.NaN;
+                else if (isUnsigned && (l[idx] < 0))
+                    values[c] = (double)(l[idx] >>> 1) * 2.0 + (l[idx] & 1);
+                else
+                    values[c] = l[idx];
+            }
+        }
+        else if (band instanceof float[]) {
+            float[] f     = (float[])band;
+            float rawFill = hasFill ? fill.floatValue() : 0;
+            for (int c = 0; c < cols; c++, idx += step) {
+                float v   = f[idx];
+                values[c] = ((hasFill && v == rawFill) || Float.isInfinite(v)) ? Double.NaN : v;
+            }
+        }
+        else if (band instanceof double[]) {
+            double[] d     = (double[])band;
+            double rawFill = hasFill ? fill.doubleValue() : 0;
+            for (int c = 0; c < cols; c++, idx += step) {
+                double v  = d[idx];
+                values[c] = ((hasFill && v == rawFill) || Double.isInfinite(v)) ? Double.NaN : v;
+            }
+        }
+        else {
+            throw new UnsupportedOperationException("unsupported data buffer " + band.getClass().getName());
+        }
+    }
+
+    /**
+     * Converts the means of a level to the Java type of the dataset; cells without values get the fill
+     * value, or 0 for integers and NaN for floating-point numbers if there is no fill value.
+     */
+    private void addLevel(Object sample, double[] mean, int w, int h, Number fill)
+    {
+        int n         = mean.length;
+        double fillV  = (fill == null) ? 0 : fill.doubleValue();
+        boolean isInt = !(sample instanceof float[]) && !(sample instanceof double[]);
+        double[] v    = new double[n];
+        for (int i = 0; i < n; i++)
+            v[i] = (Double.isNaN(mean[i]) && ((fill != null) || isInt)) ? fillV : mean[i];
+
+        Object level;
+        if (sample instanceof byte[]) {
+            byte[] b = new byte[n];
+            for (int i = 0; i < n; i++)
+                b[i] = (byte)toLong(v[i]);
+            level = b;
+        }
+        else if (sample instanceof short[]) {
+            short[] s = new short[n];
+            for (int i = 0; i < n; i++)
+                s[i] = (short)toLong(v[i]);
+            level = s;
+        }
+        else if (sample instanceof int[]) {
+            int[] ia = new int[n];
+            for (int i = 0; i < n; i++)
+                ia[i] = (int)toLong(v[i]);
+            level = ia;
+        }
+        else if (sample instanceof long[]) {
+            long[] l = new long[n];
+            for (int i = 0; i < n; i++)
+                l[i] = toLong(v[i]);
+            level = l;
+        }
+        else if (sample instanceof float[]) {
+            float[] f = new float[n];
+            for (int i = 0; i < n; i++)
+                f[i] = (float)v[i];
+            level = f;
+        }
+        else {
+            level = v;
+        }
+
+        levels.add(level);
+        levelSizes.add(new int[] {w, h});
+    }
+
+    /**
+     * Rounds a mean to the nearest integer; unsigned values wrap to the signed type of the same size.
+     */
+    private static long toLong(double v)
+    {
+        if (v >= 0x1p63)
+            return Math.round(v - 0x1p64);
+
+        return Math.round(v);
+    }
+}
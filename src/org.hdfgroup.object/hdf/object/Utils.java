@@ -20,7 +20,8 @@ public final class Utils {
 
     /**
      * Retrieves the Java Runtime Class of the given Object. B = byte array, S = short array, I = int
-     * array, J = long array, F = float array, D = double array, L = class or interface
+     * array, J = long array, F = float array, D = double array, L = class or interface. A {@link DataBuffer}
+     * returns the type of the values it holds.
      *
      * @param o
      *            the Object to determine the Runtime Class of
@@ -31,6 +32,9 @@ public final class Utils {
         if (o == null)
             return ' ';
 
+        if (o instanceof DataBuffer)
+            return ((DataBuffer)o).getClassType();
+
         String cName = o.getClass().getName();
 
         if (cName.equals("java.lang.String") || cName.equals("java.util.Vector") ||
@@ -0,0 +1,461 @@
+/*****************************************************************************
+ * Copyright by The HDF Group.                                               *
+ * Copyright by the Board of Trustees of the University of Illinois.         *
+ * All rights reserved.                                                      *
+ *                                                                           *
+ * This file is part of the HDF Java Products distribution.                  *
+ * The full copyright notice, including terms governing use, modification,   *
+ * and redistribution, is contained in the COPYING file, which can be found  *
+ * at the root of the source code distribution tree,                         *
+ * or in https://www.hdfgroup.org/licenses.                                  *
+ * If you do not have access to either file, you may request a copy from     *
+ * help@hdfgroup.org.                                                        *
+ ****************************************************************************/
+
+package hdf.object.h5;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import hdf.object.BoundedTaskQueue;
+import hdf.object.DataBuffer;
+
+import hdf.hdf5lib.H5;
+import hdf.hdf5lib.HDF5Constants;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reads a chunked dataset by decompressing its chunks in parallel.
+ *
+ * The HDF5 library serializes all calls, so H5Dread decompresses one chunk at a time. For datasets whose
+ * filter pipeline only contains deflate, shuffle and fletcher32, an H5ChunkReader looks up the file address
+ * of every chunk in the selection, reads the raw compressed bytes on the calling thread and decodes them in
+ * the common fork-join pool straight into the destination array. Any other filter, a shuffle filter set up
+ * for another element size, or a chunk that has not been allocated yet or was stored with a filter skipped,
+ * makes the reader decline so that the caller falls back to H5Dread.
+ *
+ * Only selections with a stride of 1 are supported.
+ */
+final class H5ChunkReader {
+    private static final Logger log = LoggerFactory.getLogger(H5ChunkReader.class);
+
+    /** the number of raw chunks read ahead of the decoders, per worker thread */
+    private static final int CHUNKS_PER_WORKER = 4;
+
+    /** the size of the fletcher32 checksum at the end of a chunk */
+    private static final int FLETCHER_SIZE = 4;
+
+    /** the file that contains the dataset */
+    private final String fileName;
+
+    /** the dimension sizes of the dataset */
+    private final long[] dims;
+
+    /** the dimension sizes of a chunk */
+    private final long[] chunkDims;
+
+    /** the filters of the pipeline, in the order they are applied when writing */
+    private final int[] filters;
+
+    /** the type of the data points: 'B', 'S', 'I', 'J', 'F' or 'D' */
+    private final char classType;
+
+    /** the size of one data point in bytes */
+    private final int elementSize;
+
+    /** the byte order of the data points in the file */
+    private final ByteOrder order;
+
+    /** the size of a decoded chunk in bytes */
+    private final int chunkBytes;
+
+    private H5ChunkReader(String fileName, long[] dims, long[] chunkDims, int[] filters, char classType,
+                          ByteOrder order)
+    {
+        this.fileName    = fileName;
+        this.dims        = dims.clone();
+        this.chunkDims   = chunkDims;
+        this.filters     = filters;
+        this.classType   = classType;
+        this.elementSize = DataBuffer.getElementSize(classType);
+        this.order       = order;
+
+        long nbytes = elementSize;
+        for (int i = 0; i < chunkDims.length; i++)
+            nbytes *= chunkDims[i];
+        this.chunkBytes = (int)nbytes;
+    }
+
+    /**
+     * Creates a reader for a dataset, or returns null if the layout or the filter pipeline of the dataset
+     * can not be decoded in Java.
+     *
+     * @param did
+     *            the identifier of the open dataset.
+     * @param fileName
+     *            the name of the file that contains the dataset.
+     * @param dims
+     *            the dimension sizes of the dataset.
+     * @param classType
+     *            the type of the data points: 'B', 'S', 'I', 'J', 'F' or 'D'.
+     * @param order
+     *            the byte order of the data points in the file.
+     *
+     * @return the reader, or null.
+     */
+    static H5ChunkReader create(long did, String fileName, long[] dims, char classType, ByteOrder order)
+    {
+        long pcid = HDF5Constants.H5I_INVALID_HID;
+        try {
+            pcid = H5.H5Dget_create_plist(did);
+            if (H5.H5Pget_layout(pcid) != HDF5Constants.H5D_CHUNKED)
+                return null;
+
+            int nfilt = H5.H5Pget_nfilters(pcid);
+            if (nfilt <= 0)
+                return null;
+
+            int[] filters      = new int[nfilt];
+            boolean hasDeflate = false;
+            int[] flags        = {0, 0};
+            long[] cdNelmts    = {20};
+            int[] cdValues     = new int[(int)cdNelmts[0]];
+            String[] cdName    = {"", ""};
+            int[] filterConfig = {1};
+            for (int i = 0; i < nfilt; i++) {
+                cdNelmts[0] = 20;
+                filters[i]  = H5.H5Pget_filter(pcid, i, flags, cdNelmts, cdValues, 120, cdName, filterConfig);
+                if (filters[i] == HDF5Constants.H5Z_FILTER_DEFLATE)
+                    hasDeflate = true;
+                else if (filters[i] == HDF5Constants.H5Z_FILTER_SHUFFLE) {
+                    // the library records the element size it shuffles by as the first parameter
+                    if ((cdNelmts[0] > 0) && (cdValues[0] != DataBuffer.getElementSize(classType))) {
+                        log.trace("create(): shuffle by {} bytes is not supported", cdValues[0]);
+                        return null;
+                    }
+                }
+                else if (filters[i] != HDF5Constants.H5Z_FILTER_FLETCHER32) {
+                    log.trace("create(): filter {} is not supported", filters[i]);
+                    return null;
+                }
+            }
+
+            // without deflate there is nothing worth decoding in parallel
+            if (!hasDeflate)
+                return null;
+
+            long[] chunkDims = new long[dims.length];
+            H5.H5Pget_chunk(pcid, dims.length, chunkDims);
+
+            long nbytes = DataBuffer.getElementSize(classType);
+            for (int i = 0; i < chunkDims.length; i++)
+                nbytes *= chunkDims[i];
+            if (nbytes > Integer.MAX_VALUE - FLETCHER_SIZE)
+                return null;
+
+            return new H5ChunkReader(fileName, dims, chunkDims, filters, classType, order);
+        }
+        catch (Exception ex) {
+            log.debug("create(): chunk reader not available: ", ex);
+            return null;
+        }
+        finally {
+            try {
+                H5.H5Pclose(pcid);
+            }
+            catch (Exception ex) {
+                log.debug("create(): H5Pclose(pcid {}) failure: ", pcid, ex);
+            }
+        }
+    }
+
+    /**
+     * Reads a hyperslab of the dataset into a Java array.
+     *
+     * @param did
+     *            the identifier of the open dataset.
+     * @param start
+     *            the start position of the hyperslab.
+     * @param count
+     *            the size of the hyperslab in each dimension.
+     * @param dest
+     *            the array that receives the values, e.g. an int[] for an 'I' dataset.
+     *
+     * @return false if a chunk of the hyperslab is not allocated or skipped a filter, and nothing could be
+     *         read.
+     *
+     * @throws Exception
+     *             if a chunk can not be read or decoded
+     */
+    boolean read(long did, long[] start, long[] count, Object dest) throws Exception
+    {
+        int rank     = dims.length;
+        long[] first = new long[rank];
+        long[] last  = new long[rank];
+        for (int i = 0; i < rank; i++) {
+            first[i] = start[i] / chunkDims[i];
+            last[i]  = (start[i] + count[i] - 1) / chunkDims[i];
+        }
+
+        // look up every chunk before reading anything, so that an undecodable chunk is detected up front
+        int nchunks = 1;
+        for (int i = 0; i < rank; i++)
+            nchunks *= (int)(last[i] - first[i] + 1);
+
+        long[][] offsets = new long[nchunks][];
+        long[] addrs     = new long[nchunks];
+        int[] sizes      = new int[nchunks];
+
+        long[] coord = first.clone();
+        for (int n = 0; n < nchunks; n++) {
+            long[] offset = new long[rank];
+            for (int i = 0; i < rank; i++)
+                offset[i] = coord[i] * chunkDims[i];
+
+            int[] mask  = {0};
+            long[] addr = {0};
+            long[] size = {0};
+            H5.H5Dget_chunk_info_by_coord(did, offset, mask, addr, size);
+            if ((addr[0] < 0) || (size[0] <= 0)) {
+                log.trace("read(): chunk at {} is not allocated", offset);
+                return false;
+            }
+            if (mask[0] != 0) {
+                log.trace("read(): chunk at {} skipped filters {}", offset, mask[0]);
+                return false;
+            }
+
+            offsets[n] = offset;
+            addrs[n]   = addr[0];
+            sizes[n]   = (int)size[0];
+
+            for (int i = rank - 1; i >= 0; i--) {
+                if (++coord[i] <= last[i])
+                    break;
+                coord[i] = first[i];
+            }
+        }
+
+        // bound the memory held by raw chunks waiting to be decoded
+        int maxPending               = CHUNKS_PER_WORKER * ForkJoinPool.commonPool().getParallelism();
+        BoundedTaskQueue<Void> queue = new BoundedTaskQueue<Void>(maxPending) {
+            @Override
+            protected void completed(Void result)
+            {
+                // the chunk has been copied into the destination by the task
+            }
+        };
+
+        try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)) {
+            for (int n = 0; n < nchunks; n++) {
+                final byte[] raw    = new byte[sizes[n]];
+                final long[] offset = offsets[n];
+                readFully(channel, raw, addrs[n]);
+
+                queue.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception
+                    {
+                        byte[] chunk = decode(raw);
+                        copyChunk(chunk, offset, start, count, dest);
+                        return null;
+                    }
+                });
+            }
+
+            queue.completeAll();
+        }
+        finally {
+            queue.cancelAll();
+        }
+
+        log.trace("read(): decoded {} chunks", nchunks);
+
+        return true;
+    }
+
+    private static void readFully(FileChannel channel, byte[] raw, long position) throws IOException
+    {
+        ByteBuffer buf = ByteBuffer.wrap(raw);
+        while (buf.hasRemaining()) {
+            int n = channel.read(buf, position + buf.position());
+            if (n < 0)
+                throw new IOException("unexpected end of file at " + (position + buf.position()));
+        }
+    }
+
+    /**
+     * Undoes the filter pipeline of one chunk, applying the filters in reverse order.
+     */
+    private byte[] decode(byte[] raw) throws Exception
+    {
+        byte[] data = raw;
+        int length  = raw.length;
+        for (int i = filters.length - 1; i >= 0; i--) {
+            if (filters[i] == HDF5Constants.H5Z_FILTER_DEFLATE) {
+                byte[] out        = new byte[chunkBytes];
+                Inflater inflater = new Inflater();
+                try {
+                    inflater.setInput(data, 0, length);
+                    int n = 0;
+                    while ((n < out.length) && !inflater.finished()) {
+                        int k = inflater.inflate(out, n, out.length - n);
+                        if ((k == 0) && (inflater.needsInput() || inflater.needsDictionary()))
+                            break;
+                        n += k;
+                    }
+                    length = n;
+                }
+                catch (DataFormatException ex) {
+                    throw new Exception("corrupt deflate chunk: " + ex.getMessage(), ex);
+                }
+                finally {
+                    inflater.end();
+                }
+                data = out;
+            }
+            else if (filters[i] == HDF5Constants.H5Z_FILTER_SHUFFLE) {
+                data = unshuffle(data, length);
+            }
+            else if (filters[i] == HDF5Constants.H5Z_FILTER_FLETCHER32) {
+                length -= FLETCHER_SIZE;
+                checkFletcher32(data, length);
+            }
+        }
+
+        if (length != chunkBytes)
+            throw new Exception("decoded chunk has " + length + " bytes instead of " + chunkBytes);
+
+        return data;
+    }
+
+    /**
+     * Reverses the byte shuffle: the shuffled chunk holds the first byte of every element, then the second
+     * byte of every element, and so on. Trailing bytes that do not make a whole element are not shuffled.
+     */
+    private byte[] unshuffle(byte[] data, int length)
+    {
+        if (elementSize == 1)
+            return data;
+
+        byte[] out    = new byte[data.length];
+        int nelements = length / elementSize;
+        for (int j = 0; j < elementSize; j++) {
+            int src = j * nelements;
+            for (int i = 0; i < nelements; i++)
+                out[i * elementSize + j] = data[src + i];
+        }
+
+        int tail = nelements * elementSize;
+        System.arraycopy(data, tail, out, tail, length - tail);
+
+        return out;
+    }
+
+    /**
+     * Checks the fletcher32 checksum stored after the first length bytes of a chunk. Like the library,
+     * the byte-swapped checksum written by old library versions is also accepted.
+     */
+    private static void checkFletcher32(byte[] data, int length) throws Exception
+    {
+        long sum1 = 0;
+        long sum2 = 0;
+        int pos   = 0;
+        int words = length / 2;
+        while (words > 0) {
+            int n = Math.min(words, 360);
+            words -= n;
+            for (int k = 0; k < n; k++) {
+                sum1 += ((data[pos] & 0xff) << 8) | (data[pos + 1] & 0xff);
+                sum2 += sum1;
+                pos += 2;
+            }
+            sum1 = (sum1 & 0xffff) + (sum1 >>> 16);
+            sum2 = (sum2 & 0xffff) + (sum2 >>> 16);
+        }
+
+        if ((length % 2) != 0) {
+            sum1 += (data[pos] & 0xff) << 8;
+            sum2 += sum1;
+            sum1 = (sum1 & 0xffff) + (sum1 >>> 16);
+            sum2 = (sum2 & 0xffff) + (sum2 >>> 16);
+        }
+
+        sum1 = (sum1 & 0xffff) + (sum1 >>> 16);
+        sum2 = (sum2 & 0xffff) + (sum2 >>> 16);
+
+        int fletcher = (int)((sum2 << 16) | sum1);
+        int stored   = ByteBuffer.wrap(data, length, FLETCHER_SIZE).order(ByteOrder.LITTLE_ENDIAN).getInt();
+        if ((stored != fletcher) && (stored != Integer.reverseBytes(fletcher)))
+            throw new Exception("fletcher32 checksum mismatch in chunk");
+    }
+
+    /**
+     * Copies the part of a decoded chunk that lies inside the hyperslab into the destination array.
+     */
+    private void copyChunk(byte[] chunk, long[] chunkStart, long[] start, long[] count, Object dest)
+    {
+        int rank  = dims.length;
+        long[] lo = new long[rank];
+        long[] hi = new long[rank];
+        for (int i = 0; i < rank; i++) {
+            lo[i] = Math.max(start[i], chunkStart[i]);
+            hi[i] = Math.min(start[i] + count[i], Math.min(chunkStart[i] + chunkDims[i], dims[i]));
+        }
+
+        ByteBuffer src  = ByteBuffer.wrap(chunk).order(order);
+        int lastDim     = rank - 1;
+        int rowLength   = (int)(hi[lastDim] - lo[lastDim]);
+        long[] position = lo.clone();
+        boolean hasMore = true;
+        while (hasMore) {
+            long srcIndex = 0;
+            long dstIndex = 0;
+            for (int i = 0; i < rank; i++) {
+                srcIndex = srcIndex * chunkDims[i] + (position[i] - chunkStart[i]);
+                dstIndex = dstIndex * count[i] + (position[i] - start[i]);
+            }
+
+            src.position((int)srcIndex * elementSize);
+            switch (classType) {
+            case 'B':
+                System.arraycopy(chunk, (int)srcIndex, dest, (int)dstIndex, rowLength);
+                break;
+            case 'S':
+                src.asShortBuffer().get((short[])dest, (int)dstIndex, rowLength);
+                break;
+            case 'I':
+                src.asIntBuffer().get((int[])dest, (int)dstIndex, rowLength);
+                break;
+            case 'J':
+                src.asLongBuffer().get((long[])dest, (int)dstIndex, rowLength);
+                break;
+            case 'F':
+                src.asFloatBuffer().get((float[])dest, (int)dstIndex, rowLength);
+                break;
+            default:
+                src.asDoubleBuffer().get((double[])dest, (int)dstIndex, rowLength);
+                break;
+            }
+
+            hasMore = false;
+            for (int i = lastDim - 1; i >= 0; i--) {
+                if (++position[i] < hi[i]) {
+                    hasMore = true;
+                    break;
+                }
+                position[i] = lo[i];
+            }
+        }
+    }
+}
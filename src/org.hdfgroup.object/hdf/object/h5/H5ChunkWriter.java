@@ -0,0 +1,400 @@
+/*****************************************************************************
+ * Copyright by The HDF Group.                                               *
+ * Copyright by the Board of Trustees of the University of Illinois.         *
+ * All rights reserved.                                                      *
+ *                                                                           *
+ * This file is part of the HDF Java Products distribution.                  *
+ * The full copyright notice, including terms governing use, modification,   *
+ * and redistribution, is contained in the COPYING file, which can be found  *
+ * at the root of the source code distribution tree,                         *
+ * or in https://www.hdfgroup.org/licenses.                                  *
+ * If you do not have access to either file, you may request a copy from     *
+ * help@hdfgroup.org.                                                        *
+ ****************************************************************************/
+
+package hdf.object.h5;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayDeque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.Deflater;
+
+import hdf.object.BoundedTaskQueue;
+import hdf.object.DataBuffer;
+
+import hdf.hdf5lib.H5;
+import hdf.hdf5lib.HDF5Constants;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Writes a chunked dataset by compressing its chunks in parallel.
+ *
+ * The HDF5 library serializes all calls, so H5Dwrite compresses one chunk at a time. For datasets whose
+ * filter pipeline only contains shuffle and deflate, an H5ChunkWriter cuts the source array into chunks,
+ * shuffles and deflates them in the common fork-join pool and hands the encoded chunks to H5Dwrite_chunk on
+ * the calling thread. The chunks are encoded the same way as by the library filters, so the dataset can be
+ * read by any HDF5 application.
+ *
+ * Only hyperslabs with a stride of 1 that cover whole chunks, or reach the end of the dataset, are written;
+ * for anything else the writer declines and the caller falls back to H5Dwrite.
+ */
+final class H5ChunkWriter {
+    private static final Logger log = LoggerFactory.getLogger(H5ChunkWriter.class);
+
+    /** the number of encoded chunks waiting to be written, per worker thread */
+    private static final int CHUNKS_PER_WORKER = 4;
+
+    /** the dimension sizes of the dataset */
+    private final long[] dims;
+
+    /** the dimension sizes of a chunk */
+    private final long[] chunkDims;
+
+    /** the filters of the pipeline, in the order they are applied when writing */
+    private final int[] filters;
+
+    /** the compression level of the deflate filter */
+    private final int level;
+
+    /** true if the dataset has a user-defined fill value */
+    private final boolean hasFillValue;
+
+    /** the type of the data points: 'B', 'S', 'I', 'J', 'F' or 'D' */
+    private final char classType;
+
+    /** the size of one data point in bytes */
+    private final int elementSize;
+
+    /** the byte order of the data points in the file */
+    private final ByteOrder order;
+
+    /** the size of an unfiltered chunk in bytes */
+    private final int chunkBytes;
+
+    private H5ChunkWriter(long[] dims, long[] chunkDims, int[] filters, int level, boolean hasFillValue,
+                          char classType, ByteOrder order)
+    {
+        this.dims         = dims.clone();
+        this.chunkDims    = chunkDims;
+        this.filters      = filters;
+        this.level        = level;
+        this.hasFillValue = hasFillValue;
+        this.classType    = classType;
+        this.elementSize  = DataBuffer.getElementSize(classType);
+        this.order        = order;
+
+        long nbytes = elementSize;
+        for (int i = 0; i < chunkDims.length; i++)
+            nbytes *= chunkDims[i];
+        this.chunkBytes = (int)nbytes;
+    }
+
+    /**
+     * Creates a writer for a dataset, or returns null if the layout or the filter pipeline of the dataset
+     * can not be encoded in Java.
+     *
+     * @param did
+     *            the identifier of the open dataset.
+     * @param dims
+     *            the dimension sizes of the dataset.
+     * @param classType
+     *            the type of the data points: 'B', 'S', 'I', 'J', 'F' or 'D'.
+     * @param order
+     *            the byte order of the data points in the file.
+     *
+     * @return the writer, or null.
+     */
+    static H5ChunkWriter create(long did, long[] dims, char classType, ByteOrder order)
+    {
+        long pcid = HDF5Constants.H5I_INVALID_HID;
+        try {
+            pcid = H5.H5Dget_create_plist(did);
+            if (H5.H5Pget_layout(pcid) != HDF5Constants.H5D_CHUNKED)
+                return null;
+
+            int nfilt = H5.H5Pget_nfilters(pcid);
+            if (nfilt <= 0)
+                return null;
+
+            int[] filters      = new int[nfilt];
+            boolean hasDeflate = false;
+            int level          = Deflater.DEFAULT_COMPRESSION;
+            int[] flags        = {0, 0};
+            long[] cdNelmts    = {20};
+            int[] cdValues     = new int[(int)cdNelmts[0]];
+            String[] cdName    = {"", ""};
+            int[] filterConfig = {1};
+            for (int i = 0; i < nfilt; i++) {
+                cdNelmts[0] = 20;
+                filters[i]  = H5.H5Pget_filter(pcid, i, flags, cdNelmts, cdValues, 120, cdName, filterConfig);
+                if (filters[i] == HDF5Constants.H5Z_FILTER_DEFLATE) {
+                    hasDeflate = true;
+                    if (cdNelmts[0] > 0)
+                        level = cdValues[0];
+                }
+                else if (filters[i] != HDF5Constants.H5Z_FILTER_SHUFFLE) {
+                    log.trace("create(): filter {} is not supported", filters[i]);
+                    return null;
+                }
+            }
+
+            // without deflate there is nothing worth encoding in parallel
+            if (!hasDeflate)
+                return null;
+
+            long[] chunkDims = new long[dims.length];
+            H5.H5Pget_chunk(pcid, dims.length, chunkDims);
+
+            long nbytes = DataBuffer.getElementSize(classType);
+            for (int i = 0; i < chunkDims.length; i++)
+                nbytes *= chunkDims[i];
+            if (nbytes > Integer.MAX_VALUE)
+                return null;
+
+            int[] fillStatus = {0};
+            H5.H5Pfill_value_defined(pcid, fillStatus);
+            boolean hasFillValue = (fillStatus[0] == HDF5Constants.H5D_FILL_VALUE_USER_DEFINED);
+
+            return new H5ChunkWriter(dims, chunkDims, filters, level, hasFillValue, classType, order);
+        }
+        catch (Exception ex) {
+            log.debug("create(): chunk writer not available: ", ex);
+            return null;
+        }
+        finally {
+            try {
+                H5.H5Pclose(pcid);
+            }
+            catch (Exception ex) {
+                log.debug("create(): H5Pclose(pcid {}) failure: ", pcid, ex);
+            }
+        }
+    }
+
+    /**
+     * Writes a hyperslab of the dataset from a Java array.
+     *
+     * @param did
+     *            the identifier of the open dataset.
+     * @param start
+     *            the start position of the hyperslab.
+     * @param count
+     *            the size of the hyperslab in each dimension.
+     * @param src
+     *            the array that holds the values, e.g. an int[] for an 'I' dataset.
+     *
+     * @return false if the hyperslab does not cover whole chunks and nothing was written.
+     *
+     * @throws Exception
+     *             if a chunk can not be encoded or written
+     */
+    boolean write(final long did, long[] start, long[] count, Object src) throws Exception
+    {
+        int rank          = dims.length;
+        long[] first      = new long[rank];
+        long[] last       = new long[rank];
+        boolean isClipped = false;
+        for (int i = 0; i < rank; i++) {
+            long end = start[i] + count[i];
+            if (((start[i] % chunkDims[i]) != 0) || (((end % chunkDims[i]) != 0) && (end != dims[i]))) {
+                log.trace("write(): hyperslab is not aligned with the chunks in dimension {}", i);
+                return false;
+            }
+            if ((end % chunkDims[i]) != 0)
+                isClipped = true;
+
+            first[i] = start[i] / chunkDims[i];
+            last[i]  = (end - 1) / chunkDims[i];
+        }
+
+        // the part of an edge chunk beyond the dataset would hold zeros instead of the fill value
+        if (isClipped && hasFillValue) {
+            log.trace("write(): edge chunks can not be padded with the fill value");
+            return false;
+        }
+
+        int nchunks = 1;
+        for (int i = 0; i < rank; i++)
+            nchunks *= (int)(last[i] - first[i] + 1);
+
+        // the chunks are written in order, so bound the memory held by chunks that wait
+        final ArrayDeque<long[]> offsets = new ArrayDeque<>();
+        int maxPending                   = CHUNKS_PER_WORKER * ForkJoinPool.commonPool().getParallelism();
+        BoundedTaskQueue<byte[]> queue   = new BoundedTaskQueue<byte[]>(maxPending) {
+            @Override
+            protected void completed(byte[] chunk) throws Exception
+            {
+                writeChunk(did, offsets.poll(), chunk);
+            }
+        };
+
+        long[] coord = first.clone();
+        try {
+            for (int n = 0; n < nchunks; n++) {
+                final long[] offset = new long[rank];
+                for (int i = 0; i < rank; i++)
+                    offset[i] = coord[i] * chunkDims[i];
+
+                offsets.add(offset);
+                queue.submit(new Callable<byte[]>() {
+                    @Override
+                    public byte[] call() throws Exception
+                    {
+                        return encode(gatherChunk(offset, start, count, src));
+                    }
+                });
+
+                for (int i = rank - 1; i >= 0; i--) {
+                    if (++coord[i] <= last[i])
+                        break;
+                    coord[i] = first[i];
+                }
+            }
+
+            queue.completeAll();
+        }
+        finally {
+            queue.cancelAll();
+        }
+
+        log.trace("write(): encoded {} chunks", nchunks);
+
+        return true;
+    }
+
+    private static void writeChunk(long did, long[] offset, byte[] chunk) throws Exception
+    {
+        H5.H5Dwrite_chunk(did, HDF5Constants.H5P_DEFAULT, 0, offset, chunk);
+    }
+
+    /**
+     * Applies the filter pipeline to one chunk, in the order the filters were added.
+     */
+    private byte[] encode(byte[] chunk) throws Exception
+    {
+        byte[] data = chunk;
+        for (int i = 0; i < filters.length; i++) {
+            if (filters[i] == HDF5Constants.H5Z_FILTER_DEFLATE)
+                data = deflate(data);
+            else if (filters[i] == HDF5Constants.H5Z_FILTER_SHUFFLE)
+                data = shuffle(data);
+        }
+
+        return data;
+    }
+
+    /**
+     * Compresses a chunk into the zlib stream format written by the deflate filter of the library.
+     */
+    private byte[] deflate(byte[] data)
+    {
+        Deflater deflater = new Deflater(level);
+        try {
+            deflater.setInput(data);
+            deflater.finish();
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 2 + 64);
+            byte[] buf                = new byte[Math.min(data.length + 64, 1024 * 1024)];
+            while (!deflater.finished()) {
+                int n = deflater.deflate(buf);
+                out.write(buf, 0, n);
+            }
+
+            return out.toByteArray();
+        }
+        finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Shuffles the bytes of a chunk: the first byte of every element, then the second byte of every element,
+     * and so on. Trailing bytes that do not make a whole element are not shuffled.
+     */
+    private byte[] shuffle(byte[] data)
+    {
+        if (elementSize == 1)
+            return data;
+
+        byte[] out    = new byte[data.length];
+        int nelements = data.length / elementSize;
+        for (int j = 0; j < elementSize; j++) {
+            int dst = j * nelements;
+            for (int i = 0; i < nelements; i++)
+                out[dst + i] = data[i * elementSize + j];
+        }
+
+        int tail = nelements * elementSize;
+        System.arraycopy(data, tail, out, tail, data.length - tail);
+
+        return out;
+    }
+
+    /**
+     * Copies the part of the source array that falls inside one chunk into a new unfiltered chunk. The part
+     * of an edge chunk that lies beyond the dataset is left zero.
+     */
+    private byte[] gatherChunk(long[] chunkStart, long[] start, long[] count, Object src)
+    {
+        int rank  = dims.length;
+        long[] lo = new long[rank];
+        long[] hi = new long[rank];
+        for (int i = 0; i < rank; i++) {
+            lo[i] = chunkStart[i];
+            hi[i] = Math.min(start[i] + count[i], chunkStart[i] + chunkDims[i]);
+        }
+
+        byte[] chunk    = new byte[chunkBytes];
+        ByteBuffer dst  = ByteBuffer.wrap(chunk).order(order);
+        int lastDim     = rank - 1;
+        int rowLength   = (int)(hi[lastDim] - lo[lastDim]);
+        long[] position = lo.clone();
+        boolean hasMore = true;
+        while (hasMore) {
+            long srcIndex = 0;
+            long dstIndex = 0;
+            for (int i = 0; i < rank; i++) {
+                srcIndex = srcIndex * count[i] + (position[i] - start[i]);
+                dstIndex = dstIndex * chunkDims[i] + (position[i] - chunkStart[i]);
+            }
+
+            dst.position((int)dstIndex * elementSize);
+            switch (classType) {
+            case 'B':
+                System.arraycopy(src, (int)srcIndex, chunk, (int)dstIndex, rowLength);
+                break;
+            case 'S':
+                dst.asShortBuffer().put((short[])src, (int)srcIndex, rowLength);
+                break;
+            case 'I':
+                dst.asIntBuffer().put((int[])src, (int)srcIndex, rowLength);
+                break;
+            case 'J':
+                dst.asLongBuffer().put((long[])src, (int)srcIndex, rowLength);
+                break;
+            case 'F':
+                dst.asFloatBuffer().put((float[])src, (int)srcIndex, rowLength);
+                break;
+            default:
+                dst.asDoubleBuffer().put((double[])src, (int)srcIndex, rowLength);
+                break;
+            }
+
+            hasMore = false;
+            for (int i = lastDim - 1; i >= 0; i--) {
+                if (++position[i] < hi[i]) {
+                    hasMore = true;
+                    break;
+                }
+                position[i] = lo[i];
+            }
+        }
+
+        return chunk;
+    }
+}
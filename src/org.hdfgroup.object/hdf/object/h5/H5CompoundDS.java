@@ -17,17 +17,23 @@ package hdf.object.h5;
 import java.lang.reflect.Array;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.text.DecimalFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Vector;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 import hdf.object.Attribute;
 import hdf.object.CompoundDS;
 import hdf.object.Dataset;
 import hdf.object.Datatype;
+import hdf.object.DirtyRegions;
 import hdf.object.FileFormat;
 import hdf.object.Group;
 import hdf.object.HObject;
@@ -112,6 +118,9 @@ public class H5CompoundDS extends CompoundDS implements MetaDataContainer {
 
     /** flag to indicate if the dataset is a virtual dataset */
     private boolean isVirtual = false;
+
+    /** flag to indicate if the simple members may be read together with one H5Dread */
+    private boolean isPackedRead = true;
     /** the list of virtual names */
     private List<String> virtualNameList;
 
@@ -152,37 +161,41 @@ public class H5CompoundDS extends CompoundDS implements MetaDataContainer {
      */
     @Deprecated
     public H5CompoundDS(FileFormat theFile, String theName, String thePath, long[] oid)
+    {
+        this(theFile, theName, thePath, oid, null);
+    }
+
+    /**
+     * Constructs an HDF5 data object from the object information retrieved while iterating its parent
+     * group. When the oid and the object information are both known, no native calls are needed to
+     * identify the object.
+     *
+     * @param theFile
+     *            the file that contains the data object.
+     * @param theName
+     *            the name of the data object, e.g. "dset".
+     * @param thePath
+     *            the full path of the data object, e.g. "/arrays/".
+     * @param oid
+     *            the oid of the data object.
+     * @param info
+     *            the basic object information, or null to retrieve it from the file.
+     */
+    @SuppressWarnings("deprecation")
+    H5CompoundDS(FileFormat theFile, String theName, String thePath, long[] oid, H5O_info_t info)
     {
         super(theFile, theName, thePath, oid);
         objMetadata = new H5MetaDataContainer(theFile, theName, thePath, this);
 
         if (theFile != null) {
+            // the object info is retrieved when first needed, unless the object must be identified now
+            objInfo = info;
             if (oid == null) {
-                // retrieve the object ID
-                byte[] refBuf = null;
-                try {
-                    refBuf =
-                        H5.H5Rcreate_object(theFile.getFID(), this.getFullName(), HDF5Constants.H5P_DEFAULT);
-                    this.oid = HDFNativeData.byteToLong(refBuf);
-                    log.trace("constructor REF {} to OID {}", refBuf, this.oid);
-                }
-                catch (Exception ex) {
-                    log.debug("constructor ID {} for {} failed H5Rcreate_object", theFile.getFID(),
-                              this.getFullName());
-                }
-                finally {
-                    if (refBuf != null)
-                        H5.H5Rdestroy(refBuf);
-                }
+                // the object ID is the object token, as for the group members loaded by H5File
+                objInfo  = H5File.getObjectInfo(theFile, this.getFullName());
+                this.oid = H5File.getObjectID(objInfo);
             }
             log.trace("constructor OID {}", this.oid);
-            try {
-                objInfo = H5.H5Oget_info_by_name(theFile.getFID(), this.getFullName(),
-                                                 HDF5Constants.H5O_INFO_BASIC, HDF5Constants.H5P_DEFAULT);
-            }
-            catch (Exception ex) {
-                objInfo = new H5O_info_t(-1L, null, 0, 0, 0L, 0L, 0L, 0L, 0L);
-            }
         }
         else {
             this.oid = null;
@@ -204,7 +217,8 @@ public class H5CompoundDS extends CompoundDS implements MetaDataContainer {
             log.trace("open(): file id for:{} is invalid", getPath() + getName());
         else {
             try {
-                did = H5.H5Dopen(getFID(), getPath() + getName(), HDF5Constants.H5P_DEFAULT);
+                did = ((H5File)getFileFormat())
+                          .openDataset(getPath() + getName(), getChunkCacheSize(), getChunkCacheW0());
                 log.trace("open(): did={}", did);
             }
             catch (HDF5Exception ex) {
@@ -231,6 +245,8 @@ public class H5CompoundDS extends CompoundDS implements MetaDataContainer {
             catch (Exception ex) {
                 log.debug("close(): H5Fflush(did {}) failure: ", did, ex);
             }
+            if (((H5File)getFileFormat()).releaseHandle(did))
+                return;
             try {
                 H5.H5Dclose(did);
             }
@@ -311,6 +327,12 @@ public class H5CompoundDS extends CompoundDS implements MetaDataContainer {
                     int nfiles     = H5.H5Pget_external_count(pid);
                     isExternal     = (nfiles > 0);
                     int layoutType = H5.H5Pget_layout(pid);
+                    if (layoutType == HDF5Constants.H5D_CHUNKED) {
+                        // the chunk size is needed to size the chunk cache before getMetadata() is called
+                        long[] chunkDims = new long[H5File.MAX_RANK];
+                        int chunkRank    = H5.H5Pget_chunk(pid, chunkDims.length, chunkDims);
+                        chunkSize        = Arrays.copyOf(chunkDims, chunkRank);
+                    }
                     if (isVirtual = (layoutType == HDF5Constants.H5D_VIRTUAL)) {
                         try {
                             long vmaps = H5.H5Pget_virtual_count(pid);
@@ -493,10 +515,21 @@ public class H5CompoundDS extends CompoundDS implements MetaDataContainer {
      */
     public long[] getToken()
     {
-        H5O_token_t token = objInfo.token;
+        H5O_token_t token = getObjectInfo().token;
         return HDFNativeData.byteToLong(token.data);
     }
 
+    /**
+     * Returns the basic object information, retrieving it from the file when first needed.
+     */
+    private H5O_info_t getObjectInfo()
+    {
+        if (objInfo == null)
+            objInfo = H5File.getObjectInfo(getFileFormat(), getFullName());
+
+        return objInfo;
+    }
+
     /**
      * Check if the object has any attributes attached.
      *
@@ -505,32 +538,33 @@ public class H5CompoundDS extends CompoundDS implements MetaDataContainer {
     @Override
     public boolean hasAttribute()
     {
-        objInfo.num_attrs = objMetadata.getObjectAttributeSize();
+        long nAttrs = objMetadata.getObjectAttributeSize();
 
-        if (objInfo.num_attrs < 0) {
+        if (nAttrs < 0) {
             long did = open();
             if (did >= 0) {
-                objInfo.num_attrs = 0;
+                nAttrs = 0;
 
                 try {
                     objInfo = H5.H5Oget_info(did);
+                    nAttrs  = objInfo.num_attrs;
                 }
                 catch (Exception ex) {
-                    objInfo.num_attrs = 0;
+                    nAttrs = 0;
                     log.debug("hasAttribute(): get object info failure: ", ex);
                 }
                 finally {
                     close(did);
                 }
-                objMetadata.setObjectAttributeSize((int)objInfo.num_attrs);
+                objMetadata.setObjectAttributeSize((int)nAttrs);
             }
             else {
                 log.debug("hasAttribute(): could not open dataset");
             }
         }
 
-        log.trace("hasAttribute(): nAttributes={}", objInfo.num_attrs);
-        return (objInfo.num_attrs > 0);
+        log.trace("hasAttribute(): nAttributes={}", nAttrs);
+        return (nAttrs > 0);
     }
 
     /**
@@ -576,12 +610,7 @@ public class H5CompoundDS extends CompoundDS implements MetaDataContainer {
                     catch (HDF5Exception ex) {
                         log.debug("getDatatype(): H5Tclose(tid {}) failure: ", tid, ex);
                     }
-                    try {
-                        H5.H5Dclose(did);
-                    }
-                    catch (HDF5Exception ex) {
-                        log.debug("getDatatype(): H5Dclose(did {}) failure: ", did, ex);
-                    }
+                    close(did);
                 }
             }
         }
@@ -826,6 +855,43 @@ public class H5CompoundDS extends CompoundDS implements MetaDataContainer {
         }
     }
 
+    /**
+     * Writes the changed records of the memory buffer of this dataset to file.
+     *
+     * The changed records of every member are copied into smaller buffers and written field by field to the
+     * union of their hyperslabs in the file.
+     *
+     * @param regions
+     *            the changed records, by their index in the memory buffer.
+     *
+     * @throws Exception
+     *             If there is an error at the HDF5 library level.
+     */
+    @Override
+    public void write(DirtyRegions regions) throws Exception
+    {
+        if (this.getFileFormat().isReadOnly())
+            throw new Exception("cannot write to compound dataset in file opened as read-only");
+
+        if (!isInited())
+            init();
+
+        List<long[][]> slabs = getWriteRegions(regions);
+        Object buf           = (slabs == null) ? null : extractRegions(regions);
+        if (buf == null) {
+            write();
+            return;
+        }
+
+        try {
+            compoundDatasetCommonIO(H5File.IO_TYPE.WRITE, buf, slabs);
+        }
+        catch (Exception ex) {
+            log.debug("write(DirtyRegions): failed to write compound dataset: ", ex);
+            throw new Exception("failed to write compound dataset: " + ex.getMessage(), ex);
+        }
+    }
+
     /*
      * Routine to convert datatypes that are read in as byte arrays to
      * regular types.
@@ -845,6 +911,16 @@ public class H5CompoundDS extends CompoundDS implements MetaDataContainer {
     }
 
     private Object compoundDatasetCommonIO(H5File.IO_TYPE ioType, Object writeBuf) throws Exception
+    {
+        return compoundDatasetCommonIO(ioType, writeBuf, null);
+    }
+
+    /*
+     * Reads or writes the current selection, or only the given hyperslabs of the
+     * current selection if slabs is not null.
+     */
+    private Object compoundDatasetCommonIO(H5File.IO_TYPE ioType, Object writeBuf, List<long[][]> slabs)
+        throws Exception
     {
         H5Datatype dsDatatype = (H5Datatype)getDatatype();
         Object theData        = null;
@@ -888,8 +964,13 @@ public class H5CompoundDS extends CompoundDS implements MetaDataContainer {
                  * NOTE: this call sets up a hyperslab selection in the file according to the
                  * current selection in the dataset object.
                  */
-                long totalSelectedSpacePoints = H5Utils.getTotalSelectedSpacePoints(
-                    did, dims, startDims, selectedStride, selectedDims, spaceIDs);
+                long totalSelectedSpacePoints;
+                if (slabs == null)
+                    totalSelectedSpacePoints = H5Utils.getTotalSelectedSpacePoints(
+                        did, dims, startDims, selectedStride, selectedDims, spaceIDs);
+                else
+                    totalSelectedSpacePoints =
+                        H5Utils.selectHyperslabs(did, startDims, selectedStride, slabs, spaceIDs);
 
                 theData = compoundTypeIO(ioType, did, spaceIDs, (int)totalSelectedSpacePoints, dsDatatype,
                                          writeBuf, new int[] {0});
@@ -979,9 +1060,20 @@ public class H5CompoundDS extends CompoundDS implements MetaDataContainer {
             log.trace("compoundTypeIO(): {} {} members:", (ioType == H5File.IO_TYPE.READ) ? "read" : "write",
                       typeList.size());
 
-            if (ioType == H5File.IO_TYPE.READ)
+            /*
+             * The simple members of the dataset's own compound type are read together
+             * with a single H5Dread of the packed records; whatever is left is read
+             * member by member below.
+             */
+            Object[] packedData = null;
+            if (ioType == H5File.IO_TYPE.READ) {
                 memberDataList = (List<Object>)H5Datatype.allocateArray(cmpdType, nSelPoints);
 
+                if (isPackedRead && (cmpdType == getDatatype()))
+                    packedData =
+                        readPackedCompoundMembers(did, spaceIDs, nSelPoints, typeList, globalMemberIndex[0]);
+            }
+
             try {
                 for (int i = 0, writeListIndex = 0; i < typeList.size(); i++) {
                     H5Datatype memberType = null;
@@ -1027,7 +1119,11 @@ public class H5CompoundDS extends CompoundDS implements MetaDataContainer {
 
                     if (ioType == H5File.IO_TYPE.READ) {
                         try {
-                            if (memberType.isCompound())
+                            if ((packedData != null) && (packedData[i] != null)) {
+                                memberData = packedData[i];
+                                globalMemberIndex[0]++;
+                            }
+                            else if (memberType.isCompound())
                                 memberData = compoundTypeIO(ioType, did, spaceIDs, nSelPoints, memberType,
                                                             writeBuf, globalMemberIndex);
                             else if (
@@ -1134,6 +1230,272 @@ public class H5CompoundDS extends CompoundDS implements MetaDataContainer {
         return theData;
     }
 
+    /*
+     * Private routine to read the selected members of a compound datatype with a
+     * single H5Dread. The members are packed into one memory compound datatype, the
+     * records are read as bytes and each member is then decoded into its own array,
+     * with the members decoded in parallel.
+     *
+     * Members that cannot be decoded from the packed records, such as variable-length
+     * and reference members, are left null in the returned array so that they are
+     * read by readSingleCompoundMember(). Returns null if the compound type has nested
+     * compound members or if the packed read fails.
+     */
+    private Object[] readPackedCompoundMembers(long dsetID, long[] spaceIDs, final int nSelPoints,
+                                               final List<Datatype> typeList, int firstMemberIndex)
+    {
+        final int nMembers = typeList.size();
+
+        if (nSelPoints <= 0)
+            return null;
+
+        /*
+         * The flattened member index of nested compound members can not be derived
+         * from the position in the type list.
+         */
+        for (int i = 0; i < nMembers; i++) {
+            Datatype memberType = typeList.get(i);
+            while (memberType != null) {
+                if (memberType.isCompound()) {
+                    log.trace("readPackedCompoundMembers(): member[{}] is a nested compound", i);
+                    return null;
+                }
+                memberType = memberType.getDatatypeBase();
+            }
+        }
+
+        final H5Datatype[] memberTypes = new H5Datatype[nMembers];
+        final Object[] memberData      = new Object[nMembers];
+        final int[] offsets            = new int[nMembers];
+        final int[] sizes              = new int[nMembers];
+        long[] nativeTIDs              = new long[nMembers];
+        long compTid                   = HDF5Constants.H5I_INVALID_HID;
+        int recordSize                 = 0;
+        int nPacked                    = 0;
+        byte[] records                 = null;
+
+        Arrays.fill(nativeTIDs, HDF5Constants.H5I_INVALID_HID);
+
+        try {
+            for (int i = 0; i < nMembers; i++) {
+                H5Datatype memberType = (H5Datatype)typeList.get(i);
+                if (!isMemberSelected[(firstMemberIndex + i) % this.getMemberCount()] ||
+                    !isPackedMemberType(memberType))
+                    continue;
+
+                Object data = H5Datatype.allocateArray(memberType, nSelPoints);
+                long tid    = memberType.createNative();
+                int size    = (int)H5.H5Tget_size(tid);
+                if (getPackedElementSize(data) <= 0 ||
+                    (long)Array.getLength(data) * getPackedElementSize(data) != (long)nSelPoints * size) {
+                    log.trace("readPackedCompoundMembers(): member[{}] is not packed", i);
+                    H5.H5Tclose(tid);
+                    continue;
+                }
+
+                memberTypes[i] = memberType;
+                memberData[i]  = data;
+                nativeTIDs[i]  = tid;
+                sizes[i]       = size;
+                offsets[i]     = recordSize;
+                recordSize += size;
+                nPacked++;
+            }
+
+            if ((nPacked == 0) || ((long)recordSize * nSelPoints > Integer.MAX_VALUE)) {
+                log.trace("readPackedCompoundMembers(): {} members packed in {} bytes per record", nPacked,
+                          recordSize);
+                return null;
+            }
+
+            compTid = H5.H5Tcreate(HDF5Constants.H5T_COMPOUND, recordSize);
+            for (int i = 0; i < nMembers; i++) {
+                if (memberTypes[i] != null)
+                    H5.H5Tinsert(compTid, flatNameList.get(firstMemberIndex + i), offsets[i], nativeTIDs[i]);
+            }
+
+            records = new byte[recordSize * nSelPoints];
+
+            log.trace("readPackedCompoundMembers(): H5Dread did={} compTid={} {} members {} bytes per record",
+                      dsetID, compTid, nPacked, recordSize);
+            H5.H5Dread(dsetID, compTid, spaceIDs[0], spaceIDs[1], HDF5Constants.H5P_DEFAULT, records);
+        }
+        catch (OutOfMemoryError err) {
+            log.debug("readPackedCompoundMembers(): out of memory, reading members one by one");
+            return null;
+        }
+        catch (Exception ex) {
+            log.debug("readPackedCompoundMembers(): packed read failure, reading members one by one: ", ex);
+            return null;
+        }
+        finally {
+            for (int i = 0; i < nMembers; i++) {
+                if (nativeTIDs[i] >= 0) {
+                    try {
+                        H5.H5Tclose(nativeTIDs[i]);
+                    }
+                    catch (Exception ex) {
+                        log.debug("readPackedCompoundMembers(): H5Tclose(tid {}) failure: ", nativeTIDs[i],
+                                  ex);
+                    }
+                }
+            }
+
+            if (compTid >= 0) {
+                try {
+                    H5.H5Tclose(compTid);
+                }
+                catch (Exception ex) {
+                    log.debug("readPackedCompoundMembers(): H5Tclose(compTid {}) failure: ", compTid, ex);
+                }
+            }
+        }
+
+        /*
+         * Decode the members from the packed records in parallel.
+         */
+        final byte[] packedRecords      = records;
+        final int packedSize            = recordSize;
+        List<Callable<Object>> decoders = new ArrayList<>(nPacked);
+        for (int i = 0; i < nMembers; i++) {
+            if (memberTypes[i] == null)
+                continue;
+
+            final int m = i;
+            decoders.add(new Callable<Object>() {
+                @Override
+                public Object call() throws Exception
+                {
+                    decodePackedMember(packedRecords, packedSize, offsets[m], sizes[m], nSelPoints,
+                                       memberData[m]);
+                    memberData[m] = convertPackedMember(memberTypes[m], memberData[m]);
+                    return null;
+                }
+            });
+        }
+
+        try {
+            for (Future<Object> decoder : ForkJoinPool.commonPool().invokeAll(decoders))
+                decoder.get();
+        }
+        catch (Exception ex) {
+            log.debug("readPackedCompoundMembers(): decode failure, reading members one by one: ", ex);
+            return null;
+        }
+
+        return memberData;
+    }
+
+    /*
+     * Checks if a compound member can be read as part of the packed records, i.e. it
+     * has a fixed size and is read into a primitive array.
+     */
+    private static boolean isPackedMemberType(Datatype memberType)
+    {
+        while (memberType != null) {
+            if (memberType.isVarStr() || memberType.isVLEN() || memberType.isRef() || memberType.isCompound())
+                return false;
+            memberType = memberType.getDatatypeBase();
+        }
+
+        return true;
+    }
+
+    /*
+     * Returns the size in bytes of an element of a primitive array, or 0 if the
+     * object is not a primitive array.
+     */
+    private static int getPackedElementSize(Object data)
+    {
+        if (data instanceof byte[])
+            return 1;
+        else if (data instanceof short[])
+            return 2;
+        else if ((data instanceof int[]) || (data instanceof float[]))
+            return 4;
+        else if ((data instanceof long[]) || (data instanceof double[]))
+            return 8;
+
+        return 0;
+    }
+
+    /*
+     * Copies a member out of the packed records into its primitive array, the same
+     * way H5Dread fills the array for a single member. The records are in native
+     * byte order.
+     */
+    private static void decodePackedMember(byte[] records, int recordSize, int offset, int memberSize,
+                                           int nSelPoints, Object data)
+    {
+        if (data instanceof byte[]) {
+            byte[] bytes = (byte[])data;
+            for (int r = 0; r < nSelPoints; r++)
+                System.arraycopy(records, r * recordSize + offset, bytes, r * memberSize, memberSize);
+            return;
+        }
+
+        // the element type is chosen once for the member, not for every value
+        ByteBuffer buf  = ByteBuffer.wrap(records).order(ByteOrder.nativeOrder());
+        int elemSize    = getPackedElementSize(data);
+        int elemsPerRow = memberSize / elemSize;
+        int idx         = 0;
+
+        if (data instanceof short[]) {
+            short[] values = (short[])data;
+            for (int r = 0; r < nSelPoints; r++) {
+                int pos = r * recordSize + offset;
+                for (int k = 0; k < elemsPerRow; k++, pos += elemSize)
+                    values[idx++] = buf.getShort(pos);
+            }
+        }
+        else if (data instanceof int[]) {
+            int[] values = (int[])data;
+            for (int r = 0; r < nSelPoints; r++) {
+                int pos = r * recordSize + offset;
+                for (int k = 0; k < elemsPerRow; k++, pos += elemSize)
+                    values[idx++] = buf.getInt(pos);
+            }
+        }
+        else if (data instanceof long[]) {
+            long[] values = (long[])data;
+            for (int r = 0; r < nSelPoints; r++) {
+                int pos = r * recordSize + offset;
+                for (int k = 0; k < elemsPerRow; k++, pos += elemSize)
+                    values[idx++] = buf.getLong(pos);
+            }
+        }
+        else if (data instanceof float[]) {
+            float[] values = (float[])data;
+            for (int r = 0; r < nSelPoints; r++) {
+                int pos = r * recordSize + offset;
+                for (int k = 0; k < elemsPerRow; k++, pos += elemSize)
+                    values[idx++] = buf.getFloat(pos);
+            }
+        }
+        else {
+            double[] values = (double[])data;
+            for (int r = 0; r < nSelPoints; r++) {
+                int pos = r * recordSize + offset;
+                for (int k = 0; k < elemsPerRow; k++, pos += elemSize)
+                    values[idx++] = buf.getDouble(pos);
+            }
+        }
+    }
+
+    /*
+     * Performs the same data conversions on a member decoded from the packed records
+     * as readSingleCompoundMember() does after reading a single member.
+     */
+    private Object convertPackedMember(final H5Datatype memberType, Object memberData)
+    {
+        if (memberType.isUnsigned())
+            return Dataset.convertFromUnsignedC(memberData, null);
+        else if (Utils.getJavaObjectRuntimeClass(memberData) == 'B')
+            return convertByteMember(memberType, (byte[])memberData);
+
+        return memberData;
+    }
+
     /*
      * Private routine to read a single field of a compound datatype by creating a
      * compound datatype and inserting the single field into that datatype.
@@ -2191,6 +2553,27 @@ public class H5CompoundDS extends CompoundDS implements MetaDataContainer {
         return H5Datatype.getDatatypeSize(tid);
     }
 
+    /**
+     * Sets whether the fixed-size members of this dataset may be read together.
+     *
+     * When enabled, the selected members that are not variable-length, references or nested compounds are
+     * read with a single H5Dread of packed records and decoded in Java; otherwise every member is read with
+     * its own H5Dread. It is enabled by default.
+     *
+     * @param enable
+     *            true to read the fixed-size members together when possible.
+     */
+    public void setPackedRead(boolean enable) { isPackedRead = enable; }
+
+    /**
+     * Returns true if the fixed-size members of this dataset may be read together.
+     *
+     * @return true if packed reads are enabled.
+     *
+     * @see #setPackedRead(boolean)
+     */
+    public boolean isPackedRead() { return isPackedRead; }
+
     /*
      * (non-Javadoc)
      *
@@ -159,37 +159,41 @@ public class H5Datatype extends Datatype {
      */
     @Deprecated
     public H5Datatype(FileFormat theFile, String theName, String thePath, long[] oid)
+    {
+        this(theFile, theName, thePath, oid, null);
+    }
+
+    /**
+     * Constructs an HDF5 datatype from the object information retrieved while iterating its parent
+     * group. When the oid and the object information are both known, no native calls are needed to
+     * identify the object.
+     *
+     * @param theFile
+     *                the file that contains the datatype.
+     * @param theName
+     *                the name of the dataset such as "dset1".
+     * @param thePath
+     *                the group path to the dataset such as "/g0/".
+     * @param oid
+     *                the oid of the dataset.
+     * @param info
+     *            the basic object information, or null to retrieve it from the file.
+     */
+    @SuppressWarnings("deprecation")
+    H5Datatype(FileFormat theFile, String theName, String thePath, long[] oid, H5O_info_t info)
     {
         super(theFile, theName, thePath, oid);
         objMetadata = new H5MetaDataContainer(theFile, theName, thePath, this);
 
         if (theFile != null) {
+            // the object info is retrieved when first needed, unless the object must be identified now
+            objInfo = info;
             if (oid == null) {
-                // retrieve the object ID
-                byte[] refBuf = null;
-                try {
-                    refBuf =
-                        H5.H5Rcreate_object(theFile.getFID(), this.getFullName(), HDF5Constants.H5P_DEFAULT);
-                    this.oid = HDFNativeData.byteToLong(refBuf);
-                    log.trace("constructor REF {} to OID {}", refBuf, this.oid);
-                }
-                catch (Exception ex) {
-                    log.debug("constructor ID {} for {} failed H5Rcreate_object", theFile.getFID(),
-                              this.getFullName());
-                }
-                finally {
-                    if (refBuf != null)
-                        H5.H5Rdestroy(refBuf);
-                }
+                // the object ID is the object token, as for the group members loaded by H5File
+                objInfo  = H5File.getObjectInfo(theFile, this.getFullName());
+                this.oid = H5File.getObjectID(objInfo);
             }
             log.trace("constructor OID {}", this.oid);
-            try {
-                objInfo = H5.H5Oget_info_by_name(theFile.getFID(), this.getFullName(),
-                                                 HDF5Constants.H5O_INFO_BASIC, HDF5Constants.H5P_DEFAULT);
-            }
-            catch (Exception ex) {
-                objInfo = new H5O_info_t(-1L, null, 0, 0, 0L, 0L, 0L, 0L, 0L);
-            }
 
             long tid = HDF5Constants.H5I_INVALID_HID;
             try {
@@ -370,7 +374,10 @@ public class H5Datatype extends Datatype {
 
         if (fileFormat != null) {
             try {
-                tid = H5.H5Topen(getFID(), getFullName(), HDF5Constants.H5P_DEFAULT);
+                if (fileFormat instanceof H5File)
+                    tid = ((H5File)fileFormat).openDatatype(getFullName());
+                else
+                    tid = H5.H5Topen(getFID(), getFullName(), HDF5Constants.H5P_DEFAULT);
                 fromNative(tid);
                 log.trace("open(): tid={}", tid);
             }
@@ -393,6 +400,8 @@ public class H5Datatype extends Datatype {
     public void close(long tid)
     {
         if (tid >= 0) {
+            if ((fileFormat instanceof H5File) && ((H5File)fileFormat).releaseHandle(tid))
+                return;
             try {
                 H5.H5Tclose(tid);
             }
@@ -409,10 +418,21 @@ public class H5Datatype extends Datatype {
      */
     public long[] getToken()
     {
-        H5O_token_t token = objInfo.token;
+        H5O_token_t token = getObjectInfo().token;
         return HDFNativeData.byteToLong(token.data);
     }
 
+    /**
+     * Returns the basic object information, retrieving it from the file when first needed.
+     */
+    private H5O_info_t getObjectInfo()
+    {
+        if (objInfo == null)
+            objInfo = H5File.getObjectInfo(getFileFormat(), getFullName());
+
+        return objInfo;
+    }
+
     /**
      * Check if the object has any attributes attached.
      *
@@ -421,30 +441,31 @@ public class H5Datatype extends Datatype {
     @Override
     public boolean hasAttribute()
     {
-        objInfo.num_attrs = objMetadata.getObjectAttributeSize();
+        long nAttrs = objMetadata.getObjectAttributeSize();
 
-        if (objInfo.num_attrs < 0) {
+        if (nAttrs < 0) {
             long tid = open();
             if (tid > 0) {
                 try {
                     objInfo = H5.H5Oget_info(tid);
+                    nAttrs  = objInfo.num_attrs;
                 }
                 catch (Exception ex) {
-                    objInfo.num_attrs = 0;
+                    nAttrs = 0;
                     log.debug("hasAttribute(): get object info failure: ", ex);
                 }
                 finally {
                     close(tid);
                 }
-                objMetadata.setObjectAttributeSize((int)objInfo.num_attrs);
+                objMetadata.setObjectAttributeSize((int)nAttrs);
             }
             else {
                 log.debug("hasAttribute(): could not open group");
             }
         }
 
-        log.trace("hasAttribute(): nAttributes={}", objInfo.num_attrs);
-        return (objInfo.num_attrs > 0);
+        log.trace("hasAttribute(): nAttributes={}", nAttrs);
+        return (nAttrs > 0);
     }
 
     /**
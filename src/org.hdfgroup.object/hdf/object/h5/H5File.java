@@ -127,6 +127,21 @@ public class H5File extends FileFormat {
      * The library version bounds
      */
     private int[] libver;
+
+    /**
+     * The largest rank of a dataspace supported by the library (H5S_MAX_RANK).
+     */
+    static final int MAX_RANK = 32;
+
+    /**
+     * The default number of dataset and datatype identifiers kept open by a file.
+     */
+    public static final int DEFAULT_HANDLE_POOL_SIZE = 32;
+
+    /**
+     * The open dataset and datatype identifiers of the file, reused by the open() of its objects.
+     */
+    private final transient H5HandlePool handlePool = new H5HandlePool(DEFAULT_HANDLE_POOL_SIZE);
     /** The library latest version value */
     public static final int LIBVER_LATEST = HDF5Constants.H5F_LIBVER_LATEST;
     /** The library earliest version value */
@@ -899,13 +914,7 @@ public class H5File extends FileFormat {
                     log.debug("updateReferenceDataset(): H5ScalarDS reference[{}] H5Sclose(sid {}) failure: ",
                               i, sid, ex);
                 }
-                try {
-                    H5.H5Dclose(did);
-                }
-                catch (Exception ex) {
-                    log.debug("updateReferenceDataset(): H5ScalarDS reference[{}] H5Dclose(did {}) failure: ",
-                              i, did, ex);
-                }
+                d.close(did);
             }
 
             refs = null;
@@ -1321,6 +1330,8 @@ public class H5File extends FileFormat {
             }
         }
 
+        handlePool.closeAll();
+
         // Close all open objects associated with this file.
         try {
             int type = -1;
@@ -1408,6 +1419,144 @@ public class H5File extends FileFormat {
         fid = -1;
     }
 
+    /**
+     * Sets the maximum number of dataset and datatype identifiers that the file keeps open while they are
+     * not in use. Keeping the identifiers open saves the path traversal and object header lookup when the
+     * same dataset is read again, e.g. when paging through its frames. A size of 0 closes every identifier
+     * as soon as it is released.
+     *
+     * @param size
+     *            the maximum number of pooled identifiers.
+     */
+    public void setHandlePoolSize(int size) { handlePool.setCapacity(size); }
+
+    /**
+     * Returns the maximum number of dataset and datatype identifiers that the file keeps open.
+     *
+     * @return the maximum number of pooled identifiers.
+     */
+    public int getHandlePoolSize() { return handlePool.getCapacity(); }
+
+    /**
+     * Opens a dataset by its full path, reusing a pooled identifier when possible. The identifier must be
+     * given back with {@link #releaseHandle(long)}, or closed if that returns false.
+     *
+     * @param fullPath
+     *            the full path of the dataset.
+     *
+     * @return the dataset identifier.
+     *
+     * @throws HDF5Exception
+     *             if the dataset can not be opened.
+     */
+    long openDataset(String fullPath) throws HDF5Exception
+    {
+        return openDataset(fullPath, null, 0);
+    }
+
+    /**
+     * Opens a dataset by its full path with the given raw data chunk cache, reusing a pooled identifier
+     * that was opened with the same cache when possible. Idle pooled identifiers of the dataset opened
+     * with another cache are closed first, since the library applies the cache of the first open only.
+     * The identifier must be given back with {@link #releaseHandle(long)}, or closed if that returns false.
+     *
+     * @param fullPath
+     *            the full path of the dataset.
+     * @param chunkCache
+     *            the number of chunk slots and the size in bytes of the chunk cache, or null for the
+     *            default cache.
+     * @param w0
+     *            the preemption policy of the chunk cache.
+     *
+     * @return the dataset identifier.
+     *
+     * @throws HDF5Exception
+     *             if the dataset can not be opened.
+     */
+    long openDataset(String fullPath, long[] chunkCache, double w0) throws HDF5Exception
+    {
+        String key = fullPath;
+        if (chunkCache != null)
+            key = fullPath + "?cache=" + chunkCache[0] + "," + chunkCache[1] + "," + w0;
+
+        long did = handlePool.acquire(key);
+        if (did >= 0)
+            return did;
+
+        // the chunk cache only takes effect if no other identifier of the dataset is open; one that is
+        // still in use keeps the old cache, so the new identifier is not pooled under the new settings
+        boolean isPooled = true;
+        if (chunkCache != null) {
+            isPooled = handlePool.closeOthers(key, fullPath);
+            if (!isPooled)
+                log.debug("openDataset(): {} is in use, chunk cache not changed", fullPath);
+        }
+
+        long dapl = HDF5Constants.H5P_DEFAULT;
+        try {
+            if (chunkCache != null) {
+                dapl = H5.H5Pcreate(HDF5Constants.H5P_DATASET_ACCESS);
+                H5.H5Pset_chunk_cache(dapl, chunkCache[0], chunkCache[1], w0);
+                log.trace("openDataset(): {} nslots={} nbytes={} w0={}", fullPath, chunkCache[0],
+                          chunkCache[1], w0);
+            }
+            did = H5.H5Dopen(fid, fullPath, dapl);
+        }
+        finally {
+            if (dapl != HDF5Constants.H5P_DEFAULT) {
+                try {
+                    H5.H5Pclose(dapl);
+                }
+                catch (Exception ex) {
+                    log.debug("openDataset(): H5Pclose(dapl {}) failure: ", dapl, ex);
+                }
+            }
+        }
+        if (isPooled)
+            handlePool.add(key, fullPath, did);
+
+        return did;
+    }
+
+    /**
+     * Opens a named datatype by its full path, reusing a pooled identifier when possible. The identifier
+     * must be given back with {@link #releaseHandle(long)}, or closed if that returns false.
+     *
+     * @param fullPath
+     *            the full path of the datatype.
+     *
+     * @return the datatype identifier.
+     *
+     * @throws HDF5Exception
+     *             if the datatype can not be opened.
+     */
+    long openDatatype(String fullPath) throws HDF5Exception
+    {
+        long tid = handlePool.acquire(fullPath);
+        if (tid < 0) {
+            tid = H5.H5Topen(fid, fullPath, HDF5Constants.H5P_DEFAULT);
+            handlePool.add(fullPath, tid);
+        }
+
+        return tid;
+    }
+
+    /**
+     * Gives back an identifier obtained from {@link #openDataset(String)} or {@link #openDatatype(String)}.
+     *
+     * @param id
+     *            the object identifier.
+     *
+     * @return true if the identifier is kept by the pool, false if the caller has to close it.
+     */
+    boolean releaseHandle(long id) { return handlePool.release(id); }
+
+    /**
+     * Drops all pooled identifiers, so that the next open() looks the objects up by path again. Called
+     * whenever objects are moved or deleted.
+     */
+    void clearHandlePool() { handlePool.clear(); }
+
     /**
      * Returns the root object of the open HDF5 File.
      *
@@ -1419,6 +1568,25 @@ public class H5File extends FileFormat {
         return rootObject;
     }
 
+    /**
+     * Returns the compound or scalar dataset for a dataset that was loaded on demand and has not been
+     * classified yet, and replaces it in its group.
+     *
+     * @see hdf.object.FileFormat#resolveObject(hdf.object.HObject)
+     */
+    @Override
+    protected HObject resolveObject(HObject obj)
+    {
+        if (!(obj instanceof H5UnresolvedDS))
+            return obj;
+
+        HObject parent = findObject(this, obj.getPath());
+        if (parent instanceof H5Group)
+            return ((H5Group)parent).resolveMember((H5UnresolvedDS)obj);
+
+        return ((H5UnresolvedDS)obj).resolve();
+    }
+
     /*
      * (non-Javadoc)
      *
@@ -2095,6 +2263,7 @@ public class H5File extends FileFormat {
 
         String name = obj.getPath() + obj.getName();
 
+        handlePool.clear();
         H5.H5Ldelete(fid, name, HDF5Constants.H5P_DEFAULT);
     }
 
@@ -2407,10 +2576,35 @@ public class H5File extends FileFormat {
          * appropriately, as it currently assumes the root path to be null.
          */
         rootObject = new H5Group(this, "/", null, null);
+        if (isLoadOnDemand()) {
+            // members of the root group and its subgroups are loaded the first
+            // time their member lists are requested
+            log.trace("loadIntoMemory(): load members on demand");
+            return;
+        }
+
         log.trace("loadIntoMemory(): depth_first on root");
         depth_first(rootObject, 0);
     }
 
+    /**
+     * Loads the immediate members of a group into memory. This is used when the file loads group members on
+     * demand; subgroups are not followed and are loaded when their own member lists are first requested.
+     *
+     * @param g
+     *            the group whose members are loaded.
+     */
+    void loadMembers(H5Group g)
+    {
+        if (fid < 0) {
+            log.debug("loadMembers(): Invalid FID");
+            return;
+        }
+
+        log.trace("loadMembers({}): start", g);
+        depth_first(g, 0, false);
+    }
+
     /**
      * Retrieves the file structure by depth-first order, recursively. The current implementation retrieves
      * groups and datasets only. It does not include named datatypes and soft links.
@@ -2421,8 +2615,23 @@ public class H5File extends FileFormat {
      * @param parentObject
      *            the parent object.
      */
-    @SuppressWarnings("deprecation")
     private int depth_first(HObject parentObject, int nTotal)
+    {
+        return depth_first(parentObject, nTotal, true);
+    }
+
+    /**
+     * Retrieves the members of a group. If recursive is true, the file structure is retrieved by depth-first
+     * order, as in {@link #depth_first(HObject, int)}; otherwise only the immediate members of the group are
+     * retrieved.
+     *
+     * @param parentObject
+     *            the parent object.
+     * @param recursive
+     *            if true, follow subgroups.
+     */
+    @SuppressWarnings("deprecation")
+    private int depth_first(HObject parentObject, int nTotal, boolean recursive)
     {
         log.trace("depth_first({}): start", parentObject);
 
@@ -2508,13 +2717,19 @@ public class H5File extends FileFormat {
                 skipLoad = true;
 
             // create a new objects
-            long[] oid = null;
+            // the token returned by H5Gget_obj_info_full is the object ID, so the library is not asked
+            // for each object; the rest of the object info is retrieved when first needed
+            long[] oid         = objtok;
+            H5O_info_t objInfo = null;
             if (obj_type == HDF5Constants.H5O_TYPE_GROUP) {
-                H5Group g = new H5Group(this, obj_name, fullPath, pgroup);
-                oid       = g.getOID();
+                H5Group g = new H5Group(this, obj_name, fullPath, pgroup, oid, objInfo);
 
                 pgroup.addToMemberList(g);
 
+                // subgroups are loaded on demand
+                if (!recursive)
+                    continue;
+
                 // detect and stop loops
                 // a loop is detected if there exists object with the same
                 // object ID by tracing path back up to the root.
@@ -2534,84 +2749,32 @@ public class H5File extends FileFormat {
                 // recursively go through the next group
                 // stops if it has loop.
                 if (!hasLoop) {
-                    nTotal = depth_first(g, nTotal);
+                    nTotal = depth_first(g, nTotal, true);
                 }
             }
             else if (skipLoad) {
                 continue;
             }
             else if (obj_type == HDF5Constants.H5O_TYPE_DATASET) {
-                long did   = -1;
-                long tid   = -1;
-                int tclass = -1;
-                try {
-                    did = H5.H5Dopen(fid, fullPath + obj_name, HDF5Constants.H5P_DEFAULT);
-                    if (did >= 0) {
-                        tid = H5.H5Dget_type(did);
-
-                        tclass = H5.H5Tget_class(tid);
-                        if ((tclass == HDF5Constants.H5T_ARRAY) || (tclass == HDF5Constants.H5T_VLEN)) {
-                            // for ARRAY, the type is determined by the base type
-                            long btid = H5.H5Tget_super(tid);
-
-                            tclass = H5.H5Tget_class(btid);
-
-                            try {
-                                H5.H5Tclose(btid);
-                            }
-                            catch (Exception ex) {
-                                log.debug("depth_first({})[{}] dataset {} H5Tclose(btid {}) failure: ",
-                                          parentObject, i, obj_name, btid, ex);
-                            }
-                        }
-                    }
-                    else {
-                        log.debug("depth_first({})[{}] {} dataset open failure", parentObject, i, obj_name);
-                    }
-                }
-                catch (Exception ex) {
-                    log.debug("depth_first({})[{}] {} dataset access failure: ", parentObject, i, obj_name,
-                              ex);
-                }
-                finally {
-                    try {
-                        H5.H5Tclose(tid);
-                    }
-                    catch (Exception ex) {
-                        log.debug("depth_first({})[{}] daatset {} H5Tclose(tid {}) failure: ", parentObject,
-                                  i, obj_name, tid, ex);
-                    }
-                    try {
-                        H5.H5Dclose(did);
-                    }
-                    catch (Exception ex) {
-                        log.debug("depth_first({})[{}] dataset {} H5Dclose(did {}) failure: ", parentObject,
-                                  i, obj_name, did, ex);
-                    }
-                }
-                Dataset d = null;
-                if (tclass == HDF5Constants.H5T_COMPOUND) {
-                    // create a new compound dataset
-                    d = new H5CompoundDS(this, obj_name, fullPath);
+                HObject d = null;
+                if (isLoadOnDemand()) {
+                    // the datatype is read when the dataset is first requested
+                    d = new H5UnresolvedDS(this, obj_name, fullPath, oid, objInfo);
                 }
                 else {
-                    // create a new scalar dataset
-                    d = new H5ScalarDS(this, obj_name, fullPath);
+                    d = getDataset(obj_name, fullPath, oid, objInfo);
                 }
-                oid = d.getOID();
 
                 pgroup.addToMemberList(d);
             }
             else if (obj_type == HDF5Constants.H5O_TYPE_NAMED_DATATYPE) {
-                Datatype t = new H5Datatype(parentObject.getFileFormat(), obj_name, fullPath);
+                Datatype t = new H5Datatype(parentObject.getFileFormat(), obj_name, fullPath, oid, objInfo);
                 log.trace("depth_first({}): H5O_TYPE_NAMED_DATATYPE name={}", parentObject, t.getFullName());
-                oid = t.getOID();
 
                 pgroup.addToMemberList(t);
             }
             else if (obj_type == HDF5Constants.H5O_TYPE_UNKNOWN) {
                 H5Link link = new H5Link(this, obj_name, fullPath);
-                oid         = link.getOID();
 
                 pgroup.addToMemberList(link);
                 continue; // do the next one, if the object is not identified.
@@ -2641,6 +2804,10 @@ public class H5File extends FileFormat {
             currentObject = queue.remove();
             allMembers.add(currentObject);
 
+            // do not read in groups whose members were never loaded
+            if ((currentObject instanceof H5Group) && !((H5Group)currentObject).isMemberListLoaded())
+                continue;
+
             if (currentObject instanceof Group) {
                 queue.addAll(((Group)currentObject).getMemberList());
             }
@@ -2774,6 +2941,124 @@ public class H5File extends FileFormat {
         return dataset;
     }
 
+    /**
+     * Returns the basic information of an object in a file.
+     *
+     * @param theFile
+     *            the file that contains the object.
+     * @param fullName
+     *            the full path of the object.
+     *
+     * @return the object information, without a token if the object can not be found.
+     */
+    static H5O_info_t getObjectInfo(FileFormat theFile, String fullName)
+    {
+        try {
+            return H5.H5Oget_info_by_name(theFile.getFID(), fullName, HDF5Constants.H5O_INFO_BASIC,
+                                          HDF5Constants.H5P_DEFAULT);
+        }
+        catch (Exception ex) {
+            log.debug("getObjectInfo(): {} failed H5Oget_info_by_name", fullName);
+            return new H5O_info_t(-1L, null, 0, 0, 0L, 0L, 0L, 0L, 0L);
+        }
+    }
+
+    /**
+     * Returns the object ID of an object, which is its object token. Group members loaded from the file and
+     * objects created, copied or retrieved by name all use this form, and it is the leading part of an
+     * object reference, so the OID of an object matches references to it with {@link HObject#equalsOID}.
+     *
+     * @param info
+     *            the object information.
+     *
+     * @return the object ID, or null if the object information has no token.
+     */
+    static long[] getObjectID(H5O_info_t info)
+    {
+        if ((info == null) || (info.token == null))
+            return null;
+
+        return HDFNativeData.byteToLong(info.token.data);
+    }
+
+    /**
+     * Creates a compound or scalar dataset object for a dataset in the file. The class of the dataset is
+     * determined by the class of its datatype, or of the base datatype for ARRAY and VLEN datatypes.
+     *
+     * @param name
+     *            the name of the dataset
+     * @param path
+     *            the full group path of the dataset
+     * @param oid
+     *            the oid of the dataset, or null to retrieve it from the file
+     * @param info
+     *            the basic object information of the dataset, or null to retrieve it from the file
+     *
+     * @return the new dataset object.
+     */
+    Dataset getDataset(String name, String path, long[] oid, H5O_info_t info)
+    {
+        long did   = -1;
+        long tid   = -1;
+        int tclass = -1;
+        try {
+            // the pooled identifier is reused when the dataset is opened next, e.g. to be displayed
+            did = openDataset(path + name, null, 0);
+            if (did >= 0) {
+                tid = H5.H5Dget_type(did);
+
+                tclass = H5.H5Tget_class(tid);
+                if ((tclass == HDF5Constants.H5T_ARRAY) || (tclass == HDF5Constants.H5T_VLEN)) {
+                    // for ARRAY, the type is determined by the base type
+                    long btid = H5.H5Tget_super(tid);
+
+                    tclass = H5.H5Tget_class(btid);
+
+                    try {
+                        H5.H5Tclose(btid);
+                    }
+                    catch (Exception ex) {
+                        log.debug("getDataset(): dataset {} H5Tclose(btid {}) failure: ", name, btid, ex);
+                    }
+                }
+            }
+            else {
+                log.debug("getDataset(): {} dataset open failure", name);
+            }
+        }
+        catch (Exception ex) {
+            log.debug("getDataset(): {} dataset access failure: ", name, ex);
+        }
+        finally {
+            try {
+                H5.H5Tclose(tid);
+            }
+            catch (Exception ex) {
+                log.debug("getDataset(): dataset {} H5Tclose(tid {}) failure: ", name, tid, ex);
+            }
+            if ((did >= 0) && !releaseHandle(did)) {
+                try {
+                    H5.H5Dclose(did);
+                }
+                catch (Exception ex) {
+                    log.debug("getDataset(): dataset {} H5Dclose(did {}) failure: ", name, did, ex);
+                }
+            }
+        }
+
+        Dataset d = null;
+        if (tclass == HDF5Constants.H5T_COMPOUND) {
+            // create a new compound dataset
+            d = new H5CompoundDS(this, name, path, oid, info);
+        }
+        else {
+            // create a new scalar dataset
+            d = new H5ScalarDS(this, name, path, oid, info);
+        }
+
+        return d;
+    }
+
     /**
      * Copies a named datatype to another location.
      *
@@ -2878,7 +3163,8 @@ public class H5File extends FileFormat {
             }
 
             group = new H5Group(dstGroup.getFileFormat(), dstName, path, dstGroup);
-            depth_first(group, Integer.MIN_VALUE); // reload all
+            if (!isLoadOnDemand())
+                depth_first(group, Integer.MIN_VALUE); // reload all
             dstGroup.addToMemberList(group);
         }
 
@@ -2942,6 +3228,10 @@ public class H5File extends FileFormat {
 
         H5Group group = new H5Group(this, name, parentPath, pGroup);
 
+        // the members are read when the member list is first requested
+        if (isLoadOnDemand())
+            return group;
+
         H5G_info_t group_info = null;
         H5O_info_t obj_info   = null;
         long objid            = -1;
@@ -3160,6 +3450,10 @@ public class H5File extends FileFormat {
             if (currentFullPath.equals(newFullPath))
                 throw new HDF5Exception("The new name is the same as the current name.");
 
+            // pooled identifiers are looked up by path, which changes for the object and its members
+            if (obj.getFileFormat() instanceof H5File)
+                ((H5File)obj.getFileFormat()).clearHandlePool();
+
             // Call the library to move things in the file if object exists
             if (obj.getName() != null)
                 H5.H5Lmove(obj.getFID(), currentFullPath, obj.getFID(), newFullPath,
@@ -18,6 +18,7 @@ import java.util.List;
 import java.util.Vector;
 
 import hdf.object.Attribute;
+import hdf.object.Dataset;
 import hdf.object.FileFormat;
 import hdf.object.Group;
 import hdf.object.HObject;
@@ -63,6 +64,12 @@ public class H5Group extends Group {
     /** the object properties */
     private H5O_info_t objInfo;
 
+    /**
+     * Flag to indicate if the members of this group have been read from the file. Only used when the file
+     * loads group members on demand.
+     */
+    private boolean membersLoaded = false;
+
     /**
      * Constructs an HDF5 group with specific name, path, and parent.
      *
@@ -97,38 +104,44 @@ public class H5Group extends Group {
      */
     @Deprecated
     public H5Group(FileFormat theFile, String theName, String thePath, Group theParent, long[] oid)
+    {
+        this(theFile, theName, thePath, theParent, oid, null);
+    }
+
+    /**
+     * Constructs an HDF5 group from the object information retrieved while iterating its parent
+     * group. When the oid and the object information are both known, no native calls are needed to
+     * identify the object.
+     *
+     * @param theFile
+     *            the file that contains the group.
+     * @param theName
+     *            the name of this group, e.g. "grp01".
+     * @param thePath
+     *            the full path of this group, e.g. "/groups/".
+     * @param theParent
+     *            the parent of this group.
+     * @param oid
+     *            the oid of this group.
+     * @param info
+     *            the basic object information, or null to retrieve it from the file.
+     */
+    @SuppressWarnings("deprecation")
+    H5Group(FileFormat theFile, String theName, String thePath, Group theParent, long[] oid, H5O_info_t info)
     {
         super(theFile, theName, thePath, theParent, oid);
         nMembersInFile = -1;
         objMetadata    = new H5MetaDataContainer(theFile, theName, thePath, this);
 
         if (theFile != null) {
+            // the object info is retrieved when first needed, unless the object must be identified now
+            objInfo = info;
             if (oid == null) {
-                // retrieve the object ID
-                byte[] refBuf = null;
-                try {
-                    refBuf =
-                        H5.H5Rcreate_object(theFile.getFID(), this.getFullName(), HDF5Constants.H5P_DEFAULT);
-                    this.oid = HDFNativeData.byteToLong(refBuf);
-                    log.trace("constructor REF {} to OID {}", refBuf, this.oid);
-                }
-                catch (Exception ex) {
-                    log.debug("constructor ID {} for {} failed H5Rcreate_object", theFile.getFID(),
-                              this.getFullName());
-                }
-                finally {
-                    if (refBuf != null)
-                        H5.H5Rdestroy(refBuf);
-                }
+                // the object ID is the object token, as for the group members loaded by H5File
+                objInfo  = H5File.getObjectInfo(theFile, this.getFullName());
+                this.oid = H5File.getObjectID(objInfo);
             }
             log.trace("constructor OID {}", this.oid);
-            try {
-                objInfo = H5.H5Oget_info_by_name(theFile.getFID(), this.getFullName(),
-                                                 HDF5Constants.H5O_INFO_BASIC, HDF5Constants.H5P_DEFAULT);
-            }
-            catch (Exception ex) {
-                objInfo = new H5O_info_t(-1L, null, 0, 0, 0L, 0L, 0L, 0L, 0L);
-            }
         }
         else {
             this.oid = null;
@@ -188,10 +201,21 @@ public class H5Group extends Group {
      */
     public long[] getToken()
     {
-        H5O_token_t token = objInfo.token;
+        H5O_token_t token = getObjectInfo().token;
         return HDFNativeData.byteToLong(token.data);
     }
 
+    /**
+     * Returns the basic object information, retrieving it from the file when first needed.
+     */
+    private H5O_info_t getObjectInfo()
+    {
+        if (objInfo == null)
+            objInfo = H5File.getObjectInfo(getFileFormat(), getFullName());
+
+        return objInfo;
+    }
+
     /**
      * Check if the object has any attributes attached.
      *
@@ -200,30 +224,31 @@ public class H5Group extends Group {
     @Override
     public boolean hasAttribute()
     {
-        objInfo.num_attrs = objMetadata.getObjectAttributeSize();
+        long nAttrs = objMetadata.getObjectAttributeSize();
 
-        if (objInfo.num_attrs < 0) {
+        if (nAttrs < 0) {
             long gid = open();
             if (gid > 0) {
                 try {
                     objInfo = H5.H5Oget_info(gid);
+                    nAttrs  = objInfo.num_attrs;
                 }
                 catch (Exception ex) {
-                    objInfo.num_attrs = 0;
+                    nAttrs = 0;
                     log.debug("hasAttribute(): get object info failure: ", ex);
                 }
                 finally {
                     close(gid);
                 }
-                objMetadata.setObjectAttributeSize((int)objInfo.num_attrs);
+                objMetadata.setObjectAttributeSize((int)nAttrs);
             }
             else {
                 log.debug("hasAttribute(): could not open group");
             }
         }
 
-        log.trace("hasAttribute(): nAttributes={}", objInfo.num_attrs);
-        return (objInfo.num_attrs > 0);
+        log.trace("hasAttribute(): nAttributes={}", nAttrs);
+        return (nAttrs > 0);
     }
 
     /*
@@ -251,6 +276,126 @@ public class H5Group extends Group {
         return nMembersInFile;
     }
 
+    /**
+     * Checks if the members of this group have been read into memory.
+     *
+     * When the file loads the full hierarchy at open time this is always true. When the file loads group
+     * members on demand, it is false until the member list of this group is first requested.
+     *
+     * @return true if the members of this group are in memory, false otherwise.
+     *
+     * @see hdf.object.FileFormat#setLoadOnDemand(boolean)
+     */
+    public boolean isMemberListLoaded()
+    {
+        return membersLoaded || (fileFormat == null) || !fileFormat.isLoadOnDemand();
+    }
+
+    /**
+     * Returns the list of members of this group.
+     *
+     * When the file loads group members on demand, the links of this group are read from the file the
+     * first time this method is called. Subgroups are not followed, and datasets are added as
+     * {@link H5UnresolvedDS} placeholders that are not opened until they are requested through
+     * {@link #getMember(int)}, {@link #resolveMember(H5UnresolvedDS)} or a lookup by path.
+     *
+     * @return the list of members of this group.
+     */
+    @Override
+    public List<HObject> getMemberList()
+    {
+        if (!isMemberListLoaded())
+            loadMembers();
+
+        return super.getMemberList();
+    }
+
+    /**
+     * Get the HObject at the specified index in this Group's member list.
+     *
+     * A dataset that was loaded on demand is kept as an {@link H5UnresolvedDS} until it is requested here;
+     * its datatype is then read and it is replaced in the member list by the compound or scalar dataset.
+     *
+     * @param idx The index of the HObject to get.
+     *
+     * @return The HObject at the specified index.
+     */
+    @Override
+    public HObject getMember(int idx)
+    {
+        HObject obj = super.getMember(idx);
+
+        if (obj instanceof H5UnresolvedDS) {
+            obj = ((H5UnresolvedDS)obj).resolve();
+            setMember(idx, obj);
+        }
+
+        return obj;
+    }
+
+    /**
+     * Reads the datatype of a dataset member that was loaded on demand and replaces it in the member list
+     * by the compound or scalar dataset.
+     *
+     * @param placeholder
+     *            the member to resolve.
+     *
+     * @return the dataset that replaces the member.
+     */
+    public Dataset resolveMember(H5UnresolvedDS placeholder)
+    {
+        Dataset dataset = placeholder.resolve();
+
+        int idx = super.getMemberList().indexOf(placeholder);
+        if (idx >= 0)
+            setMember(idx, dataset);
+
+        return dataset;
+    }
+
+    /**
+     * Adds an object to the member list of this group in memory.
+     *
+     * When the file loads group members on demand and the members of this group have not been read yet,
+     * they are read first so that the new object is placed after the existing members. Since the new
+     * object already exists in the file, the copy just read back in is replaced by the given object.
+     *
+     * @param object
+     *            the HObject to be added to the member list.
+     */
+    @Override
+    public void addToMemberList(HObject object)
+    {
+        if ((object != null) && !isMemberListLoaded()) {
+            loadMembers();
+
+            List<HObject> members = super.getMemberList();
+            for (int i = 0; i < members.size(); i++) {
+                HObject member = members.get(i);
+                if ((member != object) && object.getFullName().equals(member.getFullName())) {
+                    removeFromMemberList(member);
+                    break;
+                }
+            }
+        }
+
+        super.addToMemberList(object);
+    }
+
+    /**
+     * Reads the immediate members of this group from the file.
+     */
+    private void loadMembers()
+    {
+        if (getFID() < 0) {
+            log.debug("loadMembers(): file {} is not open", getFile());
+            return;
+        }
+
+        membersLoaded = true;
+        ((H5File)fileFormat).loadMembers(this);
+    }
+
     /**
      * Removes all of the elements from metadata list.
      * The list should be empty after this call returns.
@@ -259,6 +404,7 @@ public class H5Group extends Group {
     public void clear()
     {
         super.clear();
+        membersLoaded = false;
         objMetadata.clear();
     }
 
@@ -439,6 +585,10 @@ public class H5Group extends Group {
     {
         super.setPath(newPath);
 
+        // members not read yet will get the new path when they are loaded
+        if (!isMemberListLoaded())
+            return;
+
         List members = this.getMemberList();
         if (members == null)
             return;
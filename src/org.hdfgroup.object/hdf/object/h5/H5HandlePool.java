@@ -0,0 +1,246 @@
+/*****************************************************************************
+ * Copyright by The HDF Group.                                               *
+ * Copyright by the Board of Trustees of the University of Illinois.         *
+ * All rights reserved.                                                      *
+ *                                                                           *
+ * This file is part of the HDF Java Products distribution.                  *
+ * The full copyright notice, including terms governing use, modification,   *
+ * and redistribution, is contained in the COPYING file, which can be found  *
+ * at the root of the source code distribution tree,                         *
+ * or in https://www.hdfgroup.org/licenses.                                  *
+ * If you do not have access to either file, you may request a copy from     *
+ * help@hdfgroup.org.                                                        *
+ ****************************************************************************/
+
+package hdf.object.h5;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import hdf.hdf5lib.H5;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A least-recently-used pool of open object identifiers of one file, keyed by the full path of the object.
+ *
+ * Opening a dataset by path makes the library traverse the groups and look up the object header every
+ * time. The pool keeps a bounded number of identifiers open so that repeated open/close pairs on the same
+ * object, e.g. when paging through the frames of a dataset, reuse one identifier. An identifier is counted
+ * while it is in use and is only closed once it has been released and has dropped out of the pool.
+ */
+final class H5HandlePool {
+    private static final Logger log = LoggerFactory.getLogger(H5HandlePool.class);
+
+    /** An open identifier and the number of users that hold it. */
+    private static final class Entry {
+        final String key;
+        final String path;
+        final long id;
+        int refCount;
+        boolean isRetired;
+
+        Entry(String key, String path, long id)
+        {
+            this.key      = key;
+            this.path     = path;
+            this.id       = id;
+            this.refCount = 1;
+        }
+    }
+
+    /** the pooled entries by key, in least-recently-used order */
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    /** the pooled and retired entries by identifier */
+    private final Map<Long, Entry> entriesById = new HashMap<>();
+
+    /** the maximum number of identifiers kept open when not in use */
+    private int capacity;
+
+    H5HandlePool(int capacity) { this.capacity = capacity; }
+
+    synchronized int getCapacity() { return capacity; }
+
+    synchronized void setCapacity(int capacity)
+    {
+        this.capacity = Math.max(0, capacity);
+        evict();
+    }
+
+    /**
+     * Returns the pooled identifier of an object and marks it in use.
+     *
+     * @param key
+     *            the full path of the object, followed by its access properties if it was not opened with
+     *            the default ones.
+     *
+     * @return the identifier, or a negative value if the object is not in the pool.
+     */
+    synchronized long acquire(String key)
+    {
+        Entry entry = entries.get(key);
+        if (entry == null)
+            return -1;
+
+        entry.refCount++;
+        return entry.id;
+    }
+
+    /**
+     * Adds a newly opened identifier to the pool and marks it in use. If the pool is disabled or already
+     * holds the path, the identifier is not pooled and {@link #release(long)} will return false for it.
+     *
+     * @param path
+     *            the full path of the object.
+     * @param id
+     *            the identifier of the open object.
+     */
+    synchronized void add(String path, long id) { add(path, path, id); }
+
+    /**
+     * Adds a newly opened identifier to the pool under a key that also names its access properties, and
+     * marks it in use. If the pool is disabled or already holds the key, the identifier is not pooled and
+     * {@link #release(long)} will return false for it.
+     *
+     * @param key
+     *            the full path of the object, followed by its access properties.
+     * @param path
+     *            the full path of the object.
+     * @param id
+     *            the identifier of the open object.
+     */
+    synchronized void add(String key, String path, long id)
+    {
+        if ((capacity <= 0) || (key == null) || (id < 0) || entries.containsKey(key))
+            return;
+
+        Entry entry = new Entry(key, path, id);
+        entries.put(key, entry);
+        entriesById.put(id, entry);
+        evict();
+    }
+
+    /**
+     * Closes the pooled identifiers of an object that were opened under a key other than the given one.
+     * The library shares one open object between all identifiers of a dataset and only applies the access
+     * properties of the first open, so the object has to be closed before it is opened with other
+     * properties.
+     *
+     * @param key
+     *            the key the object is about to be opened under.
+     * @param path
+     *            the full path of the object.
+     *
+     * @return true if no other identifier of the object is pooled, false if one is still in use and the
+     *         object keeps the properties it was opened with.
+     */
+    synchronized boolean closeOthers(String key, String path)
+    {
+        boolean isClosed = true;
+
+        Iterator<Entry> it = entries.values().iterator();
+        while (it.hasNext()) {
+            Entry entry = it.next();
+            if (entry.key.equals(key) || !entry.path.equals(path))
+                continue;
+
+            if (entry.refCount > 0) {
+                isClosed = false;
+                continue;
+            }
+
+            it.remove();
+            entriesById.remove(entry.id);
+            closeEntry(entry);
+        }
+
+        return isClosed;
+    }
+
+    /**
+     * Gives back an identifier obtained from {@link #acquire(String)} or passed to {@link #add(String, long)}.
+     *
+     * @param id
+     *            the identifier of the open object.
+     *
+     * @return true if the identifier belongs to the pool, false if the caller has to close it.
+     */
+    synchronized boolean release(long id)
+    {
+        Entry entry = entriesById.get(id);
+        if (entry == null)
+            return false;
+
+        if (entry.refCount > 0)
+            entry.refCount--;
+        if (entry.isRetired) {
+            if (entry.refCount == 0) {
+                entriesById.remove(id);
+                closeEntry(entry);
+            }
+        }
+        else
+            evict();
+
+        return true;
+    }
+
+    /**
+     * Drops all entries from the pool, e.g. after objects have been moved or deleted. Identifiers that are
+     * still in use are closed when they are released.
+     */
+    synchronized void clear()
+    {
+        for (Entry entry : entries.values()) {
+            entry.isRetired = true;
+            if (entry.refCount == 0) {
+                entriesById.remove(entry.id);
+                closeEntry(entry);
+            }
+        }
+        entries.clear();
+    }
+
+    /**
+     * Closes every identifier of the pool, whether in use or not. Used when the file is closed.
+     */
+    synchronized void closeAll()
+    {
+        for (Entry entry : entriesById.values())
+            closeEntry(entry);
+        entries.clear();
+        entriesById.clear();
+    }
+
+    /**
+     * Closes the least recently used identifiers that are not in use until the pool fits its capacity.
+     */
+    private void evict()
+    {
+        Iterator<Entry> it = entries.values().iterator();
+        while ((entries.size() > capacity) && it.hasNext()) {
+            Entry entry = it.next();
+            if (entry.refCount > 0)
+                continue;
+
+            it.remove();
+            entriesById.remove(entry.id);
+            closeEntry(entry);
+        }
+    }
+
+    private static void closeEntry(Entry entry)
+    {
+        try {
+            H5.H5Oclose(entry.id);
+            log.trace("closeEntry(): closed {} id={}", entry.path, entry.id);
+        }
+        catch (Exception ex) {
+            log.debug("closeEntry(): H5Oclose(id {}) failure: ", entry.id, ex);
+        }
+    }
+}
@@ -85,32 +85,12 @@ public class H5Link extends HObject implements MetaDataContainer {
         super(theFile, theName, thePath, oid);
 
         if (theFile != null) {
+            objInfo = H5File.getObjectInfo(theFile, this.getFullName());
             if (oid == null) {
-                // retrieve the object ID
-                byte[] refBuf = null;
-                try {
-                    refBuf =
-                        H5.H5Rcreate_object(theFile.getFID(), this.getFullName(), HDF5Constants.H5P_DEFAULT);
-                    this.oid = HDFNativeData.byteToLong(refBuf);
-                    log.trace("constructor REF {} to OID {}", refBuf, this.oid);
-                }
-                catch (Exception ex) {
-                    log.debug("constructor ID {} for {} failed H5Rcreate_object", theFile.getFID(),
-                              this.getFullName());
-                }
-                finally {
-                    if (refBuf != null)
-                        H5.H5Rdestroy(refBuf);
-                }
+                // the object ID is the object token, as for the group members loaded by H5File
+                this.oid = H5File.getObjectID(objInfo);
             }
             log.trace("constructor OID {}", this.oid);
-            try {
-                objInfo = H5.H5Oget_info_by_name(theFile.getFID(), this.getFullName(),
-                                                 HDF5Constants.H5O_INFO_BASIC, HDF5Constants.H5P_DEFAULT);
-            }
-            catch (Exception ex) {
-                objInfo = new H5O_info_t(-1L, null, 0, 0, 0L, 0L, 0L, 0L, 0L);
-            }
         }
         else {
             this.oid = null;
@@ -14,16 +14,23 @@
 
 package hdf.object.h5;
 
+import java.io.File;
 import java.lang.reflect.Array;
 import java.math.BigDecimal;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.text.DecimalFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Vector;
 
 import hdf.object.Attribute;
+import hdf.object.DataBuffer;
 import hdf.object.Dataset;
 import hdf.object.Datatype;
+import hdf.object.DirtyRegions;
 import hdf.object.FileFormat;
 import hdf.object.Group;
 import hdf.object.HObject;
@@ -91,6 +98,24 @@ public class H5ScalarDS extends ScalarDS implements MetaDataContainer {
      */
     protected boolean isNativeDatatype = false;
 
+    /** the raw data of a contiguous, unfiltered dataset mapped from the file, or null */
+    private transient DataBuffer mappedData = null;
+
+    /** true once the storage of the dataset has been checked for mapping */
+    private transient boolean isMappingChecked = false;
+
+    /** flag to indicate if compressed chunks may be decoded in parallel */
+    private boolean isParallelChunkRead = false;
+
+    /** flag to indicate if compressed chunks may be encoded in parallel */
+    private boolean isParallelChunkWrite = true;
+
+    /** the reader that decodes compressed chunks in parallel, or null */
+    private transient H5ChunkReader chunkReader = null;
+
+    /** true once the filters of the dataset have been checked for parallel decoding */
+    private transient boolean isChunkReaderChecked = false;
+
     /**
      * Constructs an instance of a H5 scalar dataset with given file, dataset name and path.
      *
@@ -124,6 +149,28 @@ public class H5ScalarDS extends ScalarDS implements MetaDataContainer {
      */
     @Deprecated
     public H5ScalarDS(FileFormat theFile, String theName, String thePath, long[] oid)
+    {
+        this(theFile, theName, thePath, oid, null);
+    }
+
+    /**
+     * Constructs an HDF5 data object from the object information retrieved while iterating its parent
+     * group. When the oid and the object information are both known, no native calls are needed to
+     * identify the object.
+     *
+     * @param theFile
+     *            the file that contains the data object.
+     * @param theName
+     *            the name of the data object, e.g. "dset".
+     * @param thePath
+     *            the full path of the data object, e.g. "/arrays/".
+     * @param oid
+     *            the oid of the data object.
+     * @param info
+     *            the basic object information, or null to retrieve it from the file.
+     */
+    @SuppressWarnings("deprecation")
+    H5ScalarDS(FileFormat theFile, String theName, String thePath, long[] oid, H5O_info_t info)
     {
         super(theFile, theName, thePath, oid);
         unsignedConverted = false;
@@ -131,32 +178,14 @@ public class H5ScalarDS extends ScalarDS implements MetaDataContainer {
         objMetadata       = new H5MetaDataContainer(theFile, theName, thePath, this);
 
         if (theFile != null) {
+            // the object info is retrieved when first needed, unless the object must be identified now
+            objInfo = info;
             if (oid == null) {
-                // retrieve the object ID
-                byte[] refBuf = null;
-                try {
-                    refBuf =
-                        H5.H5Rcreate_object(theFile.getFID(), this.getFullName(), HDF5Constants.H5P_DEFAULT);
-                    this.oid = HDFNativeData.byteToLong(refBuf);
-                    log.trace("constructor REF {} to OID {}", refBuf, this.oid);
-                }
-                catch (Exception ex) {
-                    log.debug("constructor ID {} for {} failed H5Rcreate_object", theFile.getFID(),
-                              this.getFullName());
-                }
-                finally {
-                    if (refBuf != null)
-                        H5.H5Rdestroy(refBuf);
-                }
+                // the object ID is the object token, as for the group members loaded by H5File
+                objInfo  = H5File.getObjectInfo(theFile, this.getFullName());
+                this.oid = H5File.getObjectID(objInfo);
             }
             log.trace("constructor OID {}", this.oid);
-            try {
-                objInfo = H5.H5Oget_info_by_name(theFile.getFID(), this.getFullName(),
-                                                 HDF5Constants.H5O_INFO_BASIC, HDF5Constants.H5P_DEFAULT);
-            }
-            catch (Exception ex) {
-                objInfo = new H5O_info_t(-1L, null, 0, 0, 0L, 0L, 0L, 0L, 0L);
-            }
         }
         else {
             this.oid = null;
@@ -178,7 +207,8 @@ public class H5ScalarDS extends ScalarDS implements MetaDataContainer {
             log.trace("open(): file id for:{} is invalid", getPath() + getName());
         else {
             try {
-                did = H5.H5Dopen(getFID(), getPath() + getName(), HDF5Constants.H5P_DEFAULT);
+                did = ((H5File)getFileFormat())
+                          .openDataset(getPath() + getName(), getChunkCacheSize(), getChunkCacheW0());
                 log.trace("open(): did={}", did);
             }
             catch (HDF5Exception ex) {
@@ -205,6 +235,8 @@ public class H5ScalarDS extends ScalarDS implements MetaDataContainer {
             catch (Exception ex) {
                 log.debug("close(): H5Fflush(did {}) failure: ", did, ex);
             }
+            if (((H5File)getFileFormat()).releaseHandle(did))
+                return;
             try {
                 H5.H5Dclose(did);
             }
@@ -291,6 +323,12 @@ public class H5ScalarDS extends ScalarDS implements MetaDataContainer {
                     int nfiles     = H5.H5Pget_external_count(pid);
                     isExternal     = (nfiles > 0);
                     int layoutType = H5.H5Pget_layout(pid);
+                    if (layoutType == HDF5Constants.H5D_CHUNKED) {
+                        // the chunk size is needed to size the chunk cache before getMetadata() is called
+                        long[] chunkDims = new long[H5File.MAX_RANK];
+                        int chunkRank    = H5.H5Pget_chunk(pid, chunkDims.length, chunkDims);
+                        chunkSize        = Arrays.copyOf(chunkDims, chunkRank);
+                    }
                     if (isVirtual = (layoutType == HDF5Constants.H5D_VIRTUAL)) {
                         try {
                             long vmaps = H5.H5Pget_virtual_count(pid);
@@ -510,10 +548,21 @@ public class H5ScalarDS extends ScalarDS implements MetaDataContainer {
      */
     public long[] getToken()
     {
-        H5O_token_t token = objInfo.token;
+        H5O_token_t token = getObjectInfo().token;
         return HDFNativeData.byteToLong(token.data);
     }
 
+    /**
+     * Returns the basic object information, retrieving it from the file when first needed.
+     */
+    private H5O_info_t getObjectInfo()
+    {
+        if (objInfo == null)
+            objInfo = H5File.getObjectInfo(getFileFormat(), getFullName());
+
+        return objInfo;
+    }
+
     /**
      * Check if the object has any attributes attached.
      *
@@ -522,17 +571,18 @@ public class H5ScalarDS extends ScalarDS implements MetaDataContainer {
     @Override
     public boolean hasAttribute()
     {
-        objInfo.num_attrs = objMetadata.getObjectAttributeSize();
+        long nAttrs = objMetadata.getObjectAttributeSize();
 
-        if (objInfo.num_attrs < 0) {
+        if (nAttrs < 0) {
             long did = open();
             if (did >= 0) {
-                objInfo.num_attrs = 0;
+                nAttrs = 0;
 
                 try {
                     objInfo = H5.H5Oget_info(did);
+                    nAttrs  = objInfo.num_attrs;
 
-                    if (objInfo.num_attrs > 0) {
+                    if (nAttrs > 0) {
                         // test if it is an image
                         // check image
                         Object avalue = getAttrValue(did, "CLASS");
@@ -576,21 +626,21 @@ public class H5ScalarDS extends ScalarDS implements MetaDataContainer {
                     }
                 }
                 catch (Exception ex) {
-                    objInfo.num_attrs = 0;
+                    nAttrs = 0;
                     log.debug("hasAttribute(): get object info failure: ", ex);
                 }
                 finally {
                     close(did);
                 }
-                objMetadata.setObjectAttributeSize((int)objInfo.num_attrs);
+                objMetadata.setObjectAttributeSize((int)nAttrs);
             }
             else {
                 log.debug("hasAttribute(): could not open dataset");
             }
         }
 
-        log.trace("hasAttribute(): nAttributes={}", objInfo.num_attrs);
-        return (objInfo.num_attrs > 0);
+        log.trace("hasAttribute(): nAttributes={}", nAttrs);
+        return (nAttrs > 0);
     }
 
     /**
@@ -655,12 +705,7 @@ public class H5ScalarDS extends ScalarDS implements MetaDataContainer {
                     catch (HDF5Exception ex) {
                         log.debug("getDatatype(): H5Tclose(tid {}) failure: ", tid, ex);
                     }
-                    try {
-                        H5.H5Dclose(did);
-                    }
-                    catch (HDF5Exception ex) {
-                        log.debug("getDatatype(): H5Dclose(did {}) failure: ", did, ex);
-                    }
+                    close(did);
                 }
             }
         }
@@ -777,6 +822,613 @@ public class H5ScalarDS extends ScalarDS implements MetaDataContainer {
         return theData;
     }
 
+    /*
+     * (non-Javadoc)
+     *
+     * @see hdf.object.Dataset#isBufferReadable()
+     */
+    @Override
+    public boolean isBufferReadable()
+    {
+        if (!isInited())
+            init();
+
+        return (getBufferClassType() != ' ');
+    }
+
+    /**
+     * Returns the DataBuffer type character of the datatype, or ' ' if the datatype can not be read into a
+     * DataBuffer.
+     */
+    private char getBufferClassType()
+    {
+        Datatype dsDatatype = getDatatype();
+        if ((dsDatatype == null) || isNULL)
+            return ' ';
+
+        long size = dsDatatype.getDatatypeSize();
+        if (dsDatatype.isInteger()) {
+            if (size == 1)
+                return 'B';
+            else if (size == 2)
+                return 'S';
+            else if (size == 4)
+                return 'I';
+            else if (size == 8)
+                return 'J';
+        }
+        else if (dsDatatype.isFloat()) {
+            if (size == 4)
+                return 'F';
+            else if (size == 8)
+                return 'D';
+        }
+
+        return ' ';
+    }
+
+    /**
+     * Reads the current selection into an off-heap buffer.
+     *
+     * The selection is read in slabs of about {@link hdf.object.Dataset#BLOCK_SIZE_BYTES} bytes that are
+     * contiguous in the buffer, so that no Java array larger than one slab is ever allocated. Only integer
+     * and floating-point datatypes of 1, 2, 4 or 8 bytes are supported.
+     *
+     * @return the buffer that holds the values of the selection.
+     *
+     * @throws Exception
+     *             if the data can not be read
+     *
+     * @see hdf.object.Dataset#readBuffer()
+     */
+    @Override
+    public DataBuffer readBuffer() throws Exception
+    {
+        if (!isInited())
+            init();
+
+        char classType = getBufferClassType();
+        if (classType == ' ')
+            throw new UnsupportedOperationException("readBuffer: unsupported datatype " +
+                                                    getDatatype().getDescription());
+
+        H5Datatype dsDatatype = (H5Datatype)getDatatype();
+        int elementSize       = DataBuffer.getElementSize(classType);
+
+        long totalPoints = 1;
+        boolean isAll    = true;
+        for (int i = 0; i < rank; i++) {
+            totalPoints *= selectedDims[i];
+            if ((startDims[i] != 0) || (selectedDims[i] != dims[i]) ||
+                ((selectedStride != null) && (selectedStride[i] != 1)))
+                isAll = false;
+        }
+
+        // the whole of a mapped dataset is served without copying
+        DataBuffer mapped = getMappedData();
+        if (isAll && (mapped != null))
+            return mapped;
+
+        DataBuffer buffer = new DataBuffer(totalPoints, classType, dsDatatype.isUnsigned());
+        if (totalPoints == 0)
+            return buffer;
+
+        // Build a slab that is contiguous in the buffer: whole rows of the fastest changing
+        // dimensions, then as many rows of the next dimension as fit in one block.
+        long maxPoints = Math.max(1, BLOCK_SIZE_BYTES / elementSize);
+        long[] slab    = new long[rank];
+        int splitDim   = 0;
+        long points    = 1;
+        for (int i = rank - 1; i >= 0; i--) {
+            if (points * selectedDims[i] <= maxPoints) {
+                slab[i] = selectedDims[i];
+                points *= slab[i];
+            }
+            else {
+                slab[i] = Math.max(1, maxPoints / points);
+                points *= slab[i];
+                splitDim = i;
+                for (int j = i - 1; j >= 0; j--)
+                    slab[j] = 1;
+                break;
+            }
+        }
+
+        long[] stride = new long[rank];
+        for (int i = 0; i < rank; i++)
+            stride[i] = (selectedStride == null) ? 1 : selectedStride[i];
+
+        long did = open();
+        if (did < 0) {
+            log.debug("readBuffer(): failed to open dataset");
+            throw new HDF5Exception("failed to open dataset " + getFullName());
+        }
+
+        long tid = HDF5Constants.H5I_INVALID_HID;
+        try {
+            tid = dsDatatype.createNative();
+
+            byte[] staging  = null;
+            long[] position = new long[rank];
+            long[] start    = new long[rank];
+            long[] count    = new long[rank];
+            long byteOffset = 0;
+            boolean hasMore = true;
+            while (hasMore) {
+                long slabPoints = 1;
+                for (int i = 0; i < rank; i++) {
+                    start[i] = startDims[i] + position[i] * stride[i];
+                    count[i] = Math.min(slab[i], selectedDims[i] - position[i]);
+                    slabPoints *= count[i];
+                }
+
+                int nbytes = (int)(slabPoints * elementSize);
+                if ((staging == null) || (staging.length < nbytes))
+                    staging = new byte[nbytes];
+
+                long[] spaceIDs = {HDF5Constants.H5I_INVALID_HID,
+                                   HDF5Constants.H5I_INVALID_HID}; // spaceIDs[0]=mspace, spaceIDs[1]=fspace
+                try {
+                    H5Utils.selectHyperslab(did, dims, start, stride, count, spaceIDs);
+                    H5.H5Dread(did, tid, spaceIDs[0], spaceIDs[1], HDF5Constants.H5P_DEFAULT, staging);
+                }
+                finally {
+                    for (int i = 0; i < spaceIDs.length; i++) {
+                        if ((spaceIDs[i] >= 0) && (spaceIDs[i] != HDF5Constants.H5S_ALL)) {
+                            try {
+                                H5.H5Sclose(spaceIDs[i]);
+                            }
+                            catch (Exception ex) {
+                                log.debug("readBuffer(): H5Sclose(spaceIDs[{}] {}) failure: ", i, spaceIDs[i],
+                                          ex);
+                            }
+                        }
+                    }
+                }
+
+                buffer.put(byteOffset, staging, 0, nbytes);
+                byteOffset += nbytes;
+
+                // advance to the next slab; dimensions after splitDim are always read whole
+                hasMore = false;
+                for (int i = splitDim; i >= 0; i--) {
+                    position[i] += slab[i];
+                    if (position[i] < selectedDims[i]) {
+                        hasMore = true;
+                        break;
+                    }
+                    position[i] = 0;
+                }
+            }
+        }
+        catch (HDF5DataFiltersException exfltr) {
+            log.debug("readBuffer(): read failure: ", exfltr);
+            throw new Exception("Filter not available exception: " + exfltr.getMessage(), exfltr);
+        }
+        finally {
+            dsDatatype.close(tid);
+            close(did);
+        }
+
+        return buffer;
+    }
+
+    /**
+     * Returns the raw data of the dataset mapped from the file, or null if the dataset can not be mapped.
+     *
+     * A dataset is mapped only when mapped reads are enabled with {@link #setMappedIO(boolean)}, the file is
+     * opened read-only, the dataset is stored contiguously in the file without filters or external storage,
+     * and its datatype is a plain integer or IEEE floating-point type of 1, 2, 4 or 8 bytes. The raw bytes
+     * of such a dataset sit at one offset in the file and can be read without going through the library.
+     *
+     * @return the mapped raw data, or null.
+     */
+    private DataBuffer getMappedData()
+    {
+        if (!isMappedIO)
+            return null;
+        if (isMappingChecked)
+            return mappedData;
+        isMappingChecked = true;
+
+        char classType = getBufferClassType();
+        if ((classType == ' ') || !getFileFormat().isReadOnly() || isVirtual())
+            return null;
+
+        long did = open();
+        if (did < 0)
+            return null;
+
+        long pcid = HDF5Constants.H5I_INVALID_HID;
+        long tid  = HDF5Constants.H5I_INVALID_HID;
+        try {
+            pcid = H5.H5Dget_create_plist(did);
+            if ((H5.H5Pget_layout(pcid) != HDF5Constants.H5D_CONTIGUOUS) || (H5.H5Pget_nfilters(pcid) > 0) ||
+                (H5.H5Pget_external_count(pcid) > 0)) {
+                log.trace("getMappedData(): {} is not contiguous and unfiltered", getFullName());
+                return null;
+            }
+
+            tid                 = H5.H5Dget_type(did);
+            int elementSize     = DataBuffer.getElementSize(classType);
+            ByteOrder fileOrder = getPlainByteOrder(tid, classType);
+            if (fileOrder == null) {
+                log.trace("getMappedData(): {} has a datatype that needs conversion", getFullName());
+                return null;
+            }
+
+            long points = 1;
+            for (int i = 0; i < rank; i++)
+                points *= dims[i];
+
+            // an unallocated dataset has an undefined address
+            long offset = H5.H5Dget_offset(did);
+            long nbytes = points * elementSize;
+            if ((offset < 0) || (H5.H5Dget_storage_size(did) < nbytes))
+                return null;
+
+            File file = new File(getFileFormat().getAbsolutePath());
+            if (file.length() < offset + nbytes)
+                return null;
+
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                mappedData =
+                    DataBuffer.map(channel, offset, points, classType, getDatatype().isUnsigned(), fileOrder);
+            }
+            log.trace("getMappedData(): mapped {} at offset {}", getFullName(), offset);
+        }
+        catch (Exception ex) {
+            log.debug("getMappedData(): {} can not be mapped: ", getFullName(), ex);
+            mappedData = null;
+        }
+        finally {
+            try {
+                H5.H5Tclose(tid);
+            }
+            catch (Exception ex) {
+                log.debug("getMappedData(): H5Tclose(tid {}) failure: ", tid, ex);
+            }
+            try {
+                H5.H5Pclose(pcid);
+            }
+            catch (Exception ex) {
+                log.debug("getMappedData(): H5Pclose(pcid {}) failure: ", pcid, ex);
+            }
+            close(did);
+        }
+
+        return mappedData;
+    }
+
+    /**
+     * Returns the byte order of a file datatype whose values can be used without conversion, or null if
+     * the library has to convert the values, e.g. for non-IEEE floats or integers with padding bits.
+     *
+     * @param tid
+     *            the file datatype of the dataset.
+     * @param classType
+     *            the DataBuffer type character of the datatype.
+     *
+     * @return the byte order of the values in the file, or null.
+     */
+    private static ByteOrder getPlainByteOrder(long tid, char classType) throws Exception
+    {
+        int elementSize     = DataBuffer.getElementSize(classType);
+        ByteOrder fileOrder = null;
+        int order           = H5.H5Tget_order(tid);
+        if (order == HDF5Constants.H5T_ORDER_LE)
+            fileOrder = ByteOrder.LITTLE_ENDIAN;
+        else if (order == HDF5Constants.H5T_ORDER_BE)
+            fileOrder = ByteOrder.BIG_ENDIAN;
+        else if (elementSize == 1)
+            fileOrder = ByteOrder.nativeOrder();
+        if (fileOrder == null)
+            return null;
+
+        boolean isPlainType = false;
+        if (classType == 'F')
+            isPlainType = H5.H5Tequal(tid, HDF5Constants.H5T_IEEE_F32LE) ||
+                          H5.H5Tequal(tid, HDF5Constants.H5T_IEEE_F32BE);
+        else if (classType == 'D')
+            isPlainType = H5.H5Tequal(tid, HDF5Constants.H5T_IEEE_F64LE) ||
+                          H5.H5Tequal(tid, HDF5Constants.H5T_IEEE_F64BE);
+        else
+            isPlainType =
+                (H5.H5Tget_precision_long(tid) == elementSize * 8L) && (H5.H5Tget_offset(tid) == 0);
+
+        return isPlainType ? fileOrder : null;
+    }
+
+    /**
+     * Creates another object for the same dataset in the file with a copy of the current selection.
+     *
+     * @return the new dataset object.
+     *
+     * @throws Exception
+     *             if the dataset can not be opened
+     */
+    @Override
+    public Dataset duplicate() throws Exception
+    {
+        if (!isInited())
+            init();
+
+        H5ScalarDS dset = new H5ScalarDS(getFileFormat(), getName(), getPath());
+        dset.init();
+        if (dset.getRank() != rank)
+            throw new Exception("dataset " + getFullName() + " has changed in the file");
+
+        copySelectionTo(dset);
+        dset.isParallelChunkRead = isParallelChunkRead;
+
+        return dset;
+    }
+
+    /**
+     * Sets whether the raw data may be read by mapping the file into memory. Turning mapping off drops
+     * the mapped region held by this dataset.
+     *
+     * @param mappedIO
+     *            true to read the raw data through a mapped file region where possible.
+     *
+     * @see hdf.object.Dataset#setMappedIO(boolean)
+     */
+    @Override
+    public void setMappedIO(boolean mappedIO)
+    {
+        super.setMappedIO(mappedIO);
+        if (!mappedIO) {
+            mappedData       = null;
+            isMappingChecked = false;
+        }
+    }
+
+    /**
+     * Sets whether compressed chunks of this dataset may be decoded in parallel.
+     *
+     * When enabled, and the file is opened read-only, reads of a chunked dataset whose filter pipeline only
+     * contains deflate, shuffle and fletcher32 fetch the raw chunks from the file and decompress them in
+     * the common fork-join pool instead of in the single-threaded HDF5 library. A selection that touches a
+     * chunk stored with any of its filters skipped is read through the library. It is disabled by default.
+     *
+     * @param enable
+     *            true to decode chunks in parallel when possible.
+     */
+    public void setParallelChunkRead(boolean enable) { isParallelChunkRead = enable; }
+
+    /**
+     * Returns true if compressed chunks of this dataset may be decoded in parallel.
+     *
+     * @return true if parallel chunk reads are enabled.
+     *
+     * @see #setParallelChunkRead(boolean)
+     */
+    public boolean isParallelChunkRead() { return isParallelChunkRead; }
+
+    /**
+     * Sets whether compressed chunks of this dataset may be encoded in parallel.
+     *
+     * When enabled, writes to a chunked dataset whose filter pipeline only contains shuffle and deflate
+     * shuffle and compress the chunks in the common fork-join pool and store them with a direct chunk
+     * write, instead of passing the data through the single-threaded HDF5 library. Only writes that cover
+     * whole chunks are done this way. It is enabled by default.
+     *
+     * @param enable
+     *            true to encode chunks in parallel when possible.
+     */
+    public void setParallelChunkWrite(boolean enable) { isParallelChunkWrite = enable; }
+
+    /**
+     * Returns true if compressed chunks of this dataset may be encoded in parallel.
+     *
+     * @return true if parallel chunk writes are enabled.
+     *
+     * @see #setParallelChunkWrite(boolean)
+     */
+    public boolean isParallelChunkWrite() { return isParallelChunkWrite; }
+
+    /**
+     * Returns the reader that decodes the chunks of this dataset in parallel, or null if the dataset can not
+     * be read that way.
+     */
+    private H5ChunkReader getChunkReader(long did)
+    {
+        if (isChunkReaderChecked)
+            return chunkReader;
+        isChunkReaderChecked = true;
+
+        char classType = getBufferClassType();
+        if ((classType == ' ') || !getFileFormat().isReadOnly() || isVirtual())
+            return null;
+
+        long tid = HDF5Constants.H5I_INVALID_HID;
+        try {
+            tid                 = H5.H5Dget_type(did);
+            ByteOrder fileOrder = getPlainByteOrder(tid, classType);
+            if (fileOrder != null)
+                chunkReader = H5ChunkReader.create(did, getFileFormat().getAbsolutePath(), dims, classType,
+                                                   fileOrder);
+        }
+        catch (Exception ex) {
+            log.debug("getChunkReader(): {} can not be read in parallel: ", getFullName(), ex);
+            chunkReader = null;
+        }
+        finally {
+            try {
+                H5.H5Tclose(tid);
+            }
+            catch (Exception ex) {
+                log.debug("getChunkReader(): H5Tclose(tid {}) failure: ", tid, ex);
+            }
+        }
+
+        log.trace("getChunkReader(): {} parallel={}", getFullName(), (chunkReader != null));
+
+        return chunkReader;
+    }
+
+    /**
+     * Reads the current selection by decoding the compressed chunks in parallel.
+     *
+     * @return the data of the selection, or null if the selection can not be read this way.
+     */
+    private Object readChunksParallel() throws Exception
+    {
+        long totalPoints = 1;
+        for (int i = 0; i < rank; i++) {
+            totalPoints *= selectedDims[i];
+            if ((selectedStride != null) && (selectedStride[i] != 1))
+                return null;
+        }
+        if ((totalPoints <= 0) || (totalPoints > Integer.MAX_VALUE))
+            return null;
+
+        long did = open();
+        if (did < 0)
+            return null;
+
+        try {
+            H5ChunkReader reader = getChunkReader(did);
+            if (reader == null)
+                return null;
+
+            Object theData = null;
+            try {
+                theData = H5Datatype.allocateArray((H5Datatype)getDatatype(), (int)totalPoints);
+            }
+            catch (OutOfMemoryError err) {
+                log.debug("readChunksParallel(): Out of memory");
+                throw new HDF5Exception("Out Of Memory");
+            }
+
+            if (!reader.read(did, startDims, selectedDims, theData))
+                return null;
+
+            return theData;
+        }
+        finally {
+            close(did);
+        }
+    }
+
+    /**
+     * Writes the current selection by encoding the compressed chunks in parallel.
+     *
+     * @return true if the data was written, false if the selection or the data can not be written this way.
+     */
+    private boolean writeChunksParallel(Object buf) throws Exception
+    {
+        char classType = getBufferClassType();
+        if ((classType == ' ') || isVirtual() || (buf == null))
+            return false;
+        if (unsignedConverted && getDatatype().isUnsigned())
+            return false;
+
+        // the values must already be in the memory type of the dataset, e.g. an int[] for a 32-bit integer
+        String cname = buf.getClass().getName();
+        if (!buf.getClass().isArray() || (cname.charAt(cname.lastIndexOf('[') + 1) != classType))
+            return false;
+
+        long totalPoints = 1;
+        for (int i = 0; i < rank; i++) {
+            totalPoints *= selectedDims[i];
+            if ((selectedStride != null) && (selectedStride[i] != 1))
+                return false;
+        }
+        if ((totalPoints <= 0) || (Array.getLength(buf) != totalPoints))
+            return false;
+
+        long did = open();
+        if (did < 0)
+            return false;
+
+        long tid = HDF5Constants.H5I_INVALID_HID;
+        try {
+            tid                 = H5.H5Dget_type(did);
+            ByteOrder fileOrder = getPlainByteOrder(tid, classType);
+            if (fileOrder == null)
+                return false;
+
+            H5ChunkWriter writer = H5ChunkWriter.create(did, dims, classType, fileOrder);
+            if (writer == null)
+                return false;
+
+            return writer.write(did, startDims, selectedDims, buf);
+        }
+        finally {
+            try {
+                H5.H5Tclose(tid);
+            }
+            catch (Exception ex) {
+                log.debug("writeChunksParallel(): H5Tclose(tid {}) failure: ", tid, ex);
+            }
+            close(did);
+        }
+    }
+
+    /**
+     * Copies the current selection out of the mapped raw data into a Java array.
+     *
+     * @param mapped
+     *            the mapped raw data of the whole dataset.
+     *
+     * @return the data of the selection, or null if the selection does not fit in a Java array.
+     */
+    private Object readMapped(DataBuffer mapped) throws Exception
+    {
+        long totalPoints = 1;
+        for (int i = 0; i < rank; i++)
+            totalPoints *= selectedDims[i];
+        if ((totalPoints <= 0) || (totalPoints > Integer.MAX_VALUE))
+            return null;
+
+        Object theData = null;
+        try {
+            theData = H5Datatype.allocateArray((H5Datatype)getDatatype(), (int)totalPoints);
+        }
+        catch (OutOfMemoryError err) {
+            log.debug("readMapped(): Out of memory");
+            throw new HDF5Exception("Out Of Memory");
+        }
+
+        int last        = rank - 1;
+        int rowLength   = (int)selectedDims[last];
+        long lastStride = (selectedStride == null) ? 1 : selectedStride[last];
+        long[] position = new long[rank];
+        int dstOffset   = 0;
+        boolean hasMore = true;
+        while (hasMore) {
+            // linear index of the first point of this row in the dataset
+            long index = 0;
+            for (int i = 0; i < rank; i++) {
+                long stride = ((selectedStride == null) || (i == last)) ? 1 : selectedStride[i];
+                index       = index * dims[i] + startDims[i] + position[i] * stride;
+            }
+
+            if (lastStride == 1) {
+                mapped.get(index, theData, dstOffset, rowLength);
+            }
+            else {
+                for (int k = 0; k < rowLength; k++)
+                    mapped.get(index + k * lastStride, theData, dstOffset + k, 1);
+            }
+            dstOffset += rowLength;
+
+            hasMore = false;
+            for (int i = last - 1; i >= 0; i--) {
+                if (++position[i] < selectedDims[i]) {
+                    hasMore = true;
+                    break;
+                }
+                position[i] = 0;
+            }
+        }
+
+        log.trace("readMapped(): copied {} points of {}", totalPoints, getFullName());
+
+        return theData;
+    }
+
     /**
      * Reads the data from file.
      *
@@ -863,6 +1515,24 @@ public class H5ScalarDS extends ScalarDS implements MetaDataContainer {
         if (!isInited())
             init();
 
+        DataBuffer mapped = getMappedData();
+        if (mapped != null) {
+            readData = readMapped(mapped);
+            if (readData != null)
+                return readData;
+        }
+        else if (isParallelChunkRead) {
+            try {
+                readData = readChunksParallel();
+            }
+            catch (Exception ex) {
+                log.debug("read(): parallel chunk read failed, reading through the library: ", ex);
+                readData = null;
+            }
+            if (readData != null)
+                return readData;
+        }
+
         try {
             readData = scalarDatasetCommonIO(H5File.IO_TYPE.READ, null);
         }
@@ -892,6 +1562,16 @@ public class H5ScalarDS extends ScalarDS implements MetaDataContainer {
         if (!isInited())
             init();
 
+        if (isParallelChunkWrite) {
+            try {
+                if (writeChunksParallel(buf))
+                    return;
+            }
+            catch (Exception ex) {
+                log.debug("write(Object): parallel chunk write failed, writing through the library: ", ex);
+            }
+        }
+
         try {
             scalarDatasetCommonIO(H5File.IO_TYPE.WRITE, buf);
         }
@@ -901,7 +1581,181 @@ public class H5ScalarDS extends ScalarDS implements MetaDataContainer {
         }
     }
 
+    /**
+     * Writes the changed data points of the memory buffer of this dataset to file.
+     *
+     * The changed points are copied into a smaller buffer and written with one H5Dwrite call to the union of
+     * their hyperslabs in the file.
+     *
+     * @param regions
+     *            the changed data points, by their index in the memory buffer.
+     *
+     * @throws Exception
+     *             If there is an error at the HDF5 library level.
+     */
+    @Override
+    public void write(DirtyRegions regions) throws Exception
+    {
+        if (this.getFileFormat().isReadOnly())
+            throw new Exception("cannot write to scalar dataset in file opened as read-only");
+
+        if (!isInited())
+            init();
+
+        List<long[][]> slabs = getWriteRegions(regions);
+        Object buf           = (slabs == null) ? null : extractRegions(regions);
+        if (buf == null) {
+            write();
+            return;
+        }
+
+        try {
+            scalarDatasetCommonIO(H5File.IO_TYPE.WRITE, buf, slabs);
+        }
+        catch (Exception ex) {
+            log.debug("write(DirtyRegions): failed to write to scalar dataset: ", ex);
+            throw new Exception("failed to write to scalar dataset: " + ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Returns the default block size used by {@link hdf.object.Dataset#blockIterator()}.
+     *
+     * For a chunked dataset the block is a whole number of chunks, so that every chunk is read and
+     * decompressed only once during the iteration.
+     *
+     * @return the dimension sizes of the default block.
+     */
+    @Override
+    public long[] getBlockDims()
+    {
+        if (!isInited())
+            init();
+
+        long[] unitDims = getChunkSize();
+        if (unitDims == null) {
+            long did = open();
+            if (did >= 0) {
+                long pcid = HDF5Constants.H5I_INVALID_HID;
+                try {
+                    pcid = H5.H5Dget_create_plist(did);
+                    if (H5.H5Pget_layout(pcid) == HDF5Constants.H5D_CHUNKED) {
+                        unitDims = new long[rank];
+                        H5.H5Pget_chunk(pcid, rank, unitDims);
+                    }
+                }
+                catch (Exception ex) {
+                    log.debug("getBlockDims(): failed to get the chunk size: ", ex);
+                    unitDims = null;
+                }
+                finally {
+                    try {
+                        H5.H5Pclose(pcid);
+                    }
+                    catch (Exception ex) {
+                        log.debug("getBlockDims(): H5Pclose(pcid {}) failure: ", pcid, ex);
+                    }
+                    close(did);
+                }
+            }
+        }
+
+        return alignBlockDims(unitDims);
+    }
+
+    /**
+     * Reads one hyperslab block of the dataset.
+     *
+     * Fixed-size numeric data is read directly into the buffer of the previous block when it has the same
+     * number of data points, so that a block iteration allocates at most two buffers. Other datatypes are
+     * read through {@link #read()}.
+     *
+     * @param start
+     *            the start position of the block.
+     * @param count
+     *            the size of the block in each dimension.
+     * @param buf
+     *            the data buffer of the previous block, which may be reused, or null.
+     *
+     * @return the data values of the block.
+     *
+     * @throws Exception
+     *             if the block can not be read
+     */
+    @Override
+    protected Object readBlock(long[] start, long[] count, Object buf) throws Exception
+    {
+        H5Datatype dsDatatype = (H5Datatype)getDatatype();
+        if (dsDatatype.isVarStr() || dsDatatype.isVLEN() || dsDatatype.isArray() || dsDatatype.isRef() ||
+            dsDatatype.isText() || (dsDatatype.isFloat() && dsDatatype.getDatatypeSize() == 16))
+            return super.readBlock(start, count, buf);
+
+        long points = 1;
+        for (int i = 0; i < count.length; i++)
+            points *= count[i];
+
+        Object theData = buf;
+        if ((theData == null) || (Array.getLength(theData) != points)) {
+            try {
+                theData = H5Datatype.allocateArray(dsDatatype, (int)points);
+            }
+            catch (OutOfMemoryError err) {
+                log.debug("readBlock(): Out of memory");
+                throw new HDF5Exception("Out Of Memory");
+            }
+        }
+
+        long did = open();
+        if (did < 0) {
+            log.debug("readBlock(): failed to open dataset");
+            throw new HDF5Exception("failed to open dataset " + getFullName());
+        }
+
+        long[] spaceIDs = {HDF5Constants.H5I_INVALID_HID,
+                           HDF5Constants.H5I_INVALID_HID}; // spaceIDs[0]=mspace, spaceIDs[1]=fspace
+        long tid        = HDF5Constants.H5I_INVALID_HID;
+        try {
+            H5Utils.selectHyperslab(did, dims, start, null, count, spaceIDs);
+
+            tid = dsDatatype.createNative();
+            log.trace("readBlock(): H5Dread did={} start={} count={}", did, start, count);
+            H5.H5Dread(did, tid, spaceIDs[0], spaceIDs[1], HDF5Constants.H5P_DEFAULT, theData);
+        }
+        catch (HDF5DataFiltersException exfltr) {
+            log.debug("readBlock(): read failure: ", exfltr);
+            throw new Exception("Filter not available exception: " + exfltr.getMessage(), exfltr);
+        }
+        finally {
+            dsDatatype.close(tid);
+
+            for (int i = 0; i < spaceIDs.length; i++) {
+                if ((spaceIDs[i] >= 0) && (spaceIDs[i] != HDF5Constants.H5S_ALL)) {
+                    try {
+                        H5.H5Sclose(spaceIDs[i]);
+                    }
+                    catch (Exception ex) {
+                        log.debug("readBlock(): H5Sclose(spaceIDs[{}] {}) failure: ", i, spaceIDs[i], ex);
+                    }
+                }
+            }
+
+            close(did);
+        }
+
+        return theData;
+    }
+
     private Object scalarDatasetCommonIO(H5File.IO_TYPE ioType, Object writeBuf) throws Exception
+    {
+        return scalarDatasetCommonIO(ioType, writeBuf, null);
+    }
+
+    /*
+     * Reads or writes the current selection, or only the given hyperslabs of the
+     * current selection if slabs is not null.
+     */
+    private Object scalarDatasetCommonIO(H5File.IO_TYPE ioType, Object writeBuf, List<long[][]> slabs)
+        throws Exception
     {
         H5Datatype dsDatatype     = (H5Datatype)getDatatype();
         H5Datatype dsBaseDatatype = (H5Datatype)getDatatype().getDatatypeBase();
@@ -930,8 +1784,13 @@ public class H5ScalarDS extends ScalarDS implements MetaDataContainer {
                  * NOTE: this call sets up a hyperslab selection in the file according to the
                  * current selection in the dataset object.
                  */
-                long totalSelectedSpacePoints = H5Utils.getTotalSelectedSpacePoints(
-                    did, dims, startDims, selectedStride, selectedDims, spaceIDs);
+                long totalSelectedSpacePoints;
+                if (slabs == null)
+                    totalSelectedSpacePoints = H5Utils.getTotalSelectedSpacePoints(
+                        did, dims, startDims, selectedStride, selectedDims, spaceIDs);
+                else
+                    totalSelectedSpacePoints =
+                        H5Utils.selectHyperslabs(did, startDims, selectedStride, slabs, spaceIDs);
 
                 if (ioType == H5File.IO_TYPE.READ) {
                     log.trace(
@@ -2158,12 +3017,7 @@ public class H5ScalarDS extends ScalarDS implements MetaDataContainer {
                         H5File.copyAttributes(srcdid, dstdid);
                     }
                     finally {
-                        try {
-                            H5.H5Dclose(dstdid);
-                        }
-                        catch (Exception ex) {
-                            log.debug("copy(): H5Dclose(dstdid {}) failure: ", dstdid, ex);
-                        }
+                        dataset.close(dstdid);
                     }
                 }
             }
@@ -2186,12 +3040,7 @@ public class H5ScalarDS extends ScalarDS implements MetaDataContainer {
                 catch (Exception ex) {
                     log.debug("copy(): H5Tclose(tid {}) failure: ", tid, ex);
                 }
-                try {
-                    H5.H5Dclose(srcdid);
-                }
-                catch (Exception ex) {
-                    log.debug("copy(): H5Dclose(srcdid {}) failure: ", srcdid, ex);
-                }
+                close(srcdid);
             }
         }
 
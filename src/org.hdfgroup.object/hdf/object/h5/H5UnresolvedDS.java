@@ -0,0 +1,235 @@
+/*****************************************************************************
+ * Copyright by The HDF Group.                                               *
+ * Copyright by the Board of Trustees of the University of Illinois.         *
+ * All rights reserved.                                                      *
+ *                                                                           *
+ * This file is part of the HDF Java Products distribution.                  *
+ * The full copyright notice, including terms governing use, modification,   *
+ * and redistribution, is contained in the COPYING file, which can be found  *
+ * at the root of the source code distribution tree,                         *
+ * or in https://www.hdfgroup.org/licenses.                                  *
+ * If you do not have access to either file, you may request a copy from     *
+ * help@hdfgroup.org.                                                        *
+ ****************************************************************************/
+
+package hdf.object.h5;
+
+import java.util.List;
+
+import hdf.object.Dataset;
+import hdf.object.FileFormat;
+import hdf.object.HObject;
+import hdf.object.MetaDataContainer;
+
+import hdf.hdf5lib.H5;
+import hdf.hdf5lib.HDF5Constants;
+import hdf.hdf5lib.structs.H5O_info_t;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An H5UnresolvedDS object stands in for an HDF5 dataset whose datatype has not been read yet.
+ *
+ * When the members of a group are loaded on demand, a dataset is added to the group as an H5UnresolvedDS
+ * instead of opening it to find out whether it is a compound or a scalar dataset. The first time the
+ * dataset is requested through {@link hdf.object.Group#getMember(int)} or
+ * {@link hdf.object.FileFormat#findObject(FileFormat, String)}, the datatype is read and the placeholder is
+ * replaced in its group by an {@link H5CompoundDS} or an {@link H5ScalarDS}.
+ *
+ * Placeholders stay in the list returned by {@link H5Group#getMemberList()}, so listing a group does not
+ * open any of its datasets. Callers that need the dataset itself, rather than its name and path, use
+ * {@link H5Group#getMember(int)} or {@link H5Group#resolveMember(H5UnresolvedDS)}. A dataset found by its
+ * path is resolved on its own, without classifying the other members of its group.
+ *
+ * @see H5File#setLoadOnDemand(boolean)
+ */
+public class H5UnresolvedDS extends HObject implements MetaDataContainer {
+    private static final long serialVersionUID = 4823102567119643705L;
+
+    private static final Logger log = LoggerFactory.getLogger(H5UnresolvedDS.class);
+
+    /** the object properties */
+    private H5O_info_t objInfo;
+
+    /** the dataset this placeholder resolves to */
+    private Dataset dataset = null;
+
+    /**
+     * Constructs a placeholder for an HDF5 dataset from the object information retrieved while iterating
+     * its parent group.
+     *
+     * @param theFile
+     *            the file that contains the dataset.
+     * @param theName
+     *            the name of the dataset, e.g. "dset".
+     * @param thePath
+     *            the full path of the dataset, e.g. "/arrays/".
+     * @param oid
+     *            the oid of the dataset.
+     * @param info
+     *            the basic object information of the dataset.
+     */
+    @SuppressWarnings("deprecation")
+    H5UnresolvedDS(FileFormat theFile, String theName, String thePath, long[] oid, H5O_info_t info)
+    {
+        super(theFile, theName, thePath, oid);
+        objInfo = info;
+    }
+
+    /**
+     * Reads the datatype of the dataset and returns the compound or scalar dataset for it. The same
+     * dataset is returned by every call.
+     *
+     * @return the dataset this placeholder stands in for.
+     */
+    public Dataset resolve()
+    {
+        if (dataset == null) {
+            log.trace("resolve(): {}", getFullName());
+            dataset = ((H5File)getFileFormat()).getDataset(getName(), getPath(), getOID(), objInfo);
+        }
+
+        return dataset;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see hdf.object.HObject#open()
+     */
+    @Override
+    public long open()
+    {
+        long did = HDF5Constants.H5I_INVALID_HID;
+
+        try {
+            did = ((H5File)getFileFormat()).openDataset(getFullName(), null, 0);
+        }
+        catch (Exception ex) {
+            log.debug("open(): Failed to open dataset {}", getPath(), ex);
+            did = HDF5Constants.H5I_INVALID_HID;
+        }
+
+        return did;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see hdf.object.HObject#close(int)
+     */
+    @Override
+    public void close(long did)
+    {
+        if (did >= 0) {
+            if (((H5File)getFileFormat()).releaseHandle(did))
+                return;
+            try {
+                H5.H5Dclose(did);
+            }
+            catch (Exception ex) {
+                log.debug("close(): H5Dclose(did {}) failure: ", did, ex);
+            }
+        }
+    }
+
+    /**
+     * Check if the object has any attributes attached.
+     *
+     * @return true if it has any attributes, false otherwise.
+     */
+    @Override
+    public boolean hasAttribute()
+    {
+        return ((MetaDataContainer)resolve()).hasAttribute();
+    }
+
+    /**
+     * Removes all of the elements from metadata list.
+     * The list should be empty after this call returns.
+     */
+    @Override
+    public void clear()
+    {
+        if (dataset != null)
+            ((MetaDataContainer)dataset).clear();
+    }
+
+    /**
+     * Retrieves the object's metadata, such as attributes, from the file.
+     *
+     * Metadata, such as attributes, is stored in a List.
+     *
+     * @return the list of metadata objects.
+     *
+     * @throws Exception
+     *             if the metadata can not be retrieved
+     */
+    @SuppressWarnings("rawtypes")
+    @Override
+    public List getMetadata() throws Exception
+    {
+        return ((MetaDataContainer)resolve()).getMetadata();
+    }
+
+    /**
+     * Writes a specific piece of metadata (such as an attribute) into the file.
+     *
+     * @param info
+     *            the metadata to write.
+     *
+     * @throws Exception
+     *             if the metadata can not be written
+     */
+    @Override
+    public void writeMetadata(Object info) throws Exception
+    {
+        ((MetaDataContainer)resolve()).writeMetadata(info);
+    }
+
+    /**
+     * Deletes an existing piece of metadata from this object.
+     *
+     * @param info
+     *            the metadata to delete.
+     *
+     * @throws Exception
+     *             if the metadata can not be removed
+     */
+    @Override
+    public void removeMetadata(Object info) throws Exception
+    {
+        ((MetaDataContainer)resolve()).removeMetadata(info);
+    }
+
+    /**
+     * Updates an existing piece of metadata attached to this object.
+     *
+     * @param info
+     *            the metadata to update.
+     *
+     * @throws Exception
+     *             if the metadata can not be updated
+     */
+    @Override
+    public void updateMetadata(Object info) throws Exception
+    {
+        ((MetaDataContainer)resolve()).updateMetadata(info);
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see hdf.object.HObject#setName(java.lang.String)
+     */
+    @Override
+    public void setName(String newName) throws Exception
+    {
+        if (newName == null)
+            throw new IllegalArgumentException("The new name is NULL");
+
+        H5File.renameObject(this, newName);
+        super.setName(newName);
+    }
+}
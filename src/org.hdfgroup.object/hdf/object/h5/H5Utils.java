@@ -14,6 +14,8 @@
 
 package hdf.object.h5;
 
+import java.util.List;
+
 import hdf.hdf5lib.H5;
 import hdf.hdf5lib.HDF5Constants;
 import hdf.hdf5lib.exceptions.HDF5Exception;
@@ -102,6 +104,58 @@ public final class H5Utils {
         return lsize;
     }
 
+    /**
+     * Set up a selection of several hyperslabs of the current selection within a dataset.
+     *
+     * The file space selects the union of the hyperslabs and the memory space is one-dimensional, so the
+     * memory buffer holds the selected points in row-major order of the file.
+     *
+     * @param did
+     *            IN dataset ID
+     * @param startDims
+     *            IN start dimensions of the current selection
+     * @param selectedStride
+     *            IN selected stride values of the current selection
+     * @param slabs
+     *            IN the hyperslabs as {start, count} pairs relative to the current selection
+     * @param spaceIDs
+     *            IN/OUT memory and file space IDs -- spaceIDs[0]=mspace, spaceIDs[1]=fspace
+     *
+     * @return total number of data points selected
+     *
+     * @throws HDF5Exception
+     *             If there is an error at the HDF5 library level.
+     */
+    public static final long selectHyperslabs(long did, long[] startDims, long[] selectedStride,
+                                              List<long[][]> slabs, long[] spaceIDs) throws HDF5Exception
+    {
+        int rank        = startDims.length;
+        long[] start    = new long[rank];
+        long totalCount = 0;
+
+        spaceIDs[1] = H5.H5Dget_space(did);
+        for (int n = 0; n < slabs.size(); n++) {
+            long[] slabStart = slabs.get(n)[0];
+            long[] slabCount = slabs.get(n)[1];
+            long count       = 1;
+            for (int i = 0; i < rank; i++) {
+                long step = (selectedStride == null) ? 1 : selectedStride[i];
+                start[i]  = startDims[i] + slabStart[i] * step;
+                count *= slabCount[i];
+            }
+
+            H5.H5Sselect_hyperslab(spaceIDs[1],
+                                   (n == 0) ? HDF5Constants.H5S_SELECT_SET : HDF5Constants.H5S_SELECT_OR,
+                                   start, selectedStride, slabCount, null);
+            totalCount += count;
+        }
+        spaceIDs[0] = H5.H5Screate_simple(1, new long[] {totalCount}, null);
+
+        log.trace("selectHyperslabs(): selected {} points in {} hyperslabs", totalCount, slabs.size());
+
+        return totalCount;
+    }
+
     /**
      * Get the total number of datapoints for the hyperslab selection within a dataset.
      *
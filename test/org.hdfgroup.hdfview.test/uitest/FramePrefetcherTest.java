@@ -0,0 +1,199 @@
+package uitest;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import hdf.object.Dataset;
+import hdf.object.Datatype;
+import hdf.object.FileFormat;
+import hdf.object.h5.H5Datatype;
+import hdf.object.h5.H5File;
+import hdf.view.FramePrefetcher;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests FramePrefetcher on a 3D dataset of a new HDF5 file, shown frame by frame along its first dimension.
+ * The expected frames are read through a duplicate of the dataset.
+ */
+public class FramePrefetcherTest {
+    private static final long[] DIMS = {6, 4, 5};
+
+    /** the memory limit of the prefetcher; enough for all frames */
+    private static final long MAX_BYTES = 1024 * 1024;
+
+    /** the longest time, in milliseconds, to wait for the background thread */
+    private static final long TIMEOUT = 10000;
+
+    private File dir;
+
+    private H5File file;
+
+    private Dataset dataset;
+
+    @Before
+    public void createFile() throws Exception
+    {
+        dir  = Files.createTempDirectory("frameprefetcher").toFile();
+        file = new H5File(new File(dir, "frameprefetcher.h5").getPath(), FileFormat.CREATE);
+        file.open();
+
+        Datatype typeInt32 = new H5Datatype(Datatype.CLASS_INTEGER, 4, Datatype.NATIVE, Datatype.NATIVE);
+        int[] values       = new int[(int)(DIMS[0] * DIMS[1] * DIMS[2])];
+        for (int i = 0; i < values.length; i++)
+            values[i] = i;
+        file.createScalarDS("/frames", null, typeInt32, DIMS, null, null, 0, values);
+
+        // frames along the first dimension, as the image view shows them
+        dataset = (Dataset)file.get("/frames");
+        dataset.init();
+        int[] index = dataset.getSelectedIndex();
+        index[0]    = 1;
+        index[1]    = 2;
+        index[2]    = 0;
+
+        dataset.getSelectedDims()[0] = 1;
+    }
+
+    @After
+    public void removeFile() throws Exception
+    {
+        if (file != null)
+            file.close();
+
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File f : files)
+                f.delete();
+        }
+        dir.delete();
+    }
+
+    /**
+     * Test method for {@link hdf.view.FramePrefetcher#take(long)} after
+     * {@link hdf.view.FramePrefetcher#prefetch(long)}.
+     *
+     * What to test:
+     * <ul>
+     * <li>the frames on both sides of the current frame are read, and take() returns their data
+     * <li>a taken frame is removed from the cache
+     * <li>a frame that has not been prefetched is not returned
+     * <li>the frames too far from the new current frame are dropped
+     * </ul>
+     */
+    @Test
+    public void testTake() throws Exception
+    {
+        FramePrefetcher prefetcher = new FramePrefetcher(dataset, 2, MAX_BYTES);
+        try {
+            assertEquals(2, prefetcher.getDepth());
+
+            selectFrame(2);
+            prefetcher.prefetch(2);
+            waitForFrames(prefetcher, 0, 1, 3, 4);
+
+            selectFrame(3);
+            assertArrayEquals(readFrame(3), (int[])prefetcher.take(3));
+            assertFalse(prefetcher.isCached(3));
+            assertNull(prefetcher.take(3));
+
+            selectFrame(1);
+            assertArrayEquals(readFrame(1), (int[])prefetcher.take(1));
+            assertNull(prefetcher.take(5));
+
+            selectFrame(5);
+            prefetcher.prefetch(5);
+            waitForFrames(prefetcher, 3, 4);
+            assertFalse(prefetcher.isCached(0));
+
+            selectFrame(4);
+            assertArrayEquals(readFrame(4), (int[])prefetcher.take(4));
+            selectFrame(3);
+            assertArrayEquals(readFrame(3), (int[])prefetcher.take(3));
+        }
+        finally {
+            prefetcher.dispose();
+        }
+
+        assertNull(prefetcher.take(3));
+    }
+
+    /**
+     * Test method for {@link hdf.view.FramePrefetcher#take(long)} after a change of the selection, and for
+     * {@link hdf.view.FramePrefetcher#clear()}.
+     *
+     * What to test:
+     * <ul>
+     * <li>a frame read with another selection is not returned
+     * <li>the next prefetch reads the frames again with the new selection
+     * <li>clear() drops the cached frames
+     * </ul>
+     */
+    @Test
+    public void testSelectionChange() throws Exception
+    {
+        FramePrefetcher prefetcher = new FramePrefetcher(dataset, 1, MAX_BYTES);
+        try {
+            selectFrame(2);
+            prefetcher.prefetch(2);
+            waitForFrames(prefetcher, 1, 3);
+
+            // two of the four rows of each frame
+            dataset.getStartDims()[1]    = 1;
+            dataset.getSelectedDims()[1] = 2;
+            selectFrame(3);
+            assertNull(prefetcher.take(3));
+
+            selectFrame(2);
+            prefetcher.prefetch(2);
+            waitForFrames(prefetcher, 1, 3);
+
+            selectFrame(3);
+            int[] expected = readFrame(3);
+            assertEquals(2 * DIMS[2], expected.length);
+            assertArrayEquals(expected, (int[])prefetcher.take(3));
+
+            prefetcher.clear();
+            for (long frame = 0; frame < DIMS[0]; frame++)
+                assertFalse(prefetcher.isCached(frame));
+            selectFrame(1);
+            assertNull(prefetcher.take(1));
+        }
+        finally {
+            prefetcher.dispose();
+        }
+    }
+
+    private void selectFrame(long frame) { dataset.getStartDims()[0] = frame; }
+
+    /**
+     * Reads a frame with the current selection through a duplicate of the dataset.
+     */
+    private int[] readFrame(long frame) throws Exception
+    {
+        Dataset reader           = dataset.duplicate();
+        reader.getStartDims()[0] = frame;
+
+        return (int[])reader.read();
+    }
+
+    private static void waitForFrames(FramePrefetcher prefetcher, long... frames) throws Exception
+    {
+        long deadline = System.currentTimeMillis() + TIMEOUT;
+        for (long frame : frames) {
+            while (!prefetcher.isCached(frame)) {
+                if (System.currentTimeMillis() > deadline)
+                    fail("frame " + frame + " was not prefetched");
+                Thread.sleep(10);
+            }
+        }
+    }
+}
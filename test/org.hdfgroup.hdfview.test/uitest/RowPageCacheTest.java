@@ -0,0 +1,332 @@
+package uitest;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import hdf.object.Dataset;
+import hdf.object.Datatype;
+import hdf.object.FileFormat;
+import hdf.object.h5.H5Datatype;
+import hdf.object.h5.H5File;
+import hdf.view.RowPageCache;
+import hdf.view.TableView.DataProviderFactory;
+import hdf.view.TableView.DataProviderFactory.HDFDataProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests RowPageCache and the table data provider that reads through it, on small datasets of a new HDF5 file
+ * with pages of a few rows.
+ */
+public class RowPageCacheTest {
+    private static final int ROWS = 23;
+
+    private static final int COLS = 5;
+
+    /** the size of a page of three rows of 4-byte integers */
+    private static final long PAGE_BYTES = 3 * COLS * 4;
+
+    /** the number of pages of the int32 dataset; the last one holds two rows */
+    private static final int PAGES = 8;
+
+    /** the memory limit of the caches that read ahead; enough for all pages */
+    private static final long MAX_BYTES = 1024 * 1024;
+
+    /** the longest time, in milliseconds, to wait for the background thread */
+    private static final long TIMEOUT = 10000;
+
+    private File dir;
+
+    private H5File file;
+
+    @Before
+    public void createFile() throws Exception
+    {
+        dir  = Files.createTempDirectory("rowpagecache").toFile();
+        file = new H5File(new File(dir, "rowpagecache.h5").getPath(), FileFormat.CREATE);
+        file.open();
+
+        Datatype typeUInt8 = new H5Datatype(Datatype.CLASS_INTEGER, 1, Datatype.NATIVE, Datatype.SIGN_NONE);
+        Datatype typeInt32 = new H5Datatype(Datatype.CLASS_INTEGER, 4, Datatype.NATIVE, Datatype.NATIVE);
+
+        int[] ints   = new int[ROWS * COLS];
+        byte[] bytes = new byte[ROWS * COLS];
+        for (int i = 0; i < ints.length; i++) {
+            ints[i]  = value(i / COLS, i % COLS);
+            bytes[i] = (byte)(i * 11);
+        }
+        long[] dims = {ROWS, COLS};
+        file.createScalarDS("/int32", null, typeInt32, dims, null, null, 0, ints);
+        file.createScalarDS("/uint8", null, typeUInt8, dims, null, null, 0, bytes);
+    }
+
+    @After
+    public void removeFile() throws Exception
+    {
+        if (file != null)
+            file.close();
+
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File f : files)
+                f.delete();
+        }
+        dir.delete();
+    }
+
+    /**
+     * Test method for {@link hdf.view.RowPageCache#getPage(long)} and
+     * {@link hdf.view.RowPageCache#getValue(long, long)}.
+     *
+     * What to test:
+     * <ul>
+     * <li>the rows of a page, and the shorter last page
+     * <li>pages out of range
+     * <li>unsigned bytes are converted to shorts
+     * <li>the rows of a strided selection
+     * </ul>
+     */
+    @Test
+    public void testGetPage() throws Exception
+    {
+        RowPageCache cache = new RowPageCache(dataset("/int32"), PAGE_BYTES, 0, 0);
+        try {
+            assertEquals(ROWS, cache.getRowCount());
+            assertEquals(COLS, cache.getColumnCount());
+            assertEquals(3, cache.getRowsPerPage());
+
+            for (int page = 0; page < PAGES; page++) {
+                int rows       = Math.min(3, ROWS - 3 * page);
+                int[] expected = new int[rows * COLS];
+                for (int i = 0; i < expected.length; i++)
+                    expected[i] = value(3 * page + i / COLS, i % COLS);
+                assertArrayEquals("page " + page, expected, (int[])cache.getPage(page));
+            }
+
+            for (int row = ROWS - 1; row >= 0; row--) {
+                for (int col = 0; col < COLS; col++)
+                    assertEquals(value(row, col), cache.getValue(row, col));
+            }
+
+            long[] invalid = {-1, PAGES};
+            for (long page : invalid) {
+                try {
+                    cache.getPage(page);
+                    fail("getPage(" + page + "): no exception");
+                }
+                catch (IndexOutOfBoundsException ex) {
+                    // expected
+                }
+            }
+        }
+        finally {
+            cache.dispose();
+        }
+
+        cache = new RowPageCache(dataset("/uint8"), PAGE_BYTES, 0, 0);
+        try {
+            // the bytes are read as shorts, so a page holds half as many rows
+            assertEquals(6, cache.getRowsPerPage());
+            for (int row = 0; row < ROWS; row++) {
+                for (int col = 0; col < COLS; col++)
+                    assertEquals((short)((row * COLS + col) * 11 & 0xFF), cache.getValue(row, col));
+            }
+        }
+        finally {
+            cache.dispose();
+        }
+
+        // every third row from row 2
+        Dataset dataset = dataset("/int32");
+        dataset.getStartDims()[0]    = 2;
+        dataset.getSelectedDims()[0] = 7;
+        dataset.getStride()[0]       = 3;
+        cache                        = new RowPageCache(dataset, PAGE_BYTES, 0, 0);
+        try {
+            assertEquals(7, cache.getRowCount());
+            for (int row = 0; row < 7; row++) {
+                for (int col = 0; col < COLS; col++)
+                    assertEquals(value(2 + 3 * row, col), cache.getValue(row, col));
+            }
+        }
+        finally {
+            cache.dispose();
+        }
+    }
+
+    /**
+     * Test method for the read-ahead of {@link hdf.view.RowPageCache#getPage(long)}.
+     *
+     * What to test:
+     * <ul>
+     * <li>the pages after a page are read ahead when moving forward
+     * <li>the pending reads ahead are cancelled when the direction reverses, and the pages before are read
+     * </ul>
+     */
+    @Test
+    public void testReadAhead() throws Exception
+    {
+        RowPageCache cache = new RowPageCache(dataset("/int32"), PAGE_BYTES, MAX_BYTES, 2);
+        try {
+            cache.getPage(1);
+            waitForPages(cache, 2, 3);
+
+            // the background thread can not start the reads of pages 5 and 6 before the move back to 3
+            synchronized (cache) {
+                cache.getPage(4);
+                cache.getPage(3);
+            }
+            waitForPages(cache, 1, 2);
+            assertTrue(cache.isCached(4));
+            assertFalse(cache.isCached(5));
+            assertFalse(cache.isCached(6));
+
+            int[] expected = new int[3 * COLS];
+            for (int i = 0; i < expected.length; i++)
+                expected[i] = value(6 + i / COLS, i % COLS);
+            assertArrayEquals(expected, (int[])cache.getPage(2));
+        }
+        finally {
+            cache.dispose();
+        }
+    }
+
+    /**
+     * Test method for {@link hdf.view.RowPageCache#clear()} and {@link hdf.view.RowPageCache#dispose()}.
+     *
+     * What to test:
+     * <ul>
+     * <li>a page read ahead before clear(), or while it runs, is not cached
+     * <li>getPage() fails after dispose(), and no page is cached by the reads that were pending
+     * </ul>
+     */
+    @Test
+    public void testClearAndDispose() throws Exception
+    {
+        RowPageCache cache = new RowPageCache(dataset("/int32"), PAGE_BYTES, MAX_BYTES, 2);
+        try {
+            // clear() at different points of the reads of pages 1 and 2
+            for (int i = 0; i < 20; i++) {
+                cache.getPage(0);
+                if (i % 2 == 1)
+                    Thread.yield();
+                cache.clear();
+
+                // the reads of pages 6 and 7 are queued after those of pages 1 and 2
+                cache.getPage(5);
+                waitForPages(cache, 6, 7);
+                assertFalse("iteration " + i, cache.isCached(1));
+                assertFalse("iteration " + i, cache.isCached(2));
+                cache.clear();
+            }
+        }
+        finally {
+            cache.dispose();
+        }
+
+        String threadName = "RowPageCache-" + dataset("/int32").getName();
+        for (int i = 0; i < 20; i++) {
+            cache = new RowPageCache(dataset("/int32"), PAGE_BYTES, MAX_BYTES, 2);
+            cache.getPage(0);
+            cache.dispose();
+
+            try {
+                cache.getPage(0);
+                fail("getPage(): no exception after dispose()");
+            }
+            catch (IllegalStateException ex) {
+                // expected
+            }
+
+            waitForThreadExit(threadName);
+            for (int page = 0; page < PAGES; page++)
+                assertFalse("iteration " + i + ", page " + page, cache.isCached(page));
+        }
+    }
+
+    /**
+     * Test method for the data provider of
+     * {@link hdf.view.TableView.DataProviderFactory#getDataProvider(hdf.object.DataFormat, RowPageCache)}.
+     *
+     * What to test:
+     * <ul>
+     * <li>the values of all rows, including the last partial page, as the table reads them
+     * <li>unsigned bytes are shown as shorts
+     * </ul>
+     */
+    @Test
+    public void testPagedDataProvider() throws Exception
+    {
+        Dataset dataset    = dataset("/int32");
+        RowPageCache cache = new RowPageCache(dataset, PAGE_BYTES, 0, 2);
+        try {
+            HDFDataProvider provider = DataProviderFactory.getDataProvider(dataset, cache);
+            for (int row = ROWS - 1; row >= 0; row--) {
+                for (int col = 0; col < COLS; col++)
+                    assertEquals(Integer.valueOf(value(row, col)), provider.getDataValue(col, row));
+            }
+        }
+        finally {
+            cache.dispose();
+        }
+
+        dataset = dataset("/uint8");
+        cache   = new RowPageCache(dataset, PAGE_BYTES, 0, 2);
+        try {
+            HDFDataProvider provider = DataProviderFactory.getDataProvider(dataset, cache);
+            for (int row = 0; row < ROWS; row++) {
+                for (int col = 0; col < COLS; col++) {
+                    Short expected = Short.valueOf((short)((row * COLS + col) * 11 & 0xFF));
+                    assertEquals(expected, provider.getDataValue(col, row));
+                }
+            }
+        }
+        finally {
+            cache.dispose();
+        }
+    }
+
+    private static int value(int row, int col) { return row * 100 + col; }
+
+    private Dataset dataset(String name) throws Exception
+    {
+        Dataset dataset = (Dataset)file.get(name);
+        dataset.init();
+
+        return dataset;
+    }
+
+    private static void waitForPages(RowPageCache cache, long page1, long page2) throws Exception
+    {
+        long deadline = System.currentTimeMillis() + TIMEOUT;
+        while (!(cache.isCached(page1) && cache.isCached(page2))) {
+            if (System.currentTimeMillis() > deadline)
+                fail("pages " + page1 + " and " + page2 + " were not read ahead");
+            Thread.sleep(10);
+        }
+    }
+
+    private static void waitForThreadExit(String name) throws Exception
+    {
+        long deadline = System.currentTimeMillis() + TIMEOUT;
+        boolean isAlive = true;
+        while (isAlive) {
+            isAlive = false;
+            for (Thread t : Thread.getAllStackTraces().keySet()) {
+                if (name.equals(t.getName()) && t.isAlive())
+                    isAlive = true;
+            }
+            if (isAlive && (System.currentTimeMillis() > deadline))
+                fail("the thread " + name + " has not stopped");
+            Thread.sleep(10);
+        }
+    }
+}
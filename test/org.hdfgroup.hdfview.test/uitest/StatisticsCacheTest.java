@@ -0,0 +1,184 @@
+package uitest;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.file.Files;
+
+import hdf.object.Dataset;
+import hdf.object.Datatype;
+import hdf.object.FileFormat;
+import hdf.object.h5.H5Datatype;
+import hdf.object.h5.H5File;
+import hdf.view.StatisticsCache;
+import hdf.view.ViewProperties;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Tests that StatisticsCache stores results per dataset and selection, and drops them once the HDF file has
+ * changed. The cache directory is created next to a property file in a temporary directory, unless an
+ * earlier test of the same run has already used the cache.
+ */
+public class StatisticsCacheTest {
+    private static final double[] MIN_MAX = {-3.5, 1e10};
+
+    private static final double[] GAIN_BIAS = {0.25, 12};
+
+    private static File propDir;
+
+    private static String savedPropertyFile;
+
+    private File dir;
+
+    private H5File file;
+
+    @BeforeClass
+    public static void createPropertyFile() throws Exception
+    {
+        propDir           = Files.createTempDirectory("statisticscache").toFile();
+        savedPropertyFile = ViewProperties.getPropertyFile();
+
+        String propFile  = new File(propDir, "hdfview.props").getPath();
+        String savedProp = System.getProperty("hdfview.propfile");
+        System.setProperty("hdfview.propfile", propFile);
+        try {
+            ViewProperties.createPropertyFile(propFile, propFile);
+        }
+        finally {
+            if (savedProp == null)
+                System.clearProperty("hdfview.propfile");
+            else
+                System.setProperty("hdfview.propfile", savedProp);
+        }
+    }
+
+    @AfterClass
+    public static void restorePropertyFile() throws Exception
+    {
+        // the cache keeps its directory for the rest of the run, so the temporary directory is left in place
+        if (savedPropertyFile != null)
+            ViewProperties.createPropertyFile(savedPropertyFile, savedPropertyFile);
+    }
+
+    @Before
+    public void createFile() throws Exception
+    {
+        dir = Files.createTempDirectory("statisticscache").toFile();
+        String path = new File(dir, "statisticscache.h5").getPath();
+
+        H5File newFile = new H5File(path, FileFormat.CREATE);
+        newFile.open();
+        Datatype typeInt32 = new H5Datatype(Datatype.CLASS_INTEGER, 4, Datatype.NATIVE, Datatype.NATIVE);
+        newFile.createScalarDS("/data", null, typeInt32, new long[] {4, 5}, null, null, 0, new int[20]);
+        newFile.createScalarDS("/other", null, typeInt32, new long[] {4, 5}, null, null, 0, new int[20]);
+        newFile.close();
+
+        // read-only, so the library does not change the file
+        file = new H5File(path, FileFormat.READ);
+        file.open();
+    }
+
+    @After
+    public void removeFile() throws Exception
+    {
+        if (file != null) {
+            StatisticsCache.invalidate(dataset("/data"));
+            StatisticsCache.invalidate(dataset("/other"));
+            file.close();
+        }
+
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File f : files)
+                f.delete();
+        }
+        dir.delete();
+    }
+
+    /**
+     * Test method for {@link hdf.view.StatisticsCache#get(Dataset, String)} and
+     * {@link hdf.view.StatisticsCache#put(Dataset, String, double[])}.
+     *
+     * What to test:
+     * <ul>
+     * <li>stored results are read back by name
+     * <li>the results of another dataset or another selection are not returned
+     * <li>invalidate() drops the results of a dataset
+     * </ul>
+     */
+    @Test
+    public void testPutGet() throws Exception
+    {
+        Dataset dataset = dataset("/data");
+        assertNull(StatisticsCache.get(dataset, StatisticsCache.MIN_MAX));
+
+        StatisticsCache.put(dataset, StatisticsCache.MIN_MAX, MIN_MAX);
+        StatisticsCache.put(dataset, StatisticsCache.GAIN_BIAS, GAIN_BIAS);
+        assertArrayEquals(MIN_MAX, StatisticsCache.get(dataset, StatisticsCache.MIN_MAX), 0);
+        assertArrayEquals(GAIN_BIAS, StatisticsCache.get(dataset, StatisticsCache.GAIN_BIAS), 0);
+        assertNull(StatisticsCache.get(dataset, StatisticsCache.HISTOGRAM));
+        assertNull(StatisticsCache.get(dataset("/other"), StatisticsCache.MIN_MAX));
+
+        dataset.getSelectedDims()[0] = 2;
+        assertNull(StatisticsCache.get(dataset, StatisticsCache.MIN_MAX));
+        dataset.getSelectedDims()[0] = 4;
+        assertArrayEquals(MIN_MAX, StatisticsCache.get(dataset, StatisticsCache.MIN_MAX), 0);
+
+        StatisticsCache.invalidate(dataset);
+        assertNull(StatisticsCache.get(dataset, StatisticsCache.MIN_MAX));
+        assertNull(StatisticsCache.get(dataset, StatisticsCache.GAIN_BIAS));
+    }
+
+    /**
+     * Test method for {@link hdf.view.StatisticsCache#get(Dataset, String)} after the HDF file has changed.
+     *
+     * What to test:
+     * <ul>
+     * <li>an entry is stale once the modification time of the file has changed
+     * <li>an entry is stale once the size of the file has changed, at the same modification time
+     * <li>a stale entry is deleted, so it stays invalid when the file is restored
+     * </ul>
+     */
+    @Test
+    public void testStaleEntry() throws Exception
+    {
+        Dataset dataset = dataset("/data");
+        File hdfFile    = new File(file.getFilePath());
+        long mtime      = hdfFile.lastModified();
+
+        StatisticsCache.put(dataset, StatisticsCache.MIN_MAX, MIN_MAX);
+        assertNotNull(StatisticsCache.get(dataset, StatisticsCache.MIN_MAX));
+
+        assertTrue(hdfFile.setLastModified(mtime + 10000));
+        assertNull(StatisticsCache.get(dataset, StatisticsCache.MIN_MAX));
+        assertTrue(hdfFile.setLastModified(mtime));
+        assertNull(StatisticsCache.get(dataset, StatisticsCache.MIN_MAX));
+
+        StatisticsCache.put(dataset, StatisticsCache.MIN_MAX, MIN_MAX);
+        assertNotNull(StatisticsCache.get(dataset, StatisticsCache.MIN_MAX));
+
+        // bytes after the end of the HDF5 data do not disturb the library
+        try (FileOutputStream out = new FileOutputStream(hdfFile, true)) {
+            out.write(new byte[16]);
+        }
+        assertTrue(hdfFile.setLastModified(mtime));
+        assertNull(StatisticsCache.get(dataset, StatisticsCache.MIN_MAX));
+    }
+
+    private Dataset dataset(String name) throws Exception
+    {
+        Dataset dataset = (Dataset)file.get(name);
+        dataset.init();
+
+        return dataset;
+    }
+}
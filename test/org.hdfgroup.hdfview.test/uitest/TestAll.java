@@ -9,7 +9,9 @@ import org.junit.runners.Suite;
                      TestHDFViewAttributes.class, TestHDFViewImageConversion.class, TestTreeViewFiles.class,
                      TestTreeViewFilters.class, TestHDFViewIntConversions.class, TestTreeViewNewMenu.class,
                      TestTreeViewExport.class, TestHDFViewTAttr2.class, TestTreeViewNewVLDatatypes.class,
-                     TestHDFViewRefs.class})
+                     TestHDFViewRefs.class, ToolsTest.class, TextImporterTest.class,
+                     TextExporterTest.class, RowPageCacheTest.class, StatisticsCacheTest.class,
+                     FramePrefetcherTest.class})
 
 public class TestAll {
 }
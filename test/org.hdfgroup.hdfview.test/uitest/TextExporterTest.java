@@ -0,0 +1,237 @@
+package uitest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.lang.reflect.Array;
+import java.nio.file.Files;
+
+import hdf.object.Dataset;
+import hdf.object.Datatype;
+import hdf.object.FileFormat;
+import hdf.object.h5.H5Datatype;
+import hdf.object.h5.H5File;
+import hdf.view.TableView.DataDisplayConverterFactory;
+import hdf.view.TableView.DataDisplayConverterFactory.HDFDisplayConverter;
+import hdf.view.TextExporter;
+import hdf.view.Tools;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests that TextExporter writes the values of a dataset as the table view shows them, in a new HDF5 file for
+ * each test. The expected text is built from the whole dataset read with Dataset.read() and formatted by the
+ * display converter of the table.
+ */
+public class TextExporterTest {
+    private static final String NEW_LINE = System.lineSeparator();
+
+    /** the dimensions of the 3D dataset; a frame is more than a block, and is cut into two */
+    private static final long[] DIMS_LARGE = {2, 1500, 700};
+
+    private File dir;
+
+    private H5File file;
+
+    @Before
+    public void createFile() throws Exception
+    {
+        dir  = Files.createTempDirectory("textexport").toFile();
+        file = new H5File(new File(dir, "textexport.h5").getPath(), FileFormat.CREATE);
+        file.open();
+
+        Datatype typeUInt8  = new H5Datatype(Datatype.CLASS_INTEGER, 1, Datatype.NATIVE, Datatype.SIGN_NONE);
+        Datatype typeInt32  = new H5Datatype(Datatype.CLASS_INTEGER, 4, Datatype.NATIVE, Datatype.NATIVE);
+        Datatype typeUInt64 = new H5Datatype(Datatype.CLASS_INTEGER, 8, Datatype.NATIVE, Datatype.SIGN_NONE);
+        Datatype typeFloat  = new H5Datatype(Datatype.CLASS_FLOAT, 4, Datatype.NATIVE, Datatype.NATIVE);
+
+        int[] large = new int[(int)(DIMS_LARGE[0] * DIMS_LARGE[1] * DIMS_LARGE[2])];
+        for (int i = 0; i < large.length; i++)
+            large[i] = (i % 2 == 0) ? i * 37 : -i;
+        file.createScalarDS("/int32_3d", null, typeInt32, DIMS_LARGE, null, null, 0, large);
+
+        byte[] bytes = new byte[10 * 12];
+        for (int i = 0; i < bytes.length; i++)
+            bytes[i] = (byte)(i * 7);
+        file.createScalarDS("/uint8_2d", null, typeUInt8, new long[] {10, 12}, null, null, 0, bytes);
+
+        long[] longs = new long[6 * 4];
+        for (int i = 0; i < longs.length; i++)
+            longs[i] = (i % 3 == 0) ? -1L - i : Long.MAX_VALUE / (i + 1);
+        file.createScalarDS("/uint64_2d", null, typeUInt64, new long[] {6, 4}, null, null, 0, longs);
+
+        float[] floats = new float[3 * 4 * 5];
+        for (int i = 0; i < floats.length; i++)
+            floats[i] = i / 3.0f - 7;
+        file.createScalarDS("/float_3d", null, typeFloat, new long[] {3, 4, 5}, null, null, 0, floats);
+    }
+
+    @After
+    public void removeFile() throws Exception
+    {
+        if (file != null)
+            file.close();
+
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File f : files)
+                f.delete();
+        }
+        dir.delete();
+    }
+
+    /**
+     * Test method for {@link hdf.view.TextExporter#export(java.io.File)} on whole 3D datasets.
+     *
+     * What to test:
+     * <ul>
+     * <li>a dataset larger than a block is written in blocks of whole lines, in file order
+     * <li>decimal, hexadecimal and binary integers
+     * <li>floating-point numbers
+     * </ul>
+     */
+    @Test
+    public void testExport3D() throws Exception
+    {
+        long[] start = new long[3];
+        long[] one   = {1, 1, 1};
+        int lineSize = (int)DIMS_LARGE[2];
+        assertTrue(DIMS_LARGE[1] * DIMS_LARGE[2] * 4 > TextExporter.BLOCK_SIZE_BYTES);
+
+        TextExporter exporter = new TextExporter(dataset("/int32_3d"), ",");
+        assertEquals(expectedText("/int32_3d", ",", false, false, start, DIMS_LARGE, one, lineSize),
+                     export(exporter));
+
+        exporter = new TextExporter(dataset("/int32_3d"), " ");
+        exporter.setShowAsHex(true);
+        assertEquals(expectedText("/int32_3d", " ", true, false, start, DIMS_LARGE, one, lineSize),
+                     export(exporter));
+
+        long[] dims = {3, 4, 5};
+        exporter    = new TextExporter(dataset("/float_3d"), "\t");
+        assertEquals(expectedText("/float_3d", "\t", false, false, start, dims, one, 5), export(exporter));
+
+        exporter = new TextExporter(dataset("/uint8_2d"), ",");
+        exporter.setShowAsBin(true);
+        assertEquals(expectedText("/uint8_2d", ",", false, true, new long[2], new long[] {10, 12},
+                                  new long[] {1, 1}, 12),
+                     export(exporter));
+    }
+
+    /**
+     * Test method for {@link hdf.view.TextExporter#export(java.io.File)} on strided 2D selections.
+     *
+     * What to test:
+     * <ul>
+     * <li>a strided selection of unsigned bytes, in decimal, hexadecimal and binary
+     * <li>a line of all the values of the selection
+     * <li>unsigned longs beyond the range of a signed long, in decimal and hexadecimal
+     * </ul>
+     */
+    @Test
+    public void testExportStrided() throws Exception
+    {
+        long[] start  = {1, 2};
+        long[] count  = {4, 3};
+        long[] stride = {2, 3};
+
+        boolean[][] modes = {{false, false}, {true, false}, {false, true}};
+        for (boolean[] mode : modes) {
+            TextExporter exporter = new TextExporter(dataset("/uint8_2d"), ",");
+            exporter.setSelection(start, count, stride, 3);
+            exporter.setShowAsHex(mode[0]);
+            exporter.setShowAsBin(mode[1]);
+            assertEquals(expectedText("/uint8_2d", ",", mode[0], mode[1], start, count, stride, 3),
+                         export(exporter));
+        }
+
+        TextExporter exporter = new TextExporter(dataset("/uint8_2d"), ";");
+        exporter.setSelection(start, count, stride, 12);
+        assertEquals(expectedText("/uint8_2d", ";", false, false, start, count, stride, 12),
+                     export(exporter));
+
+        start  = new long[] {0, 1};
+        count  = new long[] {3, 2};
+        stride = new long[] {2, 2};
+        boolean[] hexModes = {false, true};
+        for (boolean showAsHex : hexModes) {
+            exporter = new TextExporter(dataset("/uint64_2d"), ",");
+            exporter.setSelection(start, count, stride, 2);
+            exporter.setShowAsHex(showAsHex);
+            assertEquals(expectedText("/uint64_2d", ",", showAsHex, false, start, count, stride, 2),
+                         export(exporter));
+        }
+    }
+
+    private Dataset dataset(String name) throws Exception { return (Dataset)file.get(name); }
+
+    private String export(TextExporter exporter) throws Exception
+    {
+        File textFile = new File(dir, "export.txt");
+        assertTrue(exporter.export(textFile));
+
+        return new String(Files.readAllBytes(textFile.toPath()));
+    }
+
+    /**
+     * Reads the whole dataset and formats the values of a hyperslab with the display converter of the table,
+     * with valuesPerLine values on a line.
+     */
+    private String expectedText(String name, String delimiter, boolean showAsHex, boolean showAsBin,
+                                long[] start, long[] count, long[] stride, int valuesPerLine) throws Exception
+    {
+        Dataset dataset = (Dataset)file.get(name);
+        dataset.init();
+
+        long[] dims     = dataset.getDims();
+        long[] selStart = dataset.getStartDims();
+        long[] selected = dataset.getSelectedDims();
+        for (int i = 0; i < dims.length; i++) {
+            selStart[i] = 0;
+            selected[i] = dims[i];
+        }
+        Object data = dataset.read();
+
+        // the table shows unsigned integers as values of a wider type, and unsigned longs as BigIntegers
+        Datatype dtype   = dataset.getDatatype();
+        boolean isUINT64 = dtype.isUnsigned() && (dtype.getDatatypeSize() == 8);
+        if (dtype.isUnsigned() && !isUINT64)
+            data = Dataset.convertFromUnsignedC(data);
+
+        HDFDisplayConverter converter = DataDisplayConverterFactory.getDataDisplayConverter(dataset);
+        converter.setShowAsHex(showAsHex);
+        converter.setShowAsBin(showAsBin);
+
+        int rank         = dims.length;
+        long points      = 1;
+        long[] dimStride = new long[rank];
+        for (int i = rank - 1; i >= 0; i--) {
+            dimStride[i] = (i == rank - 1) ? 1 : dimStride[i + 1] * dims[i + 1];
+            points *= count[i];
+        }
+
+        StringBuilder sb = new StringBuilder();
+        long[] position  = new long[rank];
+        for (long k = 0; k < points; k++) {
+            int index = 0;
+            for (int i = 0; i < rank; i++)
+                index += (start[i] + position[i] * stride[i]) * dimStride[i];
+
+            Object value =
+                isUINT64 ? Tools.convertUINT64toBigInt(((long[])data)[index]) : Array.get(data, index);
+            sb.append(converter.canonicalToDisplayValue(value));
+            sb.append(((k + 1) % valuesPerLine == 0) ? NEW_LINE : delimiter);
+
+            for (int i = rank - 1; i >= 0; i--) {
+                if (++position[i] < count[i])
+                    break;
+                position[i] = 0;
+            }
+        }
+
+        return sb.toString();
+    }
+}
@@ -0,0 +1,235 @@
+package uitest;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import hdf.object.Dataset;
+import hdf.object.Datatype;
+import hdf.object.FileFormat;
+import hdf.object.h5.H5Datatype;
+import hdf.object.h5.H5File;
+import hdf.view.TextImporter;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests that TextImporter writes the values of a text file to datasets of several types, in a new HDF5 file
+ * for each test.
+ */
+public class TextImporterTest {
+    /** the number of rows of the dataset whose text spans several segments */
+    private static final int LARGE_ROWS = 2000;
+
+    /** the number of values in a row of the dataset whose text spans several segments */
+    private static final int LARGE_COLS = 1000;
+
+    /** the value written to the data points before an import */
+    private static final byte FILL_BYTE = 7;
+
+    private File dir;
+
+    private H5File file;
+
+    @Before
+    public void createFile() throws Exception
+    {
+        dir  = Files.createTempDirectory("textimport").toFile();
+        file = new H5File(new File(dir, "textimport.h5").getPath(), FileFormat.CREATE);
+        file.open();
+
+        Datatype typeUInt8  = new H5Datatype(Datatype.CLASS_INTEGER, 1, Datatype.NATIVE, Datatype.SIGN_NONE);
+        Datatype typeInt16  = new H5Datatype(Datatype.CLASS_INTEGER, 2, Datatype.NATIVE, Datatype.NATIVE);
+        Datatype typeInt32  = new H5Datatype(Datatype.CLASS_INTEGER, 4, Datatype.NATIVE, Datatype.NATIVE);
+        Datatype typeUInt64 = new H5Datatype(Datatype.CLASS_INTEGER, 8, Datatype.NATIVE, Datatype.SIGN_NONE);
+        Datatype typeFloat  = new H5Datatype(Datatype.CLASS_FLOAT, 4, Datatype.NATIVE, Datatype.NATIVE);
+
+        byte[] fill = new byte[12];
+        Arrays.fill(fill, FILL_BYTE);
+        file.createScalarDS("/uint8", null, typeUInt8, new long[] {3, 4}, null, null, 0, fill);
+        file.createScalarDS("/int16", null, typeInt16, new long[] {2, 3}, null, null, 0, null);
+        file.createScalarDS("/uint64", null, typeUInt64, new long[] {5}, null, null, 0, null);
+        file.createScalarDS("/float", null, typeFloat, new long[] {2, 2}, null, null, 0, null);
+        file.createScalarDS("/int32", null, typeInt32, new long[] {LARGE_ROWS, LARGE_COLS}, null, null, 0,
+                            null);
+    }
+
+    @After
+    public void removeFile() throws Exception
+    {
+        if (file != null)
+            file.close();
+
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File f : files)
+                f.delete();
+        }
+        dir.delete();
+    }
+
+    /**
+     * Test method for {@link hdf.view.TextImporter#importText(java.io.File)} on integer datasets.
+     *
+     * What to test:
+     * <ul>
+     * <li>unsigned bytes up to 255 are written with the bits of their C type
+     * <li>the data points after the last value of a short file are left unchanged
+     * <li>the values after the end of the dataset are ignored
+     * <li>the limits of a signed short are accepted
+     * <li>unsigned longs of 19 and 20 digits, beyond the range of a signed long, are accepted
+     * </ul>
+     */
+    @Test
+    public void testImportIntegers() throws Exception
+    {
+        TextImporter importer = importText("/uint8", ",", "0,1,2,127,128,255\n+3,-0,4\n");
+        assertEquals(9, importer.getValueCount());
+        byte[] expectedBytes = {0, 1, 2, 127, (byte)128, (byte)255, 3, 0, 4, FILL_BYTE, FILL_BYTE, FILL_BYTE};
+        assertArrayEquals(expectedBytes, (byte[])readData("/uint8"));
+
+        importer = importText("/int16", ",", "-32768, 32767\n0 -1\t+12\n5 6 7 8\n");
+        assertEquals(6, importer.getValueCount());
+        short[] expectedShorts = {-32768, 32767, 0, -1, 12, 5};
+        assertArrayEquals(expectedShorts, (short[])readData("/int16"));
+
+        importer = importText("/uint64", ",",
+                              "0 42 9223372036854775807 9223372036854775808 18446744073709551615\n");
+        assertEquals(5, importer.getValueCount());
+        long[] expectedLongs = {0, 42, Long.MAX_VALUE, Long.MIN_VALUE, -1L};
+        assertArrayEquals(expectedLongs, (long[])readData("/uint64"));
+    }
+
+    /**
+     * Test method for {@link hdf.view.TextImporter#importText(java.io.File)} on a float dataset.
+     *
+     * What to test:
+     * <ul>
+     * <li>decimal and exponent notation, separated by the delimiter and by line breaks
+     * </ul>
+     */
+    @Test
+    public void testImportFloats() throws Exception
+    {
+        TextImporter importer = importText("/float", ";", "1.5;-0.25\n1e3;3.4028235E38\n");
+        assertEquals(4, importer.getValueCount());
+        float[] expected = {1.5f, -0.25f, 1000f, Float.MAX_VALUE};
+        assertArrayEquals(expected, (float[])readData("/float"), 0f);
+    }
+
+    /**
+     * Test method for {@link hdf.view.TextImporter#importText(java.io.File)} with invalid values.
+     *
+     * What to test:
+     * <ul>
+     * <li>values out of the range of signed and unsigned types of 1, 2 and 8 bytes fail
+     * <li>a value that is not an integer fails
+     * </ul>
+     */
+    @Test
+    public void testImportOutOfRange() throws Exception
+    {
+        String[][] invalid = {{"/uint8", "256"},   {"/uint8", "-1"},   {"/int16", "32768"},
+                              {"/int16", "-32769"}, {"/int16", "12x"}, {"/uint64", "-1"},
+                              {"/uint64", "18446744073709551616"}};
+        for (String[] test : invalid) {
+            try {
+                importText(test[0], ",", "1," + test[1] + ",2\n");
+                fail("importText(): " + test[1] + " accepted in " + test[0]);
+            }
+            catch (NumberFormatException ex) {
+                assertTrue(ex.getMessage(), ex.getMessage().contains("\"" + test[1] + "\" at offset 2"));
+            }
+        }
+    }
+
+    /**
+     * Test method for {@link hdf.view.TextImporter#importText(java.io.File)} on a text file of several
+     * segments.
+     *
+     * What to test:
+     * <ul>
+     * <li>a file of many lines is cut at line breaks, whatever line the segment boundary falls in
+     * <li>a file of a single line is cut at the separator before the segment boundary
+     * <li>the offset of an invalid value after the first segment is reported from the start of the file
+     * </ul>
+     */
+    @Test
+    public void testImportSegments() throws Exception
+    {
+        int[] values = new int[LARGE_ROWS * LARGE_COLS];
+        for (int i = 0; i < values.length; i++)
+            values[i] = (i % 3 == 0) ? -i : 1000000 + i;
+
+        // lines of about 8000 bytes, so the first segment ends inside a line
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < values.length; i++)
+            text.append(values[i]).append(((i + 1) % LARGE_COLS == 0) ? "\n" : ",");
+        assertTrue(text.length() > 2 * TextImporter.SEGMENT_SIZE_BYTES);
+
+        TextImporter importer = importText("/int32", ",", text.toString());
+        assertEquals(values.length, importer.getValueCount());
+        assertArrayEquals(values, (int[])readData("/int32"));
+
+        // a single line with the values in reverse order
+        int[] reversed = new int[values.length];
+        text.setLength(0);
+        for (int i = 0; i < values.length; i++) {
+            reversed[i] = values[values.length - 1 - i];
+            text.append(reversed[i]).append(", ");
+        }
+
+        importer = importText("/int32", ",", text.toString());
+        assertEquals(values.length, importer.getValueCount());
+        assertArrayEquals(reversed, (int[])readData("/int32"));
+
+        // a value out of range in the second segment
+        text.setLength(0);
+        int badOffset = -1;
+        for (int i = 0; i < values.length; i++) {
+            if (i == values.length * 3 / 4) {
+                badOffset = text.length();
+                text.append("2147483648");
+            }
+            else
+                text.append(values[i]);
+            text.append(((i + 1) % LARGE_COLS == 0) ? "\n" : ",");
+        }
+        assertTrue(badOffset > TextImporter.SEGMENT_SIZE_BYTES);
+
+        try {
+            importText("/int32", ",", text.toString());
+            fail("importText(): 2147483648 accepted in /int32");
+        }
+        catch (NumberFormatException ex) {
+            assertTrue(ex.getMessage(), ex.getMessage().contains("at offset " + badOffset + ":"));
+        }
+    }
+
+    private TextImporter importText(String name, String delimiter, String text) throws Exception
+    {
+        File textFile = new File(dir, "import.txt");
+        Files.write(textFile.toPath(), text.getBytes(StandardCharsets.ISO_8859_1));
+
+        TextImporter importer = new TextImporter((Dataset)file.get(name), delimiter);
+        assertTrue(importer.importText(textFile));
+
+        return importer;
+    }
+
+    private Object readData(String name) throws Exception
+    {
+        Dataset dataset = (Dataset)file.get(name);
+        dataset.init();
+
+        return dataset.read();
+    }
+}
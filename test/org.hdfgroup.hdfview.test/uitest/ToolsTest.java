@@ -0,0 +1,480 @@
+package uitest;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.awt.image.BufferedImage;
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import hdf.view.Tools;
+
+import org.junit.Test;
+
+import org.eclipse.swt.graphics.ImageData;
+import org.eclipse.swt.graphics.RGB;
+
+/**
+ * Tests the image and statistics kernels of Tools against the serial implementations they replaced. The
+ * reference methods at the end of the class are copies of the old code, reduced to work on doubles.
+ */
+public class ToolsTest {
+    /** the number of rows of the large arrays; big enough to be converted in parallel bands */
+    private static final int LARGE_ROWS = 1100;
+
+    /** the number of values in a row of the large arrays */
+    private static final int LARGE_COLS = 1024;
+
+    /**
+     * Test method for {@link hdf.view.Tools#forEachRowBand(int, long, hdf.view.Tools.RowBandTask)}.
+     *
+     * What to test:
+     * <ul>
+     * <li>every row of a small image is converted exactly once
+     * <li>every row of an image larger than PARALLEL_MIN_PIXELS is converted exactly once
+     * <li>an exception thrown by a band is rethrown to the caller
+     * </ul>
+     */
+    @Test
+    public void testForEachRowBand()
+    {
+        int[] sizes = {1, 7, LARGE_ROWS};
+        for (int rows : sizes) {
+            final int[] count = new int[rows];
+            Tools.forEachRowBand(rows, LARGE_COLS, new Tools.RowBandTask() {
+                @Override
+                public void run(int row0, int row1)
+                {
+                    for (int i = row0; i < row1; i++) {
+                        synchronized (count) {
+                            count[i]++;
+                        }
+                    }
+                }
+            });
+
+            int[] expected = new int[rows];
+            Arrays.fill(expected, 1);
+            assertArrayEquals("rows=" + rows, expected, count);
+        }
+
+        try {
+            Tools.forEachRowBand(LARGE_ROWS, LARGE_COLS, new Tools.RowBandTask() {
+                @Override
+                public void run(int row0, int row1)
+                {
+                    if ((row0 <= LARGE_ROWS / 2) && (LARGE_ROWS / 2 < row1))
+                        throw new IllegalArgumentException("bad band");
+                }
+            });
+            fail("forEachRowBand(): exception not rethrown");
+        }
+        catch (IllegalArgumentException ex) {
+            // the pool may rethrow a copy of the exception with the original as its cause
+            Throwable original = (ex.getCause() != null) ? ex.getCause() : ex;
+            assertEquals("bad band", original.getMessage());
+        }
+    }
+
+    /**
+     * Test method for {@link hdf.view.Tools#getBytes(Object, double[], long, long, boolean, List, boolean,
+     * byte[], List)}.
+     *
+     * What to test:
+     * <ul>
+     * <li>byte, short, int, long, float and double data scale to the same bytes as before, transposed or not
+     * <li>values out of range, fill values, NaN and infinite values become 0 and are listed in the same
+     * order as before
+     * <li>the same holds for an image large enough to be converted in parallel bands
+     * </ul>
+     */
+    @Test
+    public void testGetBytes()
+    {
+        int[][] shapes = {{5, 4}, {LARGE_COLS, LARGE_ROWS}};
+        for (int[] shape : shapes) {
+            int w = shape[0];
+            int h = shape[1];
+            for (Object data : createData(w * h, 11)) {
+                for (boolean isTransposed : new boolean[] {false, true}) {
+                    String msg = data.getClass().getSimpleName() + " " + w + "x" + h +
+                                 (isTransposed ? " transposed" : "");
+
+                    double[] minmax            = {-100, 900};
+                    List<Number> invalidValues = new ArrayList<>();
+                    invalidValues.add(Integer.valueOf(7));
+
+                    // byte data never had its invalid values checked
+                    double[] fill = (data instanceof byte[]) ? new double[0] : new double[] {7};
+
+                    List<Integer> expectedList = new ArrayList<>();
+                    byte[] expected = oldGetBytes(toDoubles(data, false), minmax[0], minmax[1], w, h,
+                                                  isTransposed, fill, expectedList);
+
+                    List<Integer> list = new ArrayList<>();
+                    byte[] bytes = Tools.getBytes(data, minmax, w, h, isTransposed, invalidValues, true, null,
+                                                  list);
+
+                    assertArrayEquals(msg, expected, bytes);
+                    assertEquals(msg, expectedList, list);
+                }
+            }
+        }
+    }
+
+    /**
+     * Test method for {@link hdf.view.Tools#createIndexedImageData(byte[], byte[][], int, int, List)}.
+     *
+     * What to test:
+     * <ul>
+     * <li>every pixel has the color of the AWT image built from the same bytes and palette
+     * <li>the image data uses the byte array without copying it
+     * <li>the listed invalid pixels are transparent and the others opaque
+     * <li>no image data is created without bytes
+     * </ul>
+     */
+    @Test
+    public void testCreateIndexedImageData()
+    {
+        int[][] shapes   = {{5, 3}, {LARGE_COLS, LARGE_ROWS}};
+        byte[][] palette = Tools.createRainbowPalette();
+        Random random    = new Random(7);
+        for (int[] shape : shapes) {
+            int w        = shape[0];
+            int h        = shape[1];
+            String msg   = w + "x" + h;
+            byte[] bytes = new byte[w * h];
+            random.nextBytes(bytes);
+            List<Integer> invalid = new ArrayList<>();
+            invalid.add(1);
+            invalid.add(w * h - 1);
+
+            ImageData imgData = Tools.createIndexedImageData(bytes, palette, w, h, invalid);
+            assertEquals(msg, w, imgData.width);
+            assertEquals(msg, h, imgData.height);
+            assertSame(msg, bytes, imgData.data);
+
+            BufferedImage expected = (BufferedImage)Tools.createIndexedImage(null, bytes, palette, w, h);
+            for (int y = 0; y < h; y++) {
+                for (int x = 0; x < w; x++) {
+                    RGB rgb = imgData.palette.getRGB(imgData.getPixel(x, y));
+                    assertEquals(msg + " (" + x + "," + y + ")", expected.getRGB(x, y) & 0xffffff,
+                                 (rgb.red << 16) | (rgb.green << 8) | rgb.blue);
+                    int alpha = invalid.contains(y * w + x) ? 0 : 255;
+                    assertEquals(msg + " (" + x + "," + y + ")", alpha, imgData.getAlpha(x, y));
+                }
+            }
+        }
+
+        assertNull(Tools.createIndexedImageData(null, palette, 5, 3, null));
+        assertNull(Tools.createIndexedImageData(new byte[14], palette, 5, 3, null));
+    }
+
+    /**
+     * Test method for {@link hdf.view.Tools#createTrueColorImageData(byte[], boolean, int, int, List)}.
+     *
+     * What to test:
+     * <ul>
+     * <li>pixel and plane interlaced bytes give the colors of the components of each pixel
+     * <li>pixel interlaced bytes are used without copying them
+     * <li>the same holds for an image large enough to be interleaved in parallel bands
+     * <li>the listed invalid pixels are transparent
+     * </ul>
+     */
+    @Test
+    public void testCreateTrueColorImageData()
+    {
+        int[][] shapes = {{5, 3}, {LARGE_COLS, LARGE_ROWS}};
+        Random random  = new Random(11);
+        for (int[] shape : shapes) {
+            int w        = shape[0];
+            int h        = shape[1];
+            int len      = w * h;
+            byte[] bytes = new byte[len * 3];
+            random.nextBytes(bytes);
+            List<Integer> invalid = new ArrayList<>();
+            invalid.add(len / 2);
+
+            for (boolean planeInterlace : new boolean[] {false, true}) {
+                String msg        = w + "x" + h + (planeInterlace ? " plane" : " pixel");
+                ImageData imgData = Tools.createTrueColorImageData(bytes, planeInterlace, w, h, invalid);
+                assertEquals(msg, w, imgData.width);
+                assertEquals(msg, h, imgData.height);
+                if (!planeInterlace)
+                    assertSame(msg, bytes, imgData.data);
+
+                for (int y = 0; y < h; y++) {
+                    for (int x = 0; x < w; x++) {
+                        int idx = y * w + x;
+                        int r   = planeInterlace ? bytes[idx] : bytes[idx * 3];
+                        int g   = planeInterlace ? bytes[len + idx] : bytes[idx * 3 + 1];
+                        int b   = planeInterlace ? bytes[len * 2 + idx] : bytes[idx * 3 + 2];
+                        RGB rgb = imgData.palette.getRGB(imgData.getPixel(x, y));
+                        assertEquals(msg + " (" + x + "," + y + ")", new RGB(r & 0xff, g & 0xff, b & 0xff),
+                                     rgb);
+                        assertEquals(msg, (idx == len / 2) ? 0 : 255, imgData.getAlpha(x, y));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Test method for {@link hdf.view.Tools#findDataDist(Object, int[], double[], boolean, Object)}.
+     *
+     * What to test:
+     * <ul>
+     * <li>signed data of every type gives the same distribution as before
+     * <li>unsigned byte, short, int and long data are counted by their unsigned values
+     * <li>the fill value is not counted
+     * <li>NaN is not counted
+     * <li>the same holds for an array large enough to be counted in parallel bands
+     * </ul>
+     */
+    @Test
+    public void testFindDataDist()
+    {
+        int[] sizes = {37, LARGE_COLS * LARGE_ROWS};
+        for (int n : sizes) {
+            for (Object data : createData(n, 3)) {
+                for (boolean isUnsigned : new boolean[] {false, true}) {
+                    if (isUnsigned && ((data instanceof float[]) || (data instanceof double[])))
+                        continue;
+
+                    String msg = data.getClass().getSimpleName() + " n=" + n +
+                                 (isUnsigned ? " unsigned" : "");
+
+                    double[] minmax = {-128, 70000};
+                    double[] values = toDoubles(data, isUnsigned);
+
+                    int[] expected = new int[256];
+                    oldFindDataDist(values, expected, minmax);
+                    int[] dist = new int[256];
+                    assertEquals(msg, 0, Tools.findDataDist(data, dist, minmax, isUnsigned, null));
+                    assertArrayEquals(msg, expected, dist);
+
+                    // the old code had no fill value, so it is given the data without it
+                    Object fillValue = Array.newInstance(data.getClass().getComponentType(), 1);
+                    Array.set(fillValue, 0, Array.get(data, 0));
+                    oldFindDataDist(withoutValue(values, values[0]), expected, minmax);
+                    assertEquals(msg, 0, Tools.findDataDist(data, dist, minmax, isUnsigned, fillValue));
+                    assertArrayEquals(msg + " with fill value", expected, dist);
+                }
+            }
+        }
+    }
+
+    /**
+     * Test method for {@link hdf.view.Tools#computeStatistics(Object, double[], Object)}.
+     *
+     * What to test:
+     * <ul>
+     * <li>the mean and standard deviation of every type are the same as before
+     * <li>the fill value is left out of both
+     * <li>a NaN in float or double data gives a NaN mean, as before
+     * <li>an array of fill values gives the fill value as mean and 0 as standard deviation
+     * <li>the same holds for an array large enough to be summed in parallel bands
+     * </ul>
+     */
+    @Test
+    public void testComputeStatistics()
+    {
+        int[] sizes = {37, LARGE_COLS * LARGE_ROWS};
+        for (int n : sizes) {
+            for (Object data : createData(n, 5)) {
+                String msg      = data.getClass().getSimpleName() + " n=" + n;
+                double[] values = toDoubles(data, false);
+
+                double[] expected = oldComputeStatistics(values, false, 0);
+                double[] avgstd   = new double[2];
+                assertEquals(msg, 1, Tools.computeStatistics(data, avgstd, null));
+                assertStatistics(msg, expected, avgstd);
+
+                Object fillValue = Array.newInstance(data.getClass().getComponentType(), 1);
+                Array.set(fillValue, 0, Array.get(data, 0));
+                expected = oldComputeStatistics(values, true, values[0]);
+                assertEquals(msg, 1, Tools.computeStatistics(data, avgstd, fillValue));
+                assertStatistics(msg + " with fill value", expected, avgstd);
+            }
+        }
+
+        double[] fills  = {-9, -9, -9};
+        double[] avgstd = new double[2];
+        assertEquals(1, Tools.computeStatistics(fills, avgstd, new double[] {-9}));
+        assertEquals(-9, avgstd[0], 0);
+        assertEquals(0, avgstd[1], 0);
+    }
+
+    private static void assertStatistics(String msg, double[] expected, double[] avgstd)
+    {
+        double tolerance = 1e-9 * Math.max(1, Math.abs(expected[0]) + Math.abs(expected[1]));
+        assertEquals(msg + " mean", expected[0], avgstd[0], tolerance);
+        assertEquals(msg + " stdev", expected[1], avgstd[1], tolerance);
+    }
+
+    /**
+     * Creates arrays of every numeric type with n values, in a range that covers negative values, values
+     * that wrap around when read as unsigned, values past the end of the test range and, every nanEvery
+     * values, NaN and infinite values in float and double data.
+     */
+    private static List<Object> createData(int n, int nanEvery)
+    {
+        Random random = new Random(n);
+        byte[] b      = new byte[n];
+        short[] s     = new short[n];
+        int[] ia      = new int[n];
+        long[] l      = new long[n];
+        float[] f     = new float[n];
+        double[] d    = new double[n];
+
+        for (int i = 0; i < n; i++) {
+            int v = (i % 17 == 0) ? 7 : random.nextInt(1200) - 200;
+            b[i]  = (byte)v;
+            s[i]  = (short)((i % 13 == 0) ? -v : v);
+            ia[i] = (i % 19 == 0) ? -v : v;
+            l[i]  = (i % 23 == 0) ? -v : v;
+            f[i]  = v + 0.25f;
+            d[i]  = v - 0.5;
+            if (i % 17 == 0) {
+                f[i] = 7;
+                d[i] = 7;
+            }
+            else if (i % (nanEvery * 29) == 1) {
+                f[i] = Float.NaN;
+                d[i] = Double.NaN;
+            }
+            else if (i % (nanEvery * 31) == 2) {
+                f[i] = Float.POSITIVE_INFINITY;
+                d[i] = Double.NEGATIVE_INFINITY;
+            }
+        }
+
+        return Arrays.asList(b, s, ia, l, f, d);
+    }
+
+    /**
+     * Returns the values of a numeric array as doubles, reading integers as unsigned if asked.
+     */
+    private static double[] toDoubles(Object data, boolean isUnsigned)
+    {
+        int n           = Array.getLength(data);
+        double[] values = new double[n];
+        for (int i = 0; i < n; i++) {
+            Number value = (Number)Array.get(data, i);
+            if (!isUnsigned)
+                values[i] = value.doubleValue();
+            else if (data instanceof byte[])
+                values[i] = value.byteValue() & 0xFF;
+            else if (data instanceof short[])
+                values[i] = value.shortValue() & 0xFFFF;
+            else if (data instanceof int[])
+                values[i] = value.intValue() & 0xFFFFFFFFL;
+            else
+                values[i] = Double.parseDouble(Long.toUnsignedString(value.longValue()));
+        }
+
+        return values;
+    }
+
+    private static double[] withoutValue(double[] values, double value)
+    {
+        double[] kept = new double[values.length];
+        int n         = 0;
+        for (double v : values) {
+            if (v != value)
+                kept[n++] = v;
+        }
+
+        return Arrays.copyOf(kept, n);
+    }
+
+    /** the old serial Tools.getBytes() for non-byte data and a given range */
+    private static byte[] oldGetBytes(double[] data, double min, double max, int w, int h,
+                                      boolean isTransposed, double[] fill, List<Integer> list)
+    {
+        byte[] byteData = new byte[data.length];
+        double ratio    = (min == max) ? 1.00d : (double)(255.00 / (max - min));
+        for (int i = 0; i < h; i++) {
+            for (int j = 0; j < w; j++) {
+                int idxSrc = j * h + i;
+                int idxDst = isTransposed ? i * w + j : idxSrc;
+                double in  = data[idxSrc];
+                if (in < min || in > max || isFillValue(in, fill) || Double.isNaN(in) ||
+                    Double.isInfinite(in)) {
+                    byteData[idxDst] = 0;
+                    list.add(idxSrc);
+                }
+                else
+                    byteData[idxDst] = (byte)((in - min) * ratio);
+            }
+        }
+
+        return byteData;
+    }
+
+    private static boolean isFillValue(double in, double[] fill)
+    {
+        for (double value : fill) {
+            if (value == in)
+                return true;
+        }
+
+        return false;
+    }
+
+    /** the old serial Tools.findDataDist() */
+    private static void oldFindDataDist(double[] data, int[] dataDist, double[] minmax)
+    {
+        double delt = 1;
+        if (minmax[1] != minmax[0])
+            delt = (dataDist.length - 1) / (minmax[1] - minmax[0]);
+
+        Arrays.fill(dataDist, 0);
+        for (double val : data) {
+            if (val >= minmax[0] && val <= minmax[1])
+                dataDist[(int)((val - minmax[0]) * delt)]++;
+        }
+    }
+
+    /** the old serial two-pass Tools.computeStatistics() */
+    private static double[] oldComputeStatistics(double[] data, boolean hasFillValue, double fill)
+    {
+        double sum  = 0;
+        double avg  = 0;
+        double var  = 0;
+        int npoints = 0;
+        for (double v : data) {
+            if (hasFillValue && v == fill)
+                continue;
+            sum += v;
+            npoints++;
+        }
+        if (npoints > 0) {
+            avg = sum / npoints;
+            for (double v : data) {
+                if (hasFillValue && v == fill)
+                    continue;
+                var += (v - avg) * (v - avg);
+            }
+        }
+
+        double[] avgstd = new double[2];
+        if (npoints <= 1) {
+            if (npoints < 1)
+                avgstd[0] = fill;
+            avgstd[1] = 0;
+        }
+        else {
+            avgstd[0] = avg;
+            avgstd[1] = Math.sqrt(var / (npoints - 1));
+        }
+
+        return avgstd;
+    }
+}
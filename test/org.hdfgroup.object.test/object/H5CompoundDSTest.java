@@ -16,6 +16,7 @@ import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.lang.reflect.Array;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Vector;
 
@@ -760,6 +761,78 @@ public class H5CompoundDSTest {
         }     //  (int loop=0; loop<NLOOPS; loop++) {
     }
 
+    /**
+     * Test method for {@link hdf.object.h5.H5CompoundDS#read()} with the members read together.
+     *
+     * What to test:
+     * <ul>
+     * <li>Read the whole dataset with one packed read and with one read per member
+     * <li>Read a block of rows of two members both ways
+     * <li>Compare the values of every member
+     * </ul>
+     */
+    @Test
+    public void testReadPacked()
+    {
+        log.debug("testReadPacked");
+        List<?> packed    = null;
+        List<?> perMember = null;
+
+        testDataset.init();
+        assertTrue(testDataset.isPackedRead());
+
+        try {
+            packed = (List<?>)testDataset.read();
+            testDataset.setPackedRead(false);
+            perMember = (List<?>)testDataset.read();
+        }
+        catch (final Exception ex) {
+            fail("read() failed. " + ex);
+        }
+        finally {
+            testDataset.setPackedRead(true);
+        }
+        assertNotNull(packed);
+        assertNotNull(perMember);
+        assertEquals(testDataset.getMemberCount(), packed.size());
+        assertTrue(Arrays.deepEquals(perMember.toArray(), packed.toArray()));
+
+        final int[] ints = (int[])packed.get(0);
+        for (int i = 0; i < H5TestFile.DIM_SIZE; i++)
+            assertEquals(H5TestFile.DATA_INT[i], ints[i]);
+
+        // rows 3 to 6 of the float and long members
+        testDataset.clearData();
+        testDataset.init();
+        testDataset.setAllMemberSelection(false);
+        testDataset.selectMember(1);
+        testDataset.selectMember(3);
+        final long[] start = testDataset.getStartDims();
+        final long[] count = testDataset.getSelectedDims();
+        start[0]           = 3;
+        count[0]           = 4;
+
+        try {
+            packed = (List<?>)testDataset.read();
+            testDataset.setPackedRead(false);
+            perMember = (List<?>)testDataset.read();
+        }
+        catch (final Exception ex) {
+            fail("read() of a subset failed. " + ex);
+        }
+        finally {
+            testDataset.setPackedRead(true);
+        }
+        assertNotNull(packed);
+        assertEquals(2, packed.size());
+        assertTrue(Arrays.deepEquals(perMember.toArray(), packed.toArray()));
+
+        final float[] floats = (float[])packed.get(0);
+        assertEquals(4 * H5TestFile.DIM2, floats.length);
+        for (int i = 0; i < floats.length; i++)
+            assertEquals(H5TestFile.DATA_FLOAT[(int)(3 * H5TestFile.DIM2) + i], floats[i], Float.MIN_VALUE);
+    }
+
     /**
      * Test method for {@link hdf.object.h5.H5CompoundDS#readBytes()}.
      *
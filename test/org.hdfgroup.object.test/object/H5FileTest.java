@@ -13,6 +13,7 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.util.Arrays;
 import java.util.List;
 
 import hdf.object.Attribute;
@@ -21,14 +22,17 @@ import hdf.object.Datatype;
 import hdf.object.FileFormat;
 import hdf.object.Group;
 import hdf.object.HObject;
+import hdf.object.h5.H5CompoundDS;
 import hdf.object.h5.H5Datatype;
 import hdf.object.h5.H5File;
 import hdf.object.h5.H5Group;
 import hdf.object.h5.H5ScalarAttr;
 import hdf.object.h5.H5ScalarDS;
+import hdf.object.h5.H5UnresolvedDS;
 
 import hdf.hdf5lib.H5;
 import hdf.hdf5lib.HDF5Constants;
+import hdf.hdf5lib.HDFNativeData;
 import hdf.hdf5lib.structs.H5G_info_t;
 import hdf.hdf5lib.structs.H5L_info_t;
 
@@ -265,6 +269,323 @@ public class H5FileTest {
         } //  (int i=0; i<NLOOPS; i++)
     }
 
+    /**
+     * Test method for {@link hdf.object.h5.H5File#open()} with group members loaded on demand.
+     *
+     * What to test:
+     * <ul>
+     * <li>open a file that loads group members on demand
+     * <li>check that subgroups are not loaded until their members are requested
+     * <li>check the file content
+     * <li>close the file
+     * </ul>
+     */
+    @Test
+    public void testOpenLoadOnDemand()
+    {
+        log.debug("testOpenLoadOnDemand");
+        // Close default testFile
+        closeFile();
+
+        final H5File file = new H5File(H5TestFile.NAME_FILE_H5, FileFormat.WRITE);
+        file.setLoadOnDemand(true);
+
+        long fid = -1;
+        try {
+            fid = file.open(); // open only the root group
+        }
+        catch (final Exception ex) {
+            fail("file.open() failed. " + ex);
+        }
+        assertTrue(fid > 0);
+
+        final H5Group root = (H5Group)file.getRootObject();
+        assertNotNull(root);
+        assertFalse(root.isMemberListLoaded());
+
+        H5Group g0 = null;
+        for (HObject obj : root.getMemberList()) {
+            if (H5TestFile.NAME_GROUP.equals(obj.getFullName()))
+                g0 = (H5Group)obj;
+        }
+        assertTrue(root.isMemberListLoaded());
+        assertNotNull(g0);
+        assertFalse(g0.isMemberListLoaded());
+        assertTrue(g0.getMemberList().size() > 0);
+        assertTrue(g0.isMemberListLoaded());
+
+        // try to get all object in the file
+        try {
+            for (int j = 0; j < H5TestFile.OBJ_NAMES.length; j++)
+                assertNotNull(file.get(H5TestFile.OBJ_NAMES[j]));
+        }
+        catch (final Exception ex) {
+            fail("file.get() failed. " + ex);
+        }
+
+        try {
+            file.close();
+        }
+        catch (final Exception ex) {
+            fail("file.close() failed. " + ex);
+        }
+    }
+
+    /**
+     * Test method for {@link hdf.object.h5.H5File#open()} with datasets loaded on demand.
+     *
+     * What to test:
+     * <ul>
+     * <li>open a file that loads group members on demand
+     * <li>check that the member list of a group keeps datasets that are not classified yet
+     * <li>check that getMember() replaces them by compound or scalar datasets
+     * <li>check that datasets found by path are compound or scalar datasets
+     * <li>close the file
+     * </ul>
+     */
+    @Test
+    public void testOpenLoadOnDemandDatasets()
+    {
+        log.debug("testOpenLoadOnDemandDatasets");
+        // Close default testFile
+        closeFile();
+
+        final H5File file = new H5File(H5TestFile.NAME_FILE_H5, FileFormat.READ);
+        file.setLoadOnDemand(true);
+
+        long fid = -1;
+        try {
+            fid = file.open(); // open only the root group
+        }
+        catch (final Exception ex) {
+            fail("file.open() failed. " + ex);
+        }
+        assertTrue(fid > 0);
+
+        final H5Group root          = (H5Group)file.getRootObject();
+        final List<HObject> members = root.getMemberList();
+        for (int i = 0; i < members.size(); i++) {
+            HObject obj = members.get(i);
+            if (H5TestFile.NAME_DATASET_COMPOUND.equals(obj.getFullName())) {
+                assertTrue(obj instanceof H5UnresolvedDS);
+                assertTrue(root.getMember(i) instanceof H5CompoundDS);
+                assertTrue(members.get(i) instanceof H5CompoundDS);
+            }
+            else if (H5TestFile.NAME_DATASET_INT.equals(obj.getFullName())) {
+                assertTrue(obj instanceof H5UnresolvedDS);
+                assertTrue(root.resolveMember((H5UnresolvedDS)obj) instanceof H5ScalarDS);
+                assertTrue(members.get(i) instanceof H5ScalarDS);
+            }
+        }
+
+        try {
+            assertTrue(file.get(H5TestFile.NAME_DATASET_FLOAT) instanceof H5ScalarDS);
+            assertTrue(file.get(H5TestFile.NAME_DATASET_COMPOUND_SUB) instanceof H5CompoundDS);
+        }
+        catch (final Exception ex) {
+            fail("file.get() failed. " + ex);
+        }
+
+        try {
+            file.close();
+        }
+        catch (final Exception ex) {
+            fail("file.close() failed. " + ex);
+        }
+    }
+
+    /**
+     * Test method for {@link hdf.object.h5.H5Group#getMemberList()} with datasets loaded on demand.
+     *
+     * What to test:
+     * <ul>
+     * <li>open a file that loads group members on demand
+     * <li>expand the root group and a subgroup the way the tree view does
+     * <li>check that every dataset in them is listed without being opened
+     * <li>close the file
+     * </ul>
+     */
+    @Test
+    public void testExpandLoadOnDemandGroup()
+    {
+        log.debug("testExpandLoadOnDemandGroup");
+        // Close default testFile
+        closeFile();
+
+        final H5File file = new H5File(H5TestFile.NAME_FILE_H5, FileFormat.READ);
+        file.setLoadOnDemand(true);
+
+        long fid = -1;
+        try {
+            fid = file.open(); // open only the root group
+        }
+        catch (final Exception ex) {
+            fail("file.open() failed. " + ex);
+        }
+        assertTrue(fid > 0);
+
+        final H5Group root = (H5Group)file.getRootObject();
+        H5Group group      = null;
+        int nDatasets      = 0;
+
+        List<HObject> members = root.getMemberList();
+        assertTrue(root.getNumberOfMembersInFile() >= members.size());
+        for (int i = 0; i < members.size(); i++) {
+            HObject obj = members.get(i);
+            if (H5TestFile.NAME_GROUP.equals(obj.getFullName()))
+                group = (H5Group)obj;
+            else if (obj instanceof H5UnresolvedDS)
+                nDatasets++;
+        }
+        assertNotNull(group);
+
+        members = group.getMemberList();
+        assertTrue(group.getNumberOfMembersInFile() >= members.size());
+        for (int i = 0; i < members.size(); i++) {
+            HObject obj = members.get(i);
+            assertFalse(obj instanceof Dataset);
+            if (obj instanceof H5UnresolvedDS)
+                nDatasets++;
+        }
+        assertTrue(nDatasets > 0);
+
+        try {
+            assertEquals(0, H5.H5Fget_obj_count(fid, HDF5Constants.H5F_OBJ_DATASET));
+        }
+        catch (final Exception ex) {
+            fail("H5.H5Fget_obj_count() failed. " + ex);
+        }
+
+        try {
+            file.close();
+        }
+        catch (final Exception ex) {
+            fail("file.close() failed. " + ex);
+        }
+    }
+
+    /**
+     * Test method for {@link hdf.object.h5.H5File#open()} for the object IDs built while opening the file.
+     *
+     * What to test:
+     * <ul>
+     * <li>open a file
+     * <li>check that the OID of each object matches the object reference created by the library
+     * <li>check that an object constructed by name has the same OID as the loaded object
+     * <li>find each object by the object reference
+     * <li>close the file
+     * </ul>
+     */
+    @Test
+    public void testOpenObjectIDs()
+    {
+        log.debug("testOpenObjectIDs");
+        // Close default testFile
+        closeFile();
+
+        final H5File file = new H5File(H5TestFile.NAME_FILE_H5, FileFormat.READ);
+
+        long fid = -1;
+        try {
+            fid = file.open();
+        }
+        catch (final Exception ex) {
+            fail("file.open() failed. " + ex);
+        }
+        assertTrue(fid > 0);
+
+        for (int j = 0; j < H5TestFile.OBJ_NAMES.length; j++) {
+            HObject obj = null;
+            try {
+                obj = file.get(H5TestFile.OBJ_NAMES[j]);
+            }
+            catch (final Exception ex) {
+                fail("file.get() failed. " + ex);
+            }
+            assertNotNull(obj);
+
+            byte[] refBuf = null;
+            long[] refOid = null;
+            try {
+                refBuf = H5.H5Rcreate_object(fid, H5TestFile.OBJ_NAMES[j], HDF5Constants.H5P_DEFAULT);
+                refOid = HDFNativeData.byteToLong(refBuf);
+            }
+            catch (final Exception ex) {
+                fail("H5.H5Rcreate_object() failed. " + ex);
+            }
+            finally {
+                if (refBuf != null)
+                    H5.H5Rdestroy(refBuf);
+            }
+
+            assertTrue(obj.equalsOID(refOid));
+            assertEquals(obj, FileFormat.findObject(file, refOid));
+
+            HObject byName = null;
+            if (obj instanceof Group)
+                byName = new H5Group(file, obj.getName(), obj.getPath(), null);
+            else if (obj instanceof H5CompoundDS)
+                byName = new H5CompoundDS(file, obj.getName(), obj.getPath());
+            else if (obj instanceof H5ScalarDS)
+                byName = new H5ScalarDS(file, obj.getName(), obj.getPath());
+            else if (obj instanceof H5Datatype)
+                byName = new H5Datatype(file, obj.getName(), obj.getPath());
+            if (byName != null)
+                assertTrue(Arrays.equals(obj.getOID(), byName.getOID()));
+        }
+
+        try {
+            file.close();
+        }
+        catch (final Exception ex) {
+            fail("file.close() failed. " + ex);
+        }
+    }
+
+    /**
+     * Test method for {@link hdf.object.h5.H5File#setHandlePoolSize(int)}.
+     *
+     * What to test:
+     * <ul>
+     * <li>open a dataset twice and get the same pooled identifier
+     * <li>check that the identifier stays open after it is closed
+     * <li>check that the identifier is closed when the pool is emptied
+     * </ul>
+     */
+    @Test
+    public void testHandlePool()
+    {
+        log.debug("testHandlePool");
+        assertEquals(H5File.DEFAULT_HANDLE_POOL_SIZE, testFile.getHandlePoolSize());
+
+        final long did = testDataset.open();
+        assertTrue(did >= 0);
+        final long did2 = testDataset.open();
+        assertEquals(did, did2);
+        testDataset.close(did2);
+        testDataset.close(did);
+
+        try {
+            assertTrue(H5.H5Iis_valid(did));
+            testFile.setHandlePoolSize(0);
+            assertFalse(H5.H5Iis_valid(did));
+        }
+        catch (final Exception ex) {
+            fail("H5.H5Iis_valid() failed. " + ex);
+        }
+
+        final long did3 = testDataset.open();
+        assertTrue(did3 >= 0);
+        testDataset.close(did3);
+        try {
+            assertFalse(H5.H5Iis_valid(did3));
+        }
+        catch (final Exception ex) {
+            fail("H5.H5Iis_valid() failed. " + ex);
+        }
+        testFile.setHandlePoolSize(H5File.DEFAULT_HANDLE_POOL_SIZE);
+    }
+
     /**
      * Test method for {@link hdf.object.h5.H5File#create(java.lang.String)}.
      *
@@ -395,6 +716,84 @@ public class H5FileTest {
         file.delete();
     }
 
+    /**
+     * Test method for {@link hdf.object.FileFormat#findObject(FileFormat, String)} and
+     * {@link hdf.object.FileFormat#findObject(FileFormat, long[])}.
+     *
+     * What to test:
+     * <ul>
+     * <li>create a file
+     * <li>create a group and find it by path and by OID
+     * <li>rename the group and find it and its member by the new paths only
+     * <li>remove the group from its parent and check that it is not found
+     * <li>close/delete the file
+     * </ul>
+     */
+    @Test
+    public void testFindObject()
+    {
+        log.debug("testFindObject");
+        final String nameNew = "testH5File.h5";
+        H5File file          = null;
+
+        try {
+            file = (H5File)H5FILE.createFile(nameNew, FileFormat.FILE_CREATE_DELETE);
+        }
+        catch (final Exception ex) {
+            fail("file.create() failed. " + ex);
+        }
+
+        long fid = -1;
+        try {
+            fid = file.open();
+        }
+        catch (final Exception ex) {
+            fail("file.open() failed. " + ex);
+        }
+        assertTrue(fid > 0);
+
+        Group grp = null;
+        Group sub = null;
+        try {
+            grp = file.createGroup("new group", null);
+            sub = file.createGroup("sub group", grp);
+        }
+        catch (final Exception ex) {
+            fail("file.createGroup() failed. " + ex);
+        }
+        assertNotNull(grp);
+        assertNotNull(sub);
+
+        assertTrue(grp == FileFormat.findObject(file, "/new group"));
+        assertTrue(sub == FileFormat.findObject(file, "/new group/sub group"));
+        assertTrue(grp == FileFormat.findObject(file, grp.getOID()));
+        assertTrue(sub == FileFormat.findObject(file, sub.getOID()));
+
+        try {
+            grp.setName("renamed group");
+        }
+        catch (final Exception ex) {
+            fail("grp.setName() failed. " + ex);
+        }
+        assertEquals("/renamed group/sub group", sub.getFullName());
+        assertNull(FileFormat.findObject(file, "/new group"));
+        assertNull(FileFormat.findObject(file, "/new group/sub group"));
+        assertTrue(grp == FileFormat.findObject(file, "/renamed group"));
+        assertTrue(sub == FileFormat.findObject(file, "/renamed group/sub group"));
+
+        ((Group)file.getRootObject()).removeFromMemberList(grp);
+        assertNull(FileFormat.findObject(file, "/renamed group"));
+        assertNull(FileFormat.findObject(file, "/renamed group/sub group"));
+        assertNull(FileFormat.findObject(file, grp.getOID()));
+
+        try {
+            file.close();
+        }
+        catch (final Exception ex) {
+        }
+        file.delete();
+    }
+
     /**
      * Test method for {@link hdf.object.h5.H5File#createGroup(java.lang.String, hdf.object.Group, int)} .
      *
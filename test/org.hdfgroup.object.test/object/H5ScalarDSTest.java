@@ -1,5 +1,6 @@
 package object;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
@@ -15,14 +16,20 @@ import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.lang.reflect.Array;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Vector;
 
 import hdf.object.Attribute;
+import hdf.object.DataBlock;
+import hdf.object.DataBuffer;
 import hdf.object.Dataset;
+import hdf.object.DatasetStatistics;
 import hdf.object.Datatype;
+import hdf.object.DirtyRegions;
 import hdf.object.FileFormat;
 import hdf.object.Group;
+import hdf.object.OverviewPyramid;
 import hdf.object.ScalarDS;
 import hdf.object.h5.H5Datatype;
 import hdf.object.h5.H5File;
@@ -758,6 +765,697 @@ public class H5ScalarDSTest {
         log.trace("testReadByRow testDataset finished");
     }
 
+    /**
+     * Test method for {@link hdf.object.h5.H5ScalarDS#duplicate()}.
+     *
+     * What to test:
+     * <ul>
+     * <li>The duplicate has the selection of the dataset
+     * <li>Changing the selection of the duplicate leaves the dataset unchanged
+     * <li>Data read by the duplicate is returned by getData() of the dataset
+     * </ul>
+     */
+    @Test
+    public void testDuplicate()
+    {
+        log.debug("testDuplicate");
+        testDataset.init();
+        final long[] start    = testDataset.getStartDims();
+        final long[] selected = testDataset.getSelectedDims();
+        start[0]              = 10;
+        selected[0]           = 5;
+
+        try {
+            final Dataset dup = testDataset.duplicate();
+            assertNotNull(dup);
+            assertArrayEquals(start, dup.getStartDims());
+            assertArrayEquals(selected, dup.getSelectedDims());
+
+            // read the rows after the current selection through the duplicate
+            dup.getStartDims()[0] = 15;
+            assertEquals(10, start[0]);
+            final int[] next = (int[])dup.read();
+
+            testDataset.clearData();
+            start[0] = 15;
+            testDataset.setPrefetchedData(next);
+            final int[] ints = (int[])testDataset.getData();
+            assertTrue(ints == next);
+            for (int i = 0; i < ints.length; i++)
+                assertEquals(H5TestFile.DATA_INT[(int)(15 * H5TestFile.DIM2) + i], ints[i]);
+        }
+        catch (final Exception ex) {
+            fail("duplicate() failed. " + ex);
+        }
+
+        testDataset.init();
+    }
+
+    /**
+     * Test method for {@link hdf.object.DatasetStatistics#compute()}.
+     *
+     * What to test:
+     * <ul>
+     * <li>Compute the statistics of the whole dataset
+     * <li>Compare min, max, mean and standard deviation with the values computed in memory
+     * <li>Compute the statistics and histogram of a hyperslab that is not aligned to the chunks
+     * <li>Check that a cancelled computation returns false
+     * </ul>
+     */
+    @Test
+    public void testDatasetStatistics()
+    {
+        log.debug("testDatasetStatistics");
+        final int[] data = H5TestFile.DATA_INT;
+
+        try {
+            DatasetStatistics stats = new DatasetStatistics(testDataset);
+            assertTrue(stats.compute());
+            assertEquals(data.length, stats.getCount());
+            assertEquals(0, stats.getMin(), 0);
+            assertEquals(data.length - 1, stats.getMax(), 0);
+
+            double sum = 0;
+            for (int i = 0; i < data.length; i++)
+                sum += data[i];
+            final double mean = sum / data.length;
+            double var        = 0;
+            for (int i = 0; i < data.length; i++)
+                var += (data[i] - mean) * (data[i] - mean);
+            assertEquals(mean, stats.getMean(), 1e-9);
+            assertEquals(Math.sqrt(var / (data.length - 1)), stats.getStandardDeviation(), 1e-9);
+            assertEquals(1.0, stats.getProgress(), 0);
+
+            // rows 3..41, columns 2..8
+            stats = new DatasetStatistics(testDataset);
+            stats.setSelection(new long[] {3, 2}, new long[] {39, 7});
+            stats.setHistogram(10, null);
+            assertTrue(stats.compute());
+            assertEquals(39 * 7, stats.getCount());
+            assertEquals(3 * H5TestFile.DIM2 + 2, stats.getMin(), 0);
+            assertEquals(41 * H5TestFile.DIM2 + 8, stats.getMax(), 0);
+            long[] hist = stats.getHistogram();
+            assertNotNull(hist);
+            assertEquals(10, hist.length);
+            long total = 0;
+            for (int i = 0; i < hist.length; i++)
+                total += hist[i];
+            assertEquals(stats.getCount(), total);
+            assertArrayEquals(new double[] {stats.getMin(), stats.getMax()}, stats.getHistogramRange(), 0);
+
+            stats = new DatasetStatistics(testDataset);
+            stats.cancel();
+            assertFalse(stats.compute());
+            assertTrue(stats.isCancelled());
+        }
+        catch (final Exception ex) {
+            fail("DatasetStatistics.compute() failed. " + ex);
+        }
+    }
+
+    /**
+     * Test method for {@link hdf.object.OverviewPyramid#build()}.
+     *
+     * What to test:
+     * <ul>
+     * <li>Build the overview of an image smaller than a level
+     * <li>Check that the progress goes from 0 to 1
+     * <li>Check that level 0 holds the full resolution values
+     * <li>Check the selection and zoom mapping of the level
+     * <li>Read a region of the full resolution plane
+     * </ul>
+     */
+    @Test
+    public void testOverviewPyramid()
+    {
+        log.debug("testOverviewPyramid");
+
+        try {
+            assertTrue(OverviewPyramid.isSupported(testDataset));
+
+            final OverviewPyramid pyramid =
+                new OverviewPyramid(testDataset, OverviewPyramid.DEFAULT_MAX_PIXELS);
+            assertEquals(0, pyramid.getProgress(), 0);
+            assertTrue(pyramid.build());
+            assertEquals(1, pyramid.getProgress(), 0);
+            assertEquals(1, pyramid.getLevelCount());
+            assertEquals(1, pyramid.getScale(0));
+            assertEquals(H5TestFile.DIM2, pyramid.getWidth(0));
+            assertEquals(H5TestFile.DIM1, pyramid.getHeight(0));
+            assertArrayEquals(H5TestFile.DATA_INT, (int[])pyramid.getData(0));
+
+            assertEquals(0, pyramid.getLevelForZoom(0.5));
+            assertEquals(0, pyramid.getLevelForZoom(1));
+            assertEquals(-1, pyramid.getLevelForZoom(2));
+
+            final long[] start    = new long[2];
+            final long[] selected = new long[2];
+            final long[] stride   = new long[2];
+            pyramid.getSelection(0, start, selected, stride);
+            assertArrayEquals(new long[] {0, 0}, start);
+            assertArrayEquals(new long[] {H5TestFile.DIM1, H5TestFile.DIM2}, selected);
+            assertArrayEquals(new long[] {1, 1}, stride);
+
+            final int[] region = (int[])pyramid.readRegion(1, 2, 2, 3);
+            assertEquals(6, region.length);
+            for (int i = 0; i < 2; i++) {
+                for (int j = 0; j < 3; j++) {
+                    int idx = (int)((1 + i) * H5TestFile.DIM2 + 2 + j);
+                    assertEquals(H5TestFile.DATA_INT[idx], region[i * 3 + j]);
+                }
+            }
+        }
+        catch (final Exception ex) {
+            fail("OverviewPyramid.build() failed. " + ex);
+        }
+    }
+
+    /**
+     * Test method for {@link hdf.object.Dataset#setChunkCache(long, long, double)}.
+     *
+     * What to test:
+     * <ul>
+     * <li>The default policy uses the library chunk cache
+     * <li>An explicit chunk cache is set on the opened dataset after a prior default open
+     * <li>A changed explicit chunk cache replaces the previous one
+     * <li>The automatic cache stays at the default for a small selection
+     * <li>Invalid chunk cache settings are rejected
+     * </ul>
+     */
+    @Test
+    public void testChunkCache()
+    {
+        log.debug("testChunkCache");
+        testDataset.init();
+        assertEquals(Dataset.CHUNK_CACHE_DEFAULT, testDataset.getChunkCachePolicy());
+        assertNull(testDataset.getChunkCacheSize());
+        assertArrayEquals(H5TestFile.CHUNKs, testDataset.getChunkSize());
+
+        // leave an identifier opened with the default cache behind
+        final long defaultDid = testDataset.open();
+        assertTrue(defaultDid >= 0);
+        testDataset.close(defaultDid);
+
+        testDataset.setChunkCache(1031, 4L * 1024 * 1024, 1.0);
+        assertEquals(Dataset.CHUNK_CACHE_EXPLICIT, testDataset.getChunkCachePolicy());
+        checkChunkCache(1031, 4L * 1024 * 1024, 1.0);
+
+        testDataset.setChunkCache(2053, 2L * 1024 * 1024, 0.5);
+        checkChunkCache(2053, 2L * 1024 * 1024, 0.5);
+
+        // the chunks of the whole test dataset fit in the default cache
+        testDataset.setChunkCachePolicy(Dataset.CHUNK_CACHE_AUTO);
+        assertNull(testDataset.getChunkCacheSize());
+
+        try {
+            testDataset.setChunkCache(0, 1024, 0.5);
+            fail("setChunkCache() accepted zero slots");
+        }
+        catch (final IllegalArgumentException ex) {
+        }
+        try {
+            testDataset.setChunkCachePolicy(-1);
+            fail("setChunkCachePolicy() accepted an unknown policy");
+        }
+        catch (final IllegalArgumentException ex) {
+        }
+
+        testDataset.setChunkCachePolicy(Dataset.CHUNK_CACHE_DEFAULT);
+    }
+
+    /**
+     * Opens the test dataset and checks the chunk cache the library uses for it.
+     */
+    private void checkChunkCache(long expectedSlots, long expectedBytes, double expectedW0)
+    {
+        final long did = testDataset.open();
+        assertTrue(did >= 0);
+        long dapl = -1;
+        try {
+            final long[] nslots = {0};
+            final long[] nbytes = {0};
+            final double[] w0   = {0};
+            dapl                = H5.H5Dget_access_plist(did);
+            H5.H5Pget_chunk_cache(dapl, nslots, nbytes, w0);
+            assertEquals(expectedSlots, nslots[0]);
+            assertEquals(expectedBytes, nbytes[0]);
+            assertEquals(expectedW0, w0[0], 0.0);
+        }
+        catch (final Exception ex) {
+            fail("H5.H5Pget_chunk_cache() failed. " + ex);
+        }
+        finally {
+            try {
+                H5.H5Pclose(dapl);
+            }
+            catch (final Exception ex) {
+            }
+            testDataset.close(did);
+        }
+    }
+
+    /**
+     * Test method for {@link hdf.object.Dataset#blockIterator(long[])}.
+     *
+     * What to test:
+     * <ul>
+     * <li>Default block size is a whole number of chunks
+     * <li>Read the whole dataset block by block, with trimmed edge blocks
+     * <li>Read a string dataset block by block
+     * <li>Current selection is not changed by the iteration
+     * <li>Invalid block sizes are rejected
+     * </ul>
+     */
+    @Test
+    public void testBlockIterator()
+    {
+        log.debug("testBlockIterator");
+        testDataset.init();
+
+        final long[] blockDims = testDataset.getBlockDims();
+        assertNotNull(blockDims);
+        assertEquals(2, blockDims.length);
+        for (int i = 0; i < blockDims.length; i++)
+            assertEquals(0, blockDims[i] % H5TestFile.CHUNKs[i]);
+
+        final long[] selected = testDataset.getSelectedDims().clone();
+        final int[] ints      = new int[H5TestFile.DIM_SIZE];
+        int nblocks           = 0;
+        try {
+            Iterator<DataBlock> it = testDataset.blockIterator(new long[] {20, 3});
+            while (it.hasNext()) {
+                DataBlock block = it.next();
+                long[] start    = block.getStart();
+                long[] count    = block.getCount();
+                int[] values    = (int[])block.getData();
+                assertEquals(block.getPointCount(), values.length);
+                for (int r = 0; r < count[0]; r++) {
+                    for (int c = 0; c < count[1]; c++) {
+                        int idx   = (int)((start[0] + r) * H5TestFile.DIM2 + start[1] + c);
+                        ints[idx] = values[(int)(r * count[1] + c)];
+                    }
+                }
+                nblocks++;
+            }
+        }
+        catch (final Exception ex) {
+            fail("blockIterator() failed. " + ex);
+        }
+        assertEquals(3 * 4, nblocks);
+        for (int i = 0; i < ints.length; i++)
+            assertEquals(H5TestFile.DATA_INT[i], ints[i]);
+
+        final long[] current = testDataset.getSelectedDims();
+        for (int i = 0; i < selected.length; i++)
+            assertEquals(selected[i], current[i]);
+
+        try {
+            final H5ScalarDS dset = (H5ScalarDS)testFile.get(H5TestFile.NAME_DATASET_STR);
+            dset.init();
+            int row                = 0;
+            Iterator<DataBlock> it = dset.blockIterator(new long[] {1, H5TestFile.DIM2});
+            while (it.hasNext()) {
+                String[] strs = (String[])it.next().getData();
+                assertEquals(H5TestFile.DIM2, strs.length);
+                for (int j = 0; j < strs.length; j++)
+                    assertEquals(H5TestFile.DATA_STR[row * (int)H5TestFile.DIM2 + j], strs[j]);
+                row++;
+            }
+            assertEquals(H5TestFile.DIM1, row);
+        }
+        catch (final Exception ex) {
+            fail("blockIterator() of string dataset failed. " + ex);
+        }
+
+        try {
+            testDataset.blockIterator(new long[] {1});
+            fail("blockIterator() accepted a block of the wrong rank.");
+        }
+        catch (final IllegalArgumentException ex) {
+            // expected
+        }
+        catch (final Exception ex) {
+            fail("blockIterator() failed. " + ex);
+        }
+    }
+
+    /**
+     * Test method for {@link hdf.object.h5.H5ScalarDS#readBuffer()}.
+     *
+     * What to test:
+     * <ul>
+     * <li>Read the whole dataset into an off-heap buffer
+     * <li>Read a strided subset into an off-heap buffer
+     * <li>String datasets can not be read into a buffer
+     * </ul>
+     */
+    @Test
+    public void testReadBuffer()
+    {
+        log.debug("testReadBuffer");
+        testDataset.init();
+        assertTrue(testDataset.isBufferReadable());
+
+        DataBuffer buffer = null;
+        try {
+            buffer = testDataset.readBuffer();
+        }
+        catch (final Exception ex) {
+            fail("readBuffer() failed. " + ex);
+        }
+        assertNotNull(buffer);
+        assertEquals('I', buffer.getClassType());
+        assertEquals(H5TestFile.DIM_SIZE, buffer.getPointCount());
+        for (int i = 0; i < H5TestFile.DIM_SIZE; i++) {
+            assertEquals(H5TestFile.DATA_INT[i], buffer.getInt(i));
+            assertEquals(Integer.valueOf(H5TestFile.DATA_INT[i]), buffer.get(i));
+        }
+
+        // select every other row of columns 2 to 5
+        final long[] start    = testDataset.getStartDims();
+        final long[] stride   = testDataset.getStride();
+        final long[] selected = testDataset.getSelectedDims();
+        start[0]              = 1;
+        start[1]              = 2;
+        stride[0]             = 2;
+        selected[0]           = H5TestFile.DIM1 / 2;
+        selected[1]           = 4;
+        try {
+            buffer = testDataset.readBuffer();
+        }
+        catch (final Exception ex) {
+            fail("readBuffer() of a subset failed. " + ex);
+        }
+        assertEquals(selected[0] * selected[1], buffer.getPointCount());
+        for (int r = 0; r < selected[0]; r++) {
+            for (int c = 0; c < selected[1]; c++) {
+                int idx = (int)((1 + 2 * r) * H5TestFile.DIM2 + 2 + c);
+                assertEquals(H5TestFile.DATA_INT[idx], buffer.getInt(r * selected[1] + c));
+            }
+        }
+
+        try {
+            final H5ScalarDS dset = (H5ScalarDS)testFile.get(H5TestFile.NAME_DATASET_STR);
+            dset.init();
+            assertFalse(dset.isBufferReadable());
+        }
+        catch (final Exception ex) {
+            fail("testFile.get() failed. " + ex);
+        }
+    }
+
+    /**
+     * Test method for {@link hdf.object.h5.H5ScalarDS#read()} of a contiguous dataset in a read-only file.
+     *
+     * What to test:
+     * <ul>
+     * <li>Mapped reads are off by default
+     * <li>Read the whole dataset from the mapped file
+     * <li>Read a strided subset from the mapped file
+     * <li>Read the whole dataset into a buffer
+     * </ul>
+     */
+    @Test
+    public void testReadMapped()
+    {
+        log.debug("testReadMapped");
+        final String fname = "H5ScalarDS_testReadMapped.h5";
+        H5File tmpFile     = new H5File(fname, FileFormat.CREATE);
+
+        try {
+            tmpFile.open();
+            tmpFile.createScalarDS(DNAME, null, typeInt, H5TestFile.DIMs, null, null, 0, H5TestFile.DATA_INT);
+            tmpFile.close();
+
+            tmpFile = new H5File(fname, FileFormat.READ);
+            tmpFile.open();
+            final H5ScalarDS dset = (H5ScalarDS)tmpFile.get(DNAME);
+            dset.init();
+            assertFalse(dset.isMappedIO());
+            dset.setMappedIO(true);
+
+            final int[] ints = (int[])dset.read();
+            assertNotNull(ints);
+            for (int i = 0; i < ints.length; i++)
+                assertEquals(H5TestFile.DATA_INT[i], ints[i]);
+
+            final DataBuffer buffer = dset.readBuffer();
+            assertEquals(H5TestFile.DIM_SIZE, buffer.getPointCount());
+            for (int i = 0; i < H5TestFile.DIM_SIZE; i++)
+                assertEquals(H5TestFile.DATA_INT[i], buffer.getInt(i));
+
+            // select every third column of every other row, starting at (1, 1)
+            final long[] start    = dset.getStartDims();
+            final long[] stride   = dset.getStride();
+            final long[] selected = dset.getSelectedDims();
+            start[0]              = 1;
+            start[1]              = 1;
+            stride[0]             = 2;
+            stride[1]             = 3;
+            selected[0]           = H5TestFile.DIM1 / 2;
+            selected[1]           = 3;
+
+            final int[] subset = (int[])dset.read();
+            assertEquals((int)(selected[0] * selected[1]), subset.length);
+            for (int r = 0; r < selected[0]; r++) {
+                for (int c = 0; c < selected[1]; c++) {
+                    int idx = (int)((1 + 2 * r) * H5TestFile.DIM2 + 1 + 3 * c);
+                    assertEquals(H5TestFile.DATA_INT[idx], subset[(int)(r * selected[1] + c)]);
+                }
+            }
+        }
+        catch (final Exception ex) {
+            fail("testReadMapped() failed. " + ex);
+        }
+        finally {
+            try {
+                tmpFile.close();
+            }
+            catch (final Exception ex) {
+                System.err.println("tmpFile.close() failed. " + ex);
+            }
+            tmpFile.delete();
+        }
+    }
+
+    /**
+     * Test method for {@link hdf.object.h5.H5ScalarDS#read()} of a compressed dataset in a read-only file.
+     *
+     * What to test:
+     * <ul>
+     * <li>Parallel chunk reads are off by default
+     * <li>Read the whole dataset with the chunks decoded in parallel
+     * <li>Read a subset that cuts through partial edge chunks
+     * <li>Compare both with reads through the library
+     * </ul>
+     */
+    @Test
+    public void testReadParallelChunks()
+    {
+        log.debug("testReadParallelChunks");
+        final String fname  = "H5ScalarDS_testReadParallelChunks.h5";
+        final long[] chunks = {7, 4};
+        H5File tmpFile      = new H5File(fname, FileFormat.CREATE);
+
+        try {
+            tmpFile.open();
+            tmpFile.createScalarDS(DNAME, null, typeInt, H5TestFile.DIMs, null, chunks, 6,
+                                   H5TestFile.DATA_INT);
+            tmpFile.close();
+
+            tmpFile = new H5File(fname, FileFormat.READ);
+            tmpFile.open();
+            final H5ScalarDS dset = (H5ScalarDS)tmpFile.get(DNAME);
+            dset.init();
+            assertFalse(dset.isParallelChunkRead());
+
+            final int[] serialAll = (int[])dset.read();
+            dset.setParallelChunkRead(true);
+
+            final int[] ints = (int[])dset.read();
+            assertNotNull(ints);
+            assertEquals(H5TestFile.DIM_SIZE, ints.length);
+            for (int i = 0; i < ints.length; i++)
+                assertEquals(H5TestFile.DATA_INT[i], ints[i]);
+            assertArrayEquals(serialAll, ints);
+
+            final long[] start    = dset.getStartDims();
+            final long[] selected = dset.getSelectedDims();
+            start[0]              = 5;
+            start[1]              = 3;
+            selected[0]           = 20;
+            selected[1]           = 6;
+
+            final int[] subset = (int[])dset.read();
+            assertEquals((int)(selected[0] * selected[1]), subset.length);
+            for (int r = 0; r < selected[0]; r++) {
+                for (int c = 0; c < selected[1]; c++) {
+                    int idx = (int)((start[0] + r) * H5TestFile.DIM2 + start[1] + c);
+                    assertEquals(H5TestFile.DATA_INT[idx], subset[(int)(r * selected[1] + c)]);
+                }
+            }
+
+            dset.setParallelChunkRead(false);
+            final int[] serial = (int[])dset.read();
+            assertArrayEquals(serial, subset);
+        }
+        catch (final Exception ex) {
+            fail("testReadParallelChunks() failed. " + ex);
+        }
+        finally {
+            try {
+                tmpFile.close();
+            }
+            catch (final Exception ex) {
+                System.err.println("tmpFile.close() failed. " + ex);
+            }
+            tmpFile.delete();
+        }
+    }
+
+    /**
+     * Test method for {@link hdf.object.h5.H5ScalarDS#write(java.lang.Object)} of a compressed dataset.
+     *
+     * What to test:
+     * <ul>
+     * <li>Create a compressed dataset with the chunks encoded in parallel
+     * <li>Overwrite a subset that is not aligned with the chunks
+     * <li>Read the dataset back through the library
+     * </ul>
+     */
+    @Test
+    public void testWriteParallelChunks()
+    {
+        log.debug("testWriteParallelChunks");
+        final String fname   = "H5ScalarDS_testWriteParallelChunks.h5";
+        final long[] chunks  = {7, 4};
+        final int[] expected = H5TestFile.DATA_INT.clone();
+        H5File tmpFile       = new H5File(fname, FileFormat.CREATE);
+
+        try {
+            tmpFile.open();
+            H5ScalarDS dset = (H5ScalarDS)tmpFile.createScalarDS(DNAME, null, typeInt, H5TestFile.DIMs, null,
+                                                                 chunks, 6, H5TestFile.DATA_INT);
+            assertTrue(dset.isParallelChunkWrite());
+
+            // a subset that starts inside a chunk is written through the library
+            dset.init();
+            final long[] start    = dset.getStartDims();
+            final long[] selected = dset.getSelectedDims();
+            start[0]              = 3;
+            start[1]              = 1;
+            selected[0]           = 10;
+            selected[1]           = 5;
+            final int[] subset    = new int[(int)(selected[0] * selected[1])];
+            for (int r = 0; r < selected[0]; r++) {
+                for (int c = 0; c < selected[1]; c++) {
+                    long idx                           = (start[0] + r) * H5TestFile.DIM2 + start[1] + c;
+                    subset[(int)(r * selected[1] + c)] = TEST_VALUE_INT - r - c;
+                    expected[(int)idx]                 = TEST_VALUE_INT - r - c;
+                }
+            }
+            dset.write(subset);
+            tmpFile.close();
+
+            tmpFile = new H5File(fname, FileFormat.READ);
+            tmpFile.open();
+            dset = (H5ScalarDS)tmpFile.get(DNAME);
+            dset.init();
+            dset.setParallelChunkRead(false);
+
+            final int[] ints = (int[])dset.read();
+            assertNotNull(ints);
+            assertArrayEquals(expected, ints);
+        }
+        catch (final Exception ex) {
+            fail("testWriteParallelChunks() failed. " + ex);
+        }
+        finally {
+            try {
+                tmpFile.close();
+            }
+            catch (final Exception ex) {
+                System.err.println("tmpFile.close() failed. " + ex);
+            }
+            tmpFile.delete();
+        }
+    }
+
+    /**
+     * Test method for {@link hdf.object.h5.H5ScalarDS#write(hdf.object.DirtyRegions)}.
+     *
+     * What to test:
+     * <ul>
+     * <li>Select a subset of a dataset and change a column and a few single values in memory
+     * <li>Check that the changed column makes up a single hyperslab
+     * <li>Write only the changed values
+     * <li>Read the dataset back and check that no other value has changed
+     * </ul>
+     */
+    @Test
+    public void testWriteDirtyRegions()
+    {
+        log.debug("testWriteDirtyRegions");
+        final String fname   = "H5ScalarDS_testWriteDirtyRegions.h5";
+        final int[] expected = H5TestFile.DATA_INT.clone();
+        H5File tmpFile       = new H5File(fname, FileFormat.CREATE);
+
+        try {
+            tmpFile.open();
+            H5ScalarDS dset = (H5ScalarDS)tmpFile.createScalarDS(DNAME, null, typeInt, H5TestFile.DIMs, null,
+                                                                 null, 0, H5TestFile.DATA_INT);
+            dset.init();
+            final long[] start    = dset.getStartDims();
+            final long[] selected = dset.getSelectedDims();
+            start[0]              = 5;
+            start[1]              = 2;
+            selected[0]           = 20;
+            selected[1]           = 6;
+            final int[] data      = (int[])dset.getData();
+            final int width       = (int)selected[1];
+
+            final DirtyRegions regions = new DirtyRegions();
+            for (int r = 0; r < selected[0]; r++) {
+                data[r * width + 3] = TEST_VALUE_INT - r;
+                regions.add(r * width + 3);
+                expected[(int)((start[0] + r) * H5TestFile.DIM2 + start[1] + 3)] = TEST_VALUE_INT - r;
+            }
+            assertEquals(1, regions.getHyperslabs(selected, Dataset.MAX_WRITE_REGIONS).size());
+
+            for (int i = 0; i < 3; i++) {
+                int idx   = 10 + i * 37;
+                data[idx] = -TEST_VALUE_INT - i;
+                regions.add(idx);
+                expected[(int)((start[0] + idx / width) * H5TestFile.DIM2 + start[1] + idx % width)] =
+                    -TEST_VALUE_INT - i;
+            }
+
+            dset.write(regions);
+            tmpFile.close();
+
+            tmpFile = new H5File(fname, FileFormat.READ);
+            tmpFile.open();
+            dset = (H5ScalarDS)tmpFile.get(DNAME);
+            dset.init();
+
+            final int[] ints = (int[])dset.read();
+            assertNotNull(ints);
+            assertArrayEquals(expected, ints);
+        }
+        catch (final Exception ex) {
+            fail("testWriteDirtyRegions() failed. " + ex);
+        }
+        finally {
+            try {
+                tmpFile.close();
+            }
+            catch (final Exception ex) {
+                System.err.println("tmpFile.close() failed. " + ex);
+            }
+            tmpFile.delete();
+        }
+    }
+
     /**
      * Test method for {@link hdf.object.h5.H5ScalarDS#readBytes()}.
      *
@@ -1125,8 +1823,11 @@ public class H5ScalarDSTest {
                         System.err.println("testFile.close() failed. " + ex);
                     }
 
+                    // the copies stay open in the handle pool of the file until they are dropped
                     log.trace("testCopy check obj count");
+                    tmpFile.setHandlePoolSize(0);
                     checkObjCount(tmpFile.getFID());
+                    tmpFile.setHandlePoolSize(H5File.DEFAULT_HANDLE_POOL_SIZE);
                 } //  (int openOption=0; openOption<2; openOption++)
             }
             finally {